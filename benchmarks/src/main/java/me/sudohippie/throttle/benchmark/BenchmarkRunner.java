@@ -0,0 +1,44 @@
+package me.sudohippie.throttle.benchmark;
+
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks once per thread count, doubling from 1 up to the number of
+ * available processors (or the {@code -Dthreads.max} system property). A thread count
+ * given with {@code -t} is run on its own.
+ *
+ * Any other JMH command line option is passed through, e.g. to select benchmarks
+ * with a regular expression or to write results with {@code -rff}.
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        if(commandLine.getThreads().hasValue()){
+            new Runner(commandLine).run();
+            return;
+        }
+
+        int maxThreads = Integer.getInteger("threads.max", Runtime.getRuntime().availableProcessors());
+
+        for(int threads = 1; threads <= maxThreads; threads = nextThreadCount(threads, maxThreads)){
+            Options options = new OptionsBuilder()
+                    .parent(commandLine)
+                    .threads(threads)
+                    .build();
+
+            new Runner(options).run();
+        }
+    }
+
+    // doubles thread count, making sure max is measured as well
+    private static int nextThreadCount(int threads, int maxThreads) {
+        if(threads == maxThreads) return threads + 1;
+        return Math.min(threads * 2, maxThreads);
+    }
+}
@@ -0,0 +1,97 @@
+package me.sudohippie.throttle.benchmark;
+
+import me.sudohippie.throttle.metrics.InstrumentedThrottleStrategy;
+import me.sudohippie.throttle.strategy.ThrottleStrategy;
+import me.sudohippie.throttle.strategy.bucket.AtomicFixedTokenBucketStrategy;
+import me.sudohippie.throttle.strategy.bucket.AtomicStepDownLeakyTokenBucketStrategy;
+import me.sudohippie.throttle.strategy.bucket.AtomicStepUpLeakyTokenBucketStrategy;
+import me.sudohippie.throttle.strategy.bucket.ContinuousTokenBucketStrategy;
+import me.sudohippie.throttle.strategy.bucket.FixedTokenBucketStrategy;
+import me.sudohippie.throttle.strategy.bucket.StepDownLeakyTokenBucketStrategy;
+import me.sudohippie.throttle.strategy.bucket.StepUpLeakyTokenBucketStrategy;
+import me.sudohippie.throttle.strategy.bucket.StripedTokenBucketStrategy;
+import me.sudohippie.throttle.strategy.gcra.GenericCellRateStrategy;
+import me.sudohippie.throttle.strategy.window.SlidingWindowCounterStrategy;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds the strategies under benchmark, either in a state where permits are always
+ * available or in a state where every request is throttled.
+ *
+ * Throttled strategies are real buckets drained before the measurement. Intervals are long
+ * enough that no refill happens during a measurement, so the numbers reflect the steady
+ * state hot path.
+ */
+final class Strategies {
+
+    static final String AVAILABLE = "available";
+    static final String THROTTLED = "throttled";
+
+    // large enough to never run dry, small enough for step math not to overflow
+    private static final long AVAILABLE_CAPACITY = Long.MAX_VALUE / 2;
+    private static final long AVAILABLE_STEP_TOKENS = AVAILABLE_CAPACITY / 64;
+    // a token per nano, continuous refill keeps capacity in fixed point units per token
+    private static final long AVAILABLE_CONTINUOUS_CAPACITY = TimeUnit.DAYS.toNanos(1);
+    // a single token per interval, taken before the measurement
+    private static final long THROTTLED_CAPACITY = 1;
+    private static final long THROTTLED_STEP_TOKENS = 1;
+
+    private static final long REFILL_INTERVAL = 1;
+    private static final TimeUnit REFILL_INTERVAL_TIME_UNIT = TimeUnit.DAYS;
+    private static final long STEP_INTERVAL = 1;
+    private static final TimeUnit STEP_INTERVAL_TIME_UNIT = TimeUnit.HOURS;
+
+    private Strategies() {
+    }
+
+    static ThrottleStrategy create(String name, String state) {
+        boolean available;
+        if(AVAILABLE.equals(state)) available = true;
+        else if(THROTTLED.equals(state)) available = false;
+        else throw new IllegalArgumentException("Unknown state " + state);
+
+        long capacity = available ? AVAILABLE_CAPACITY : THROTTLED_CAPACITY;
+        long stepTokens = available ? AVAILABLE_STEP_TOKENS : THROTTLED_STEP_TOKENS;
+        long continuousCapacity = available ? AVAILABLE_CONTINUOUS_CAPACITY : THROTTLED_CAPACITY;
+
+        ThrottleStrategy strategy = build(name, capacity, stepTokens, continuousCapacity);
+        if(!available) drain(strategy);
+        return strategy;
+    }
+
+    private static ThrottleStrategy build(String name, long capacity, long stepTokens, long continuousCapacity) {
+        switch (name){
+            case "FixedTokenBucket":
+                return new FixedTokenBucketStrategy(capacity, REFILL_INTERVAL, REFILL_INTERVAL_TIME_UNIT);
+            case "StepUpLeakyTokenBucket":
+                return new StepUpLeakyTokenBucketStrategy(capacity, REFILL_INTERVAL, REFILL_INTERVAL_TIME_UNIT, stepTokens, STEP_INTERVAL, STEP_INTERVAL_TIME_UNIT);
+            case "StepDownLeakyTokenBucket":
+                return new StepDownLeakyTokenBucketStrategy(capacity, REFILL_INTERVAL, REFILL_INTERVAL_TIME_UNIT, stepTokens, STEP_INTERVAL, STEP_INTERVAL_TIME_UNIT);
+            case "AtomicFixedTokenBucket":
+                return new AtomicFixedTokenBucketStrategy(capacity, REFILL_INTERVAL, REFILL_INTERVAL_TIME_UNIT);
+            case "AtomicStepUpLeakyTokenBucket":
+                return new AtomicStepUpLeakyTokenBucketStrategy(capacity, REFILL_INTERVAL, REFILL_INTERVAL_TIME_UNIT, stepTokens, STEP_INTERVAL, STEP_INTERVAL_TIME_UNIT);
+            case "AtomicStepDownLeakyTokenBucket":
+                return new AtomicStepDownLeakyTokenBucketStrategy(capacity, REFILL_INTERVAL, REFILL_INTERVAL_TIME_UNIT, stepTokens, STEP_INTERVAL, STEP_INTERVAL_TIME_UNIT);
+            case "StripedTokenBucket":
+                return new StripedTokenBucketStrategy(capacity, REFILL_INTERVAL, REFILL_INTERVAL_TIME_UNIT);
+            case "ContinuousTokenBucket":
+                return new ContinuousTokenBucketStrategy(continuousCapacity, REFILL_INTERVAL, REFILL_INTERVAL_TIME_UNIT);
+            case "GenericCellRate":
+                return new GenericCellRateStrategy(capacity, REFILL_INTERVAL, REFILL_INTERVAL_TIME_UNIT);
+            case "SlidingWindowCounter":
+                return new SlidingWindowCounterStrategy(capacity, REFILL_INTERVAL, REFILL_INTERVAL_TIME_UNIT);
+            case "InstrumentedFixedTokenBucket":
+                return new InstrumentedThrottleStrategy(new FixedTokenBucketStrategy(capacity, REFILL_INTERVAL, REFILL_INTERVAL_TIME_UNIT));
+            default:
+                throw new IllegalArgumentException("Unknown strategy " + name);
+        }
+    }
+
+    // takes every token, the bucket stays empty until its next refill
+    private static void drain(ThrottleStrategy strategy) {
+        while(!strategy.isThrottled()) {
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package me.sudohippie.throttle.benchmark;
+
+import me.sudohippie.throttle.Throttle;
+import me.sudohippie.throttle.strategy.ThrottleStrategy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hot path of every token bucket strategy, shared by all benchmark threads.
+ *
+ * Thread count is chosen at run time, see {@link BenchmarkRunner} or pass {@code -t} to JMH.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenBucketBenchmark {
+
+    @Param({"FixedTokenBucket", "StepUpLeakyTokenBucket", "StepDownLeakyTokenBucket",
+            "AtomicFixedTokenBucket", "AtomicStepUpLeakyTokenBucket", "AtomicStepDownLeakyTokenBucket",
+            "StripedTokenBucket", "ContinuousTokenBucket", "GenericCellRate", "SlidingWindowCounter",
+            "InstrumentedFixedTokenBucket"})
+    public String strategyName;
+
+    @Param({Strategies.AVAILABLE, Strategies.THROTTLED})
+    public String bucketState;
+
+    @Param({"1"})
+    public long n;
+
+    private ThrottleStrategy strategy;
+    private Throttle throttle;
+
+    @Setup
+    public void setUp() {
+        strategy = Strategies.create(strategyName, bucketState);
+        throttle = new Throttle(strategy);
+    }
+
+    @Benchmark
+    public boolean canProceed() {
+        return throttle.canProceed();
+    }
+
+    @Benchmark
+    public boolean isThrottled() {
+        return strategy.isThrottled(n);
+    }
+
+    @Benchmark
+    public long timeToRelease() {
+        return strategy.timeToRelease(n, TimeUnit.NANOSECONDS);
+    }
+}
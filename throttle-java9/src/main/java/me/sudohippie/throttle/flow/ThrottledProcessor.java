@@ -0,0 +1,233 @@
+package me.sudohippie.throttle.flow;
+
+import me.sudohippie.throttle.strategy.ThrottleStrategy;
+import me.sudohippie.throttle.util.Assert;
+import me.sudohippie.throttle.util.TimerWheel;
+
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link Flow.Processor} pacing the elements of a stream with a {@link ThrottleStrategy}, one token
+ * per element.
+ *
+ * Elements are never buffered. Instead, tokens are taken before elements are requested upstream:
+ * the processor takes up to a batch of tokens, as far as its subscriber has demand, and requests as
+ * many elements. Each element is then passed on as it arrives, and tokens for the next batch are
+ * taken once half of the batch has arrived. When the strategy throttles, taking tokens is retried
+ * on a {@link TimerWheel} when the strategy expects them to be released, rather than polled.
+ *
+ * Tokens taken for elements which never arrive, because the stream completed or was cancelled, are
+ * refunded to strategies supporting refunds. The processor serves a single subscriber; a stream
+ * which terminates before the subscriber arrives is signalled to it on subscription.
+ */
+public class ThrottledProcessor<T> implements Flow.Processor<T, T> {
+
+    private static final int DEFAULT_BATCH_SIZE = 64;
+
+    private final ThrottleStrategy strategy;
+    private final long batchSize;
+    private final TimerWheel timer;
+
+    // elements requested by the subscriber, no tokens taken for yet
+    private final AtomicLong demand = new AtomicLong();
+    // elements requested upstream, not arrived yet
+    private final AtomicLong outstanding = new AtomicLong();
+    // serializes taking tokens and requesting upstream
+    private final AtomicInteger wip = new AtomicInteger();
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+    // set once the terminal signal has been passed on
+    private final AtomicBoolean terminalSignalled = new AtomicBoolean();
+    private final Runnable resume = this::resume;
+
+    private volatile Flow.Subscription upstream;
+    private volatile Flow.Subscriber<? super T> downstream;
+    private volatile boolean done;
+    // set once upstream or invalid demand terminated the stream, error is null on completion
+    private volatile boolean terminated;
+    private volatile Throwable error;
+    // set by the drain while taking tokens is scheduled for a later time
+    private volatile boolean waiting;
+
+    public ThrottledProcessor(ThrottleStrategy strategy) {
+        this(strategy, DEFAULT_BATCH_SIZE, null);
+    }
+
+    /**
+     * Constructor to build a ThrottledProcessor.
+     *
+     * @param strategy throttling strategy, one token per element
+     * @param batchSize Maximum elements requested upstream at once, capped at the strategy's capacity.
+     * @param timer timer retrying throttled batches, the shared timer when null
+     */
+    public ThrottledProcessor(ThrottleStrategy strategy, int batchSize, TimerWheel timer) {
+        // preconditions
+        Assert.isTrue(strategy != null, "Strategy can not be null");
+        Assert.isTrue(batchSize > 0, "Batch size must be positive");
+
+        this.strategy = strategy;
+        this.batchSize = Math.max(1L, Math.min(batchSize, strategy.getCapacity()));
+        this.timer = timer;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super T> subscriber) {
+        // preconditions
+        Assert.isTrue(subscriber != null, "Subscriber can not be null");
+
+        if(!subscribed.compareAndSet(false, true)){
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("Processor serves a single subscriber"));
+            return;
+        }
+
+        downstream = subscriber;
+        subscriber.onSubscribe(new Subscription());
+        // the stream may have terminated before the subscriber arrived
+        signalTerminal();
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        if(upstream != null){
+            subscription.cancel();
+            return;
+        }
+        upstream = subscription;
+        drain();
+    }
+
+    @Override
+    public void onNext(T item) {
+        // elements are only requested for a subscriber's demand
+        Flow.Subscriber<? super T> downstream = this.downstream;
+        if(downstream == null) return;
+
+        downstream.onNext(item);
+        // next batch once half of this one has arrived
+        if(outstanding.decrementAndGet() <= batchSize / 2) drain();
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        done = true;
+        refundOutstanding();
+        terminate(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        done = true;
+        refundOutstanding();
+        terminate(null);
+    }
+
+    private void terminate(Throwable throwable) {
+        error = throwable;
+        terminated = true;
+        signalTerminal();
+    }
+
+    // called by both the terminating and the subscribing side, whichever comes last signals
+    private void signalTerminal() {
+        Flow.Subscriber<? super T> downstream = this.downstream;
+        if(downstream == null || !terminated || !terminalSignalled.compareAndSet(false, true)) return;
+
+        Throwable error = this.error;
+        if(error != null) downstream.onError(error);
+        else downstream.onComplete();
+    }
+
+    // takes tokens for the subscriber's demand and requests as many elements upstream
+    private void drain() {
+        if(wip.getAndIncrement() != 0) return;
+
+        do {
+            Flow.Subscription upstream = this.upstream;
+            while(!done && !waiting && upstream != null){
+                long wanted = Math.min(demand.get(), batchSize - outstanding.get());
+                if(wanted <= 0) break;
+
+                long taken = take(wanted);
+                if(taken == 0){
+                    waiting = true;
+                    timer().schedule(resume, strategy.timeToRelease(1, TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+                    break;
+                }
+
+                // unbounded demand stays unbounded
+                if(demand.get() != Long.MAX_VALUE) demand.addAndGet(-taken);
+                outstanding.addAndGet(taken);
+                upstream.request(taken);
+            }
+        } while(wip.decrementAndGet() != 0);
+    }
+
+    // takes up to n tokens, halving the request while throttled
+    private long take(long n) {
+        for(long tokens = n; tokens > 0; tokens >>= 1){
+            if(!strategy.isThrottled(tokens)) return tokens;
+        }
+        return 0L;
+    }
+
+    private void resume() {
+        waiting = false;
+        drain();
+    }
+
+    private void refundOutstanding() {
+        long unused = outstanding.getAndSet(0);
+        if(unused <= 0) return;
+
+        try {
+            strategy.refund(unused);
+        } catch (UnsupportedOperationException e) {
+            // tokens are spent
+        }
+    }
+
+    private TimerWheel timer() {
+        return timer != null ? timer : TimerWheel.shared();
+    }
+
+    private final class Subscription implements Flow.Subscription {
+
+        @Override
+        public void request(long n) {
+            if(n <= 0){
+                cancel();
+                terminate(new IllegalArgumentException("Demand must be positive"));
+                return;
+            }
+
+            // saturate at unbounded
+            long current;
+            do {
+                current = demand.get();
+            } while(current != Long.MAX_VALUE && !demand.compareAndSet(current, current + n < 0 ? Long.MAX_VALUE : current + n));
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            if(done) return;
+
+            done = true;
+            Flow.Subscription upstream = ThrottledProcessor.this.upstream;
+            if(upstream != null) upstream.cancel();
+            refundOutstanding();
+        }
+    }
+}
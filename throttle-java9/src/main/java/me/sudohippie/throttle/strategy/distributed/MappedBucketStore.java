@@ -0,0 +1,323 @@
+package me.sudohippie.throttle.strategy.distributed;
+
+import me.sudohippie.throttle.util.Assert;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static me.sudohippie.throttle.strategy.bucket.RefillPolicy.STATE_LENGTH;
+
+/**
+ * {@link BucketStore} keeping states in a memory-mapped file, shared by every process on the host
+ * which maps the same file. Co-located processes thus enforce one limit without a server, and
+ * states survive restarts of the processes.
+ *
+ * The file is a fixed size open addressing table. A slot holds a lock word, the bucket state and
+ * the key, at most {@link #MAX_KEY_LENGTH} bytes of UTF-8. Keys are never removed, so the table
+ * must have room for every key ever used. Lock words are updated with {@link VarHandle}
+ * compare-and-set on the mapped buffer, which is atomic across processes since they share the
+ * underlying pages. A lock is held for a few loads and stores only; a lock held for longer than
+ * {@link #LOCK_TIMEOUT_MILLIS}, e.g. by a process which died holding it, is taken over.
+ *
+ * All processes must read time from tickers that agree, as is the default of
+ * {@link DistributedTokenBucketStrategy}.
+ *
+ * {@link #close()} unmaps the file once calls in flight are done, later calls fail with an
+ * {@link IOException}.
+ */
+public class MappedBucketStore implements BucketStore, Closeable {
+
+    public static final int MAX_KEY_LENGTH = 92;
+    static final long LOCK_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(10);
+
+    private static final int MAGIC = 0x54484254;
+    private static final int FORMAT_VERSION = 1;
+
+    // header: magic, format version and slot count, padded to a slot
+    private static final int HEADER_SIZE = 128;
+    private static final int SLOT_SIZE = 128;
+    private static final int MAX_SLOTS = (Integer.MAX_VALUE - HEADER_SIZE) / SLOT_SIZE;
+
+    // slot layout, key bytes follow their length
+    private static final int LOCK = 0;
+    private static final int STATE = 8;
+    private static final int KEY_LENGTH = STATE + STATE_LENGTH * 8;
+    private static final int KEY = KEY_LENGTH + 4;
+
+    // low bits of a lock word tell apart holders locking in the same milli
+    private static final int HOLDER_BITS = 20;
+    private static final int SPINS = 64;
+
+    private static final VarHandle LONG = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle INT = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final Path file;
+    private final int slots;
+    private final MappedByteBuffer buffer;
+
+    // calls in flight, plus one until closed; the file is unmapped when it drops to 0
+    private final AtomicInteger references = new AtomicInteger(1);
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    /**
+     * Constructor to build a MappedBucketStore, creating the file if it does not exist.
+     *
+     * @param file file shared by the processes
+     * @param slots Maximum number of keys, must equal that of an existing file.
+     * @throws IOException if the file can not be mapped or is not a bucket table of {@code slots} slots
+     */
+    public MappedBucketStore(Path file, int slots) throws IOException {
+        // preconditions
+        Assert.isTrue(file != null, "File can not be null");
+        Assert.isTrue(slots > 0 && slots <= MAX_SLOTS, "Slot count must be positive");
+
+        this.file = file;
+        this.slots = slots;
+
+        long size = HEADER_SIZE + (long) slots * SLOT_SIZE;
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)){
+            // keeps other processes out while the header is checked or written, released when the channel closes
+            channel.lock();
+            boolean created = channel.size() == 0;
+            if(!created) checkHeader(channel);
+
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if(created){
+                buffer.putInt(4, FORMAT_VERSION);
+                buffer.putInt(8, slots);
+                buffer.putInt(0, MAGIC);
+                buffer.force();
+            }
+        }
+    }
+
+    private void checkHeader(FileChannel channel) throws IOException {
+        if(channel.size() < HEADER_SIZE) throw new IOException("Not a bucket table: " + file);
+
+        ByteBuffer header = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+        while(header.hasRemaining()) channel.read(header, header.position());
+        if(header.getInt(0) != MAGIC) throw new IOException("Not a bucket table: " + file);
+        if(header.getInt(4) != FORMAT_VERSION) throw new IOException("Unsupported bucket table version " + header.getInt(4) + ": " + file);
+        if(header.getInt(8) != slots) throw new IOException("Bucket table has " + header.getInt(8) + " slots, not " + slots + ": " + file);
+    }
+
+    /**
+     * Reads the state stored under {@code key}. A key whose slot was claimed but not yet written
+     * reads as no state.
+     *
+     * @param key
+     * @return a copy of the state, null if none is stored
+     */
+    @Override
+    public long[] get(String key) throws IOException {
+        byte[] keyBytes = encode(key);
+        retain();
+        try {
+            int slot = find(keyBytes);
+            if(slot < 0) return null;
+
+            int offset = offsetOf(slot);
+            long[] state = new long[STATE_LENGTH];
+            boolean stored = false;
+
+            long holder = lock(offset);
+            try {
+                for(int i = 0; i < STATE_LENGTH; i++){
+                    state[i] = buffer.getLong(offset + STATE + i * 8);
+                    stored |= state[i] != 0;
+                }
+            } finally {
+                unlock(offset, holder);
+            }
+            return stored ? state : null;
+        } finally {
+            release();
+        }
+    }
+
+    /**
+     * Stores {@code update} under {@code key} if the stored state equals {@code expected}.
+     *
+     * @param key
+     * @param expected state read before, null if none was stored
+     * @param update new state
+     * @return <i>true</i> if the state was updated
+     * @throws IOException if {@code key} is new and the table is full, or the store is closed
+     */
+    @Override
+    public boolean compareAndSet(String key, long[] expected, long[] update) throws IOException {
+        // preconditions
+        Assert.isTrue(update != null && update.length == STATE_LENGTH, "Invalid bucket state");
+        Assert.isTrue(expected == null || expected.length == STATE_LENGTH, "Invalid bucket state");
+
+        byte[] keyBytes = encode(key);
+        retain();
+        try {
+            int slot = expected == null ? claim(keyBytes) : find(keyBytes);
+            if(slot < 0) return false;
+
+            int offset = offsetOf(slot);
+            long holder = lock(offset);
+            try {
+                // no state is stored as zeros
+                for(int i = 0; i < STATE_LENGTH; i++){
+                    long stored = buffer.getLong(offset + STATE + i * 8);
+                    if(stored != (expected == null ? 0L : expected[i])) return false;
+                }
+
+                for(int i = 0; i < STATE_LENGTH; i++) buffer.putLong(offset + STATE + i * 8, update[i]);
+                return true;
+            } finally {
+                unlock(offset, holder);
+            }
+        } finally {
+            release();
+        }
+    }
+
+    /**
+     * Unmaps the file, at once if no call is in flight, else when the last one is done. States
+     * stay in the file.
+     */
+    @Override
+    public void close() {
+        if(closed.compareAndSet(false, true)) release();
+    }
+
+    public int getSlotCount() {
+        return slots;
+    }
+
+    private void retain() throws IOException {
+        for(;;){
+            int count = references.get();
+            if(count == 0) throw new IOException("Store is closed: " + file);
+            if(references.compareAndSet(count, count + 1)) return;
+        }
+    }
+
+    private void release() {
+        if(references.decrementAndGet() == 0) unmap(buffer);
+    }
+
+    // slot of key, -1 if absent
+    private int find(byte[] keyBytes) {
+        int slot = home(keyBytes);
+        for(int probes = 0; probes < slots; probes++){
+            int length = (int) INT.getAcquire(buffer, offsetOf(slot) + KEY_LENGTH);
+            // keys are never removed, an absent key would have been put in the first free slot
+            if(length == 0) return -1;
+            if(matches(slot, length, keyBytes)) return slot;
+
+            slot = slot + 1 == slots ? 0 : slot + 1;
+        }
+        return -1;
+    }
+
+    // slot of key, claiming the first free slot if absent
+    private int claim(byte[] keyBytes) throws IOException {
+        int slot = home(keyBytes);
+        for(int probes = 0; probes < slots; ){
+            int offset = offsetOf(slot);
+            int length = (int) INT.getAcquire(buffer, offset + KEY_LENGTH);
+
+            if(length == 0){
+                long holder = lock(offset);
+                try {
+                    // claimed by another process meanwhile, check it again
+                    if((int) INT.getAcquire(buffer, offset + KEY_LENGTH) != 0) continue;
+
+                    for(int i = 0; i < keyBytes.length; i++) buffer.put(offset + KEY + i, keyBytes[i]);
+                    INT.setRelease(buffer, offset + KEY_LENGTH, keyBytes.length);
+                    return slot;
+                } finally {
+                    unlock(offset, holder);
+                }
+            }
+            if(matches(slot, length, keyBytes)) return slot;
+
+            slot = slot + 1 == slots ? 0 : slot + 1;
+            probes++;
+        }
+        throw new IOException("Bucket table is full: " + file);
+    }
+
+    private boolean matches(int slot, int length, byte[] keyBytes) {
+        if(length != keyBytes.length) return false;
+
+        int offset = offsetOf(slot) + KEY;
+        for(int i = 0; i < length; i++){
+            if(buffer.get(offset + i) != keyBytes[i]) return false;
+        }
+        return true;
+    }
+
+    // spins until the lock word of the slot at offset is taken, returns the holder to unlock with
+    private long lock(int offset) {
+        for(int spins = 0; ; spins++){
+            long held = (long) LONG.getVolatile(buffer, offset + LOCK);
+            long now = System.currentTimeMillis();
+
+            // free, or abandoned by its holder
+            if(held == 0 || now - (held >>> HOLDER_BITS) > LOCK_TIMEOUT_MILLIS){
+                long holder = (now << HOLDER_BITS) | ThreadLocalRandom.current().nextInt(1 << HOLDER_BITS);
+                if(LONG.compareAndSet(buffer, offset + LOCK, held, holder)) return holder;
+            }
+
+            if(spins < SPINS) Thread.onSpinWait();
+            else Thread.yield();
+        }
+    }
+
+    private void unlock(int offset, long holder) {
+        // a lock taken over is left to its new holder
+        LONG.compareAndSet(buffer, offset + LOCK, holder, 0L);
+    }
+
+    private int home(byte[] keyBytes) {
+        // FNV-1a, the same in every process unlike identity based hashes
+        int hash = 0x811C9DC5;
+        for(byte b : keyBytes) hash = (hash ^ (b & 0xFF)) * 0x01000193;
+        return (int) ((hash & 0xFFFFFFFFL) % slots);
+    }
+
+    private static byte[] encode(String key) {
+        // preconditions
+        Assert.isTrue(key != null, "Key can not be null");
+
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        Assert.isTrue(keyBytes.length > 0 && keyBytes.length <= MAX_KEY_LENGTH, "Key must be 1 to " + MAX_KEY_LENGTH + " bytes of UTF-8");
+        return keyBytes;
+    }
+
+    private static int offsetOf(int slot) {
+        return HEADER_SIZE + slot * SLOT_SIZE;
+    }
+
+    // no public API unmaps a buffer before it is collected, sun.misc.Unsafe is looked up reflectively
+    private static void unmap(MappedByteBuffer buffer) {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            unsafeClass.getMethod("invokeCleaner", ByteBuffer.class).invoke(theUnsafe.get(null), buffer);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // unmapped once the buffer is collected
+        }
+    }
+}
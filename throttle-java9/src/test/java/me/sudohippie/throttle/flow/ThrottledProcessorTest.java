@@ -0,0 +1,164 @@
+package me.sudohippie.throttle.flow;
+
+import me.sudohippie.throttle.strategy.bucket.FixedTokenBucketStrategy;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ThrottledProcessorTest {
+
+    long MAX_TOKENS = 10;
+    long REFILL_INTERVAL = 100;
+    TimeUnit REFILL_INTERVAL_TIME_UNIT = TimeUnit.MILLISECONDS;
+    int ELEMENTS = 30;
+
+    FixedTokenBucketStrategy strategy;
+    ThrottledProcessor<Integer> processor;
+    SubmissionPublisher<Integer> publisher;
+
+    @Before
+    public void setUp() throws Exception {
+        strategy = new FixedTokenBucketStrategy(MAX_TOKENS, REFILL_INTERVAL, REFILL_INTERVAL_TIME_UNIT);
+        processor = new ThrottledProcessor<Integer>(strategy, 4, null);
+        publisher = new SubmissionPublisher<Integer>();
+        publisher.subscribe(processor);
+    }
+
+    // subscriber collecting elements, requesting initialDemand at first
+    private static final class Collector implements Flow.Subscriber<Integer> {
+        final List<Integer> items = Collections.synchronizedList(new ArrayList<Integer>());
+        final CountDownLatch completed = new CountDownLatch(1);
+        final long initialDemand;
+        volatile Flow.Subscription subscription;
+        volatile Throwable error;
+
+        Collector(long initialDemand) {
+            this.initialDemand = initialDemand;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(initialDemand);
+        }
+
+        @Override
+        public void onNext(Integer item) {
+            items.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            completed.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            completed.countDown();
+        }
+    }
+
+    private void publish(int elements) {
+        for(int i = 0; i < elements; i++) publisher.submit(i);
+        publisher.close();
+    }
+
+    // a stream completing before the subscriber arrives is completed on subscription
+    @Test
+    public void testCompletedBeforeSubscribe() throws InterruptedException {
+        ThrottledProcessor<Integer> early = new ThrottledProcessor<Integer>(strategy);
+        early.onComplete();
+
+        Collector collector = new Collector(1);
+        early.subscribe(collector);
+
+        assertTrue(collector.completed.await(5, TimeUnit.SECONDS));
+        assertNull(collector.error);
+    }
+
+    // an upstream error before the subscriber arrives is passed on on subscription
+    @Test
+    public void testErrorBeforeSubscribe() throws InterruptedException {
+        ThrottledProcessor<Integer> early = new ThrottledProcessor<Integer>(strategy);
+        IllegalStateException failure = new IllegalStateException("upstream failed");
+        early.onError(failure);
+
+        Collector collector = new Collector(1);
+        early.subscribe(collector);
+
+        assertTrue(collector.completed.await(5, TimeUnit.SECONDS));
+        assertSame(failure, collector.error);
+    }
+
+    // elements are passed on in order, no faster than the strategy allows
+    @Test
+    public void testElementsArePaced() throws InterruptedException {
+        Collector collector = new Collector(Long.MAX_VALUE);
+        processor.subscribe(collector);
+
+        long start = System.nanoTime();
+        publish(ELEMENTS);
+        assertTrue(collector.completed.await(5, TimeUnit.SECONDS));
+
+        // three intervals worth of tokens, two refills waited for
+        assertTrue(System.nanoTime() - start >= REFILL_INTERVAL_TIME_UNIT.toNanos(2 * REFILL_INTERVAL) * 9 / 10);
+        assertEquals(ELEMENTS, collector.items.size());
+        for(int i = 0; i < ELEMENTS; i++) assertEquals(Integer.valueOf(i), collector.items.get(i));
+    }
+
+    // tokens are only taken for elements the subscriber asked for
+    @Test
+    public void testSubscriberDemandIsRespected() throws InterruptedException {
+        Collector collector = new Collector(3);
+        processor.subscribe(collector);
+        publish(ELEMENTS);
+
+        Thread.sleep(50);
+        assertEquals(3, collector.items.size());
+        assertEquals(MAX_TOKENS - 3, strategy.getCurrentTokenCount());
+
+        collector.subscription.request(2);
+        Thread.sleep(50);
+        assertEquals(5, collector.items.size());
+    }
+
+    // tokens taken for elements which never arrive are refunded
+    @Test
+    public void testUnusedTokensAreRefundedOnComplete() throws InterruptedException {
+        Collector collector = new Collector(Long.MAX_VALUE);
+        processor.subscribe(collector);
+        publish(2);
+
+        assertTrue(collector.completed.await(5, TimeUnit.SECONDS));
+        assertEquals(MAX_TOKENS - 2, strategy.getCurrentTokenCount());
+    }
+
+    @Test
+    public void testInvalidDemandIsAnError() throws InterruptedException {
+        Collector collector = new Collector(0);
+        processor.subscribe(collector);
+
+        assertTrue(collector.completed.await(5, TimeUnit.SECONDS));
+        assertTrue(collector.error instanceof IllegalArgumentException);
+    }
+
+    @Test
+    public void testSecondSubscriberIsRejected() throws InterruptedException {
+        processor.subscribe(new Collector(1));
+        Collector second = new Collector(1);
+        processor.subscribe(second);
+
+        assertTrue(second.completed.await(5, TimeUnit.SECONDS));
+        assertTrue(second.error instanceof IllegalStateException);
+    }
+}
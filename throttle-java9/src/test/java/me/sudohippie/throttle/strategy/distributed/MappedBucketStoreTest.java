@@ -0,0 +1,168 @@
+package me.sudohippie.throttle.strategy.distributed;
+
+import me.sudohippie.throttle.strategy.bucket.RefillPolicy;
+import me.sudohippie.throttle.util.ManualTicker;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class MappedBucketStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    int SLOTS = 16;
+    long MAX_TOKENS = 10;
+    long REFILL_INTERVAL = 500;
+    TimeUnit REFILL_INTERVAL_TIME_UNIT = TimeUnit.MILLISECONDS;
+    String KEY = "bucket";
+
+    Path file;
+
+    @Before
+    public void setUp() throws Exception {
+        file = folder.getRoot().toPath().resolve("buckets");
+    }
+
+    /* test state */
+    @Test(expected = IllegalArgumentException.class)
+    public void testWhenSlotCountIsZero() throws Exception {
+        new MappedBucketStore(file, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWhenKeyIsTooLong() throws Exception {
+        StringBuilder key = new StringBuilder();
+        for(int i = 0; i <= MappedBucketStore.MAX_KEY_LENGTH; i++) key.append('k');
+
+        new MappedBucketStore(file, SLOTS).get(key.toString());
+    }
+
+    @Test(expected = IOException.class)
+    public void testWhenSlotCountDiffersFromFile() throws Exception {
+        new MappedBucketStore(file, SLOTS);
+        new MappedBucketStore(file, 2 * SLOTS);
+    }
+
+    @Test(expected = IOException.class)
+    public void testWhenFileIsNotABucketTable() throws Exception {
+        Files.write(file, new byte[256]);
+        new MappedBucketStore(file, SLOTS);
+    }
+
+    /* test logic */
+    @Test
+    public void testCompareAndSet() throws Exception {
+        MappedBucketStore store = new MappedBucketStore(file, SLOTS);
+        long[] first = {1, 2, 3};
+        long[] second = {4, 5, 6};
+
+        assertNull(store.get(KEY));
+        assertTrue(store.compareAndSet(KEY, null, first));
+        assertFalse(store.compareAndSet(KEY, null, second));
+        assertFalse(store.compareAndSet(KEY, second, second));
+        assertArrayEquals(first, store.get(KEY));
+
+        assertTrue(store.compareAndSet(KEY, first, second));
+        assertArrayEquals(second, store.get(KEY));
+        assertNull(store.get("other"));
+    }
+
+    // every slot is usable, one more key does not fit
+    @Test
+    public void testTableFull() throws Exception {
+        MappedBucketStore store = new MappedBucketStore(file, SLOTS);
+        for(int i = 0; i < SLOTS; i++) assertTrue(store.compareAndSet(KEY + i, null, new long[]{i, 1, 1}));
+        for(int i = 0; i < SLOTS; i++) assertEquals(i, store.get(KEY + i)[0]);
+
+        try {
+            store.compareAndSet("another", null, new long[]{1, 1, 1});
+            fail();
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    // a closed store unmaps the file, states stay in it
+    @Test
+    public void testClose() throws Exception {
+        MappedBucketStore store = new MappedBucketStore(file, SLOTS);
+        long[] state = {1, 2, 3};
+        assertTrue(store.compareAndSet(KEY, null, state));
+
+        store.close();
+        store.close();
+        try {
+            store.get(KEY);
+            fail();
+        } catch (IOException e) {
+            // expected
+        }
+
+        MappedBucketStore reopened = new MappedBucketStore(file, SLOTS);
+        assertArrayEquals(state, reopened.get(KEY));
+        reopened.close();
+    }
+
+    // stores mapping the same file share the limit, and state outlives them
+    @Test
+    public void testMappingsShareCapacity() throws Exception {
+        ManualTicker ticker = new ManualTicker();
+        RefillPolicy policy = RefillPolicy.fixed(MAX_TOKENS, REFILL_INTERVAL, REFILL_INTERVAL_TIME_UNIT);
+        DistributedTokenBucketStrategy first = new DistributedTokenBucketStrategy(new MappedBucketStore(file, SLOTS), KEY, policy, 1, ticker);
+        DistributedTokenBucketStrategy second = new DistributedTokenBucketStrategy(new MappedBucketStore(file, SLOTS), KEY, policy, 1, ticker);
+
+        assertFalse(first.isThrottled(6));
+        assertFalse(second.isThrottled(3));
+        assertTrue(first.isThrottled(2));
+
+        DistributedTokenBucketStrategy restarted = new DistributedTokenBucketStrategy(new MappedBucketStore(file, SLOTS), KEY, policy, 1, ticker);
+        assertEquals(1L, restarted.getCurrentTokenCount());
+
+        ticker.advance(REFILL_INTERVAL, REFILL_INTERVAL_TIME_UNIT);
+        assertFalse(restarted.isThrottled(MAX_TOKENS));
+    }
+
+    // threads on separate mappings racing for tokens, exactly capacity tokens are granted
+    @Test
+    public void testConcurrentMappingsGrantExactlyCapacity() throws Exception {
+        final long capacity = 20000;
+        final RefillPolicy policy = RefillPolicy.fixed(capacity, 1, TimeUnit.HOURS);
+        final AtomicLong granted = new AtomicLong();
+        final CountDownLatch start = new CountDownLatch(1);
+
+        Thread[] threads = new Thread[4];
+        for(int i = 0; i < threads.length; i++){
+            final DistributedTokenBucketStrategy strategy = new DistributedTokenBucketStrategy(new MappedBucketStore(file, SLOTS), KEY, policy, 1);
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for(int j = 0; j < capacity / 2; j++){
+                        if(!strategy.isThrottled()) granted.incrementAndGet();
+                    }
+                }
+            });
+            threads[i].start();
+        }
+
+        start.countDown();
+        for(Thread thread : threads) thread.join();
+
+        assertEquals(capacity, granted.get());
+    }
+}
@@ -0,0 +1,135 @@
+package me.sudohippie.throttle;
+
+import me.sudohippie.throttle.strategy.ThrottleStrategy;
+import me.sudohippie.throttle.util.Assert;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throttles operations of varying cost, e.g. cheap reads and expensive exports sharing one limit.
+ *
+ * Each call prices its operation with a {@link CostModel} and takes that many tokens from the
+ * underlying {@link Throttle}, whose queueing and blocking behaviour applies unchanged. Pricing an
+ * operation allocates nothing beyond what the cost model does, so {@link #canProceed(Object)}
+ * stays allocation free with a non allocating cost model.
+ *
+ * An operation costing more than the strategy's capacity can never proceed; blocking and
+ * asynchronous acquisition reject it with {@link IllegalArgumentException}.
+ */
+public class CostAwareThrottle<O> {
+
+    private final Throttle throttle;
+    private final CostModel<? super O> costModel;
+
+    /**
+     * Constructor to build a CostAwareThrottle.
+     *
+     * @param strategy throttling strategy
+     * @param costModel prices operations in tokens
+     */
+    public CostAwareThrottle(ThrottleStrategy strategy, CostModel<? super O> costModel) {
+        this(new Throttle(strategy), costModel);
+    }
+
+    /**
+     * Constructor to build a CostAwareThrottle.
+     *
+     * @param throttle throttle the tokens are taken from, possibly shared with other callers
+     * @param costModel prices operations in tokens
+     */
+    public CostAwareThrottle(Throttle throttle, CostModel<? super O> costModel) {
+        // preconditions
+        Assert.isTrue(throttle != null, "Throttle can not be null");
+        Assert.isTrue(costModel != null, "Cost model can not be null");
+
+        this.throttle = throttle;
+        this.costModel = costModel;
+    }
+
+    /**
+     * Returns <i>true</i> if {@code operation} can be serviced, taking its cost in tokens,
+     * <i>false</i> otherwise.
+     *
+     * @param operation
+     * @return
+     */
+    public boolean canProceed(O operation) {
+        return throttle.canProceed(costOf(operation));
+    }
+
+    /**
+     * If {@code operation} can be serviced, the wait time will be 0 else a positive value in
+     * the chosen {@code TimeUnit}.
+     *
+     * @param operation
+     * @param timeUnit TimeUnit indicating the wait time.
+     * @return 0 or more value in the time unit chosen
+     */
+    public long waitTime(O operation, TimeUnit timeUnit) {
+        return throttle.waitTime(costOf(operation), timeUnit);
+    }
+
+    /**
+     * Acquires the cost of {@code operation}, blocking until the tokens are available.
+     *
+     * @param operation
+     * @see Throttle#acquire(long)
+     */
+    public void acquire(O operation) {
+        throttle.acquire(costOf(operation));
+    }
+
+    /**
+     * Acquires the cost of {@code operation}, blocking until the tokens are available or the
+     * thread is interrupted.
+     *
+     * @param operation
+     * @throws InterruptedException if the thread is interrupted, no tokens are acquired
+     * @see Throttle#acquireInterruptibly(long)
+     */
+    public void acquireInterruptibly(O operation) throws InterruptedException {
+        throttle.acquireInterruptibly(costOf(operation));
+    }
+
+    /**
+     * Acquires the cost of {@code operation} if the tokens become available with in the timeout.
+     *
+     * @param operation
+     * @param timeout maximum time to wait
+     * @param timeUnit {@link TimeUnit} class representing unit of time of timeout
+     * @return <i>true</i> if the tokens were acquired
+     * @throws InterruptedException if the thread is interrupted, no tokens are acquired
+     * @see Throttle#tryAcquire(long, long, TimeUnit)
+     */
+    public boolean tryAcquire(O operation, long timeout, TimeUnit timeUnit) throws InterruptedException {
+        return throttle.tryAcquire(costOf(operation), timeout, timeUnit);
+    }
+
+    /**
+     * Acquires the cost of {@code operation} without blocking the calling thread.
+     *
+     * @param operation
+     * @return future completed when the tokens are acquired
+     * @see Throttle#acquireAsync(long)
+     */
+    public CompletableFuture<Void> acquireAsync(O operation) {
+        return throttle.acquireAsync(costOf(operation));
+    }
+
+    /**
+     * Provides the tokens {@code operation} costs.
+     *
+     * @param operation
+     * @return
+     */
+    public long costOf(O operation) {
+        long cost = costModel.cost(operation);
+        Assert.isTrue(cost >= 0, "Cost can not be negative");
+        return cost;
+    }
+
+    public Throttle getThrottle() {
+        return throttle;
+    }
+}
@@ -0,0 +1,59 @@
+package me.sudohippie.throttle;
+
+import me.sudohippie.throttle.util.Assert;
+
+import java.util.function.ToLongFunction;
+
+/**
+ * Prices operations in tokens, for a {@link CostAwareThrottle}.
+ *
+ * A cost may be fixed per kind of operation or computed from the operation, e.g. from its payload
+ * size. Costs are looked up on every throttling call, so implementations should neither block nor
+ * allocate.
+ */
+@FunctionalInterface
+public interface CostModel<O> {
+
+    /**
+     * Returns the tokens {@code operation} costs.
+     *
+     * @param operation
+     * @return 0 or more tokens
+     */
+    long cost(O operation);
+
+    /**
+     * Cost model charging the same tokens for every operation.
+     *
+     * @param cost
+     * @return
+     */
+    static <O> CostModel<O> constant(long cost) {
+        // preconditions
+        Assert.isTrue(cost >= 0, "Cost can not be negative");
+
+        return operation -> cost;
+    }
+
+    /**
+     * Cost model for operations enumerated by {@code type}, costs being computed once per constant
+     * and looked up by ordinal afterwards.
+     *
+     * @param type enum of operations
+     * @param costs cost of each constant
+     * @return
+     */
+    static <E extends Enum<E>> CostModel<E> perConstant(Class<E> type, ToLongFunction<? super E> costs) {
+        // preconditions
+        Assert.isTrue(type != null && type.isEnum(), "Type must be an enum");
+        Assert.isTrue(costs != null, "Costs can not be null");
+
+        E[] constants = type.getEnumConstants();
+        long[] table = new long[constants.length];
+        for(E constant : constants){
+            table[constant.ordinal()] = costs.applyAsLong(constant);
+            Assert.isTrue(table[constant.ordinal()] >= 0, "Cost can not be negative");
+        }
+        return operation -> table[operation.ordinal()];
+    }
+}
@@ -0,0 +1,294 @@
+package me.sudohippie.throttle;
+
+import me.sudohippie.throttle.strategy.ThrottleStrategy;
+import me.sudohippie.throttle.util.Assert;
+import me.sudohippie.throttle.util.BoundedQueue;
+import me.sudohippie.throttle.util.TimerWheel;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Throttle sharing a strategy fairly between classes of requests, e.g. tenants.
+ *
+ * Every class has its own bounded lock-free queue of pending acquisitions. While requests are
+ * queued, tokens of the strategy are handed out in deficit round robin order: visiting a class in
+ * turn adds its weight times the quantum to the class's deficit, and the class is served for as
+ * long as the request at the head of its queue costs no more than the deficit left. Each class
+ * thus gets a share of the tokens proportional to its weight, whatever the cost of its requests,
+ * and a class flooding the throttle only fills its own queue.
+ *
+ * Like {@link Throttle#acquireAsync(long)}, queues are drained by a single task on a
+ * {@link TimerWheel}, rescheduled for whenever the strategy expects the next release. Requests
+ * only skip the queues while all of them are empty.
+ */
+public class FairThrottle<C> {
+
+    private static final long DEFAULT_QUANTUM = 1;
+    private static final int DEFAULT_QUEUE_CAPACITY = 1024;
+    private static final int DEFAULT_WEIGHT = 1;
+    // least delay before draining again, so a strategy reporting no wait does not spin the timer
+    private static final long MIN_DRAIN_DELAY = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final ThrottleStrategy strategy;
+    private final long quantum;
+    private final int queueCapacity;
+    private final TimerWheel timer;
+
+    private final ConcurrentHashMap<C, Flow> flowsByClass = new ConcurrentHashMap<>();
+    // copy on write, in order of registration
+    private volatile Flow[] flows = new Flow[0];
+    // acquisitions queued across all classes, counted once they are in a queue
+    private final AtomicInteger pending = new AtomicInteger();
+    // set while a drain is scheduled or running
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final Runnable drain = this::drain;
+
+    // round robin position, only touched by the drain task
+    private int cursor = 0;
+    private boolean credited = false;
+
+    public FairThrottle(ThrottleStrategy strategy) {
+        this(strategy, DEFAULT_QUANTUM, DEFAULT_QUEUE_CAPACITY, null);
+    }
+
+    /**
+     * Constructor to build a FairThrottle.
+     *
+     * @param strategy throttling strategy shared by all classes
+     * @param quantum Tokens added to a class's deficit per round and unit of weight.
+     * @param queueCapacity Maximum acquisitions queued per class, rounded up to a power of two.
+     * @param timer timer completing queued acquisitions, the shared timer when null
+     */
+    public FairThrottle(ThrottleStrategy strategy, long quantum, int queueCapacity, TimerWheel timer) {
+        // preconditions
+        Assert.isTrue(strategy != null, "Strategy can not be null");
+        Assert.isTrue(quantum > 0, "Quantum must be positive");
+        Assert.isTrue(queueCapacity > 0, "Queue capacity must be positive");
+
+        this.strategy = strategy;
+        this.quantum = quantum;
+        this.queueCapacity = queueCapacity;
+        this.timer = timer;
+    }
+
+    /**
+     * Sets the weight of {@code requestClass}, classes have a weight of 1 unless set.
+     *
+     * @param requestClass
+     * @param weight share of tokens relative to other classes
+     */
+    public void setWeight(C requestClass, int weight) {
+        // preconditions
+        Assert.isTrue(weight > 0, "Weight must be positive");
+
+        flowFor(requestClass).weight = weight;
+    }
+
+    /**
+     * Acquires {@code n} tokens for {@code requestClass} without blocking the calling thread.
+     *
+     * The returned future completes once the tokens have been acquired, on the timer thread
+     * unless they were available immediately. Cancelling the future withdraws the request.
+     *
+     * @param requestClass class the request belongs to
+     * @param n number of tokens, at most the strategy's capacity
+     * @return future completed when the tokens are acquired, null if the queue of the class is full
+     */
+    public CompletableFuture<Void> acquireAsync(C requestClass, long n) {
+        checkTokens(n);
+        Flow flow = flowFor(requestClass);
+
+        // barging is only allowed when nobody is waiting
+        if(pending.get() == 0 && !strategy.isThrottled(n)) return CompletableFuture.completedFuture(null);
+
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        if(!flow.queue.offer(new Waiter(n, future))) return null;
+        pending.incrementAndGet();
+
+        if(draining.compareAndSet(false, true)) timer().schedule(drain, 0, TimeUnit.NANOSECONDS);
+        return future;
+    }
+
+    /**
+     * Acquires {@code n} tokens for {@code requestClass}, blocking until they are available.
+     *
+     * @param requestClass class the request belongs to
+     * @param n number of tokens, at most the strategy's capacity
+     * @return <i>false</i> if the queue of the class is full, no tokens are acquired
+     * @throws InterruptedException if the thread is interrupted, no tokens are acquired
+     */
+    public boolean acquire(C requestClass, long n) throws InterruptedException {
+        if(Thread.interrupted()) throw new InterruptedException();
+
+        CompletableFuture<Void> future = acquireAsync(requestClass, n);
+        if(future == null) return false;
+
+        try {
+            future.get();
+            return true;
+        } catch (InterruptedException e) {
+            // tokens acquired meanwhile are kept
+            if(!future.cancel(false)){
+                Thread.currentThread().interrupt();
+                return true;
+            }
+            throw e;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Number of acquisitions of {@code requestClass} waiting for tokens.
+     *
+     * @param requestClass
+     * @return
+     */
+    public int getQueueLength(C requestClass) {
+        // preconditions
+        Assert.isTrue(requestClass != null, "Request class can not be null");
+
+        Flow flow = flowsByClass.get(requestClass);
+        return flow == null ? 0 : flow.queue.size();
+    }
+
+    public ThrottleStrategy getStrategy() {
+        return strategy;
+    }
+
+    private Flow flowFor(C requestClass) {
+        // preconditions
+        Assert.isTrue(requestClass != null, "Request class can not be null");
+
+        Flow flow = flowsByClass.get(requestClass);
+        if(flow != null) return flow;
+
+        synchronized(flowsByClass){
+            flow = flowsByClass.get(requestClass);
+            if(flow != null) return flow;
+
+            flow = new Flow(queueCapacity);
+            // published to the drain task before requests can be queued
+            Flow[] grown = Arrays.copyOf(flows, flows.length + 1);
+            grown[grown.length - 1] = flow;
+            flows = grown;
+            flowsByClass.put(requestClass, flow);
+            return flow;
+        }
+    }
+
+    // serves classes in deficit round robin order, until the next request has to wait for tokens
+    private void drain() {
+        do {
+            Flow[] flows = this.flows;
+            // classes visited in a row without a visible head
+            int empty = 0;
+            while(pending.get() > 0){
+                if(cursor >= flows.length){
+                    // start a new round, picking up classes registered since
+                    cursor = 0;
+                    flows = this.flows;
+                }
+
+                Flow flow = flows[cursor];
+                Waiter head = flow.queue.peek();
+                // idle classes do not save up a deficit
+                if(head == null){
+                    flow.deficit = 0;
+                    next();
+                    // a waiter is still being linked into its queue, do not spin the timer thread on it
+                    if(++empty >= flows.length){
+                        timer().schedule(drain, MIN_DRAIN_DELAY, TimeUnit.NANOSECONDS);
+                        return;
+                    }
+                    continue;
+                }
+                empty = 0;
+
+                // cancelled
+                if(head.future.isDone()){
+                    flow.queue.poll();
+                    pending.decrementAndGet();
+                    continue;
+                }
+
+                if(!credited){
+                    flow.deficit += quantum * flow.weight;
+                    credited = true;
+                }
+                if(head.n > flow.deficit){
+                    next();
+                    continue;
+                }
+
+                try {
+                    if(strategy.isThrottled(head.n)){
+                        // stay in draining state, the next drain is already scheduled
+                        long timeToRelease = strategy.timeToRelease(head.n, TimeUnit.NANOSECONDS);
+                        timer().schedule(drain, Math.max(timeToRelease, MIN_DRAIN_DELAY), TimeUnit.NANOSECONDS);
+                        return;
+                    }
+                } catch (RuntimeException e) {
+                    // the head fails rather than the drain, which would otherwise never run again
+                    flow.queue.poll();
+                    pending.decrementAndGet();
+                    head.future.completeExceptionally(e);
+                    timer().schedule(drain, MIN_DRAIN_DELAY, TimeUnit.NANOSECONDS);
+                    return;
+                }
+
+                flow.queue.poll();
+                pending.decrementAndGet();
+                flow.deficit -= head.n;
+                // cancelled after the tokens were taken
+                if(!head.future.complete(null) && strategy.supportsRefund()) strategy.refund(head.n);
+            }
+
+            draining.set(false);
+            // a waiter may have been queued after the queues were found empty
+        } while(pending.get() > 0 && draining.compareAndSet(false, true));
+    }
+
+    private void next() {
+        cursor++;
+        credited = false;
+    }
+
+    private TimerWheel timer() {
+        return timer != null ? timer : TimerWheel.shared();
+    }
+
+    private void checkTokens(long n) {
+        // preconditions
+        Assert.isTrue(n >= 0, "Invalid argument less than 0");
+        Assert.isTrue(n <= strategy.getCapacity(), "Tokens can not exceed strategy capacity");
+    }
+
+    // queue and scheduling state of a class of requests
+    private static final class Flow {
+        private final BoundedQueue<Waiter> queue;
+        private volatile int weight = DEFAULT_WEIGHT;
+        // tokens this class may still take in the current round, only touched by the drain task
+        private long deficit = 0;
+
+        private Flow(int queueCapacity) {
+            this.queue = new BoundedQueue<Waiter>(queueCapacity);
+        }
+    }
+
+    private static final class Waiter {
+        private final long n;
+        private final CompletableFuture<Void> future;
+
+        private Waiter(long n, CompletableFuture<Void> future) {
+            this.n = n;
+            this.future = future;
+        }
+    }
+}
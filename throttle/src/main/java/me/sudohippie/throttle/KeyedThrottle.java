@@ -0,0 +1,553 @@
+package me.sudohippie.throttle;
+
+import me.sudohippie.throttle.strategy.bucket.RefillPolicy;
+import me.sudohippie.throttle.util.Assert;
+import me.sudohippie.throttle.util.Ticker;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+
+import static me.sudohippie.throttle.strategy.bucket.RefillPolicy.NEXT_REFILL_TIME;
+import static me.sudohippie.throttle.strategy.bucket.RefillPolicy.STATE_LENGTH;
+import static me.sudohippie.throttle.strategy.bucket.RefillPolicy.TOKENS;
+
+/**
+ * Throttles requests per key (api key, client ip etc.), every key owning its own token bucket.
+ *
+ * Bucket state is not kept in a strategy object per key. Keys are hashed into a fixed number of
+ * segments, each segment being an open addressing table of keys backed by a single {@code long[]}
+ * of packed bucket state, guarded by the segment's monitor. A key therefore costs a reference
+ * plus three longs, instead of a strategy object with its own monitor.
+ *
+ * Refill behaviour is defined by a {@link RefillPolicy}, i.e. the math of the fixed, step up and
+ * step down token buckets.
+ *
+ * A key whose refill time has passed is indistinguishable from a key never seen before, so such
+ * keys are evicted without losing state. This happens when a segment fills up, or on demand
+ * through {@link #evictIdle()}.
+ */
+public class KeyedThrottle<K> {
+
+    private static final int DEFAULT_CONCURRENCY_LEVEL = 64;
+    private static final int MAX_CONCURRENCY_LEVEL = 1 << 16;
+    private static final int INITIAL_SEGMENT_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private final RefillPolicy policy;
+    private final Ticker ticker;
+    private final Segment[] segments;
+    private final int segmentShift;
+    // per thread scratch of tryAcquireAll, grown to the largest batch seen
+    private final ThreadLocal<Batch> batches = ThreadLocal.withInitial(Batch::new);
+
+    /**
+     * Constructor to build a KeyedThrottle.
+     *
+     * @param policy Refill policy applied to the bucket of every key.
+     */
+    public KeyedThrottle(RefillPolicy policy) {
+        this(policy, DEFAULT_CONCURRENCY_LEVEL);
+    }
+
+    /**
+     * Constructor to build a KeyedThrottle.
+     *
+     * @param policy Refill policy applied to the bucket of every key.
+     * @param concurrencyLevel Estimated number of concurrently updating threads, rounded up to a power of two.
+     */
+    public KeyedThrottle(RefillPolicy policy, int concurrencyLevel) {
+        this(policy, concurrencyLevel, Ticker.systemTicker());
+    }
+
+    /**
+     * Constructor to build a KeyedThrottle.
+     *
+     * @param policy Refill policy applied to the bucket of every key.
+     * @param concurrencyLevel Estimated number of concurrently updating threads, rounded up to a power of two.
+     * @param ticker {@link Ticker} providing the current time
+     */
+    public KeyedThrottle(RefillPolicy policy, int concurrencyLevel, Ticker ticker) {
+        // preconditions
+        Assert.isTrue(policy != null, "Refill policy can not be null");
+        Assert.isTrue(concurrencyLevel > 0, "Concurrency level must be positive");
+        Assert.isTrue(ticker != null, "Ticker can not be null");
+
+        int segmentCount = 1;
+        int segmentBits = 0;
+        while(segmentCount < Math.min(concurrencyLevel, MAX_CONCURRENCY_LEVEL)){
+            segmentCount <<= 1;
+            segmentBits++;
+        }
+
+        this.policy = policy;
+        this.ticker = ticker;
+        this.segmentShift = 32 - segmentBits;
+        this.segments = new Segment[segmentCount];
+        for(int i = 0; i < segmentCount; i++) segments[i] = new Segment(policy);
+    }
+
+    /**
+     * Returns <i>true</i> if a single request for {@code key} can be serviced,
+     * <i>false</i> otherwise.
+     *
+     * @param key
+     * @return
+     */
+    public boolean canProceed(K key) {
+        return !isThrottled(key, 1);
+    }
+
+    /**
+     * Returns <i>true</i> if {@code n} requests for {@code key} have been throttled or
+     * <i>false</i> if they have not been throttled.
+     *
+     * @param key
+     * @param n
+     * @return
+     */
+    public boolean isThrottled(K key, long n) {
+        // preconditions
+        Assert.isTrue(key != null, "Key can not be null");
+        Assert.isTrue(n >= 0, "Invalid argument less than 0");
+
+        int hash = hash(key);
+        return segmentFor(hash).isThrottled(key, hash, n, ticker.read());
+    }
+
+    /**
+     * Takes {@code costs[i]} tokens for each of {@code keys[i]}, for i below {@code length}, and
+     * sets bit i of {@code granted} if they were taken, clears it if throttled. Same as calling
+     * {@link #isThrottled(Object, long)} for each key in order, but the clock is read once for the
+     * whole batch and keys are grouped by segment, each segment being locked once. Steady state
+     * batches do not allocate, provided {@code granted} holds {@code length} bits already.
+     *
+     * @param keys
+     * @param costs
+     * @param length number of keys in the batch
+     * @param granted bits set for keys which were not throttled
+     * @return number of keys which were not throttled
+     */
+    public int tryAcquireAll(K[] keys, long[] costs, int length, BitSet granted) {
+        // preconditions
+        Assert.isTrue(keys != null && costs != null, "Keys and costs can not be null");
+        Assert.isTrue(length >= 0 && length <= keys.length && length <= costs.length, "Invalid batch length");
+        Assert.isTrue(granted != null, "Result BitSet can not be null");
+
+        Batch batch = batches.get();
+        batch.ensureCapacity(length, segments.length);
+        int[] hashes = batch.hashes;
+        int[] order = batch.order;
+        int[] starts = batch.starts;
+        Arrays.fill(starts, 0, segments.length + 1, 0);
+
+        // validate everything before taking any tokens, counting keys per segment
+        for(int i = 0; i < length; i++){
+            Assert.isTrue(keys[i] != null, "Key can not be null");
+            Assert.isTrue(costs[i] >= 0, "Invalid argument less than 0");
+
+            hashes[i] = hash(keys[i]);
+            starts[segmentIndex(hashes[i]) + 1]++;
+        }
+
+        // counting sort by segment, keeping batch order with in a segment
+        for(int s = 0; s < segments.length; s++) starts[s + 1] += starts[s];
+        for(int i = 0; i < length; i++) order[starts[segmentIndex(hashes[i])]++] = i;
+
+        // starts now holds the end of each segment's run
+        long currentTime = ticker.read();
+        int acquired = 0;
+        int from = 0;
+        for(int s = 0; s < segments.length; s++){
+            int to = starts[s];
+            if(to > from) acquired += segments[s].tryAcquireAll(keys, costs, hashes, order, from, to, granted, currentTime);
+            from = to;
+        }
+        return acquired;
+    }
+
+    /**
+     * Same as {@link #tryAcquireAll(Object[], long[], int, BitSet)} for every key in {@code keys}.
+     *
+     * @param keys
+     * @param costs
+     * @param granted bits set for keys which were not throttled
+     * @return number of keys which were not throttled
+     */
+    public int tryAcquireAll(K[] keys, long[] costs, BitSet granted) {
+        // preconditions
+        Assert.isTrue(keys != null, "Keys and costs can not be null");
+
+        return tryAcquireAll(keys, costs, keys.length, granted);
+    }
+
+    /**
+     * Provides the number of tokens currently available to {@code key}.
+     *
+     * @param key
+     * @return
+     */
+    public long getCurrentTokenCount(K key) {
+        // preconditions
+        Assert.isTrue(key != null, "Key can not be null");
+
+        int hash = hash(key);
+        return segmentFor(hash).getCurrentTokenCount(key, hash, ticker.read());
+    }
+
+    /**
+     * Provides time for n tokens to be available to {@code key}.
+     *
+     * @param key
+     * @param n
+     * @param timeUnit
+     * @return 0 or more value in the time unit chosen
+     */
+    public long timeToRelease(K key, long n, TimeUnit timeUnit) {
+        // preconditions
+        Assert.isTrue(key != null, "Key can not be null");
+        Assert.isTrue(n >= 0, "Invalid argument less than 0");
+        Assert.isTrue(timeUnit != null, "TimeUnit argument can not be null");
+
+        int hash = hash(key);
+        long timeToIntervalEnd = segmentFor(hash).timeToRelease(key, hash, n, ticker.read());
+        return timeUnit.convert(timeToIntervalEnd, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * If a request for {@code key} can be serviced, the wait time will be 0 else a
+     * positive value in the chosen {@code TimeUnit}.
+     *
+     * @param key
+     * @param timeUnit TimeUnit indicating the wait time.
+     * @return 0 or more value in the time unit chosen
+     */
+    public long waitTime(K key, TimeUnit timeUnit) {
+        return timeToRelease(key, 1, timeUnit);
+    }
+
+    /**
+     * Removes every key whose bucket has reached its refill time. Such keys would start over
+     * with a fresh bucket anyway, so eviction is not observable by callers.
+     *
+     * @return number of keys evicted
+     */
+    public int evictIdle() {
+        int evicted = 0;
+        for(Segment segment : segments) evicted += segment.evictIdle(ticker.read());
+        return evicted;
+    }
+
+    /**
+     * Number of keys currently tracked, including idle keys not yet evicted.
+     *
+     * @return
+     */
+    public long size() {
+        long size = 0;
+        for(Segment segment : segments) size += segment.size();
+        return size;
+    }
+
+    /**
+     * Passes every key whose bucket has not reached its refill time to {@code consumer}, along
+     * with its bucket state laid out as described by {@link RefillPolicy} and with times relative
+     * to now. The state array is reused between calls. Keys are exported one segment at a time,
+     * each segment being locked while its keys are passed on.
+     *
+     * @param consumer
+     */
+    public void exportState(BiConsumer<? super K, long[]> consumer) {
+        // preconditions
+        Assert.isTrue(consumer != null, "Consumer can not be null");
+
+        long[] exported = new long[STATE_LENGTH];
+        for(Segment segment : segments) segment.exportState(consumer, exported, ticker.read());
+    }
+
+    /**
+     * Sets the bucket of {@code key} to a state exported by {@link #exportState(BiConsumer)}
+     * {@code elapsed} nanos ago. Buckets which would have reached their refill time since are
+     * not imported, as keys start over with a fresh bucket anyway.
+     *
+     * @param key
+     * @param state array holding the bucket state, left unchanged
+     * @param offset index of the first state element
+     * @param elapsed nanos since the state was exported
+     * @return <i>true</i> if the state was imported
+     */
+    public boolean importState(K key, long[] state, int offset, long elapsed) {
+        // preconditions
+        Assert.isTrue(key != null, "Key can not be null");
+        Assert.isTrue(elapsed >= 0, "Elapsed time can not be negative");
+
+        if(state[offset + NEXT_REFILL_TIME] <= elapsed) return false;
+
+        int hash = hash(key);
+        segmentFor(hash).importState(key, hash, state, offset, elapsed, ticker.read());
+        return true;
+    }
+
+    public RefillPolicy getRefillPolicy() {
+        return policy;
+    }
+
+    private Segment segmentFor(int hash) {
+        return segments[segmentIndex(hash)];
+    }
+
+    private int segmentIndex(int hash) {
+        // segments use the high bits, slots with in a segment the low bits
+        return segments.length == 1 ? 0 : hash >>> segmentShift;
+    }
+
+    static int hash(Object key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return h * 0x9E3779B9;
+    }
+
+    /**
+     * Scratch arrays of a batch: key hashes, key indices ordered by segment and segment run boundaries.
+     */
+    private static final class Batch {
+
+        private int[] hashes = new int[0];
+        private int[] order = new int[0];
+        private int[] starts = new int[0];
+
+        private void ensureCapacity(int length, int segmentCount) {
+            if(hashes.length < length){
+                hashes = new int[length];
+                order = new int[length];
+            }
+            if(starts.length < segmentCount + 1) starts = new int[segmentCount + 1];
+        }
+    }
+
+    /**
+     * Open addressing (linear probing) table of keys with packed bucket state.
+     */
+    private static final class Segment {
+
+        private final RefillPolicy policy;
+
+        private final ReentrantLock lock = new ReentrantLock();
+        // copy of a single bucket, guarded by lock
+        private final long[] scratch = new long[STATE_LENGTH];
+
+        private Object[] keys;
+        private long[] state;
+        private int size;
+        private int threshold;
+
+        private Segment(RefillPolicy policy) {
+            this.policy = policy;
+            allocate(INITIAL_SEGMENT_CAPACITY);
+        }
+
+        boolean isThrottled(Object key, int hash, long n, long currentTime) {
+            lock.lock();
+            try {
+                int offset = offsetOf(insert(key, hash, currentTime));
+                policy.refill(state, offset, currentTime);
+
+                // check whether there exist at least n tokens in bucket
+                if(state[offset + TOKENS] < n) return true;
+
+                state[offset + TOKENS] -= n;
+                return false;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // takes tokens for the keys at order[from, to), all belonging to this segment
+        int tryAcquireAll(Object[] keys, long[] costs, int[] hashes, int[] order, int from, int to, BitSet granted, long currentTime) {
+            lock.lock();
+            try {
+                int acquired = 0;
+                for(int i = from; i < to; i++){
+                    int index = order[i];
+                    int offset = offsetOf(insert(keys[index], hashes[index], currentTime));
+                    policy.refill(state, offset, currentTime);
+
+                    boolean throttled = state[offset + TOKENS] < costs[index];
+                    if(!throttled){
+                        state[offset + TOKENS] -= costs[index];
+                        acquired++;
+                    }
+                    granted.set(index, !throttled);
+                }
+                return acquired;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        long getCurrentTokenCount(Object key, int hash, long currentTime) {
+            lock.lock();
+            try {
+                return refreshed(key, hash, currentTime)[TOKENS];
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        long timeToRelease(Object key, int hash, long n, long currentTime) {
+            lock.lock();
+            try {
+                return policy.timeToRelease(refreshed(key, hash, currentTime), 0, n, currentTime);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int evictIdle(long currentTime) {
+            lock.lock();
+            try {
+                int before = size;
+                rebuild(keys.length, currentTime);
+                return before - size;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        <K> void exportState(BiConsumer<? super K, long[]> consumer, long[] exported, long currentTime) {
+            lock.lock();
+            try {
+                for(int slot = 0; slot < keys.length; slot++){
+                    // idle keys would start over with a fresh bucket
+                    if(keys[slot] == null || isIdle(slot, currentTime)) continue;
+
+                    int offset = offsetOf(slot);
+                    policy.refill(state, offset, currentTime);
+
+                    System.arraycopy(state, offset, exported, 0, STATE_LENGTH);
+                    RefillPolicy.toRelativeTimes(exported, 0, currentTime);
+                    consumer.accept((K) keys[slot], exported);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void importState(Object key, int hash, long[] imported, int importedOffset, long elapsed, long currentTime) {
+            lock.lock();
+            try {
+                int offset = offsetOf(insert(key, hash, currentTime));
+                System.arraycopy(imported, importedOffset, state, offset, STATE_LENGTH);
+                state[offset + TOKENS] = Math.max(0L, Math.min(policy.getCapacity(), state[offset + TOKENS]));
+                RefillPolicy.toTickerTimes(state, offset, currentTime, elapsed);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int size() {
+            lock.lock();
+            try {
+                return size;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // refills the bucket of key without inserting absent keys, returns a copy of its state
+        private long[] refreshed(Object key, int hash, long currentTime) {
+            int slot = indexOf(key, hash);
+            if(slot < 0){
+                for(int i = 0; i < STATE_LENGTH; i++) scratch[i] = 0;
+                policy.refill(scratch, 0, currentTime);
+                return scratch;
+            }
+
+            int offset = offsetOf(slot);
+            policy.refill(state, offset, currentTime);
+            System.arraycopy(state, offset, scratch, 0, STATE_LENGTH);
+            return scratch;
+        }
+
+        // slot of key if present, else ones' complement of the free slot it would occupy
+        private int indexOf(Object key, int hash) {
+            int mask = keys.length - 1;
+            int slot = hash & mask;
+
+            Object existing;
+            while((existing = keys[slot]) != null){
+                if(existing == key || existing.equals(key)) return slot;
+                slot = (slot + 1) & mask;
+            }
+            return ~slot;
+        }
+
+        // slot of key, inserting a fresh bucket if absent
+        private int insert(Object key, int hash, long currentTime) {
+            int slot = indexOf(key, hash);
+            if(slot >= 0) return slot;
+
+            if(size + 1 > threshold){
+                // make room by dropping idle keys, grow only if the table stays busy
+                int live = countLive(currentTime);
+                int capacity = keys.length;
+                if(live + 1 > threshold / 2) capacity <<= 1;
+
+                rebuild(capacity, currentTime);
+                slot = indexOf(key, hash);
+            }
+
+            slot = ~slot;
+            keys[slot] = key;
+            int offset = offsetOf(slot);
+            for(int i = 0; i < STATE_LENGTH; i++) state[offset + i] = 0;
+            size++;
+
+            return slot;
+        }
+
+        private int countLive(long currentTime) {
+            int live = 0;
+            for(int slot = 0; slot < keys.length; slot++){
+                if(keys[slot] != null && !isIdle(slot, currentTime)) live++;
+            }
+            return live;
+        }
+
+        private boolean isIdle(int slot, long currentTime) {
+            return currentTime >= state[offsetOf(slot) + NEXT_REFILL_TIME];
+        }
+
+        // rehashes live keys into a table of given capacity
+        private void rebuild(int capacity, long currentTime) {
+            Object[] oldKeys = keys;
+            long[] oldState = state;
+            allocate(capacity);
+
+            for(int oldSlot = 0; oldSlot < oldKeys.length; oldSlot++){
+                Object key = oldKeys[oldSlot];
+                int oldOffset = offsetOf(oldSlot);
+                if(key == null || currentTime >= oldState[oldOffset + NEXT_REFILL_TIME]) continue;
+
+                int slot = ~indexOf(key, hash(key));
+                keys[slot] = key;
+                System.arraycopy(oldState, oldOffset, state, offsetOf(slot), STATE_LENGTH);
+                size++;
+            }
+        }
+
+        private void allocate(int capacity) {
+            keys = new Object[capacity];
+            state = new long[capacity * STATE_LENGTH];
+            threshold = (int) (capacity * LOAD_FACTOR);
+            size = 0;
+        }
+
+        private static int offsetOf(int slot) {
+            return slot * STATE_LENGTH;
+        }
+    }
+}
@@ -0,0 +1,323 @@
+package me.sudohippie.throttle;
+
+import me.sudohippie.throttle.metrics.InstrumentedThrottleStrategy;
+import me.sudohippie.throttle.metrics.ThrottleMetrics;
+import me.sudohippie.throttle.strategy.ThrottleStrategy;
+import me.sudohippie.throttle.util.Assert;
+import me.sudohippie.throttle.util.TimerWheel;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bridge to enable throttling.
+ *
+ * User must specify his/her desired throttling strategy.
+ *
+ * Besides polling with {@link #canProceed()}, threads can block until tokens are available
+ * with {@link #acquire(long)}, {@link #acquireInterruptibly(long)} and
+ * {@link #tryAcquire(long, long, TimeUnit)}. Blocked threads are served first come first served:
+ * only the thread at the head of the queue polls the strategy, parking until the strategy
+ * expects tokens to be released, the others wait their turn.
+ *
+ * Non-blocking callers use {@link #acquireAsync(long)}. Pending asynchronous acquisitions are
+ * queued per throttle and served by a single task on a shared {@link TimerWheel}, rescheduled
+ * for whenever the strategy expects the next release, rather than by a timer per waiter.
+ *
+ * With an {@link InstrumentedThrottleStrategy}, the latency of acquire calls is recorded in its
+ * {@link ThrottleMetrics}.
+ *
+ * Raghav Sidhanti
+ * 9/25/13
+ */
+public class Throttle {
+
+    // least delay before draining again, so a strategy reporting no wait does not spin the timer
+    private static final long MIN_DRAIN_DELAY = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final ThrottleStrategy strategy;
+
+    // fair lock, ownership is handed to waiting threads in arrival order
+    private final ReentrantLock waiters = new ReentrantLock(true);
+
+    // pending asynchronous acquisitions in arrival order
+    private final Queue<AsyncWaiter> asyncWaiters = new ConcurrentLinkedQueue<>();
+    // set while a drain is scheduled or running
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final Runnable drain = this::drainAsyncWaiters;
+    private final TimerWheel timer;
+    // null unless the strategy is instrumented
+    private final ThrottleMetrics metrics;
+
+    public Throttle(ThrottleStrategy strategy) {
+        this(strategy, null);
+    }
+
+    /**
+     * Constructor to build a Throttle.
+     *
+     * @param strategy throttling strategy
+     * @param timer timer completing asynchronous acquisitions, the shared timer when null
+     */
+    public Throttle(ThrottleStrategy strategy, TimerWheel timer) {
+        this.strategy = strategy;
+        this.timer = timer;
+        this.metrics = strategy instanceof InstrumentedThrottleStrategy ? ((InstrumentedThrottleStrategy) strategy).getMetrics() : null;
+    }
+
+    /**
+     * Based on the throttling strategy chosen, this method
+     * will return <i>true</i> if the request can be serviced.
+     * <i>false</i> is returned when the return can not be serviced.
+     *
+     * @return
+     */
+    public boolean canProceed(){
+        return !strategy.isThrottled();
+    }
+
+    /**
+     * Returns <i>true</i> if a request costing {@code n} tokens can be serviced, taking
+     * the tokens, <i>false</i> otherwise.
+     *
+     * @param n number of tokens
+     * @return
+     */
+    public boolean canProceed(long n){
+        // preconditions
+        Assert.isTrue(n >= 0, "Invalid argument less than 0");
+
+        return !strategy.isThrottled(n);
+    }
+
+	/**
+	 * If the request can be serviced, the wait time will be 0 else a
+	 * positive value in the chosen {@code TimeUnit}.
+	 * @param timeUnit TimeUnit indicating the wait time.
+	 * @return 0 or more value in the time unit chosen
+	 */
+	public long waitTime(TimeUnit timeUnit){
+		return strategy.timeToRelease(1,timeUnit);
+	}
+
+	/**
+	 * If a request costing {@code n} tokens can be serviced, the wait time will be 0 else a
+	 * positive value in the chosen {@code TimeUnit}.
+	 * @param n number of tokens
+	 * @param timeUnit TimeUnit indicating the wait time.
+	 * @return 0 or more value in the time unit chosen
+	 */
+	public long waitTime(long n, TimeUnit timeUnit){
+		return strategy.timeToRelease(n, timeUnit);
+	}
+
+    /**
+     * Acquires {@code n} tokens, blocking until they are available.
+     *
+     * If the thread is interrupted while waiting, it keeps waiting and its interrupt
+     * status is restored once the tokens are acquired.
+     *
+     * @param n number of tokens, at most the strategy's capacity
+     */
+    public void acquire(long n) {
+        checkTokens(n);
+        long startTime = startTime();
+        if(tryAcquireImmediately(n)){
+            recordAcquire(startTime);
+            return;
+        }
+
+        boolean interrupted = false;
+        waiters.lock();
+        try {
+            while(strategy.isThrottled(n)){
+                park(strategy.timeToRelease(n, TimeUnit.NANOSECONDS));
+                if(Thread.interrupted()) interrupted = true;
+            }
+        } finally {
+            waiters.unlock();
+        }
+
+        recordAcquire(startTime);
+        if(interrupted) Thread.currentThread().interrupt();
+    }
+
+    /**
+     * Acquires {@code n} tokens, blocking until they are available or the thread is interrupted.
+     *
+     * @param n number of tokens, at most the strategy's capacity
+     * @throws InterruptedException if the thread is interrupted, no tokens are acquired
+     */
+    public void acquireInterruptibly(long n) throws InterruptedException {
+        checkTokens(n);
+        if(Thread.interrupted()) throw new InterruptedException();
+        long startTime = startTime();
+        if(tryAcquireImmediately(n)){
+            recordAcquire(startTime);
+            return;
+        }
+
+        waiters.lockInterruptibly();
+        try {
+            while(strategy.isThrottled(n)){
+                park(strategy.timeToRelease(n, TimeUnit.NANOSECONDS));
+                if(Thread.interrupted()) throw new InterruptedException();
+            }
+        } finally {
+            waiters.unlock();
+        }
+        recordAcquire(startTime);
+    }
+
+    /**
+     * Acquires {@code n} tokens if they become available with in the timeout.
+     *
+     * Returns <i>false</i> as soon as the strategy reports that the tokens will not be
+     * released before the timeout elapses, rather than waiting for the timeout.
+     *
+     * @param n number of tokens, at most the strategy's capacity
+     * @param timeout maximum time to wait
+     * @param timeUnit {@link TimeUnit} class representing unit of time of timeout
+     * @return <i>true</i> if the tokens were acquired
+     * @throws InterruptedException if the thread is interrupted, no tokens are acquired
+     */
+    public boolean tryAcquire(long n, long timeout, TimeUnit timeUnit) throws InterruptedException {
+        checkTokens(n);
+        Assert.isTrue(timeUnit != null, "TimeUnit argument can not be null");
+        if(Thread.interrupted()) throw new InterruptedException();
+        long startTime = startTime();
+        if(tryAcquireImmediately(n)){
+            recordAcquire(startTime);
+            return true;
+        }
+
+        long timeoutNanos = timeUnit.toNanos(timeout);
+        long deadline = System.nanoTime() + timeoutNanos;
+        if(!waiters.tryLock(timeoutNanos, TimeUnit.NANOSECONDS)) return false;
+        try {
+            while(strategy.isThrottled(n)){
+                long timeToRelease = strategy.timeToRelease(n, TimeUnit.NANOSECONDS);
+                if(timeToRelease > deadline - System.nanoTime()) return false;
+
+                park(timeToRelease);
+                if(Thread.interrupted()) throw new InterruptedException();
+            }
+            recordAcquire(startTime);
+            return true;
+        } finally {
+            waiters.unlock();
+        }
+    }
+
+    /**
+     * Acquires {@code n} tokens without blocking the calling thread.
+     *
+     * The returned future completes once the tokens have been acquired, on the timer thread
+     * unless they were available immediately. Dependent work should therefore use the
+     * asynchronous {@code then...Async} variants. Cancelling the future withdraws the request.
+     *
+     * @param n number of tokens, at most the strategy's capacity
+     * @return future completed when the tokens are acquired
+     */
+    public CompletableFuture<Void> acquireAsync(long n) {
+        checkTokens(n);
+        long startTime = startTime();
+        if(tryAcquireImmediately(n)){
+            recordAcquire(startTime);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        asyncWaiters.add(new AsyncWaiter(n, future, startTime));
+        if(draining.compareAndSet(false, true)) timer().schedule(drain, 0, TimeUnit.NANOSECONDS);
+
+        return future;
+    }
+
+    // serves asynchronous waiters in order, until the head has to wait for tokens
+    private void drainAsyncWaiters() {
+        do {
+            AsyncWaiter head;
+            while((head = asyncWaiters.peek()) != null){
+                // cancelled
+                if(head.future.isDone()){
+                    asyncWaiters.poll();
+                    continue;
+                }
+
+                try {
+                    if(strategy.isThrottled(head.n)){
+                        // stay in draining state, the next drain is already scheduled
+                        long timeToRelease = strategy.timeToRelease(head.n, TimeUnit.NANOSECONDS);
+                        timer().schedule(drain, Math.max(timeToRelease, MIN_DRAIN_DELAY), TimeUnit.NANOSECONDS);
+                        return;
+                    }
+                } catch (RuntimeException e) {
+                    // the head fails rather than the drain, which would otherwise never run again
+                    asyncWaiters.poll();
+                    head.future.completeExceptionally(e);
+                    timer().schedule(drain, MIN_DRAIN_DELAY, TimeUnit.NANOSECONDS);
+                    return;
+                }
+
+                asyncWaiters.poll();
+                if(head.future.complete(null)){
+                    recordAcquire(head.startTime);
+                } else if(strategy.supportsRefund()){
+                    // cancelled after the tokens were taken
+                    strategy.refund(head.n);
+                }
+            }
+
+            draining.set(false);
+            // a waiter may have been queued after the queue was found empty
+        } while(!asyncWaiters.isEmpty() && draining.compareAndSet(false, true));
+    }
+
+    private TimerWheel timer() {
+        return timer != null ? timer : TimerWheel.shared();
+    }
+
+    // barging is only allowed when nobody is waiting
+    private boolean tryAcquireImmediately(long n) {
+        return !waiters.isLocked() && asyncWaiters.isEmpty() && !strategy.isThrottled(n);
+    }
+
+    // reads the clock only when acquire latency is recorded
+    private long startTime() {
+        return metrics != null ? System.nanoTime() : 0L;
+    }
+
+    private void recordAcquire(long startTime) {
+        if(metrics != null) metrics.recordAcquireLatency(System.nanoTime() - startTime);
+    }
+
+    private void park(long nanos) {
+        // tokens may already be back, e.g. at an interval boundary
+        if(nanos > 0) LockSupport.parkNanos(this, nanos);
+    }
+
+    private void checkTokens(long n) {
+        // preconditions
+        Assert.isTrue(n >= 0, "Invalid argument less than 0");
+        Assert.isTrue(n <= strategy.getCapacity(), "Tokens can not exceed strategy capacity");
+    }
+
+    private static final class AsyncWaiter {
+        private final long n;
+        private final CompletableFuture<Void> future;
+        private final long startTime;
+
+        private AsyncWaiter(long n, CompletableFuture<Void> future, long startTime) {
+            this.n = n;
+            this.future = future;
+            this.startTime = startTime;
+        }
+    }
+
+}
@@ -0,0 +1,66 @@
+package me.sudohippie.throttle.executor;
+
+import me.sudohippie.throttle.strategy.ThrottleStrategy;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Handles tasks a {@link ThrottledExecutorService} can not queue, because its queue is full or it
+ * has been shut down.
+ */
+public interface RejectionPolicy {
+
+    /**
+     * Throws a {@link RejectedExecutionException}.
+     */
+    RejectionPolicy ABORT = new RejectionPolicy() {
+        @Override
+        public void rejected(Runnable task, long cost, ThrottledExecutorService executor) {
+            throw new RejectedExecutionException("Task " + task + " rejected from " + executor);
+        }
+    };
+
+    /**
+     * Silently drops the task.
+     */
+    RejectionPolicy DISCARD = new RejectionPolicy() {
+        @Override
+        public void rejected(Runnable task, long cost, ThrottledExecutorService executor) {
+        }
+    };
+
+    /**
+     * Runs the task on the submitting thread once its tokens are acquired, slowing submitters down
+     * to the rate of the strategy. Tasks are dropped once the executor has been shut down.
+     */
+    RejectionPolicy CALLER_RUNS = new RejectionPolicy() {
+        @Override
+        public void rejected(Runnable task, long cost, ThrottledExecutorService executor) {
+            if(executor.isShutdown()) return;
+
+            ThrottleStrategy strategy = executor.getStrategy();
+            boolean interrupted = false;
+            while(strategy.isThrottled(cost)){
+                LockSupport.parkNanos(this, strategy.timeToRelease(cost, TimeUnit.NANOSECONDS));
+                if(Thread.interrupted()) interrupted = true;
+            }
+
+            try {
+                task.run();
+            } finally {
+                if(interrupted) Thread.currentThread().interrupt();
+            }
+        }
+    };
+
+    /**
+     * Handles a task which could not be queued.
+     *
+     * @param task rejected task
+     * @param cost tokens the task costs
+     * @param executor executor rejecting the task
+     */
+    void rejected(Runnable task, long cost, ThrottledExecutorService executor);
+}
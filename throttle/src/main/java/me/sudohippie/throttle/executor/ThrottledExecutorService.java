@@ -0,0 +1,268 @@
+package me.sudohippie.throttle.executor;
+
+import me.sudohippie.throttle.strategy.ThrottleStrategy;
+import me.sudohippie.throttle.util.Assert;
+import me.sudohippie.throttle.util.BoundedQueue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * ExecutorService admitting tasks to another executor at the rate of a {@link ThrottleStrategy}.
+ *
+ * Every task costs a number of tokens, by default the cost given at construction. Submitted tasks
+ * are queued in a bounded lock-free queue and handed to the delegate executor in submission order
+ * by a single dispatcher thread, once the strategy grants their tokens. While the task at the head
+ * of the queue is throttled, the dispatcher parks until the strategy expects its tokens to be
+ * released, so waiting costs no CPU. Tasks which can not be queued are handed to a
+ * {@link RejectionPolicy}.
+ *
+ * Shutting down stops accepting tasks; queued tasks are still dispatched, after which the
+ * delegate executor is shut down too.
+ */
+public class ThrottledExecutorService extends AbstractExecutorService {
+
+    private static final long DEFAULT_COST = 1;
+    private static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+    private static final int RUNNING = 0;
+    private static final int SHUTDOWN = 1;
+    private static final int STOP = 2;
+
+    private final ExecutorService delegate;
+    private final ThrottleStrategy strategy;
+    private final long defaultCost;
+    private final RejectionPolicy rejectionPolicy;
+
+    private final BoundedQueue<Task> queue;
+    private final Thread dispatcher;
+    // set while the dispatcher is parked for lack of tasks
+    private final AtomicBoolean idle = new AtomicBoolean();
+    // submissions past the state check, not queued yet
+    private final AtomicInteger submitting = new AtomicInteger();
+    private volatile int state = RUNNING;
+
+    public ThrottledExecutorService(ExecutorService delegate, ThrottleStrategy strategy) {
+        this(delegate, strategy, DEFAULT_COST, DEFAULT_QUEUE_CAPACITY, RejectionPolicy.ABORT);
+    }
+
+    /**
+     * Constructor to build a ThrottledExecutorService.
+     *
+     * @param delegate executor running admitted tasks
+     * @param strategy throttling strategy admitting tasks
+     * @param defaultCost Tokens a task costs unless submitted with its own cost.
+     * @param queueCapacity Maximum tasks waiting for admission, rounded up to a power of two.
+     * @param rejectionPolicy {@link RejectionPolicy} handling tasks which can not be queued
+     */
+    public ThrottledExecutorService(ExecutorService delegate, ThrottleStrategy strategy, long defaultCost, int queueCapacity, RejectionPolicy rejectionPolicy) {
+        // preconditions
+        Assert.isTrue(delegate != null, "Delegate executor can not be null");
+        Assert.isTrue(strategy != null, "Strategy can not be null");
+        Assert.isTrue(rejectionPolicy != null, "Rejection policy can not be null");
+
+        this.delegate = delegate;
+        this.strategy = strategy;
+        this.defaultCost = defaultCost;
+        this.rejectionPolicy = rejectionPolicy;
+        checkCost(defaultCost);
+
+        this.queue = new BoundedQueue<Task>(queueCapacity);
+        this.dispatcher = new Thread(this::dispatch, "throttled-executor-dispatcher");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        execute(command, defaultCost);
+    }
+
+    /**
+     * Executes {@code command} once {@code cost} tokens have been granted.
+     *
+     * @param command
+     * @param cost tokens the task costs, at most the strategy's capacity
+     */
+    public void execute(Runnable command, long cost) {
+        // preconditions
+        Assert.isTrue(command != null, "Task can not be null");
+        checkCost(cost);
+
+        submitting.incrementAndGet();
+        boolean queued;
+        try {
+            queued = state == RUNNING && queue.offer(new Task(command, cost));
+        } finally {
+            submitting.decrementAndGet();
+        }
+
+        // the dispatcher may be waiting for this submission to finish
+        wakeDispatcher();
+        if(!queued) rejectionPolicy.rejected(command, cost, this);
+    }
+
+    /**
+     * Submits {@code task}, to be run once {@code cost} tokens have been granted.
+     *
+     * @param task
+     * @param cost tokens the task costs, at most the strategy's capacity
+     * @return
+     */
+    public Future<?> submit(Runnable task, long cost) {
+        // preconditions
+        Assert.isTrue(task != null, "Task can not be null");
+
+        RunnableFuture<Void> future = newTaskFor(task, null);
+        execute(future, cost);
+        return future;
+    }
+
+    /**
+     * Submits {@code task}, to be run once {@code cost} tokens have been granted.
+     *
+     * @param task
+     * @param cost tokens the task costs, at most the strategy's capacity
+     * @return
+     */
+    public <T> Future<T> submit(Callable<T> task, long cost) {
+        // preconditions
+        Assert.isTrue(task != null, "Task can not be null");
+
+        RunnableFuture<T> future = newTaskFor(task);
+        execute(future, cost);
+        return future;
+    }
+
+    @Override
+    public void shutdown() {
+        if(state == RUNNING) state = SHUTDOWN;
+        LockSupport.unpark(dispatcher);
+    }
+
+    /**
+     * Stops dispatching, shuts the delegate executor down and returns the tasks which had not been
+     * dispatched yet, followed by those the delegate had not started.
+     *
+     * @return
+     */
+    @Override
+    public List<Runnable> shutdownNow() {
+        state = STOP;
+        LockSupport.unpark(dispatcher);
+
+        // the queue is ours once the dispatcher is gone
+        boolean interrupted = false;
+        while(dispatcher.isAlive()){
+            try {
+                dispatcher.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+
+        List<Runnable> pending = new ArrayList<Runnable>();
+        Task task;
+        while((task = queue.poll()) != null) pending.add(task.command);
+        pending.addAll(delegate.shutdownNow());
+
+        if(interrupted) Thread.currentThread().interrupt();
+        return pending;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return state != RUNNING;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return !dispatcher.isAlive() && delegate.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        TimeUnit.NANOSECONDS.timedJoin(dispatcher, deadline - System.nanoTime());
+        if(dispatcher.isAlive()) return false;
+
+        return delegate.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Number of tasks waiting for admission.
+     *
+     * @return
+     */
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    public ThrottleStrategy getStrategy() {
+        return strategy;
+    }
+
+    // hands queued tasks to the delegate in order, as the strategy grants their tokens
+    private void dispatch() {
+        while(state != STOP){
+            Task head = queue.peek();
+            if(head == null){
+                // done once shut down and no submission can still be queued
+                if(state == SHUTDOWN && submitting.get() == 0 && queue.isEmpty()) break;
+
+                idle.set(true);
+                if(queue.isEmpty() && submitting.get() == 0 && state == RUNNING) LockSupport.park(this);
+                idle.set(false);
+                continue;
+            }
+
+            if(strategy.isThrottled(head.cost)){
+                LockSupport.parkNanos(this, Math.max(1L, strategy.timeToRelease(head.cost, TimeUnit.NANOSECONDS)));
+                continue;
+            }
+
+            queue.poll();
+            try {
+                delegate.execute(head.command);
+            } catch (RejectedExecutionException e) {
+                try {
+                    rejectionPolicy.rejected(head.command, head.cost, this);
+                } catch (RuntimeException ignored) {
+                    // no one to report to, the dispatcher must keep going
+                }
+            }
+        }
+
+        if(state == SHUTDOWN) delegate.shutdown();
+    }
+
+    private void wakeDispatcher() {
+        if(idle.get()) LockSupport.unpark(dispatcher);
+    }
+
+    private void checkCost(long cost) {
+        // preconditions
+        Assert.isTrue(cost >= 0, "Invalid argument less than 0");
+        Assert.isTrue(cost <= strategy.getCapacity(), "Tokens can not exceed strategy capacity");
+    }
+
+    private static final class Task {
+        private final Runnable command;
+        private final long cost;
+
+        private Task(Runnable command, long cost) {
+            this.command = command;
+            this.cost = cost;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package me.sudohippie.throttle.metrics;
+
+import me.sudohippie.throttle.util.Assert;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrent histogram of non-negative long values, in the style of HdrHistogram.
+ *
+ * Values are counted in log-linear buckets: each power of two is split into 32 sub-buckets,
+ * so any value is reported with in about 3% of what was recorded. The buckets cover the whole
+ * long range in a fixed array, recording is a couple of atomic increments and never allocates.
+ */
+public class Histogram {
+
+    // sub-buckets per power of two, as a power of two
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = SUB_BUCKET_COUNT + (63 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a value, negative values are recorded as 0.
+     *
+     * @param value
+     */
+    public void record(long value) {
+        if(value < 0) value = 0;
+
+        counts.getAndIncrement(indexOf(value));
+        count.increment();
+        sum.add(value);
+
+        long currentMax;
+        while(value > (currentMax = max.get()) && !max.compareAndSet(currentMax, value));
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long count = getCount();
+        return count == 0 ? 0.0 : (double) sum.sum() / count;
+    }
+
+    /**
+     * Provides the value below which {@code percentile} percent of the recorded values fall,
+     * as the highest value of the bucket it was counted in.
+     *
+     * @param percentile between 0 and 100
+     * @return 0 when nothing has been recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        // preconditions
+        Assert.isTrue(percentile >= 0 && percentile <= 100, "Percentile must be between 0 and 100");
+
+        long total = getCount();
+        if(total == 0) return 0L;
+
+        long rank = Math.max(1L, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for(int i = 0; i < BUCKET_COUNT; i++){
+            seen += counts.get(i);
+            if(seen >= rank) return Math.min(highestValueOf(i), getMax());
+        }
+        return getMax();
+    }
+
+    // values below SUB_BUCKET_COUNT are exact, above the top bits pick the sub-bucket
+    static int indexOf(long value) {
+        if(value < SUB_BUCKET_COUNT) return (int) value;
+
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) - SUB_BUCKET_COUNT;
+        return SUB_BUCKET_COUNT + (shift << SUB_BUCKET_BITS) + subBucket;
+    }
+
+    static long highestValueOf(int index) {
+        if(index < SUB_BUCKET_COUNT) return index;
+
+        int shift = (index - SUB_BUCKET_COUNT) >>> SUB_BUCKET_BITS;
+        long subBucket = (index - SUB_BUCKET_COUNT) & (SUB_BUCKET_COUNT - 1);
+        long next = (SUB_BUCKET_COUNT + subBucket + 1) << shift;
+        // the top bucket ends at Long.MAX_VALUE
+        return next < 0 ? Long.MAX_VALUE : next - 1;
+    }
+}
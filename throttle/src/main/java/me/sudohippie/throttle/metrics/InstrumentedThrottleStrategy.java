@@ -0,0 +1,95 @@
+package me.sudohippie.throttle.metrics;
+
+import me.sudohippie.throttle.strategy.Reservation;
+import me.sudohippie.throttle.strategy.ThrottleStrategy;
+import me.sudohippie.throttle.util.Assert;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decorates a strategy with {@link ThrottleMetrics}.
+ *
+ * Counts granted and denied requests and records the times reported by
+ * {@link #timeToRelease(long, TimeUnit)}. A {@link me.sudohippie.throttle.Throttle} built
+ * with an instrumented strategy also records the latency of its acquire calls. Reservations
+ * count as granted or denied requests too, and their delay is recorded as acquire latency.
+ */
+public class InstrumentedThrottleStrategy extends ThrottleStrategy {
+
+    private final ThrottleStrategy strategy;
+    private final ThrottleMetrics metrics;
+
+    public InstrumentedThrottleStrategy(ThrottleStrategy strategy) {
+        // preconditions
+        Assert.isTrue(strategy != null, "Strategy can not be null");
+
+        this.strategy = strategy;
+        this.metrics = new ThrottleMetrics(strategy);
+    }
+
+    @Override
+    public boolean isThrottled() {
+        return isThrottled(1);
+    }
+
+    @Override
+    public boolean isThrottled(long n) {
+        boolean throttled = strategy.isThrottled(n);
+
+        if(throttled) metrics.recordDenied();
+        else metrics.recordGranted(n);
+        return throttled;
+    }
+
+    @Override
+    public long timeToRelease(long n, TimeUnit timeUnit) {
+        // preconditions
+        Assert.isTrue(timeUnit != null, "TimeUnit argument can not be null");
+
+        long timeToRelease = strategy.timeToRelease(n, TimeUnit.NANOSECONDS);
+        metrics.recordReleaseWait(timeToRelease);
+        return timeUnit.convert(timeToRelease, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public long getCapacity() {
+        return strategy.getCapacity();
+    }
+
+    @Override
+    public void refund(long n) {
+        strategy.refund(n);
+    }
+
+    @Override
+    public boolean supportsRefund() {
+        return strategy.supportsRefund();
+    }
+
+    @Override
+    public Reservation reserve(long n) {
+        Reservation reservation = strategy.reserve(n);
+
+        if(reservation == null){
+            metrics.recordDenied();
+        } else {
+            metrics.recordGranted(n);
+            // the reserving caller waits for the reservation to become valid
+            metrics.recordAcquireLatency(reservation.getDelay(TimeUnit.NANOSECONDS));
+        }
+        return reservation;
+    }
+
+    @Override
+    public long getCurrentTokenCount() {
+        return strategy.getCurrentTokenCount();
+    }
+
+    public ThrottleStrategy getStrategy() {
+        return strategy;
+    }
+
+    public ThrottleMetrics getMetrics() {
+        return metrics;
+    }
+}
@@ -0,0 +1,20 @@
+package me.sudohippie.throttle.metrics;
+
+import me.sudohippie.throttle.strategy.ThrottleStrategy;
+
+/**
+ * Receives refill events of a token bucket, i.e. each time the bucket starts a new refill interval.
+ *
+ * Listeners are called on the thread that observed the refill, possibly while it holds the
+ * bucket's lock, and must return quickly.
+ */
+public interface RefillListener {
+
+    /**
+     * Called after {@code strategy} has been refilled.
+     *
+     * @param strategy the refilled strategy
+     * @param tokens tokens in the bucket after the refill
+     */
+    void onRefill(ThrottleStrategy strategy, long tokens);
+}
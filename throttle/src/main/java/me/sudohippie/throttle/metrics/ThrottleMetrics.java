@@ -0,0 +1,167 @@
+package me.sudohippie.throttle.metrics;
+
+import me.sudohippie.throttle.strategy.ThrottleStrategy;
+import me.sudohippie.throttle.util.Assert;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics of an {@link InstrumentedThrottleStrategy} and of the {@link me.sudohippie.throttle.Throttle}s using it.
+ *
+ * Counters are {@link LongAdder}s and latencies are kept in {@link Histogram}s, so recording
+ * scales with threads and never allocates. Metrics are read with the getters below, or over JMX
+ * once {@link #register(String)} has been called.
+ */
+public class ThrottleMetrics implements ThrottleMetricsMXBean {
+
+    private static final String DOMAIN = "me.sudohippie.throttle";
+
+    private final ThrottleStrategy strategy;
+
+    private final LongAdder granted = new LongAdder();
+    private final LongAdder grantedTokens = new LongAdder();
+    private final LongAdder denied = new LongAdder();
+    // time from a blocking or asynchronous acquire call to the tokens being granted
+    private final Histogram acquireLatency = new Histogram();
+    // time reported by timeToRelease
+    private final Histogram releaseWait = new Histogram();
+
+    private volatile ObjectName objectName;
+
+    ThrottleMetrics(ThrottleStrategy strategy) {
+        this.strategy = strategy;
+    }
+
+    void recordGranted(long n) {
+        granted.increment();
+        grantedTokens.add(n);
+    }
+
+    void recordDenied() {
+        denied.increment();
+    }
+
+    void recordReleaseWait(long nanos) {
+        releaseWait.record(nanos);
+    }
+
+    /**
+     * Records the time taken by an acquire call, in nanos.
+     *
+     * @param nanos
+     */
+    public void recordAcquireLatency(long nanos) {
+        acquireLatency.record(nanos);
+    }
+
+    @Override
+    public long getGrantedCount() {
+        return granted.sum();
+    }
+
+    @Override
+    public long getGrantedTokens() {
+        return grantedTokens.sum();
+    }
+
+    @Override
+    public long getDeniedCount() {
+        return denied.sum();
+    }
+
+    /**
+     * Provides the tokens currently available, or -1 if the strategy does not report them.
+     *
+     * @return
+     */
+    @Override
+    public long getCurrentTokenCount() {
+        try {
+            return strategy.getCurrentTokenCount();
+        } catch (UnsupportedOperationException e) {
+            return -1L;
+        }
+    }
+
+    public Histogram getAcquireLatency() {
+        return acquireLatency;
+    }
+
+    public Histogram getReleaseWait() {
+        return releaseWait;
+    }
+
+    @Override
+    public long getAcquireLatencyMedian() {
+        return acquireLatency.getValueAtPercentile(50);
+    }
+
+    @Override
+    public long getAcquireLatency99thPercentile() {
+        return acquireLatency.getValueAtPercentile(99);
+    }
+
+    @Override
+    public long getAcquireLatencyMax() {
+        return acquireLatency.getMax();
+    }
+
+    @Override
+    public long getReleaseWaitMedian() {
+        return releaseWait.getValueAtPercentile(50);
+    }
+
+    @Override
+    public long getReleaseWait99thPercentile() {
+        return releaseWait.getValueAtPercentile(99);
+    }
+
+    @Override
+    public long getReleaseWaitMax() {
+        return releaseWait.getMax();
+    }
+
+    /**
+     * Registers these metrics with the platform MBean server, under
+     * {@code me.sudohippie.throttle:type=ThrottleMetrics,name=<name>}.
+     *
+     * @param name name distinguishing this throttle
+     * @throws IllegalStateException if the metrics can not be registered, e.g. the name is taken
+     */
+    public synchronized void register(String name) {
+        // preconditions
+        Assert.isTrue(name != null, "Name can not be null");
+        if(objectName != null) throw new IllegalStateException("Metrics are already registered as " + objectName);
+
+        try {
+            ObjectName objectName = new ObjectName(DOMAIN + ":type=ThrottleMetrics,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            this.objectName = objectName;
+        } catch (JMException e) {
+            throw new IllegalStateException("Metrics can not be registered as " + name, e);
+        }
+    }
+
+    /**
+     * Removes these metrics from the platform MBean server, if registered.
+     */
+    public synchronized void unregister() {
+        if(objectName == null) return;
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.unregisterMBean(objectName);
+        } catch (JMException e) {
+            // already gone
+        }
+        objectName = null;
+    }
+
+    public ObjectName getObjectName() {
+        return objectName;
+    }
+}
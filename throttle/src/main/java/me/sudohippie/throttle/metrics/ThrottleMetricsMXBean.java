@@ -0,0 +1,27 @@
+package me.sudohippie.throttle.metrics;
+
+/**
+ * JMX view of {@link ThrottleMetrics}. Times are in nanoseconds.
+ */
+public interface ThrottleMetricsMXBean {
+
+    long getGrantedCount();
+
+    long getGrantedTokens();
+
+    long getDeniedCount();
+
+    long getCurrentTokenCount();
+
+    long getAcquireLatencyMedian();
+
+    long getAcquireLatency99thPercentile();
+
+    long getAcquireLatencyMax();
+
+    long getReleaseWaitMedian();
+
+    long getReleaseWait99thPercentile();
+
+    long getReleaseWaitMax();
+}
@@ -0,0 +1,186 @@
+package me.sudohippie.throttle.simulation;
+
+import me.sudohippie.throttle.util.Assert;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sequence of request arrival times driving a {@link Simulation}.
+ *
+ * A trace returns the nanoseconds from its start to each arrival, in non-decreasing order.
+ * Synthetic traces are generated from a seed, so the same seed always produces the same
+ * arrivals. A trace is consumed as it is read and is not thread safe.
+ */
+public abstract class ArrivalTrace {
+
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * Returns the nanoseconds from the start of this trace to the next arrival.
+     *
+     * @return {@link Long#MAX_VALUE} once the trace is exhausted
+     */
+    public abstract long next();
+
+    /**
+     * Replays arrivals recorded e.g. from production traffic.
+     *
+     * @param arrivals nanoseconds from the start of the trace to each arrival, in non-decreasing order
+     * @return
+     */
+    public static ArrivalTrace recorded(long[] arrivals) {
+        // preconditions
+        Assert.isTrue(arrivals != null, "Arrivals can not be null");
+        for(int i = 1; i < arrivals.length; i++) Assert.isTrue(arrivals[i - 1] <= arrivals[i], "Arrivals must not decrease");
+
+        return new Recorded(arrivals.clone());
+    }
+
+    /**
+     * Poisson arrivals, i.e. independent arrivals at a constant mean rate.
+     *
+     * @param ratePerSecond mean arrivals per second
+     * @param seed
+     * @return
+     */
+    public static ArrivalTrace poisson(double ratePerSecond, long seed) {
+        // preconditions
+        Assert.isTrue(ratePerSecond > 0, "Rate must be positive");
+
+        return new Bursty(ratePerSecond, ratePerSecond, Double.POSITIVE_INFINITY, 0, seed);
+    }
+
+    /**
+     * Poisson arrivals switching between a base rate and a burst rate, each phase lasting an
+     * exponentially distributed time (a two state Markov modulated Poisson process). The trace
+     * starts in the base phase.
+     *
+     * @param baseRatePerSecond mean arrivals per second between bursts, 0 for silence
+     * @param burstRatePerSecond mean arrivals per second during bursts
+     * @param meanBaseTime mean time between bursts
+     * @param meanBurstTime mean time of a burst
+     * @param timeUnit {@link TimeUnit} of the mean times
+     * @param seed
+     * @return
+     */
+    public static ArrivalTrace bursty(double baseRatePerSecond, double burstRatePerSecond, long meanBaseTime, long meanBurstTime, TimeUnit timeUnit, long seed) {
+        // preconditions
+        Assert.isTrue(baseRatePerSecond >= 0 && burstRatePerSecond >= 0, "Rate can not be negative");
+        Assert.isTrue(baseRatePerSecond > 0 || burstRatePerSecond > 0, "Rate must be positive in either phase");
+        Assert.isTrue(meanBaseTime > 0 && meanBurstTime > 0, "Phase times must be positive");
+        Assert.isTrue(timeUnit != null, "TimeUnit argument can not be null");
+
+        return new Bursty(baseRatePerSecond, burstRatePerSecond, timeUnit.toNanos(meanBaseTime), timeUnit.toNanos(meanBurstTime), seed);
+    }
+
+    /**
+     * Poisson arrivals whose rate follows a sine wave over a period, e.g. daily traffic. The rate
+     * starts at its mean, rising to {@code mean * (1 + amplitude)} a quarter period in.
+     *
+     * @param meanRatePerSecond mean arrivals per second over a period
+     * @param amplitude relative swing of the rate, between 0 and 1
+     * @param period length of a cycle
+     * @param timeUnit {@link TimeUnit} of the period
+     * @param seed
+     * @return
+     */
+    public static ArrivalTrace diurnal(double meanRatePerSecond, double amplitude, long period, TimeUnit timeUnit, long seed) {
+        // preconditions
+        Assert.isTrue(meanRatePerSecond > 0, "Rate must be positive");
+        Assert.isTrue(amplitude >= 0 && amplitude <= 1, "Amplitude must be between 0 and 1");
+        Assert.isTrue(period > 0, "Period must be positive");
+        Assert.isTrue(timeUnit != null, "TimeUnit argument can not be null");
+
+        return new Diurnal(meanRatePerSecond, amplitude, timeUnit.toNanos(period), seed);
+    }
+
+    // nanos until the next of poisson arrivals at rate per nano
+    static double exponential(SplittableRandom random, double ratePerNano) {
+        return -Math.log(1.0 - random.nextDouble()) / ratePerNano;
+    }
+
+    private static final class Recorded extends ArrivalTrace {
+
+        private final long[] arrivals;
+        private int index;
+
+        private Recorded(long[] arrivals) {
+            this.arrivals = arrivals;
+        }
+
+        @Override
+        public long next() {
+            return index < arrivals.length ? arrivals[index++] : Long.MAX_VALUE;
+        }
+    }
+
+    private static final class Bursty extends ArrivalTrace {
+
+        private final SplittableRandom random;
+        // rates per nano and mean phase times in nanos, of the base and burst phase
+        private final double[] rates;
+        private final double[] meanTimes;
+
+        private int phase = 0;
+        private double phaseEnd;
+        // kept in double, so rounding does not accumulate
+        private double time;
+
+        private Bursty(double baseRatePerSecond, double burstRatePerSecond, double meanBaseTime, double meanBurstTime, long seed) {
+            this.random = new SplittableRandom(seed);
+            this.rates = new double[]{baseRatePerSecond / NANOS_PER_SECOND, burstRatePerSecond / NANOS_PER_SECOND};
+            this.meanTimes = new double[]{meanBaseTime, meanBurstTime};
+            this.phaseEnd = phaseTime();
+        }
+
+        @Override
+        public long next() {
+            while(true){
+                double arrival = rates[phase] > 0 ? time + exponential(random, rates[phase]) : Double.POSITIVE_INFINITY;
+                if(arrival < phaseEnd){
+                    time = arrival;
+                    return (long) time;
+                }
+
+                // arrivals are memoryless, start over from the phase change
+                time = phaseEnd;
+                phase ^= 1;
+                phaseEnd = time + phaseTime();
+            }
+        }
+
+        private double phaseTime() {
+            double mean = meanTimes[phase];
+            return mean == Double.POSITIVE_INFINITY ? mean : exponential(random, 1.0 / mean);
+        }
+    }
+
+    private static final class Diurnal extends ArrivalTrace {
+
+        private final SplittableRandom random;
+        private final double meanRate;
+        private final double amplitude;
+        private final double period;
+        private final double maxRate;
+        private double time;
+
+        private Diurnal(double meanRatePerSecond, double amplitude, long period, long seed) {
+            this.random = new SplittableRandom(seed);
+            this.meanRate = meanRatePerSecond / NANOS_PER_SECOND;
+            this.amplitude = amplitude;
+            this.period = period;
+            this.maxRate = meanRate * (1 + amplitude);
+        }
+
+        @Override
+        public long next() {
+            // thinning, candidates at the peak rate are kept in proportion to the rate at their time
+            while(true){
+                time += exponential(random, maxRate);
+                double rate = meanRate * (1 + amplitude * Math.sin(2 * Math.PI * time / period));
+                if(random.nextDouble() * maxRate < rate) return (long) time;
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package me.sudohippie.throttle.simulation;
+
+import me.sudohippie.throttle.metrics.Histogram;
+import me.sudohippie.throttle.strategy.ThrottleStrategy;
+import me.sudohippie.throttle.util.Assert;
+import me.sudohippie.throttle.util.ManualTicker;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays an {@link ArrivalTrace} against a {@link ThrottleStrategy} on a virtual clock.
+ *
+ * The strategy must read time from the simulation's {@link ManualTicker}, which is moved to each
+ * arrival before the strategy is asked for a token. Nothing sleeps, so hours of traffic replay in
+ * moments and the outcome only depends on the trace and the strategy. Admissions are also
+ * counted per window, whose distribution shows the bursts the strategy lets through.
+ */
+public class Simulation {
+
+    private final ManualTicker ticker;
+    // window admissions are counted in, in nanos
+    private final long window;
+
+    /**
+     * Constructor to build a Simulation.
+     *
+     * @param ticker {@link ManualTicker} the simulated strategies read time from
+     * @param window The window admissions are counted in, for the burst distribution.
+     * @param windowTimeUnit {@link TimeUnit} class representing unit of time of window
+     */
+    public Simulation(ManualTicker ticker, long window, TimeUnit windowTimeUnit) {
+        // preconditions
+        Assert.isTrue(ticker != null, "Ticker can not be null");
+        Assert.isTrue(window > 0, "Window must be positive");
+        Assert.isTrue(windowTimeUnit != null, "TimeUnit argument can not be null");
+
+        this.ticker = ticker;
+        this.window = windowTimeUnit.toNanos(window);
+    }
+
+    /**
+     * Asks {@code strategy} for a token at every arrival of {@code trace} before {@code duration}
+     * has passed, advancing the ticker by {@code duration} in total.
+     *
+     * @param strategy strategy reading time from this simulation's ticker
+     * @param trace arrivals, consumed by the run
+     * @param duration
+     * @param timeUnit
+     * @return
+     */
+    public SimulationResult run(ThrottleStrategy strategy, ArrivalTrace trace, long duration, TimeUnit timeUnit) {
+        // preconditions
+        Assert.isTrue(strategy != null, "Strategy can not be null");
+        Assert.isTrue(trace != null, "Trace can not be null");
+        Assert.isTrue(duration > 0, "Duration must be positive");
+        Assert.isTrue(timeUnit != null, "TimeUnit argument can not be null");
+
+        long end = timeUnit.toNanos(duration);
+        Histogram bursts = new Histogram();
+
+        long admitted = 0;
+        long rejected = 0;
+        long now = 0;
+        long windowEnd = window;
+        long windowAdmitted = 0;
+
+        long arrival;
+        while((arrival = trace.next()) < end){
+            // close the windows passed, quiet ones included
+            while(arrival >= windowEnd){
+                bursts.record(windowAdmitted);
+                windowAdmitted = 0;
+                windowEnd += window;
+            }
+
+            ticker.advance(arrival - now, TimeUnit.NANOSECONDS);
+            now = arrival;
+
+            if(strategy.isThrottled()){
+                rejected++;
+            } else {
+                admitted++;
+                windowAdmitted++;
+            }
+        }
+
+        // windows to the end of the run, a partial last window is dropped
+        while(windowEnd <= end){
+            bursts.record(windowAdmitted);
+            windowAdmitted = 0;
+            windowEnd += window;
+        }
+        ticker.advance(end - now, TimeUnit.NANOSECONDS);
+
+        return new SimulationResult(admitted, rejected, end, window, bursts);
+    }
+}
@@ -0,0 +1,85 @@
+package me.sudohippie.throttle.simulation;
+
+import me.sudohippie.throttle.metrics.Histogram;
+import me.sudohippie.throttle.util.Assert;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Outcome of a {@link Simulation} run.
+ */
+public class SimulationResult {
+
+    private final long admitted;
+    private final long rejected;
+    private final long duration;
+    private final long window;
+    private final Histogram bursts;
+
+    SimulationResult(long admitted, long rejected, long duration, long window, Histogram bursts) {
+        this.admitted = admitted;
+        this.rejected = rejected;
+        this.duration = duration;
+        this.window = window;
+        this.bursts = bursts;
+    }
+
+    public long getArrivals() {
+        return admitted + rejected;
+    }
+
+    public long getAdmitted() {
+        return admitted;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    /**
+     * Provides the mean admissions per {@code timeUnit} over the run.
+     *
+     * @param timeUnit
+     * @return
+     */
+    public double getAdmittedRate(TimeUnit timeUnit) {
+        // preconditions
+        Assert.isTrue(timeUnit != null, "TimeUnit argument can not be null");
+
+        return (double) admitted * timeUnit.toNanos(1) / duration;
+    }
+
+    /**
+     * Provides the fraction of arrivals which were rejected.
+     *
+     * @return between 0 and 1, 0 if nothing arrived
+     */
+    public double getRejectionRate() {
+        long arrivals = getArrivals();
+        return arrivals == 0 ? 0.0 : (double) rejected / arrivals;
+    }
+
+    /**
+     * Provides the distribution of admissions per window, over every whole window of the run.
+     *
+     * @return
+     */
+    public Histogram getBursts() {
+        return bursts;
+    }
+
+    public long getWindow(TimeUnit timeUnit) {
+        return timeUnit.convert(window, TimeUnit.NANOSECONDS);
+    }
+
+    public long getDuration(TimeUnit timeUnit) {
+        return timeUnit.convert(duration, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public String toString() {
+        return "SimulationResult{arrivals=" + getArrivals() + ", admitted=" + admitted + ", rejected=" + rejected
+                + ", rejectionRate=" + getRejectionRate() + ", maxBurst=" + bursts.getMax()
+                + ", p99Burst=" + bursts.getValueAtPercentile(99) + "}";
+    }
+}
@@ -0,0 +1,29 @@
+package me.sudohippie.throttle.snapshot;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Converts keys of a {@link me.sudohippie.throttle.KeyedThrottle} to and from bytes, so that
+ * their buckets can be written to a {@link SnapshotFile}.
+ */
+public interface KeyCodec<K> {
+
+    /**
+     * Codec of string keys, encoded as UTF-8.
+     */
+    KeyCodec<String> STRING = new KeyCodec<String>() {
+        @Override
+        public byte[] encode(String key) {
+            return key.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public String decode(byte[] bytes) {
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    };
+
+    byte[] encode(K key);
+
+    K decode(byte[] bytes);
+}
@@ -0,0 +1,274 @@
+package me.sudohippie.throttle.snapshot;
+
+import me.sudohippie.throttle.KeyedThrottle;
+import me.sudohippie.throttle.strategy.bucket.AtomicTokenBucketStrategy;
+import me.sudohippie.throttle.strategy.bucket.RefillPolicy;
+import me.sudohippie.throttle.strategy.bucket.TokenBucketStrategy;
+import me.sudohippie.throttle.util.Assert;
+import me.sudohippie.throttle.util.Ticker;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static me.sudohippie.throttle.strategy.bucket.RefillPolicy.STATE_LENGTH;
+
+/**
+ * Memory-mapped file holding the state of a token bucket strategy or of all buckets of a
+ * {@link KeyedThrottle}, so that limits survive a restart instead of starting over with empty
+ * or full buckets.
+ *
+ * Bucket times are written relative to the time of the snapshot, along with a wall clock
+ * reading. On restore they are shifted by the wall clock time elapsed since, so buckets come
+ * back as if the process had kept running: buckets due for a refill while it was down are
+ * refilled on their next use. Restoring into a strategy or throttle configured with a different
+ * capacity or refill interval is refused.
+ *
+ * A snapshot is written to a temporary file which then replaces the file, so a crash while
+ * saving leaves the previous snapshot intact.
+ *
+ * Layout, big endian: magic, version, kind, wall clock nanos, capacity, refill interval nanos,
+ * bucket count and the buckets, each the key's length and bytes for keyed snapshots followed by
+ * the bucket state laid out as described by {@link RefillPolicy}.
+ */
+public class SnapshotFile {
+
+    private static final int MAGIC = 0x54485254;
+    private static final byte VERSION = 1;
+    private static final byte KIND_STRATEGY = 1;
+    private static final byte KIND_KEYED = 2;
+    private static final int HEADER_LENGTH = 4 + 1 + 1 + 8 + 8 + 8 + 4;
+    private static final int STATE_BYTES = STATE_LENGTH * 8;
+
+    private final Path path;
+    private final Ticker wallClock;
+
+    /**
+     * Constructor to build a SnapshotFile.
+     *
+     * @param path file holding the snapshot
+     */
+    public SnapshotFile(Path path) {
+        this(path, Ticker.wallClockTicker());
+    }
+
+    /**
+     * Constructor to build a SnapshotFile.
+     *
+     * @param path file holding the snapshot
+     * @param wallClock {@link Ticker} measuring time elapsed between save and restore, across restarts
+     */
+    public SnapshotFile(Path path, Ticker wallClock) {
+        // preconditions
+        Assert.isTrue(path != null, "Path can not be null");
+        Assert.isTrue(wallClock != null, "Ticker can not be null");
+
+        this.path = path;
+        this.wallClock = wallClock;
+    }
+
+    /**
+     * Writes the state of {@code strategy}.
+     *
+     * @param strategy
+     * @throws IOException
+     */
+    public void save(TokenBucketStrategy strategy) throws IOException {
+        // preconditions
+        Assert.isTrue(strategy != null, "Strategy can not be null");
+
+        long[] state = new long[STATE_LENGTH];
+        strategy.exportState(state, 0);
+        write(KIND_STRATEGY, strategy.getCapacity(), strategy.getRefillInterval(TimeUnit.NANOSECONDS), null, state, 1);
+    }
+
+    /**
+     * Writes the state of {@code strategy}.
+     *
+     * @param strategy
+     * @throws IOException
+     */
+    public void save(AtomicTokenBucketStrategy strategy) throws IOException {
+        // preconditions
+        Assert.isTrue(strategy != null, "Strategy can not be null");
+
+        long[] state = new long[STATE_LENGTH];
+        strategy.exportState(state, 0);
+        RefillPolicy policy = strategy.getRefillPolicy();
+        write(KIND_STRATEGY, policy.getCapacity(), policy.getRefillInterval(TimeUnit.NANOSECONDS), null, state, 1);
+    }
+
+    /**
+     * Writes the bucket of every key of {@code throttle} which has not reached its refill time.
+     *
+     * @param throttle
+     * @param codec converts keys to bytes
+     * @return number of keys written
+     * @throws IOException
+     */
+    public <K> int save(KeyedThrottle<K> throttle, final KeyCodec<K> codec) throws IOException {
+        // preconditions
+        Assert.isTrue(throttle != null, "Throttle can not be null");
+        Assert.isTrue(codec != null, "Key codec can not be null");
+
+        final List<byte[]> keys = new ArrayList<byte[]>();
+        final List<long[]> states = new ArrayList<long[]>();
+        throttle.exportState((key, state) -> {
+            keys.add(codec.encode(key));
+            states.add(state.clone());
+        });
+
+        long[] packed = new long[states.size() * STATE_LENGTH];
+        for(int i = 0; i < states.size(); i++) System.arraycopy(states.get(i), 0, packed, i * STATE_LENGTH, STATE_LENGTH);
+
+        RefillPolicy policy = throttle.getRefillPolicy();
+        write(KIND_KEYED, policy.getCapacity(), policy.getRefillInterval(TimeUnit.NANOSECONDS), keys, packed, keys.size());
+        return keys.size();
+    }
+
+    /**
+     * Restores the state of {@code strategy}.
+     *
+     * @param strategy
+     * @return <i>true</i> if restored, <i>false</i> if there is no snapshot or it was taken with a different configuration
+     * @throws IOException if the file is not a strategy snapshot
+     */
+    public boolean restore(TokenBucketStrategy strategy) throws IOException {
+        // preconditions
+        Assert.isTrue(strategy != null, "Strategy can not be null");
+
+        Snapshot snapshot = read(KIND_STRATEGY);
+        if(snapshot == null || !snapshot.matches(strategy.getCapacity(), strategy.getRefillInterval(TimeUnit.NANOSECONDS))) return false;
+
+        strategy.importState(snapshot.state, 0, snapshot.elapsed);
+        return true;
+    }
+
+    /**
+     * Restores the state of {@code strategy}.
+     *
+     * @param strategy
+     * @return <i>true</i> if restored, <i>false</i> if there is no snapshot or it was taken with a different configuration
+     * @throws IOException if the file is not a strategy snapshot
+     */
+    public boolean restore(AtomicTokenBucketStrategy strategy) throws IOException {
+        // preconditions
+        Assert.isTrue(strategy != null, "Strategy can not be null");
+
+        Snapshot snapshot = read(KIND_STRATEGY);
+        RefillPolicy policy = strategy.getRefillPolicy();
+        if(snapshot == null || !snapshot.matches(policy.getCapacity(), policy.getRefillInterval(TimeUnit.NANOSECONDS))) return false;
+
+        strategy.importState(snapshot.state, 0, snapshot.elapsed);
+        return true;
+    }
+
+    /**
+     * Restores the buckets of {@code throttle}. Buckets which reached their refill time since the
+     * snapshot are skipped, as their keys start over with a fresh bucket anyway.
+     *
+     * @param throttle
+     * @param codec converts bytes to keys
+     * @return number of keys restored, 0 if there is no snapshot or it was taken with a different configuration
+     * @throws IOException if the file is not a keyed snapshot
+     */
+    public <K> int restore(KeyedThrottle<K> throttle, KeyCodec<K> codec) throws IOException {
+        // preconditions
+        Assert.isTrue(throttle != null, "Throttle can not be null");
+        Assert.isTrue(codec != null, "Key codec can not be null");
+
+        Snapshot snapshot = read(KIND_KEYED);
+        RefillPolicy policy = throttle.getRefillPolicy();
+        if(snapshot == null || !snapshot.matches(policy.getCapacity(), policy.getRefillInterval(TimeUnit.NANOSECONDS))) return 0;
+
+        int restored = 0;
+        for(int i = 0; i < snapshot.keys.size(); i++){
+            if(throttle.importState(codec.decode(snapshot.keys.get(i)), snapshot.state, i * STATE_LENGTH, snapshot.elapsed)) restored++;
+        }
+        return restored;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    private void write(byte kind, long capacity, long refillInterval, List<byte[]> keys, long[] state, int count) throws IOException {
+        long length = HEADER_LENGTH + (long) count * STATE_BYTES;
+        if(keys != null) for(byte[] key : keys) length += 4 + key.length;
+        if(length > Integer.MAX_VALUE) throw new IOException("Snapshot too large: " + length + " bytes");
+
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try(FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)){
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+            buffer.putInt(MAGIC).put(VERSION).put(kind);
+            buffer.putLong(wallClock.read()).putLong(capacity).putLong(refillInterval).putInt(count);
+
+            for(int i = 0; i < count; i++){
+                if(keys != null) buffer.putInt(keys.get(i).length).put(keys.get(i));
+                for(int j = 0; j < STATE_LENGTH; j++) buffer.putLong(state[i * STATE_LENGTH + j]);
+            }
+            buffer.force();
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // null if there is no snapshot
+    private Snapshot read(byte kind) throws IOException {
+        if(!Files.exists(path)) return null;
+
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)){
+            long size = channel.size();
+            if(size < HEADER_LENGTH || size > Integer.MAX_VALUE) throw new IOException("Not a snapshot: " + path);
+
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if(buffer.getInt() != MAGIC || buffer.get() != VERSION) throw new IOException("Not a snapshot: " + path);
+            if(buffer.get() != kind) throw new IOException("Snapshot of another kind: " + path);
+
+            Snapshot snapshot = new Snapshot();
+            // a clock set back is taken as no time elapsed
+            snapshot.elapsed = Math.max(0L, wallClock.read() - buffer.getLong());
+            snapshot.capacity = buffer.getLong();
+            snapshot.refillInterval = buffer.getLong();
+
+            int count = buffer.getInt();
+            if(count < 0 || (long) count * STATE_BYTES > buffer.remaining()) throw new IOException("Corrupt snapshot: " + path);
+
+            snapshot.state = new long[count * STATE_LENGTH];
+            for(int i = 0; i < count; i++){
+                if(kind == KIND_KEYED){
+                    int keyLength = buffer.getInt();
+                    if(keyLength < 0 || keyLength > buffer.remaining()) throw new IOException("Corrupt snapshot: " + path);
+
+                    byte[] key = new byte[keyLength];
+                    buffer.get(key);
+                    snapshot.keys.add(key);
+                }
+                for(int j = 0; j < STATE_LENGTH; j++) snapshot.state[i * STATE_LENGTH + j] = buffer.getLong();
+            }
+            return snapshot;
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Corrupt snapshot: " + path, e);
+        }
+    }
+
+    private static final class Snapshot {
+        private long elapsed;
+        private long capacity;
+        private long refillInterval;
+        private final List<byte[]> keys = new ArrayList<byte[]>();
+        private long[] state;
+
+        private boolean matches(long capacity, long refillInterval) {
+            return this.capacity == capacity && this.refillInterval == refillInterval;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package me.sudohippie.throttle.strategy;
+
+import me.sudohippie.throttle.util.Assert;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Enforces several strategies together, e.g. a per-user, a per-tenant and a global limit.
+ *
+ * A request is admitted only if every child admits it. Children are evaluated in the order given,
+ * taking the tokens from each in turn; as soon as one throttles, the tokens already taken are
+ * refunded to the children before it. A throttled request therefore leaves every child as it was,
+ * although other requests may briefly see those tokens as taken. Each child is locked on its own
+ * and never while holding another, so composites sharing children in different orders can not
+ * deadlock. Children may themselves be composites, forming a tree.
+ *
+ * Every child but the last must support {@link ThrottleStrategy#refund(long)}, which is checked
+ * when the composite is built.
+ */
+public class CompositeThrottleStrategy extends ThrottleStrategy {
+
+    private final ThrottleStrategy[] children;
+
+    /**
+     * Constructor to build a CompositeThrottleStrategy.
+     *
+     * @param children strategies to enforce, in the order they are evaluated
+     */
+    public CompositeThrottleStrategy(ThrottleStrategy... children) {
+        // preconditions
+        Assert.isTrue(children != null && children.length > 0, "At least one strategy is required");
+        for(ThrottleStrategy child : children) Assert.isTrue(child != null, "Strategy can not be null");
+        // tokens taken from the last child are never refunded by a throttled request
+        for(int i = 0; i < children.length - 1; i++) Assert.isTrue(children[i].supportsRefund(), "Every strategy but the last must support refunds");
+
+        this.children = children.clone();
+    }
+
+    @Override
+    public boolean isThrottled() {
+        return isThrottled(1);
+    }
+
+    @Override
+    public boolean isThrottled(long n) {
+        // preconditions
+        Assert.isTrue(n >= 0, "Invalid argument less than 0");
+
+        for(int i = 0; i < children.length; i++){
+            if(!children[i].isThrottled(n)) continue;
+
+            // give back what the preceding children granted
+            for(int j = i - 1; j >= 0; j--) children[j].refund(n);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void refund(long n) {
+        for(ThrottleStrategy child : children) child.refund(n);
+    }
+
+    @Override
+    public boolean supportsRefund() {
+        return children[children.length - 1].supportsRefund();
+    }
+
+    /**
+     * Provides the time until every child can release n tokens.
+     *
+     * @param n
+     * @param timeUnit
+     * @return
+     */
+    @Override
+    public long timeToRelease(long n, TimeUnit timeUnit) {
+        // preconditions
+        Assert.isTrue(timeUnit != null, "TimeUnit argument can not be null");
+
+        long timeToRelease = 0;
+        for(ThrottleStrategy child : children) timeToRelease = Math.max(timeToRelease, child.timeToRelease(n, TimeUnit.NANOSECONDS));
+        return timeUnit.convert(timeToRelease, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Defines the capacity of the most restrictive child.
+     *
+     * @return
+     */
+    @Override
+    public long getCapacity() {
+        long capacity = Long.MAX_VALUE;
+        for(ThrottleStrategy child : children) capacity = Math.min(capacity, child.getCapacity());
+        return capacity;
+    }
+
+    /**
+     * Provides the tokens of the child with the fewest.
+     *
+     * @return
+     */
+    @Override
+    public long getCurrentTokenCount() {
+        long tokens = Long.MAX_VALUE;
+        for(ThrottleStrategy child : children) tokens = Math.min(tokens, child.getCurrentTokenCount());
+        return tokens;
+    }
+}
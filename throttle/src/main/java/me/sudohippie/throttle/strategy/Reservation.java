@@ -0,0 +1,120 @@
+package me.sudohippie.throttle.strategy;
+
+import me.sudohippie.throttle.util.Assert;
+import me.sudohippie.throttle.util.Ticker;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Tokens reserved from a strategy with {@link ThrottleStrategy#reserve(long)}.
+ *
+ * The tokens are taken when reserved, possibly ahead of their release: the reservation becomes
+ * valid after {@link #getDelay(TimeUnit)}, at which point the reserved work may proceed. Until the
+ * reservation is committed, unused tokens can be given back with {@link #refund(long)}, or all
+ * of them with {@link #cancel()}.
+ */
+public final class Reservation {
+
+    private final ThrottleStrategy strategy;
+    private final Ticker ticker;
+    // ticker reading at which the reservation becomes valid
+    private final long validTime;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private long tokens;
+    private boolean done = false;
+
+    /**
+     * Constructor used by strategies to hand out a reservation.
+     *
+     * @param strategy strategy the tokens were taken from
+     * @param tokens number of tokens reserved
+     * @param validTime ticker reading at which the reservation becomes valid
+     * @param ticker {@link Ticker} of the strategy
+     */
+    public Reservation(ThrottleStrategy strategy, long tokens, long validTime, Ticker ticker) {
+        this.strategy = strategy;
+        this.tokens = tokens;
+        this.validTime = validTime;
+        this.ticker = ticker;
+    }
+
+    /**
+     * Provides time until the reserved tokens are released, 0 once they are.
+     *
+     * @param timeUnit
+     * @return
+     */
+    public long getDelay(TimeUnit timeUnit) {
+        // preconditions
+        Assert.isTrue(timeUnit != null, "TimeUnit argument can not be null");
+
+        return timeUnit.convert(Math.max(0L, validTime - ticker.read()), TimeUnit.NANOSECONDS);
+    }
+
+    public boolean isValid() {
+        return ticker.read() >= validTime;
+    }
+
+    public long getTokens() {
+        lock.lock();
+        try {
+            return tokens;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Keeps the remaining tokens, the reservation can no longer be refunded.
+     */
+    public void commit() {
+        lock.lock();
+        try {
+            checkNotDone();
+            done = true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gives back {@code n} of the reserved tokens, e.g. when the work turned out cheaper.
+     *
+     * @param n
+     */
+    public void refund(long n) {
+        lock.lock();
+        try {
+            // preconditions
+            Assert.isTrue(n >= 0 && n <= tokens, "Refund must be between 0 and the reserved tokens");
+            checkNotDone();
+
+            strategy.refund(n);
+            tokens -= n;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gives back all remaining tokens.
+     */
+    public void cancel() {
+        lock.lock();
+        try {
+            checkNotDone();
+
+            strategy.refund(tokens);
+            tokens = 0;
+            done = true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void checkNotDone() {
+        if(done) throw new IllegalStateException("Reservation has already been committed or cancelled");
+    }
+}
@@ -0,0 +1,91 @@
+package me.sudohippie.throttle.strategy;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Represents a throttling strategy.
+ *
+ * Raghav Sidhanti
+ * 9/25/13
+ */
+public abstract class ThrottleStrategy {
+
+    /**
+     * This method will return <i>true</i> if a single request
+     * has been throttled (rate-limited) or <i>false</i> if
+     * the request is not throttled (not rate-limited).
+     *
+     * @return
+     */
+    public abstract boolean isThrottled();
+
+    /**
+     * This method will return <i>true</i> if {@code n} requests
+     * have been throttled or <i>false</i> if {@code n} requests
+     * have not been throttled.
+     *
+     * @param n
+     * @return
+     */
+    public abstract boolean isThrottled(long n);
+
+	/**
+	 * Provides time for n tokens to be available.
+	 *
+	 * @param n
+	 * @param timeUnit
+	 * @return
+	 */
+	public abstract long timeToRelease(long n, TimeUnit timeUnit);
+
+	/**
+	 * Defines the maximum tokens this strategy can handle.
+	 *
+	 * @return
+	 */
+	public abstract long getCapacity();
+
+	/**
+	 * Provides the number of tokens that can be taken right now.
+	 * Strategies which do not track tokens throw {@link UnsupportedOperationException}.
+	 *
+	 * @return
+	 */
+	public long getCurrentTokenCount() {
+		throw new UnsupportedOperationException("Strategy does not report its tokens");
+	}
+
+	/**
+	 * Gives back {@code n} tokens taken earlier, e.g. by a request which was aborted.
+	 * Tokens given back never push the strategy beyond its capacity.
+	 * Strategies which can not give tokens back throw {@link UnsupportedOperationException}.
+	 *
+	 * @param n
+	 */
+	public void refund(long n) {
+		throw new UnsupportedOperationException("Strategy does not support refunds");
+	}
+
+	/**
+	 * Tells whether {@link #refund(long)} gives tokens back, rather than throwing
+	 * {@link UnsupportedOperationException}. Strategies overriding refund override this too.
+	 *
+	 * @return
+	 */
+	public boolean supportsRefund() {
+		return false;
+	}
+
+	/**
+	 * Reserves {@code n} tokens, to be used once the returned reservation is valid.
+	 * Unlike {@link #isThrottled(long)}, tokens not available yet are reserved ahead of
+	 * their release and the reservation reports the exact delay until then.
+	 * Strategies which can not reserve throw {@link UnsupportedOperationException}.
+	 *
+	 * @param n
+	 * @return reservation of n tokens, or null if the strategy can not promise them
+	 */
+	public Reservation reserve(long n) {
+		throw new UnsupportedOperationException("Strategy does not support reservations");
+	}
+}
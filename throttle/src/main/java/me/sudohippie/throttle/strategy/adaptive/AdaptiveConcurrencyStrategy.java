@@ -0,0 +1,170 @@
+package me.sudohippie.throttle.strategy.adaptive;
+
+import me.sudohippie.throttle.strategy.ThrottleStrategy;
+import me.sudohippie.throttle.util.Assert;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * AdaptiveConcurrencyStrategy limits the number of requests in flight rather than their rate.
+ *
+ * Tokens are taken when a request starts and must be given back when it completes, through
+ * {@link #onSuccess(long, long, TimeUnit)} or {@link #onDropped(long, long, TimeUnit)} with the
+ * request's latency, or through {@link #refund(long)} for requests that tell nothing about the
+ * downstream, e.g. cancelled ones. Latencies and drops are fed to an {@link AdaptiveLimit}, which
+ * moves the limit towards the concurrency the downstream sustains without queueing.
+ *
+ * As tokens are released by completions, not by time, {@link #timeToRelease(long, TimeUnit)} can
+ * only estimate: it expects a request in flight to complete every smoothed latency divided by the
+ * number in flight.
+ *
+ * Unlike rate strategies, this strategy does not fit {@link me.sudohippie.throttle.Throttle} call
+ * sites unchanged: every token taken through {@code canProceed} or {@code acquire} must be given
+ * back by one of the calls above once the request completes. Call sites which do not report
+ * completions lock out for good after {@link #getLimit()} requests.
+ */
+public class AdaptiveConcurrencyStrategy extends ThrottleStrategy {
+
+    // estimate used before a latency was sampled
+    private static final long DEFAULT_LATENCY = TimeUnit.MILLISECONDS.toNanos(1);
+    // smoothing of the latency estimate
+    private static final int LATENCY_WINDOW = 8;
+
+    private final AdaptiveLimit limit;
+    private final AtomicLong inFlight = new AtomicLong();
+    // smoothed latency in nanos, updated racily as it is only an estimate
+    private volatile long latency = DEFAULT_LATENCY;
+
+    /**
+     * Constructor to build an AdaptiveConcurrencyStrategy.
+     *
+     * @param limit {@link AdaptiveLimit} deciding the number of requests allowed in flight
+     */
+    public AdaptiveConcurrencyStrategy(AdaptiveLimit limit) {
+        // preconditions
+        Assert.isTrue(limit != null, "Limit can not be null");
+
+        this.limit = limit;
+    }
+
+    @Override
+    public boolean isThrottled() {
+        return isThrottled(1);
+    }
+
+    @Override
+    public boolean isThrottled(long n) {
+        // preconditions
+        Assert.isTrue(n >= 0, "Invalid argument less than 0");
+        if(n > limit.getMaxLimit()) return true;
+
+        for(;;){
+            long current = inFlight.get();
+            // a request above the limit is let through alone, else nothing would ever release it
+            if(current > 0 && current + n > limit.getLimit()) return true;
+            if(inFlight.compareAndSet(current, current + n)) return false;
+        }
+    }
+
+    /**
+     * Releases {@code n} tokens of a request which completed normally.
+     *
+     * @param n tokens taken for the request
+     * @param latency time the request took
+     * @param timeUnit {@link TimeUnit} class representing unit of time of latency
+     */
+    public void onSuccess(long n, long latency, TimeUnit timeUnit) {
+        release(n, latency, timeUnit, false);
+    }
+
+    /**
+     * Releases {@code n} tokens of a request which failed or timed out because the downstream is
+     * overloaded, lowering the limit.
+     *
+     * @param n tokens taken for the request
+     * @param latency time the request took
+     * @param timeUnit {@link TimeUnit} class representing unit of time of latency
+     */
+    public void onDropped(long n, long latency, TimeUnit timeUnit) {
+        release(n, latency, timeUnit, true);
+    }
+
+    private void release(long n, long latency, TimeUnit timeUnit, boolean dropped) {
+        // preconditions
+        Assert.isTrue(n >= 0, "Invalid argument less than 0");
+        Assert.isTrue(latency >= 0, "Latency can not be negative");
+        Assert.isTrue(timeUnit != null, "TimeUnit argument can not be null");
+
+        long rtt = timeUnit.toNanos(latency);
+        long current = take(n);
+
+        this.latency += (rtt - this.latency) / LATENCY_WINDOW;
+        limit.onSample(rtt, current, dropped);
+    }
+
+    /**
+     * Releases {@code n} tokens without sampling, for requests whose latency tells nothing
+     * about the downstream.
+     *
+     * @param n
+     */
+    @Override
+    public void refund(long n) {
+        // preconditions
+        Assert.isTrue(n >= 0, "Invalid argument less than 0");
+
+        take(n);
+    }
+
+    @Override
+    public boolean supportsRefund() {
+        return true;
+    }
+
+    // lowers in flight by n, never below zero, returns in flight before
+    private long take(long n) {
+        for(;;){
+            long current = inFlight.get();
+            if(inFlight.compareAndSet(current, Math.max(0L, current - n))) return current;
+        }
+    }
+
+    @Override
+    public long timeToRelease(long n, TimeUnit timeUnit) {
+        // preconditions
+        Assert.isTrue(n >= 0, "Invalid argument less than 0");
+        Assert.isTrue(timeUnit != null, "TimeUnit argument can not be null");
+
+        long current = inFlight.get();
+        long missing = current + n - limit.getLimit();
+        if(current == 0 || missing <= 0) return 0L;
+
+        // completions are expected spread evenly over a latency, at least a microsecond apart
+        long interval = Math.max(TimeUnit.MICROSECONDS.toNanos(1), latency / Math.max(1L, current));
+        return timeUnit.convert(Math.min(missing, current) * interval, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Highest limit, as requests asking for more could never be admitted.
+     *
+     * @return
+     */
+    @Override
+    public long getCapacity() {
+        return limit.getMaxLimit();
+    }
+
+    @Override
+    public long getCurrentTokenCount() {
+        return Math.max(0L, limit.getLimit() - inFlight.get());
+    }
+
+    public int getLimit() {
+        return limit.getLimit();
+    }
+
+    public long getInFlight() {
+        return inFlight.get();
+    }
+}
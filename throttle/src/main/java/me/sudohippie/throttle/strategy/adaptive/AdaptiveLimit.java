@@ -0,0 +1,77 @@
+package me.sudohippie.throttle.strategy.adaptive;
+
+import me.sudohippie.throttle.util.Assert;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Abstract class representing a concurrency limit adjusted from samples of completed requests.
+ *
+ * Each sample carries the round trip time of a request, the number of requests in flight when
+ * it completed and whether it was dropped, i.e. failed or timed out in a way that signals
+ * overload. Implementations turn the samples into a new limit, kept between a minimum and a
+ * maximum.
+ */
+public abstract class AdaptiveLimit {
+
+    protected final int minLimit;
+    protected final int maxLimit;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    // fractional limit, so that small steps add up
+    private double estimate;
+    private volatile int limit;
+
+    protected AdaptiveLimit(int initialLimit, int minLimit, int maxLimit) {
+        // preconditions
+        Assert.isTrue(minLimit > 0, "Minimum limit must be positive");
+        Assert.isTrue(maxLimit >= minLimit, "Maximum limit can not be less than minimum limit");
+        Assert.isTrue(initialLimit >= minLimit && initialLimit <= maxLimit, "Initial limit must be between minimum and maximum limit");
+
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.estimate = initialLimit;
+        this.limit = initialLimit;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    /**
+     * Adjusts the limit from a completed request.
+     *
+     * @param rtt round trip time of the request, in nanos
+     * @param inFlight requests in flight when it completed, including itself
+     * @param dropped whether the request was dropped
+     */
+    public void onSample(long rtt, long inFlight, boolean dropped) {
+        lock.lock();
+        try {
+            estimate = Math.max(minLimit, Math.min(maxLimit, update(estimate, rtt, inFlight, dropped)));
+            limit = (int) estimate;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Computes the new limit, called under this limit's lock.
+     *
+     * @param limit current limit
+     * @param rtt round trip time of the request, in nanos
+     * @param inFlight requests in flight when it completed, including itself
+     * @param dropped whether the request was dropped
+     * @return new limit, clamped by the caller
+     */
+    protected abstract double update(double limit, long rtt, long inFlight, boolean dropped);
+
+    // a limit not used to its half is not probed, nothing is learnt about it
+    protected static boolean isApplicationLimited(double limit, long inFlight) {
+        return inFlight * 2 < limit;
+    }
+}
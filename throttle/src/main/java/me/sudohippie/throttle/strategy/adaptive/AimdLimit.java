@@ -0,0 +1,55 @@
+package me.sudohippie.throttle.strategy.adaptive;
+
+import me.sudohippie.throttle.util.Assert;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Additive increase, multiplicative decrease limit.
+ *
+ * The limit grows by one for each successful request and is multiplied by the backoff ratio
+ * for each dropped request, or request slower than the timeout. Simple and robust, but only
+ * reacts once requests already fail.
+ */
+public class AimdLimit extends AdaptiveLimit {
+
+    private static final double DEFAULT_BACKOFF_RATIO = 0.9;
+
+    private final double backoffRatio;
+    // timeout in nanos
+    private final long timeout;
+
+    public AimdLimit(int initialLimit, int minLimit, int maxLimit) {
+        this(initialLimit, minLimit, maxLimit, DEFAULT_BACKOFF_RATIO, Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Constructor to build an AimdLimit.
+     *
+     * @param initialLimit limit until samples are taken
+     * @param minLimit lowest limit
+     * @param maxLimit highest limit
+     * @param backoffRatio factor applied to the limit when a request is dropped, between 0.5 and 1
+     * @param timeout Requests slower than timeout count as dropped.
+     * @param timeoutTimeUnit {@link TimeUnit} class representing unit of time of timeout
+     */
+    public AimdLimit(int initialLimit, int minLimit, int maxLimit, double backoffRatio, long timeout, TimeUnit timeoutTimeUnit) {
+        super(initialLimit, minLimit, maxLimit);
+
+        // preconditions
+        Assert.isTrue(backoffRatio >= 0.5 && backoffRatio < 1, "Backoff ratio must be between 0.5 and 1");
+        Assert.isTrue(timeout > 0, "Timeout must be positive");
+        Assert.isTrue(timeoutTimeUnit != null, "TimeUnit argument can not be null");
+
+        this.backoffRatio = backoffRatio;
+        this.timeout = timeoutTimeUnit.toNanos(timeout);
+    }
+
+    @Override
+    protected double update(double limit, long rtt, long inFlight, boolean dropped) {
+        if(dropped || rtt > timeout) return Math.floor(limit * backoffRatio);
+        if(isApplicationLimited(limit, inFlight)) return limit;
+
+        return limit + 1;
+    }
+}
@@ -0,0 +1,70 @@
+package me.sudohippie.throttle.strategy.adaptive;
+
+import me.sudohippie.throttle.util.Assert;
+
+/**
+ * Limit following the gradient between long term and short term round trip times.
+ *
+ * An exponential average over many samples gives the long term round trip time, one over a few
+ * samples the short term one. While they agree the limit grows by a queue allowance of
+ * {@code sqrt(limit)}; as the short term time rises above the long term one, times a tolerance,
+ * the limit is scaled down by their ratio, at most halved per sample. Changes are smoothed so
+ * that a single outlier barely moves the limit.
+ */
+public class GradientLimit extends AdaptiveLimit {
+
+    private static final double DEFAULT_RTT_TOLERANCE = 1.5;
+    private static final double DEFAULT_SMOOTHING = 0.2;
+    // samples averaged by the long and the short term round trip times
+    private static final int LONG_WINDOW = 600;
+    private static final int SHORT_WINDOW = 10;
+
+    private final double rttTolerance;
+    private final double smoothing;
+
+    private double longRtt = 0;
+    private double shortRtt = 0;
+
+    public GradientLimit(int initialLimit, int minLimit, int maxLimit) {
+        this(initialLimit, minLimit, maxLimit, DEFAULT_RTT_TOLERANCE, DEFAULT_SMOOTHING);
+    }
+
+    /**
+     * Constructor to build a GradientLimit.
+     *
+     * @param initialLimit limit until samples are taken
+     * @param minLimit lowest limit
+     * @param maxLimit highest limit
+     * @param rttTolerance how much slower than the long term round trip time requests may get, at least 1
+     * @param smoothing weight of a new limit against the current one, between 0 and 1
+     */
+    public GradientLimit(int initialLimit, int minLimit, int maxLimit, double rttTolerance, double smoothing) {
+        super(initialLimit, minLimit, maxLimit);
+
+        // preconditions
+        Assert.isTrue(rttTolerance >= 1, "RTT tolerance can not be less than 1");
+        Assert.isTrue(smoothing > 0 && smoothing <= 1, "Smoothing must be between 0 and 1");
+
+        this.rttTolerance = rttTolerance;
+        this.smoothing = smoothing;
+    }
+
+    @Override
+    protected double update(double limit, long rtt, long inFlight, boolean dropped) {
+        if(longRtt == 0){
+            longRtt = rtt;
+            shortRtt = rtt;
+        }
+        longRtt += (rtt - longRtt) / LONG_WINDOW;
+        shortRtt += (rtt - shortRtt) / SHORT_WINDOW;
+
+        // a drop in latency is learnt at once, so a later rise is measured against the new latency
+        if(longRtt > shortRtt * 2) longRtt = shortRtt * 2;
+
+        if(isApplicationLimited(limit, inFlight) && !dropped) return limit;
+
+        double gradient = dropped || shortRtt <= 0 ? 0.5 : Math.max(0.5, Math.min(1.0, rttTolerance * longRtt / shortRtt));
+        double next = limit * gradient + Math.sqrt(limit);
+        return limit * (1 - smoothing) + next * smoothing;
+    }
+}
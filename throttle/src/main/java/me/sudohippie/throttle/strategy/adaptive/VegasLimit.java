@@ -0,0 +1,43 @@
+package me.sudohippie.throttle.strategy.adaptive;
+
+/**
+ * Delay based limit modelled on TCP Vegas.
+ *
+ * The lowest round trip time seen is taken as the time of a request without queueing. From it and
+ * the latest round trip time, the number of requests queued downstream is estimated as
+ * {@code limit * (1 - rttNoLoad / rtt)}. The limit grows while few requests are queued and shrinks
+ * when many are, by the logarithm of the limit, reacting before requests start failing. The
+ * no-load time is forgotten now and then, so that a downstream which got slower for good is not
+ * overloaded forever.
+ */
+public class VegasLimit extends AdaptiveLimit {
+
+    // samples after which the no-load round trip time is measured afresh
+    private static final int PROBE_INTERVAL = 1000;
+
+    private long rttNoLoad = 0;
+    private int samples = 0;
+
+    public VegasLimit(int initialLimit, int minLimit, int maxLimit) {
+        super(initialLimit, minLimit, maxLimit);
+    }
+
+    @Override
+    protected double update(double limit, long rtt, long inFlight, boolean dropped) {
+        if(++samples % PROBE_INTERVAL == 0) rttNoLoad = 0;
+        if(rtt > 0 && (rttNoLoad == 0 || rtt < rttNoLoad)) rttNoLoad = rtt;
+
+        double step = Math.max(1.0, Math.log10(limit));
+        if(dropped) return limit - step;
+        if(isApplicationLimited(limit, inFlight) || rtt <= 0) return limit;
+
+        double queueSize = Math.ceil(limit * (1 - (double) rttNoLoad / rtt));
+        // thresholds grow with the limit, with little queueing tolerated at small limits
+        double alpha = 3 * step;
+        double beta = 6 * step;
+
+        if(queueSize <= alpha) return limit + step;
+        if(queueSize >= beta) return limit - step;
+        return limit;
+    }
+}
@@ -0,0 +1,39 @@
+package me.sudohippie.throttle.strategy.bucket;
+
+import me.sudohippie.throttle.util.Ticker;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lock-free counterpart of {@link FixedTokenBucketStrategy}.
+ *
+ * At the beginning of every refill interval the bucket is filled to capacity
+ * with tokens, every call to {@link AtomicFixedTokenBucketStrategy#isThrottled()}
+ * reduces the number of tokens by a fixed amount. State is updated with
+ * compare-and-set instead of the object monitor.
+ */
+public class AtomicFixedTokenBucketStrategy extends AtomicTokenBucketStrategy {
+
+    /**
+     * Constructor to build an AtomicFixedTokenBucketStrategy.
+     *
+     * @param bucketTokenCapacity The maximum tokens this bucket can hold.
+     * @param refillInterval The interval at which the bucket must be refilled to capacity with tokens.
+     * @param refillIntervalTimeUnit {@link TimeUnit} class representing unit of time of refill interval
+     */
+    public AtomicFixedTokenBucketStrategy(long bucketTokenCapacity, long refillInterval, TimeUnit refillIntervalTimeUnit) {
+        this(bucketTokenCapacity, refillInterval, refillIntervalTimeUnit, Ticker.systemTicker());
+    }
+
+    /**
+     * Constructor to build an AtomicFixedTokenBucketStrategy.
+     *
+     * @param bucketTokenCapacity The maximum tokens this bucket can hold.
+     * @param refillInterval The interval at which the bucket must be refilled to capacity with tokens.
+     * @param refillIntervalTimeUnit {@link TimeUnit} class representing unit of time of refill interval
+     * @param ticker {@link Ticker} providing the current time
+     */
+    public AtomicFixedTokenBucketStrategy(long bucketTokenCapacity, long refillInterval, TimeUnit refillIntervalTimeUnit, Ticker ticker) {
+        super(RefillPolicy.fixed(bucketTokenCapacity, refillInterval, refillIntervalTimeUnit), ticker);
+    }
+}
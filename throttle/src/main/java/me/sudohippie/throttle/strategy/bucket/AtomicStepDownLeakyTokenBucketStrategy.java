@@ -0,0 +1,44 @@
+package me.sudohippie.throttle.strategy.bucket;
+
+import me.sudohippie.throttle.util.Ticker;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lock-free counterpart of {@link StepDownLeakyTokenBucketStrategy}.
+ *
+ * At the beginning of every refill interval the bucket is filled to capacity and then
+ * leaks tokens at the rate defined by stepTokens and stepInterval until the start of
+ * the next interval. State is updated with compare-and-set instead of the object monitor.
+ */
+public class AtomicStepDownLeakyTokenBucketStrategy extends AtomicTokenBucketStrategy {
+
+    /**
+     * Constructor to build an AtomicStepDownLeakyTokenBucketStrategy.
+     *
+     * @param maxTokens The maximum tokens this bucket can hold.
+     * @param refillInterval The interval at which the bucket must be refilled to capacity with tokens.
+     * @param refillIntervalTimeUnit {@link TimeUnit} class representing unit of time of refill interval
+     * @param stepTokens The number of tokens this bucket leaks, at every step interval.
+     * @param stepInterval The interval at which the token leaks tokens.
+     * @param stepIntervalTimeUnit {@link TimeUnit} class representing unit of time of step interval
+     */
+    public AtomicStepDownLeakyTokenBucketStrategy(long maxTokens, long refillInterval, TimeUnit refillIntervalTimeUnit, long stepTokens, long stepInterval, TimeUnit stepIntervalTimeUnit) {
+        this(maxTokens, refillInterval, refillIntervalTimeUnit, stepTokens, stepInterval, stepIntervalTimeUnit, Ticker.systemTicker());
+    }
+
+    /**
+     * Constructor to build an AtomicStepDownLeakyTokenBucketStrategy.
+     *
+     * @param maxTokens The maximum tokens this bucket can hold.
+     * @param refillInterval The interval at which the bucket must be refilled to capacity with tokens.
+     * @param refillIntervalTimeUnit {@link TimeUnit} class representing unit of time of refill interval
+     * @param stepTokens The number of tokens this bucket leaks, at every step interval.
+     * @param stepInterval The interval at which the token leaks tokens.
+     * @param stepIntervalTimeUnit {@link TimeUnit} class representing unit of time of step interval
+     * @param ticker {@link Ticker} providing the current time
+     */
+    public AtomicStepDownLeakyTokenBucketStrategy(long maxTokens, long refillInterval, TimeUnit refillIntervalTimeUnit, long stepTokens, long stepInterval, TimeUnit stepIntervalTimeUnit, Ticker ticker) {
+        super(RefillPolicy.stepDown(maxTokens, refillInterval, refillIntervalTimeUnit, stepTokens, stepInterval, stepIntervalTimeUnit), ticker);
+    }
+}
@@ -0,0 +1,44 @@
+package me.sudohippie.throttle.strategy.bucket;
+
+import me.sudohippie.throttle.util.Ticker;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lock-free counterpart of {@link StepUpLeakyTokenBucketStrategy}.
+ *
+ * At the beginning of every refill interval the bucket is emptied and then gradually
+ * filled with tokens at the rate defined by stepTokens and stepInterval. State is
+ * updated with compare-and-set instead of the object monitor.
+ */
+public class AtomicStepUpLeakyTokenBucketStrategy extends AtomicTokenBucketStrategy {
+
+    /**
+     * Constructor to build an AtomicStepUpLeakyTokenBucketStrategy.
+     *
+     * @param maxTokens The maximum tokens this bucket can hold.
+     * @param refillInterval The interval at which the bucket must be emptied.
+     * @param refillIntervalTimeUnit {@link TimeUnit} class representing unit of time of refill interval
+     * @param stepTokens The number of tokens added to the bucket at every step interval.
+     * @param stepInterval The interval at which tokens are added.
+     * @param stepIntervalTimeUnit {@link TimeUnit} class representing unit of time of step interval
+     */
+    public AtomicStepUpLeakyTokenBucketStrategy(long maxTokens, long refillInterval, TimeUnit refillIntervalTimeUnit, long stepTokens, long stepInterval, TimeUnit stepIntervalTimeUnit) {
+        this(maxTokens, refillInterval, refillIntervalTimeUnit, stepTokens, stepInterval, stepIntervalTimeUnit, Ticker.systemTicker());
+    }
+
+    /**
+     * Constructor to build an AtomicStepUpLeakyTokenBucketStrategy.
+     *
+     * @param maxTokens The maximum tokens this bucket can hold.
+     * @param refillInterval The interval at which the bucket must be emptied.
+     * @param refillIntervalTimeUnit {@link TimeUnit} class representing unit of time of refill interval
+     * @param stepTokens The number of tokens added to the bucket at every step interval.
+     * @param stepInterval The interval at which tokens are added.
+     * @param stepIntervalTimeUnit {@link TimeUnit} class representing unit of time of step interval
+     * @param ticker {@link Ticker} providing the current time
+     */
+    public AtomicStepUpLeakyTokenBucketStrategy(long maxTokens, long refillInterval, TimeUnit refillIntervalTimeUnit, long stepTokens, long stepInterval, TimeUnit stepIntervalTimeUnit, Ticker ticker) {
+        super(RefillPolicy.stepUp(maxTokens, refillInterval, refillIntervalTimeUnit, stepTokens, stepInterval, stepIntervalTimeUnit), ticker);
+    }
+}
@@ -0,0 +1,200 @@
+package me.sudohippie.throttle.strategy.bucket;
+
+import me.sudohippie.throttle.metrics.RefillListener;
+import me.sudohippie.throttle.strategy.ThrottleStrategy;
+import me.sudohippie.throttle.util.Assert;
+import me.sudohippie.throttle.util.Ticker;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static me.sudohippie.throttle.strategy.bucket.RefillPolicy.LAST_ACTIVITY_TIME;
+import static me.sudohippie.throttle.strategy.bucket.RefillPolicy.NEXT_REFILL_TIME;
+import static me.sudohippie.throttle.strategy.bucket.RefillPolicy.STATE_LENGTH;
+import static me.sudohippie.throttle.strategy.bucket.RefillPolicy.TOKENS;
+
+/**
+ * Lock-free counterpart of {@link TokenBucketStrategy}.
+ *
+ * The bucket state (tokens, next refill time and last activity time) is kept in
+ * a single immutable snapshot which is swapped with one compare-and-set. Threads
+ * never block each other; a thread that loses a race simply recomputes from the
+ * winner's snapshot. Refill math is supplied by a {@link RefillPolicy} and is
+ * identical to the synchronized strategies.
+ *
+ * Refills are computed in per thread scratch space, a new snapshot is only allocated and
+ * swapped in when the state changes. A throttled call, or a read between refills, neither
+ * allocates nor writes to the shared state.
+ */
+public abstract class AtomicTokenBucketStrategy extends ThrottleStrategy {
+
+    private final RefillPolicy policy;
+    private final Ticker ticker;
+
+    // published snapshots are never mutated
+    private final AtomicReference<long[]> state = new AtomicReference<long[]>(new long[STATE_LENGTH]);
+    // refilled copy of a snapshot, never published
+    private final ThreadLocal<long[]> scratch = ThreadLocal.withInitial(() -> new long[STATE_LENGTH]);
+    private volatile RefillListener refillListener;
+
+    protected AtomicTokenBucketStrategy(RefillPolicy policy, Ticker ticker) {
+        Assert.isTrue(ticker != null, "Ticker can not be null");
+
+        this.policy = policy;
+        this.ticker = ticker;
+    }
+
+    /**
+     * Sets the listener notified each time the bucket starts a new refill interval, null to remove it.
+     *
+     * @param refillListener
+     */
+    public void setRefillListener(RefillListener refillListener) {
+        this.refillListener = refillListener;
+    }
+
+    @Override
+    public boolean isThrottled() {
+        return isThrottled(1);
+    }
+
+    @Override
+    public boolean isThrottled(long n) {
+        // preconditions
+        Assert.isTrue(n >= 0, "Invalid argument less than 0");
+
+        long[] refilled = scratch.get();
+        while(true){
+            long[] current = state.get();
+            boolean changed = refill(current, refilled, ticker.read());
+            long tokens = refilled[TOKENS];
+
+            // check whether there exist at least n tokens in bucket
+            if(tokens < n){
+                // publish the refill, losing this race is harmless
+                if(changed) publish(current, refilled.clone(), tokens);
+                return true;
+            }
+            if(n == 0 && !changed) return false;
+
+            long[] next = refilled.clone();
+            next[TOKENS] -= n;
+            if(publish(current, next, tokens)) return false;
+        }
+    }
+
+    @Override
+    public void refund(long n) {
+        // preconditions
+        Assert.isTrue(n >= 0, "Invalid argument less than 0");
+
+        long[] refilled = scratch.get();
+        while(true){
+            long[] current = state.get();
+            boolean changed = refill(current, refilled, ticker.read());
+            long tokens = refilled[TOKENS];
+
+            long refundedTokens = Math.min(policy.getCapacity(), tokens + n);
+            if(refundedTokens == tokens && !changed) return;
+
+            long[] next = refilled.clone();
+            next[TOKENS] = refundedTokens;
+            if(publish(current, next, tokens)) return;
+        }
+    }
+
+    @Override
+    public boolean supportsRefund() {
+        return true;
+    }
+
+    @Override
+    public long getCapacity() {
+        return policy.getCapacity();
+    }
+
+    @Override
+    public long getCurrentTokenCount() {
+        return update()[TOKENS];
+    }
+
+    @Override
+    public long timeToRelease(long n, TimeUnit timeUnit) {
+        // preconditions
+        Assert.isTrue(n >= 0, "Invalid argument less than 0");
+        Assert.isTrue(timeUnit != null, "TimeUnit argument can not be null");
+
+        long[] current = update();
+        long timeToTokens = policy.timeToRelease(current, 0, n, ticker.read());
+
+        return timeUnit.convert(timeToTokens, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Copies the bucket state into {@code state} at {@code offset}, with times relative to now.
+     *
+     * @param state array receiving the bucket state
+     * @param offset index of the first state element
+     * @see TokenBucketStrategy#exportState(long[], int)
+     */
+    public void exportState(long[] state, int offset) {
+        long[] current = update();
+        System.arraycopy(current, 0, state, offset, STATE_LENGTH);
+        RefillPolicy.toRelativeTimes(state, offset, ticker.read());
+    }
+
+    /**
+     * Replaces the bucket state with one exported by {@link #exportState(long[], int)} {@code elapsed}
+     * nanos ago.
+     *
+     * @param state array holding the bucket state, left unchanged
+     * @param offset index of the first state element
+     * @param elapsed nanos since the state was exported
+     */
+    public void importState(long[] state, int offset, long elapsed) {
+        // preconditions
+        Assert.isTrue(elapsed >= 0, "Elapsed time can not be negative");
+
+        long[] next = new long[STATE_LENGTH];
+        System.arraycopy(state, offset, next, 0, STATE_LENGTH);
+        next[TOKENS] = Math.max(0L, Math.min(policy.getCapacity(), next[TOKENS]));
+        RefillPolicy.toTickerTimes(next, 0, ticker.read(), elapsed);
+        this.state.set(next);
+    }
+
+    public RefillPolicy getRefillPolicy() {
+        return policy;
+    }
+
+    // publishes the refilled state as of current time if it changed, and returns it
+    private long[] update() {
+        long[] refilled = scratch.get();
+        while(true){
+            long[] current = state.get();
+            if(!refill(current, refilled, ticker.read())) return current;
+
+            long[] next = refilled.clone();
+            if(publish(current, next, next[TOKENS])) return next;
+        }
+    }
+
+    // swaps in next, tokens being those before any were taken
+    private boolean publish(long[] current, long[] next, long tokens) {
+        if(!state.compareAndSet(current, next)) return false;
+
+        // only the thread publishing a refill notifies
+        RefillListener listener = refillListener;
+        if(listener != null && next[NEXT_REFILL_TIME] != current[NEXT_REFILL_TIME]) listener.onRefill(this, tokens);
+        return true;
+    }
+
+    // copies current into refilled and refills it, returns whether the refill changed the state
+    private boolean refill(long[] current, long[] refilled, long currentTime) {
+        System.arraycopy(current, 0, refilled, 0, STATE_LENGTH);
+        policy.refill(refilled, 0, currentTime);
+
+        return refilled[TOKENS] != current[TOKENS]
+                || refilled[NEXT_REFILL_TIME] != current[NEXT_REFILL_TIME]
+                || refilled[LAST_ACTIVITY_TIME] != current[LAST_ACTIVITY_TIME];
+    }
+}
@@ -0,0 +1,186 @@
+package me.sudohippie.throttle.strategy.bucket;
+
+import me.sudohippie.throttle.strategy.ThrottleStrategy;
+import me.sudohippie.throttle.util.Assert;
+import me.sudohippie.throttle.util.Ticker;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * ContinuousTokenBucketStrategy refills its bucket continuously, at exactly capacity tokens per refill interval.
+ *
+ * The step based buckets add whole tokens per elapsed step, so the fraction of a step that
+ * elapsed between two calls is either thrown away or rounded. Here fractions of tokens are kept
+ * in fixed point: a token is worth {@code refillInterval / g} units and every elapsed nanosecond
+ * adds {@code capacity / g} units, {@code g} being their greatest common divisor. Refilling is then
+ * exact integer arithmetic, whatever the rate and however often the bucket is polled.
+ *
+ * The bucket starts full. Refilling costs a multiplication and two minimums, without allocation.
+ */
+public class ContinuousTokenBucketStrategy extends ThrottleStrategy {
+
+    private final long bucketTokenCapacity;
+    // refill interval in nanos
+    private final long refillInterval;
+    // fixed point units per token and added per elapsed nano
+    private final long unitsPerToken;
+    private final long unitsPerNano;
+    private final long maxUnits;
+    private final Ticker ticker;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    // tokens in the bucket, in fixed point units
+    private long units;
+    private long lastRefillTime;
+
+    /**
+     * Constructor to build a ContinuousTokenBucketStrategy.
+     *
+     * @param bucketTokenCapacity The maximum tokens this bucket can hold, at least 1.
+     * @param refillInterval The interval over which an empty bucket is refilled to capacity.
+     * @param refillIntervalTimeUnit {@link TimeUnit} class representing unit of time of refill interval
+     */
+    public ContinuousTokenBucketStrategy(long bucketTokenCapacity, long refillInterval, TimeUnit refillIntervalTimeUnit) {
+        this(bucketTokenCapacity, refillInterval, refillIntervalTimeUnit, Ticker.systemTicker());
+    }
+
+    /**
+     * Constructor to build a ContinuousTokenBucketStrategy.
+     *
+     * @param bucketTokenCapacity The maximum tokens this bucket can hold, at least 1.
+     * @param refillInterval The interval over which an empty bucket is refilled to capacity.
+     * @param refillIntervalTimeUnit {@link TimeUnit} class representing unit of time of refill interval
+     * @param ticker {@link Ticker} providing the current time
+     */
+    public ContinuousTokenBucketStrategy(long bucketTokenCapacity, long refillInterval, TimeUnit refillIntervalTimeUnit, Ticker ticker) {
+        // preconditions
+        // an empty bucket never refills, there is no rate to derive fixed point units from
+        Assert.isTrue(bucketTokenCapacity > 0, "Bucket token capacity must be positive");
+        Assert.isTrue(refillInterval > 0, "Bucket refill interval must be positive");
+        Assert.isTrue(refillIntervalTimeUnit != null, "TimeUnit argument can not be null");
+        Assert.isTrue(ticker != null, "Ticker can not be null");
+
+        this.bucketTokenCapacity = bucketTokenCapacity;
+        this.refillInterval = refillIntervalTimeUnit.toNanos(refillInterval);
+        long divisor = gcd(bucketTokenCapacity, this.refillInterval);
+        this.unitsPerToken = this.refillInterval / divisor;
+        this.unitsPerNano = bucketTokenCapacity / divisor;
+
+        // a full bucket plus an interval's refill must fit in a long
+        Assert.isTrue(bucketTokenCapacity <= Long.MAX_VALUE / 2 / unitsPerToken, "Bucket token capacity too large for refill interval");
+        this.maxUnits = bucketTokenCapacity * unitsPerToken;
+        this.ticker = ticker;
+
+        this.units = maxUnits;
+        this.lastRefillTime = ticker.read();
+    }
+
+    @Override
+    public boolean isThrottled() {
+        return isThrottled(1);
+    }
+
+    @Override
+    public boolean isThrottled(long n) {
+        // preconditions
+        Assert.isTrue(n >= 0, "Invalid argument less than 0");
+        if(n > bucketTokenCapacity) return true;
+
+        long cost = n * unitsPerToken;
+        lock.lock();
+        try {
+            refill();
+            if(units < cost) return true;
+
+            units -= cost;
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void refund(long n) {
+        // preconditions
+        Assert.isTrue(n >= 0, "Invalid argument less than 0");
+
+        long refunded = Math.min(n, bucketTokenCapacity) * unitsPerToken;
+        lock.lock();
+        try {
+            refill();
+            units = Math.min(maxUnits, units + refunded);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean supportsRefund() {
+        return true;
+    }
+
+    @Override
+    public long getCapacity() {
+        return bucketTokenCapacity;
+    }
+
+    @Override
+    public long getCurrentTokenCount() {
+        lock.lock();
+        try {
+            refill();
+            return units / unitsPerToken;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Provides time until n tokens have accumulated, exact to the nanosecond. Requests for more
+     * than capacity tokens get the time until the bucket is full.
+     *
+     * @param n
+     * @param timeUnit
+     * @return
+     */
+    @Override
+    public long timeToRelease(long n, TimeUnit timeUnit) {
+        // preconditions
+        Assert.isTrue(n >= 0, "Invalid argument less than 0");
+        Assert.isTrue(timeUnit != null, "TimeUnit argument can not be null");
+
+        long needed = Math.min(n, bucketTokenCapacity) * unitsPerToken;
+        long missing;
+        lock.lock();
+        try {
+            refill();
+            missing = needed - units;
+        } finally {
+            lock.unlock();
+        }
+        if(missing <= 0) return 0L;
+
+        // rounded up, tokens are not released before their time
+        long nanos = (missing + unitsPerNano - 1) / unitsPerNano;
+        return timeUnit.convert(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    // called while holding the lock
+    private void refill() {
+        long currentTime = ticker.read();
+        // a bucket idle for an interval is full, capping elapsed keeps the product in range
+        long elapsed = Math.min(currentTime - lastRefillTime, refillInterval);
+        lastRefillTime = currentTime;
+        units = Math.min(maxUnits, units + Math.max(0L, elapsed) * unitsPerNano);
+    }
+
+    private static long gcd(long a, long b) {
+        while(b != 0){
+            long remainder = a % b;
+            a = b;
+            b = remainder;
+        }
+        return a;
+    }
+}
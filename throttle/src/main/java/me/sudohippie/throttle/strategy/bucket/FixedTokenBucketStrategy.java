@@ -1,5 +1,7 @@
 package me.sudohippie.throttle.strategy.bucket;
 
+import me.sudohippie.throttle.util.Ticker;
+
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -16,14 +18,18 @@ import java.util.concurrent.TimeUnit;
  */
 public class FixedTokenBucketStrategy extends TokenBucketStrategy {
 
-	protected FixedTokenBucketStrategy(long bucketTokenCapacity, long refillInterval, TimeUnit refillIntervalTimeUnit) {
+	public FixedTokenBucketStrategy(long bucketTokenCapacity, long refillInterval, TimeUnit refillIntervalTimeUnit) {
 		super(bucketTokenCapacity, refillInterval, refillIntervalTimeUnit);
 	}
 
+	public FixedTokenBucketStrategy(long bucketTokenCapacity, long refillInterval, TimeUnit refillIntervalTimeUnit, Ticker ticker) {
+		super(bucketTokenCapacity, refillInterval, refillIntervalTimeUnit, ticker);
+	}
+
 	@Override
     protected void updateTokens() {
         // refill bucket if current time has exceed next refill time
-        long currentTime = System.currentTimeMillis();
+        long currentTime = ticker.read();
         if(currentTime < nextRefillTime) return;
 
         tokens = bucketTokenCapacity;
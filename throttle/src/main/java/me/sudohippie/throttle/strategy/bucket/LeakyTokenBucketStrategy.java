@@ -1,6 +1,7 @@
 package me.sudohippie.throttle.strategy.bucket;
 
 import me.sudohippie.throttle.util.Assert;
+import me.sudohippie.throttle.util.Ticker;
 
 import java.util.concurrent.TimeUnit;
 
@@ -14,20 +15,24 @@ import java.util.concurrent.TimeUnit;
  */
 public abstract class LeakyTokenBucketStrategy extends TokenBucketStrategy {
 
-    // step time interval in millis
+    // step time interval in nanos
     protected final long stepInterval;
 
     // step token count
     protected final long stepTokens;
 
     protected LeakyTokenBucketStrategy(long maxTokens, long refillInterval, TimeUnit refillIntervalTimeUnit, long stepTokens, long stepInterval, TimeUnit stepIntervalTimeUnit) {
-        super(maxTokens, refillInterval, refillIntervalTimeUnit);
+        this(maxTokens, refillInterval, refillIntervalTimeUnit, stepTokens, stepInterval, stepIntervalTimeUnit, Ticker.systemTicker());
+    }
+
+    protected LeakyTokenBucketStrategy(long maxTokens, long refillInterval, TimeUnit refillIntervalTimeUnit, long stepTokens, long stepInterval, TimeUnit stepIntervalTimeUnit, Ticker ticker) {
+        super(maxTokens, refillInterval, refillIntervalTimeUnit, ticker);
 
         // preconditions
         Assert.isTrue(stepInterval >= 0, "Step interval can not be negative");
         Assert.isTrue(stepTokens >= 0, "Step token can not be negative");
 
         this.stepTokens = stepTokens;
-        this.stepInterval = stepIntervalTimeUnit.toMillis(stepInterval);
+        this.stepInterval = stepIntervalTimeUnit.toNanos(stepInterval);
     }
 }
@@ -0,0 +1,235 @@
+package me.sudohippie.throttle.strategy.bucket;
+
+import me.sudohippie.throttle.util.Assert;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stateless form of the refill math used by the token bucket strategies.
+ *
+ * The bucket state is held by the caller in a {@code long[]} laid out as
+ * {@link #TOKENS}, {@link #NEXT_REFILL_TIME} and {@link #LAST_ACTIVITY_TIME},
+ * starting at an arbitrary offset. This lets the same math drive a single
+ * bucket, a CAS'd snapshot or a table of buckets packed into one array.
+ *
+ * Times are {@link me.sudohippie.throttle.util.Ticker} readings and intervals are kept
+ * in nanoseconds. A freshly zeroed state is an empty bucket whose refill time has passed,
+ * exactly like a newly constructed {@link TokenBucketStrategy}.
+ */
+public abstract class RefillPolicy {
+
+    // state layout
+    public static final int TOKENS = 0;
+    public static final int NEXT_REFILL_TIME = 1;
+    public static final int LAST_ACTIVITY_TIME = 2;
+    public static final int STATE_LENGTH = 3;
+
+    protected final long bucketTokenCapacity;
+    // refill interval in nanos
+    protected final long refillInterval;
+
+    protected RefillPolicy(long bucketTokenCapacity, long refillInterval, TimeUnit refillIntervalTimeUnit) {
+        Assert.isTrue(bucketTokenCapacity >= 0, "Bucket token capacity can not be negative");
+        Assert.isTrue(refillInterval >= 0, "Bucket refill interval can not be negative");
+
+        this.bucketTokenCapacity = bucketTokenCapacity;
+        this.refillInterval = refillIntervalTimeUnit.toNanos(refillInterval);
+    }
+
+    /**
+     * Brings the bucket state starting at {@code offset} up to date with {@code currentTime}.
+     *
+     * @param state array holding the bucket state
+     * @param offset index of the first state element
+     * @param currentTime ticker reading in nanos
+     */
+    public abstract void refill(long[] state, int offset, long currentTime);
+
+    /**
+     * Provides time, in nanos, until n tokens are available to the bucket starting at {@code offset}.
+     * The state must have been refilled at {@code currentTime}.
+     *
+     * @param state array holding the bucket state
+     * @param offset index of the first state element
+     * @param n number of tokens
+     * @param currentTime ticker reading in nanos
+     * @return 0 or more nanos
+     */
+    public long timeToRelease(long[] state, int offset, long n, long currentTime) {
+        // check whether tokens exist
+        if(state[offset + TOKENS] >= n) return 0L;
+        // by default tokens are only added at the end of the refill interval
+        return Math.max(0L, state[offset + NEXT_REFILL_TIME] - currentTime);
+    }
+
+    public long getCapacity() {
+        return bucketTokenCapacity;
+    }
+
+    /**
+     * Rewrites the times of the bucket state starting at {@code offset} as nanos relative to
+     * {@code currentTime}, so that the state no longer depends on the ticker's origin.
+     *
+     * @param state array holding the bucket state
+     * @param offset index of the first state element
+     * @param currentTime ticker reading in nanos
+     */
+    public static void toRelativeTimes(long[] state, int offset, long currentTime) {
+        state[offset + NEXT_REFILL_TIME] -= currentTime;
+        state[offset + LAST_ACTIVITY_TIME] -= currentTime;
+    }
+
+    /**
+     * Rewrites times made relative by {@link #toRelativeTimes(long[], int, long)} {@code elapsed}
+     * nanos ago as readings of a ticker now reading {@code currentTime}.
+     *
+     * @param state array holding the bucket state
+     * @param offset index of the first state element
+     * @param currentTime ticker reading in nanos
+     * @param elapsed nanos since the times were made relative
+     */
+    public static void toTickerTimes(long[] state, int offset, long currentTime, long elapsed) {
+        state[offset + NEXT_REFILL_TIME] += currentTime - elapsed;
+        state[offset + LAST_ACTIVITY_TIME] += currentTime - elapsed;
+    }
+
+    public long getRefillInterval(TimeUnit timeUnit) {
+        return timeUnit.convert(refillInterval, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Refill math of {@link FixedTokenBucketStrategy}.
+     */
+    public static RefillPolicy fixed(long bucketTokenCapacity, long refillInterval, TimeUnit refillIntervalTimeUnit) {
+        return new Fixed(bucketTokenCapacity, refillInterval, refillIntervalTimeUnit);
+    }
+
+    /**
+     * Refill math of {@link StepUpLeakyTokenBucketStrategy}.
+     */
+    public static RefillPolicy stepUp(long maxTokens, long refillInterval, TimeUnit refillIntervalTimeUnit, long stepTokens, long stepInterval, TimeUnit stepIntervalTimeUnit) {
+        return new StepUp(maxTokens, refillInterval, refillIntervalTimeUnit, stepTokens, stepInterval, stepIntervalTimeUnit);
+    }
+
+    /**
+     * Refill math of {@link StepDownLeakyTokenBucketStrategy}.
+     */
+    public static RefillPolicy stepDown(long maxTokens, long refillInterval, TimeUnit refillIntervalTimeUnit, long stepTokens, long stepInterval, TimeUnit stepIntervalTimeUnit) {
+        return new StepDown(maxTokens, refillInterval, refillIntervalTimeUnit, stepTokens, stepInterval, stepIntervalTimeUnit);
+    }
+
+    private static final class Fixed extends RefillPolicy {
+
+        private Fixed(long bucketTokenCapacity, long refillInterval, TimeUnit refillIntervalTimeUnit) {
+            super(bucketTokenCapacity, refillInterval, refillIntervalTimeUnit);
+        }
+
+        @Override
+        public void refill(long[] state, int offset, long currentTime) {
+            // refill bucket if current time has exceed next refill time
+            if(currentTime < state[offset + NEXT_REFILL_TIME]) return;
+
+            state[offset + TOKENS] = bucketTokenCapacity;
+            state[offset + NEXT_REFILL_TIME] = currentTime + refillInterval;
+        }
+    }
+
+    private abstract static class Leaky extends RefillPolicy {
+
+        // step time interval in nanos
+        protected final long stepInterval;
+
+        // step token count
+        protected final long stepTokens;
+
+        private Leaky(long maxTokens, long refillInterval, TimeUnit refillIntervalTimeUnit, long stepTokens, long stepInterval, TimeUnit stepIntervalTimeUnit) {
+            super(maxTokens, refillInterval, refillIntervalTimeUnit);
+
+            // preconditions
+            Assert.isTrue(stepInterval >= 0, "Step interval can not be negative");
+            Assert.isTrue(stepTokens >= 0, "Step token can not be negative");
+
+            this.stepTokens = stepTokens;
+            this.stepInterval = stepIntervalTimeUnit.toNanos(stepInterval);
+        }
+    }
+
+    private static final class StepUp extends Leaky {
+
+        private StepUp(long maxTokens, long refillInterval, TimeUnit refillIntervalTimeUnit, long stepTokens, long stepInterval, TimeUnit stepIntervalTimeUnit) {
+            super(maxTokens, refillInterval, refillIntervalTimeUnit, stepTokens, stepInterval, stepIntervalTimeUnit);
+        }
+
+        @Override
+        public void refill(long[] state, int offset, long currentTime) {
+            // if current time has exceeded next refill interval,
+            if(currentTime >= state[offset + NEXT_REFILL_TIME]){
+                state[offset + TOKENS] = stepTokens;
+                state[offset + LAST_ACTIVITY_TIME] = currentTime;
+                state[offset + NEXT_REFILL_TIME] = currentTime + refillInterval;
+
+                return;
+            }
+
+            // calculate tokens at current step
+            long elapsedTimeSinceLastActivity = currentTime - state[offset + LAST_ACTIVITY_TIME];
+            long elapsedStepsSinceLastActivity = elapsedTimeSinceLastActivity / stepInterval;
+            long tokens = state[offset + TOKENS] + (elapsedStepsSinceLastActivity * stepTokens);
+
+            // check for bucket overflow
+            if(tokens > bucketTokenCapacity) tokens = bucketTokenCapacity;
+
+            state[offset + TOKENS] = tokens;
+            // advance by whole steps only, the partial step elapsed so far counts towards the next token
+            state[offset + LAST_ACTIVITY_TIME] += elapsedStepsSinceLastActivity * stepInterval;
+        }
+
+        @Override
+        public long timeToRelease(long[] state, int offset, long n, long currentTime) {
+            long tokens = state[offset + TOKENS];
+            long nextRefillTime = state[offset + NEXT_REFILL_TIME];
+
+            // check whether tokens exist, or n can never be reached with in an interval
+            if(tokens >= n || n > bucketTokenCapacity || stepTokens == 0) return super.timeToRelease(state, offset, n, currentTime);
+
+            // steps needed to accumulate the missing tokens
+            long missingSteps = (n - tokens + stepTokens - 1) / stepTokens;
+            long releaseTime = state[offset + LAST_ACTIVITY_TIME] + missingSteps * stepInterval;
+            if(releaseTime < nextRefillTime) return Math.max(0L, releaseTime - currentTime);
+
+            // bucket is emptied at next refill, tokens accumulate from stepTokens again
+            long stepsAfterRefill = (Math.max(0, n - stepTokens) + stepTokens - 1) / stepTokens;
+            return Math.max(0L, nextRefillTime + stepsAfterRefill * stepInterval - currentTime);
+        }
+    }
+
+    private static final class StepDown extends Leaky {
+
+        private StepDown(long maxTokens, long refillInterval, TimeUnit refillIntervalTimeUnit, long stepTokens, long stepInterval, TimeUnit stepIntervalTimeUnit) {
+            super(maxTokens, refillInterval, refillIntervalTimeUnit, stepTokens, stepInterval, stepIntervalTimeUnit);
+        }
+
+        @Override
+        public void refill(long[] state, int offset, long currentTime) {
+            long nextRefillTime = state[offset + NEXT_REFILL_TIME];
+
+            // if current time exceeds next refill time
+            if(currentTime >= nextRefillTime){
+                // set tokens to max
+                state[offset + TOKENS] = bucketTokenCapacity;
+                // calculate next refill time
+                state[offset + NEXT_REFILL_TIME] = currentTime + refillInterval;
+
+                return;
+            }
+            // calculate max tokens possible till end
+            long timeToNextRefill = nextRefillTime - currentTime;
+            long stepsToNextRefill = timeToNextRefill / stepInterval;
+            long maxPossibleTokens = stepsToNextRefill * stepTokens;
+            // edge case, if current time not at edge of step
+            if((timeToNextRefill % stepInterval) > 0) maxPossibleTokens += stepTokens;
+            // tokens must be lesser of current and max possible tokens
+            if(maxPossibleTokens < state[offset + TOKENS]) state[offset + TOKENS] = maxPossibleTokens;
+        }
+    }
+}
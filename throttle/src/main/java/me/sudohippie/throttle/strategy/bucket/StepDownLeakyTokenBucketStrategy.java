@@ -1,5 +1,7 @@
 package me.sudohippie.throttle.strategy.bucket;
 
+import me.sudohippie.throttle.util.Ticker;
+
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -29,9 +31,24 @@ public class StepDownLeakyTokenBucketStrategy extends LeakyTokenBucketStrategy {
         super(maxTokens, refillInterval, refillIntervalTimeUnit, stepTokens, stepInterval, stepIntervalTimeUnit);
     }
 
+    /**
+     * Constructor to build a StepDownLeakyTokenBucketStrategy.
+     *
+     * @param maxTokens The maximum tokens this bucket can hold.
+     * @param refillInterval The interval at which the bucket must be refilled to capacity with tokens.
+     * @param refillIntervalTimeUnit {@link TimeUnit} class representing unit of time of refill interval
+     * @param stepTokens The number of tokens this bucket leaks, at every step interval.
+     * @param stepInterval The interval at which the token leaks tokens.
+     * @param stepIntervalTimeUnit {@link TimeUnit} class representing unit of time of step interval
+     * @param ticker {@link Ticker} providing the current time
+     */
+    public StepDownLeakyTokenBucketStrategy(long maxTokens, long refillInterval, TimeUnit refillIntervalTimeUnit, long stepTokens, long stepInterval, TimeUnit stepIntervalTimeUnit, Ticker ticker) {
+        super(maxTokens, refillInterval, refillIntervalTimeUnit, stepTokens, stepInterval, stepIntervalTimeUnit, ticker);
+    }
+
     @Override
     protected void updateTokens() {
-        long currentTime = System.currentTimeMillis();
+        long currentTime = ticker.read();
 
         // if current time exceeds next refill time
         if(currentTime >= nextRefillTime){
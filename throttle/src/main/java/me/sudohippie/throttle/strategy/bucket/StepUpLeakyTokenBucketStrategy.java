@@ -1,5 +1,7 @@
 package me.sudohippie.throttle.strategy.bucket;
 
+import me.sudohippie.throttle.util.Ticker;
+
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -14,8 +16,6 @@ import java.util.concurrent.TimeUnit;
  */
 public class StepUpLeakyTokenBucketStrategy extends LeakyTokenBucketStrategy {
 
-    private long lastActivityTime;
-
     /**
      * Constructor to build a StepUpLeakyTokenBucketStrategy.
      *
@@ -30,9 +30,24 @@ public class StepUpLeakyTokenBucketStrategy extends LeakyTokenBucketStrategy {
         super(maxTokens, refillInterval, refillIntervalTimeUnit, stepTokens, stepInterval, stepIntervalTimeUnit);
     }
 
+    /**
+     * Constructor to build a StepUpLeakyTokenBucketStrategy.
+     *
+     * @param maxTokens The maximum tokens this bucket can hold.
+     * @param refillInterval The interval at which the bucket must be emptied.
+     * @param refillIntervalTimeUnit {@link java.util.concurrent.TimeUnit} class representing unit of time of refill interval
+     * @param stepTokens The number of tokens added to the bucket at every step interval.
+     * @param stepInterval The interval at which tokens are added.
+     * @param stepIntervalTimeUnit {@link java.util.concurrent.TimeUnit} class representing unit of time of step interval
+     * @param ticker {@link Ticker} providing the current time
+     */
+    public StepUpLeakyTokenBucketStrategy(long maxTokens, long refillInterval, TimeUnit refillIntervalTimeUnit, long stepTokens, long stepInterval, TimeUnit stepIntervalTimeUnit, Ticker ticker) {
+        super(maxTokens, refillInterval, refillIntervalTimeUnit, stepTokens, stepInterval, stepIntervalTimeUnit, ticker);
+    }
+
     @Override
     protected void updateTokens() {
-        long currentTime = System.currentTimeMillis();
+        long currentTime = ticker.read();
 
         // if current time has exceeded next refill interval,
         if(currentTime >= nextRefillTime){
@@ -51,7 +66,22 @@ public class StepUpLeakyTokenBucketStrategy extends LeakyTokenBucketStrategy {
         // check for bucket overflow
         if(tokens > bucketTokenCapacity) tokens = bucketTokenCapacity;
 
-        // update last activity time
-        lastActivityTime = currentTime;
+        // advance by whole steps only, the partial step elapsed so far counts towards the next token
+        lastActivityTime += elapsedStepsSinceLastActivity * stepInterval;
+    }
+
+    @Override
+    protected long timeToTokens(long n, long currentTime) {
+        // n can never be reached with in an interval
+        if(n > bucketTokenCapacity || stepTokens == 0) return super.timeToTokens(n, currentTime);
+
+        // steps needed to accumulate the missing tokens
+        long missingSteps = (n - tokens + stepTokens - 1) / stepTokens;
+        long releaseTime = lastActivityTime + missingSteps * stepInterval;
+        if(releaseTime < nextRefillTime) return releaseTime - currentTime;
+
+        // bucket is emptied at next refill, tokens accumulate from stepTokens again
+        long stepsAfterRefill = (Math.max(0, n - stepTokens) + stepTokens - 1) / stepTokens;
+        return nextRefillTime + stepsAfterRefill * stepInterval - currentTime;
     }
 }
@@ -0,0 +1,324 @@
+package me.sudohippie.throttle.strategy.bucket;
+
+import me.sudohippie.throttle.strategy.ThrottleStrategy;
+import me.sudohippie.throttle.util.Assert;
+import me.sudohippie.throttle.util.Ticker;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static me.sudohippie.throttle.strategy.bucket.RefillPolicy.NEXT_REFILL_TIME;
+import static me.sudohippie.throttle.strategy.bucket.RefillPolicy.STATE_LENGTH;
+import static me.sudohippie.throttle.strategy.bucket.RefillPolicy.TOKENS;
+
+/**
+ * StripedTokenBucketStrategy spreads a fixed token bucket over several stripes to scale with cores.
+ *
+ * The capacity is split across stripes, each a fixed token bucket with its own lock and its own
+ * refill schedule. Lock words and the values published for estimates live in one array, a cache
+ * line pair apart per stripe, and each stripe's bucket state is padded likewise. A thread takes tokens from its home stripe and only when that runs dry borrows
+ * from the other stripes, so threads on different cores rarely contend for the same lock or
+ * cache line. Tokens borrowed for a request that can not be served in full are given back.
+ * Before borrowing, the tokens of all stripes are estimated without taking any lock, and a request
+ * the stripes can not serve together is throttled without locking them.
+ *
+ * {@link #getCurrentTokenCount()} and {@link #timeToRelease(long, TimeUnit)} aggregate all stripes.
+ * A stripe lock is held for a few loads and stores only, so waiting for it spins, yielding after
+ * a while, rather than parking the thread or holding a monitor.
+ */
+public class StripedTokenBucketStrategy extends ThrottleStrategy {
+
+    // longs kept on either side of the bucket state, so stripes do not share cache lines
+    private static final int PADDING = 8;
+    // longs per stripe in the shared array of lock words and published values, two cache lines
+    private static final int STRIDE = 16;
+    private static final int LOCK = 0;
+    private static final int PUBLISHED_TOKENS = 1;
+    private static final int PUBLISHED_NEXT_REFILL_TIME = 2;
+    private static final int SPINS = 64;
+
+    private final long bucketTokenCapacity;
+    private final Ticker ticker;
+    private final Stripe[] stripes;
+    private final int mask;
+    // per thread working space of borrow and timeToRelease, two longs per stripe
+    private final ThreadLocal<long[]> scratch;
+
+    /**
+     * Constructor to build a StripedTokenBucketStrategy with a stripe per available processor.
+     *
+     * @param bucketTokenCapacity The maximum tokens this bucket can hold, across all stripes.
+     * @param refillInterval The interval at which each stripe is refilled to capacity with tokens.
+     * @param refillIntervalTimeUnit {@link TimeUnit} class representing unit of time of refill interval
+     */
+    public StripedTokenBucketStrategy(long bucketTokenCapacity, long refillInterval, TimeUnit refillIntervalTimeUnit) {
+        this(bucketTokenCapacity, refillInterval, refillIntervalTimeUnit, Runtime.getRuntime().availableProcessors(), Ticker.systemTicker());
+    }
+
+    /**
+     * Constructor to build a StripedTokenBucketStrategy.
+     *
+     * @param bucketTokenCapacity The maximum tokens this bucket can hold, across all stripes.
+     * @param refillInterval The interval at which each stripe is refilled to capacity with tokens.
+     * @param refillIntervalTimeUnit {@link TimeUnit} class representing unit of time of refill interval
+     * @param stripeCount Number of stripes, rounded up to a power of two.
+     * @param ticker {@link Ticker} providing the current time
+     */
+    public StripedTokenBucketStrategy(long bucketTokenCapacity, long refillInterval, TimeUnit refillIntervalTimeUnit, int stripeCount, Ticker ticker) {
+        // preconditions
+        Assert.isTrue(bucketTokenCapacity >= 0, "Bucket token capacity can not be negative");
+        Assert.isTrue(stripeCount > 0 && stripeCount <= (1 << 16), "Stripe count must be positive");
+        Assert.isTrue(ticker != null, "Ticker can not be null");
+
+        int count = Integer.highestOneBit(stripeCount);
+        if(count < stripeCount) count <<= 1;
+
+        this.bucketTokenCapacity = bucketTokenCapacity;
+        this.ticker = ticker;
+        this.stripes = new Stripe[count];
+        this.mask = count - 1;
+        this.scratch = ThreadLocal.withInitial(() -> new long[2 * stripes.length]);
+
+        // a stride before the first stripe and after the last, away from the array header and neighbours
+        AtomicLongArray words = new AtomicLongArray((count + 2) * STRIDE);
+        // split capacity, the remainder going to the first stripes
+        for(int i = 0; i < count; i++){
+            long stripeCapacity = bucketTokenCapacity / count + (i < bucketTokenCapacity % count ? 1 : 0);
+            stripes[i] = new Stripe(RefillPolicy.fixed(stripeCapacity, refillInterval, refillIntervalTimeUnit), words, (i + 1) * STRIDE);
+        }
+    }
+
+    @Override
+    public boolean isThrottled() {
+        return isThrottled(1);
+    }
+
+    @Override
+    public boolean isThrottled(long n) {
+        // preconditions
+        Assert.isTrue(n >= 0, "Invalid argument less than 0");
+
+        // more than capacity can never be served
+        if(n > bucketTokenCapacity) return true;
+
+        int home = homeStripe();
+        long currentTime = ticker.read();
+        if(stripes[home].tryTake(n, currentTime)) return false;
+        if(stripes.length == 1) return true;
+
+        // the stripes do not hold n tokens together, do not lock them
+        if(estimate(n, currentTime) < n) return true;
+
+        return !borrow(home, n, currentTime);
+    }
+
+    // sums tokens across stripes without locking, stopping once n are found
+    private long estimate(long n, long currentTime) {
+        long tokens = 0;
+        for(int i = 0; i < stripes.length && tokens < n; i++) tokens += stripes[i].estimate(currentTime);
+        return tokens;
+    }
+
+    // collects n tokens starting at the home stripe, everything taken is given back if short
+    private boolean borrow(int home, long n, long currentTime) {
+        long[] taken = scratch.get();
+
+        long missing = n;
+        int visited = 0;
+        while(visited < stripes.length && missing > 0){
+            taken[visited] = stripes[(home + visited) & mask].takeUpTo(missing, currentTime);
+            missing -= taken[visited++];
+        }
+        if(missing == 0) return true;
+
+        for(int i = 0; i < visited; i++){
+            if(taken[i] > 0) stripes[(home + i) & mask].giveBack(taken[i]);
+        }
+        return false;
+    }
+
+    @Override
+    public void refund(long n) {
+        // preconditions
+        Assert.isTrue(n >= 0, "Invalid argument less than 0");
+
+        // home stripe first, the rest spills over to the others
+        int home = homeStripe();
+        for(int i = 0; i < stripes.length && n > 0; i++) n -= stripes[(home + i) & mask].giveBack(n);
+    }
+
+    @Override
+    public boolean supportsRefund() {
+        return true;
+    }
+
+    @Override
+    public long getCapacity() {
+        return bucketTokenCapacity;
+    }
+
+    @Override
+    public long getCurrentTokenCount() {
+        long currentTime = ticker.read();
+
+        long tokens = 0;
+        for(Stripe stripe : stripes) tokens += stripe.tokens(currentTime);
+        return tokens;
+    }
+
+    @Override
+    public long timeToRelease(long n, TimeUnit timeUnit) {
+        // preconditions
+        Assert.isTrue(n >= 0, "Invalid argument less than 0");
+        Assert.isTrue(timeUnit != null, "TimeUnit argument can not be null");
+
+        long currentTime = ticker.read();
+        // refill gain of stripe i at 2i, its refill time at 2i+1
+        long[] refills = scratch.get();
+
+        long tokens = 0;
+        for(int i = 0; i < stripes.length; i++) tokens += stripes[i].snapshot(currentTime, refills, 2 * i);
+        if(tokens >= n) return 0L;
+
+        // stripes refill in order of their refill times, find the one that completes n
+        for(int remaining = stripes.length; remaining > 0; remaining--){
+            int earliest = -1;
+            for(int i = 0; i < stripes.length; i++){
+                if(refills[2 * i] >= 0 && (earliest < 0 || refills[2 * i + 1] < refills[2 * earliest + 1])) earliest = i;
+            }
+
+            tokens += refills[2 * earliest];
+            refills[2 * earliest] = -1;
+            if(tokens >= n) return timeUnit.convert(Math.max(0L, refills[2 * earliest + 1] - currentTime), TimeUnit.NANOSECONDS);
+        }
+
+        // more than capacity, the strategy can not release n tokens with in an interval
+        long latest = 0;
+        for(int i = 0; i < stripes.length; i++) latest = Math.max(latest, refills[2 * i + 1]);
+        return timeUnit.convert(Math.max(0L, latest - currentTime), TimeUnit.NANOSECONDS);
+    }
+
+    public int getStripeCount() {
+        return stripes.length;
+    }
+
+    private int homeStripe() {
+        long id = Thread.currentThread().getId();
+        return (int) ((id * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+    }
+
+    /**
+     * A fixed token bucket guarded by a spin lock. Fields are final, everything written lives in
+     * the padded state and the stripe's stride of the shared words.
+     */
+    private static final class Stripe {
+
+        private final RefillPolicy policy;
+        // padded bucket state, guarded by the lock word
+        private final long[] state = new long[PADDING + STATE_LENGTH + PADDING];
+        // lock word and copies of the bucket state for lock free estimates, tokens written first and read last
+        private final AtomicLongArray words;
+        private final int base;
+
+        private Stripe(RefillPolicy policy, AtomicLongArray words, int base) {
+            this.policy = policy;
+            this.words = words;
+            this.base = base;
+        }
+
+        boolean tryTake(long n, long currentTime) {
+            lock();
+            try {
+                refill(currentTime);
+
+                if(state[PADDING + TOKENS] < n) return false;
+                state[PADDING + TOKENS] -= n;
+                publish();
+                return true;
+            } finally {
+                unlock();
+            }
+        }
+
+        long takeUpTo(long n, long currentTime) {
+            lock();
+            try {
+                refill(currentTime);
+
+                long taken = Math.min(state[PADDING + TOKENS], n);
+                state[PADDING + TOKENS] -= taken;
+                publish();
+                return taken;
+            } finally {
+                unlock();
+            }
+        }
+
+        // tokens given back after a refill are capped at capacity, returns tokens accepted
+        long giveBack(long n) {
+            lock();
+            try {
+                long accepted = Math.min(n, policy.getCapacity() - state[PADDING + TOKENS]);
+                state[PADDING + TOKENS] += accepted;
+                publish();
+                return accepted;
+            } finally {
+                unlock();
+            }
+        }
+
+        long tokens(long currentTime) {
+            lock();
+            try {
+                refill(currentTime);
+                return state[PADDING + TOKENS];
+            } finally {
+                unlock();
+            }
+        }
+
+        // writes the refill gain and next refill time to target at offset, returns tokens
+        long snapshot(long currentTime, long[] target, int offset) {
+            lock();
+            try {
+                refill(currentTime);
+
+                long tokens = state[PADDING + TOKENS];
+                target[offset] = policy.getCapacity() - tokens;
+                target[offset + 1] = state[PADDING + NEXT_REFILL_TIME];
+                return tokens;
+            } finally {
+                unlock();
+            }
+        }
+
+        // tokens as of currentTime, possibly stale
+        long estimate(long currentTime) {
+            if(currentTime >= words.get(base + PUBLISHED_NEXT_REFILL_TIME)) return policy.getCapacity();
+            return words.get(base + PUBLISHED_TOKENS);
+        }
+
+        private void lock() {
+            for(int spins = 0; ; spins++){
+                if(words.get(base + LOCK) == 0L && words.compareAndSet(base + LOCK, 0L, 1L)) return;
+
+                if(spins >= SPINS) Thread.yield();
+            }
+        }
+
+        private void unlock() {
+            words.lazySet(base + LOCK, 0L);
+        }
+
+        private void refill(long currentTime) {
+            long nextRefillTime = state[PADDING + NEXT_REFILL_TIME];
+            policy.refill(state, PADDING, currentTime);
+            if(state[PADDING + NEXT_REFILL_TIME] != nextRefillTime) publish();
+        }
+
+        private void publish() {
+            words.lazySet(base + PUBLISHED_TOKENS, state[PADDING + TOKENS]);
+            words.lazySet(base + PUBLISHED_NEXT_REFILL_TIME, state[PADDING + NEXT_REFILL_TIME]);
+        }
+    }
+}
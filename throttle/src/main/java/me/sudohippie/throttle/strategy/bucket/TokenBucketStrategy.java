@@ -0,0 +1,359 @@
+package me.sudohippie.throttle.strategy.bucket;
+
+import me.sudohippie.throttle.metrics.RefillListener;
+import me.sudohippie.throttle.strategy.Reservation;
+import me.sudohippie.throttle.strategy.ThrottleStrategy;
+import me.sudohippie.throttle.util.Assert;
+import me.sudohippie.throttle.util.Threads;
+import me.sudohippie.throttle.util.Ticker;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Abstract class representing a token bucket strategy.
+ *
+ * Using this strategy, throttling is enforced via the existence of tokens in a bucket.
+ * Time is read from a {@link Ticker}, all times and intervals are kept in nanoseconds.
+ *
+ * Leasing can be enabled for very hot buckets, see {@link #enableLeasing(long, long, TimeUnit)}.
+ * Tokens can be reserved ahead of their release, see {@link #reserve(long)}.
+ *
+ * Raghav Sidhanti
+ * 9/25/13
+ */
+public abstract class TokenBucketStrategy extends ThrottleStrategy {
+
+    protected final long bucketTokenCapacity;
+	// refill interval in nanos
+	protected final long refillInterval;
+	protected final Ticker ticker;
+
+	// number of tokens in the bucket
+	protected long tokens = 0;
+	protected long nextRefillTime = 0;
+	// used by strategies adding tokens in steps
+	protected long lastActivityTime = 0;
+	// tokens reserved ahead of their release, paid from the next tokens added to the bucket
+	private long reservedTokens = 0;
+
+	// guards the bucket state, a monitor would pin virtual threads contending for it
+	private final ReentrantLock lock = new ReentrantLock();
+
+	// null unless leasing is enabled
+	private volatile Leasing leasing;
+	private volatile RefillListener refillListener;
+
+    protected TokenBucketStrategy(long bucketTokenCapacity, long refillInterval, TimeUnit refillIntervalTimeUnit) {
+        this(bucketTokenCapacity, refillInterval, refillIntervalTimeUnit, Ticker.systemTicker());
+    }
+
+    protected TokenBucketStrategy(long bucketTokenCapacity, long refillInterval, TimeUnit refillIntervalTimeUnit, Ticker ticker) {
+        Assert.isTrue(bucketTokenCapacity >= 0, "Bucket token capacity can not be negative");
+		Assert.isTrue(refillInterval >= 0, "Bucket refill interval can not be negative");
+		Assert.isTrue(ticker != null, "Ticker can not be null");
+
+        this.bucketTokenCapacity = bucketTokenCapacity;
+		this.refillInterval = refillIntervalTimeUnit.toNanos(refillInterval);
+		this.ticker = ticker;
+    }
+
+    /**
+     * Enables leasing. Instead of taking tokens from the bucket one request at a time, each thread
+     * takes a batch of up to {@code leaseTokens} tokens and spends it from a thread local lease,
+     * without touching the shared bucket until the lease runs dry.
+     *
+     * Unspent tokens are given back to the bucket once the lease is older than {@code leaseDuration},
+     * the next time the owning thread makes a request. Leases never outlive the refill interval they
+     * were taken in. Tokens held in leases are not reported by {@link #getCurrentTokenCount()}, so
+     * the bucket may throttle while up to {@code leaseTokens - 1} tokens per thread sit unspent.
+     * Virtual threads do not lease, they take tokens from the bucket directly.
+     *
+     * @param leaseTokens Maximum tokens a thread takes from the bucket at once.
+     * @param leaseDuration Time after which unspent tokens are given back.
+     * @param leaseDurationTimeUnit {@link TimeUnit} class representing unit of time of lease duration
+     */
+    public void enableLeasing(long leaseTokens, long leaseDuration, TimeUnit leaseDurationTimeUnit) {
+        // preconditions
+        Assert.isTrue(leaseTokens > 0, "Lease tokens must be positive");
+        Assert.isTrue(leaseDuration >= 0, "Lease duration can not be negative");
+        Assert.isTrue(leaseDurationTimeUnit != null, "TimeUnit argument can not be null");
+
+        this.leasing = new Leasing(leaseTokens, leaseDurationTimeUnit.toNanos(leaseDuration));
+    }
+
+    /**
+     * Sets the listener notified each time the bucket starts a new refill interval, null to remove it.
+     *
+     * @param refillListener
+     */
+    public void setRefillListener(RefillListener refillListener) {
+        this.refillListener = refillListener;
+    }
+
+    @Override
+    public boolean isThrottled() {
+        return isThrottled(1);
+    }
+
+    @Override
+    public boolean isThrottled(long n) {
+        // preconditions
+        Assert.isTrue(n >= 0, "Invalid argument less than 0");
+
+        Leasing leasing = this.leasing;
+        // virtual threads are too many and too short lived to each hold a lease
+        if(leasing == null || Threads.isVirtual(Thread.currentThread())) return consume(n);
+
+        // spend from this thread's lease, if it is still valid
+        Lease lease = leasing.leases.get();
+        if(lease.tokens >= n && ticker.read() < lease.expiryTime){
+            lease.tokens -= n;
+            return false;
+        }
+
+        return consume(n, lease, leasing);
+    }
+
+    private boolean consume(long n) {
+        lock.lock();
+        try {
+            // check whether there exist at least n tokens in bucket
+            if(getCurrentTokenCount() < n) return true;
+
+            tokens -= n;
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // renews the lease from the bucket
+    private boolean consume(long n, Lease lease, Leasing leasing) {
+        lock.lock();
+        try {
+            refill();
+
+            // give back what is left, unless the bucket has been refilled since
+            if(lease.tokens > 0 && lease.refillTime == nextRefillTime) tokens = Math.min(bucketTokenCapacity, tokens + lease.tokens);
+            lease.tokens = 0;
+
+            // check whether there exist at least n tokens in bucket
+            if(tokens < n) return true;
+
+            long leased = Math.min(tokens, Math.max(n, leasing.leaseTokens));
+            tokens -= leased;
+
+            lease.tokens = leased - n;
+            lease.refillTime = nextRefillTime;
+            lease.expiryTime = Math.min(ticker.read() + leasing.leaseDuration, nextRefillTime);
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+	@Override
+    public long getCapacity() {
+        return bucketTokenCapacity;
+    }
+
+    public long getRefillInterval(TimeUnit timeUnit) {
+        return timeUnit.convert(refillInterval, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void refund(long n) {
+        // preconditions
+        Assert.isTrue(n >= 0, "Invalid argument less than 0");
+
+        lock.lock();
+        try {
+            refill();
+            // pending reservations are cancelled first
+            long unreserved = Math.min(reservedTokens, n);
+            reservedTokens -= unreserved;
+            tokens = Math.min(bucketTokenCapacity, tokens + n - unreserved);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean supportsRefund() {
+        return true;
+    }
+
+    /**
+     * Reserves {@code n} tokens. Available tokens are taken right away, the missing ones are
+     * paid from the tokens next added to the bucket and the reservation becomes valid once
+     * they have been. Reservations can only run one refill interval ahead: null is returned
+     * if the tokens reserved ahead would exceed the bucket's capacity.
+     *
+     * @param n number of tokens, at most the bucket's capacity
+     * @return
+     */
+    @Override
+    public Reservation reserve(long n) {
+        // preconditions
+        Assert.isTrue(n >= 0 && n <= bucketTokenCapacity, "Tokens must be between 0 and bucket capacity");
+
+        lock.lock();
+        try {
+            refill();
+            long currentTime = ticker.read();
+            if(tokens >= n){
+                tokens -= n;
+                return new Reservation(this, n, currentTime, ticker);
+            }
+
+            long missing = n - tokens;
+            if(reservedTokens + missing > bucketTokenCapacity) return null;
+
+            tokens = 0;
+            reservedTokens += missing;
+            return new Reservation(this, n, currentTime + Math.max(0L, timeToTokens(reservedTokens, currentTime)), ticker);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Copies the bucket state into {@code state} at {@code offset}, laid out as described by
+     * {@link RefillPolicy}, with times relative to now. Together with {@link #importState(long[], int, long)}
+     * this lets a bucket survive a restart. Tokens reserved ahead are not part of the state.
+     *
+     * @param state array receiving the bucket state
+     * @param offset index of the first state element
+     */
+    public void exportState(long[] state, int offset) {
+        lock.lock();
+        try {
+            refill();
+            state[offset + RefillPolicy.TOKENS] = tokens;
+            state[offset + RefillPolicy.NEXT_REFILL_TIME] = nextRefillTime;
+            state[offset + RefillPolicy.LAST_ACTIVITY_TIME] = lastActivityTime;
+            RefillPolicy.toRelativeTimes(state, offset, ticker.read());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Replaces the bucket state with one exported by {@link #exportState(long[], int)} {@code elapsed}
+     * nanos ago. Pending reservations are dropped.
+     *
+     * @param state array holding the bucket state, left unchanged
+     * @param offset index of the first state element
+     * @param elapsed nanos since the state was exported
+     */
+    public void importState(long[] state, int offset, long elapsed) {
+        // preconditions
+        Assert.isTrue(elapsed >= 0, "Elapsed time can not be negative");
+
+        lock.lock();
+        try {
+            long[] restored = new long[RefillPolicy.STATE_LENGTH];
+            System.arraycopy(state, offset, restored, 0, RefillPolicy.STATE_LENGTH);
+            RefillPolicy.toTickerTimes(restored, 0, ticker.read(), elapsed);
+
+            tokens = Math.max(0L, Math.min(bucketTokenCapacity, restored[RefillPolicy.TOKENS]));
+            nextRefillTime = restored[RefillPolicy.NEXT_REFILL_TIME];
+            lastActivityTime = restored[RefillPolicy.LAST_ACTIVITY_TIME];
+            reservedTokens = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long getCurrentTokenCount() {
+        lock.lock();
+        try {
+            refill();
+            return tokens;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void refill() {
+        RefillListener listener = refillListener;
+        if(listener == null){
+            updateTokens();
+            settleReservations();
+            return;
+        }
+
+        long refillTime = nextRefillTime;
+        updateTokens();
+        settleReservations();
+        if(nextRefillTime != refillTime) listener.onRefill(this, tokens);
+    }
+
+    // pays reservations from the tokens added to the bucket
+    private void settleReservations() {
+        if(reservedTokens == 0) return;
+
+        long settled = Math.min(reservedTokens, tokens);
+        tokens -= settled;
+        reservedTokens -= settled;
+    }
+
+	@Override
+	public long timeToRelease(long n, TimeUnit timeUnit){
+		// preconditions
+		Assert.isTrue(n >= 0, "Invalid argument less than 0");
+		Assert.isTrue(timeUnit != null, "TimeUnit argument can not be null");
+
+		lock.lock();
+		try {
+			// check whether tokens exist
+			if(getCurrentTokenCount() >= n){
+				return 0L;
+			} else{
+				// tokens reserved ahead are released first
+				long timeToTokens = timeToTokens(n + reservedTokens, ticker.read());
+				// edge case due to system slowness
+				if(timeToTokens < 0) return timeToRelease(n, timeUnit);
+				else return timeUnit.convert(timeToTokens, TimeUnit.NANOSECONDS);
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Provides time, in nanos, until n tokens are expected in the bucket when it currently
+	 * holds fewer. By default tokens are only added at the end of the refill interval.
+	 *
+	 * @param n
+	 * @param currentTime
+	 * @return
+	 */
+	protected long timeToTokens(long n, long currentTime) {
+		return nextRefillTime - currentTime;
+	}
+
+    protected abstract void updateTokens();
+
+    private static final class Leasing {
+        private final long leaseTokens;
+        // lease duration in nanos
+        private final long leaseDuration;
+        private final ThreadLocal<Lease> leases = ThreadLocal.withInitial(Lease::new);
+
+        private Leasing(long leaseTokens, long leaseDuration) {
+            this.leaseTokens = leaseTokens;
+            this.leaseDuration = leaseDuration;
+        }
+    }
+
+    // tokens taken from the bucket by a single thread
+    private static final class Lease {
+        private long tokens;
+        // next refill time of the bucket when leased
+        private long refillTime;
+        private long expiryTime;
+    }
+}
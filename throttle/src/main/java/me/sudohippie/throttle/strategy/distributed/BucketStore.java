@@ -0,0 +1,34 @@
+package me.sudohippie.throttle.strategy.distributed;
+
+import java.io.IOException;
+
+/**
+ * Storage for bucket state shared by many processes, e.g. replicas of a service.
+ *
+ * A state is a {@code long[]} laid out as described by {@link me.sudohippie.throttle.strategy.bucket.RefillPolicy},
+ * stored under a key. Implementations must make {@link #compareAndSet(String, long[], long[])} atomic with
+ * respect to every other caller of the store, and must never hand out or keep references to the arrays
+ * they are given.
+ */
+public interface BucketStore {
+
+    /**
+     * Reads the state stored under {@code key}.
+     *
+     * @param key
+     * @return a copy of the state, null if none is stored
+     * @throws IOException if the store can not be reached
+     */
+    long[] get(String key) throws IOException;
+
+    /**
+     * Stores {@code update} under {@code key} if the stored state equals {@code expected}.
+     *
+     * @param key
+     * @param expected state read before, null if none was stored
+     * @param update new state
+     * @return <i>true</i> if the state was updated
+     * @throws IOException if the store can not be reached
+     */
+    boolean compareAndSet(String key, long[] expected, long[] update) throws IOException;
+}
@@ -0,0 +1,44 @@
+package me.sudohippie.throttle.strategy.distributed;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Wire format shared by {@link BucketStoreServer} and {@link RemoteBucketStore}.
+ *
+ * A request is an operation byte followed by the key; a compare-and-set request carries the
+ * expected and the new state. A get is answered with a state, a compare-and-set with a boolean.
+ * States are written as their length followed by the longs, a length of -1 standing for null.
+ */
+final class BucketStoreProtocol {
+
+    static final byte GET = 1;
+    static final byte COMPARE_AND_SET = 2;
+
+    // longer states are refused rather than allocated
+    private static final int MAX_STATE_LENGTH = 64;
+
+    private BucketStoreProtocol() {
+    }
+
+    static void writeState(DataOutputStream out, long[] state) throws IOException {
+        if(state == null){
+            out.writeInt(-1);
+            return;
+        }
+
+        out.writeInt(state.length);
+        for(long value : state) out.writeLong(value);
+    }
+
+    static long[] readState(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if(length == -1) return null;
+        if(length < 0 || length > MAX_STATE_LENGTH) throw new IOException("Invalid state length " + length);
+
+        long[] state = new long[length];
+        for(int i = 0; i < length; i++) state[i] = in.readLong();
+        return state;
+    }
+}
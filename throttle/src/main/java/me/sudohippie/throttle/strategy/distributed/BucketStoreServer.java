@@ -0,0 +1,127 @@
+package me.sudohippie.throttle.strategy.distributed;
+
+import me.sudohippie.throttle.util.Assert;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reference server exposing a {@link BucketStore} over TCP, to be used with {@link RemoteBucketStore}.
+ *
+ * The server listens on the loopback interface and serves each connection on its own daemon
+ * thread. It is meant for tests and for trying out distributed throttling, production deployments
+ * would rather implement {@link BucketStore} on top of an existing data store.
+ */
+public class BucketStoreServer implements Closeable {
+
+    private final BucketStore store;
+    private final ServerSocket serverSocket;
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Starts a server backed by a new {@link InMemoryBucketStore}, on an ephemeral port.
+     *
+     * @throws IOException if the port can not be bound
+     */
+    public BucketStoreServer() throws IOException {
+        this(new InMemoryBucketStore(), 0);
+    }
+
+    /**
+     * Starts a server.
+     *
+     * @param store store serving the requests
+     * @param port port to listen on, 0 for an ephemeral port
+     * @throws IOException if the port can not be bound
+     */
+    public BucketStoreServer(BucketStore store, int port) throws IOException {
+        // preconditions
+        Assert.isTrue(store != null, "Store can not be null");
+
+        this.store = store;
+        this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+
+        Thread acceptor = new Thread(this::accept, "throttle-bucket-store-server");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Stops accepting connections and closes the open ones.
+     */
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        for(Socket connection : connections) closeQuietly(connection);
+    }
+
+    private void accept() {
+        while(!serverSocket.isClosed()){
+            try {
+                Socket connection = serverSocket.accept();
+                connection.setTcpNoDelay(true);
+                connections.add(connection);
+
+                Thread handler = new Thread(() -> serve(connection), "throttle-bucket-store-connection");
+                handler.setDaemon(true);
+                handler.start();
+            } catch (IOException e) {
+                // closed
+            }
+        }
+    }
+
+    private void serve(Socket connection) {
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(connection.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(connection.getOutputStream()));
+
+            while(true){
+                byte operation = in.readByte();
+                String key = in.readUTF();
+
+                if(operation == BucketStoreProtocol.GET){
+                    BucketStoreProtocol.writeState(out, store.get(key));
+                } else if(operation == BucketStoreProtocol.COMPARE_AND_SET){
+                    long[] expected = BucketStoreProtocol.readState(in);
+                    long[] update = BucketStoreProtocol.readState(in);
+                    if(update == null) throw new IOException("Update can not be null");
+
+                    out.writeBoolean(store.compareAndSet(key, expected, update));
+                } else {
+                    throw new IOException("Unknown operation " + operation);
+                }
+                out.flush();
+            }
+        } catch (EOFException e) {
+            // client disconnected
+        } catch (IOException e) {
+            // broken connection or protocol error, drop the client
+        } finally {
+            connections.remove(connection);
+            closeQuietly(connection);
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // nothing left to do
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package me.sudohippie.throttle.strategy.distributed;
+
+import me.sudohippie.throttle.strategy.ThrottleStrategy;
+import me.sudohippie.throttle.strategy.bucket.RefillPolicy;
+import me.sudohippie.throttle.util.Assert;
+import me.sudohippie.throttle.util.Ticker;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static me.sudohippie.throttle.strategy.bucket.RefillPolicy.NEXT_REFILL_TIME;
+import static me.sudohippie.throttle.strategy.bucket.RefillPolicy.STATE_LENGTH;
+import static me.sudohippie.throttle.strategy.bucket.RefillPolicy.TOKENS;
+
+/**
+ * Token bucket whose state lives in a {@link BucketStore}, so that every process using the same
+ * store and key shares one limit.
+ *
+ * The state is updated with compare-and-set and refilled by a {@link RefillPolicy}, exactly like
+ * a local bucket. To avoid a round trip per request, each process takes up to {@code prefetchTokens}
+ * at once and hands them out locally until they run out or the bucket reaches its next refill,
+ * when the remainder is dropped. Prefetched tokens are unavailable to other processes, so the
+ * shared limit may throttle while up to {@code prefetchTokens - 1} tokens per process sit unspent,
+ * but is never exceeded.
+ *
+ * Prefetched tokens are handed out under a lock, the store is only called outside of it, so a slow
+ * store delays the callers which need it rather than every caller of the strategy.
+ *
+ * All processes must read time from tickers that agree, by default {@link Ticker#wallClockTicker()}.
+ * Store failures are thrown as {@link UncheckedIOException}.
+ */
+public class DistributedTokenBucketStrategy extends ThrottleStrategy {
+
+    private final BucketStore store;
+    private final String key;
+    private final RefillPolicy policy;
+    private final long prefetchTokens;
+    private final Ticker ticker;
+
+    // guards the prefetched tokens, never held while calling the store
+    private final ReentrantLock lock = new ReentrantLock();
+    // tokens taken from the store, not yet handed out
+    private long localTokens = 0;
+    // next refill time of the stored bucket when the tokens were taken
+    private long localExpiryTime = 0;
+
+    /**
+     * Constructor to build a DistributedTokenBucketStrategy reading time from the wall clock.
+     *
+     * @param store store holding the bucket state
+     * @param key key of the bucket in the store
+     * @param policy refill math of the bucket
+     * @param prefetchTokens Maximum tokens taken from the store at once, 1 to never prefetch.
+     */
+    public DistributedTokenBucketStrategy(BucketStore store, String key, RefillPolicy policy, long prefetchTokens) {
+        this(store, key, policy, prefetchTokens, Ticker.wallClockTicker());
+    }
+
+    /**
+     * Constructor to build a DistributedTokenBucketStrategy.
+     *
+     * @param store store holding the bucket state
+     * @param key key of the bucket in the store
+     * @param policy refill math of the bucket
+     * @param prefetchTokens Maximum tokens taken from the store at once, 1 to never prefetch.
+     * @param ticker {@link Ticker} providing the current time, agreeing with other processes
+     */
+    public DistributedTokenBucketStrategy(BucketStore store, String key, RefillPolicy policy, long prefetchTokens, Ticker ticker) {
+        // preconditions
+        Assert.isTrue(store != null, "Store can not be null");
+        Assert.isTrue(key != null, "Key can not be null");
+        Assert.isTrue(policy != null, "Refill policy can not be null");
+        Assert.isTrue(prefetchTokens > 0, "Prefetch tokens must be positive");
+        Assert.isTrue(ticker != null, "Ticker can not be null");
+
+        this.store = store;
+        this.key = key;
+        this.policy = policy;
+        this.prefetchTokens = prefetchTokens;
+        this.ticker = ticker;
+    }
+
+    @Override
+    public boolean isThrottled() {
+        return isThrottled(1);
+    }
+
+    @Override
+    public boolean isThrottled(long n) {
+        // preconditions
+        Assert.isTrue(n >= 0, "Invalid argument less than 0");
+
+        long currentTime = ticker.read();
+        long claimed;
+        long claimedExpiryTime;
+        lock.lock();
+        try {
+            expireLocalTokens(currentTime);
+
+            // spend prefetched tokens
+            if(localTokens >= n){
+                localTokens -= n;
+                return false;
+            }
+
+            // claim what is left, the rest comes from the store
+            claimed = localTokens;
+            claimedExpiryTime = localExpiryTime;
+            localTokens = 0;
+        } finally {
+            lock.unlock();
+        }
+
+        boolean throttled = true;
+        try {
+            throttled = fetch(n - claimed, currentTime);
+            return throttled;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Bucket store failed", e);
+        } finally {
+            if(throttled) deposit(claimed, claimedExpiryTime);
+        }
+    }
+
+    // takes at least the missing tokens from the store, prefetching more if available
+    private boolean fetch(long missing, long currentTime) throws IOException {
+        while(true){
+            long[] current = store.get(key);
+            long[] next = refill(current, currentTime);
+
+            // check whether there exist at least the missing tokens in the bucket
+            if(next[TOKENS] < missing) return true;
+
+            long taken = Math.min(next[TOKENS], Math.max(missing, prefetchTokens));
+            next[TOKENS] -= taken;
+            if(!store.compareAndSet(key, current, next)) continue;
+
+            deposit(taken - missing, next[NEXT_REFILL_TIME]);
+            return false;
+        }
+    }
+
+    // keeps tokens until expiryTime, with the prefetched ones if they expire at the same time
+    private void deposit(long tokens, long expiryTime) {
+        if(tokens == 0) return;
+
+        lock.lock();
+        try {
+            if(expiryTime == localExpiryTime){
+                localTokens = Math.min(policy.getCapacity(), localTokens + tokens);
+            } else if(expiryTime > localExpiryTime){
+                // tokens of an earlier interval are due to expire anyway
+                localTokens = tokens;
+                localExpiryTime = expiryTime;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Keeps refunded tokens with the prefetched ones, to be handed out locally until the next refill.
+     *
+     * @param n
+     */
+    @Override
+    public void refund(long n) {
+        // preconditions
+        Assert.isTrue(n >= 0, "Invalid argument less than 0");
+
+        long currentTime = ticker.read();
+        lock.lock();
+        try {
+            expireLocalTokens(currentTime);
+            if(currentTime < localExpiryTime) localTokens = Math.min(policy.getCapacity(), localTokens + n);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean supportsRefund() {
+        return true;
+    }
+
+    @Override
+    public long getCapacity() {
+        return policy.getCapacity();
+    }
+
+    /**
+     * Provides the tokens in the shared bucket plus those prefetched by this process.
+     *
+     * @return
+     */
+    @Override
+    public long getCurrentTokenCount() {
+        long currentTime = ticker.read();
+        long local;
+        lock.lock();
+        try {
+            expireLocalTokens(currentTime);
+            local = localTokens;
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            return refill(store.get(key), currentTime)[TOKENS] + local;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Bucket store failed", e);
+        }
+    }
+
+    @Override
+    public long timeToRelease(long n, TimeUnit timeUnit) {
+        // preconditions
+        Assert.isTrue(n >= 0, "Invalid argument less than 0");
+        Assert.isTrue(timeUnit != null, "TimeUnit argument can not be null");
+
+        long currentTime = ticker.read();
+        long local;
+        lock.lock();
+        try {
+            expireLocalTokens(currentTime);
+            local = localTokens;
+        } finally {
+            lock.unlock();
+        }
+        if(local >= n) return 0L;
+
+        try {
+            long[] state = refill(store.get(key), currentTime);
+            long timeToTokens = policy.timeToRelease(state, 0, n - local, currentTime);
+            return timeUnit.convert(timeToTokens, TimeUnit.NANOSECONDS);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Bucket store failed", e);
+        }
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    // prefetched tokens do not outlive the interval they were taken in
+    private void expireLocalTokens(long currentTime) {
+        if(currentTime >= localExpiryTime) localTokens = 0;
+    }
+
+    private long[] refill(long[] current, long currentTime) {
+        // a missing state is a new bucket
+        long[] next = current == null ? new long[STATE_LENGTH] : current.clone();
+        if(next.length != STATE_LENGTH) throw new IllegalStateException("Invalid bucket state stored under " + key);
+
+        policy.refill(next, 0, currentTime);
+        return next;
+    }
+}
@@ -0,0 +1,29 @@
+package me.sudohippie.throttle.strategy.distributed;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * {@link BucketStore} keeping states in memory, shared by strategies in the same process.
+ */
+public class InMemoryBucketStore implements BucketStore {
+
+    private final ConcurrentMap<String, long[]> states = new ConcurrentHashMap<>();
+
+    @Override
+    public long[] get(String key) {
+        long[] state = states.get(key);
+        return state == null ? null : state.clone();
+    }
+
+    @Override
+    public boolean compareAndSet(String key, long[] expected, long[] update) {
+        long[] copy = update.clone();
+        if(expected == null) return states.putIfAbsent(key, copy) == null;
+
+        // stored arrays are never mutated, replace the exact array that matched
+        long[] current = states.get(key);
+        return current != null && Arrays.equals(current, expected) && states.replace(key, current, copy);
+    }
+}
@@ -0,0 +1,158 @@
+package me.sudohippie.throttle.strategy.distributed;
+
+import me.sudohippie.throttle.util.Assert;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link BucketStore} client of a {@link BucketStoreServer}.
+ *
+ * Every request is sent over a connection of its own, taken from a pool of idle connections or
+ * opened when none is idle, so concurrent callers do not queue behind each other. A connection
+ * which failed is closed rather than returned to the pool. Connecting and waiting for a response
+ * are bounded by timeouts, after which the request fails with an {@link IOException}.
+ */
+public class RemoteBucketStore implements BucketStore, Closeable {
+
+    private static final long DEFAULT_CONNECT_TIMEOUT = 1;
+    private static final long DEFAULT_READ_TIMEOUT = 1;
+    private static final TimeUnit DEFAULT_TIMEOUT_TIME_UNIT = TimeUnit.SECONDS;
+
+    private final String host;
+    private final int port;
+    private final int connectTimeoutMillis;
+    private final int readTimeoutMillis;
+
+    private final Queue<Connection> idle = new ConcurrentLinkedQueue<>();
+    private volatile boolean closed = false;
+
+    public RemoteBucketStore(String host, int port) {
+        this(host, port, DEFAULT_CONNECT_TIMEOUT, DEFAULT_READ_TIMEOUT, DEFAULT_TIMEOUT_TIME_UNIT);
+    }
+
+    /**
+     * Constructor to build a RemoteBucketStore.
+     *
+     * @param host host of the server
+     * @param port port of the server
+     * @param connectTimeout maximum time to wait for a connection to open
+     * @param readTimeout maximum time to wait for a response
+     * @param timeoutTimeUnit {@link TimeUnit} class representing unit of time of both timeouts
+     */
+    public RemoteBucketStore(String host, int port, long connectTimeout, long readTimeout, TimeUnit timeoutTimeUnit) {
+        // preconditions
+        Assert.isTrue(host != null, "Host can not be null");
+        Assert.isTrue(port > 0 && port <= 0xFFFF, "Invalid port");
+        Assert.isTrue(timeoutTimeUnit != null, "TimeUnit argument can not be null");
+        Assert.isTrue(timeoutTimeUnit.toMillis(connectTimeout) > 0 && timeoutTimeUnit.toMillis(connectTimeout) <= Integer.MAX_VALUE, "Connect timeout must be between 1ms and Integer.MAX_VALUE ms");
+        Assert.isTrue(timeoutTimeUnit.toMillis(readTimeout) > 0 && timeoutTimeUnit.toMillis(readTimeout) <= Integer.MAX_VALUE, "Read timeout must be between 1ms and Integer.MAX_VALUE ms");
+
+        this.host = host;
+        this.port = port;
+        this.connectTimeoutMillis = (int) timeoutTimeUnit.toMillis(connectTimeout);
+        this.readTimeoutMillis = (int) timeoutTimeUnit.toMillis(readTimeout);
+    }
+
+    @Override
+    public long[] get(String key) throws IOException {
+        Connection connection = acquire();
+        try {
+            connection.out.writeByte(BucketStoreProtocol.GET);
+            connection.out.writeUTF(key);
+            connection.out.flush();
+
+            long[] state = BucketStoreProtocol.readState(connection.in);
+            release(connection);
+            return state;
+        } catch (IOException e) {
+            connection.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean compareAndSet(String key, long[] expected, long[] update) throws IOException {
+        Connection connection = acquire();
+        try {
+            connection.out.writeByte(BucketStoreProtocol.COMPARE_AND_SET);
+            connection.out.writeUTF(key);
+            BucketStoreProtocol.writeState(connection.out, expected);
+            BucketStoreProtocol.writeState(connection.out, update);
+            connection.out.flush();
+
+            boolean updated = connection.in.readBoolean();
+            release(connection);
+            return updated;
+        } catch (IOException e) {
+            connection.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Closes the idle connections, connections in use are closed once their request is done.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        Connection connection;
+        while((connection = idle.poll()) != null) connection.close();
+    }
+
+    private Connection acquire() throws IOException {
+        if(closed) throw new IOException("Store is closed");
+
+        Connection connection = idle.poll();
+        return connection != null ? connection : connect();
+    }
+
+    private void release(Connection connection) {
+        idle.offer(connection);
+        // closed while the request was in flight
+        if(closed && idle.remove(connection)) connection.close();
+    }
+
+    private Connection connect() throws IOException {
+        Socket socket = new Socket();
+        try {
+            socket.connect(new InetSocketAddress(host, port), connectTimeoutMillis);
+            socket.setSoTimeout(readTimeoutMillis);
+            socket.setTcpNoDelay(true);
+            return new Connection(socket);
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    // connection to the server, used by one request at a time
+    private static final class Connection {
+        private final Socket socket;
+        private final DataInputStream in;
+        private final DataOutputStream out;
+
+        private Connection(Socket socket) throws IOException {
+            this.socket = socket;
+            this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+
+        private void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // nothing left to do
+            }
+        }
+    }
+}
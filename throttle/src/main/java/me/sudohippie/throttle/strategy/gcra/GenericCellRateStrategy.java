@@ -0,0 +1,169 @@
+package me.sudohippie.throttle.strategy.gcra;
+
+import me.sudohippie.throttle.strategy.Reservation;
+import me.sudohippie.throttle.strategy.ThrottleStrategy;
+import me.sudohippie.throttle.util.Assert;
+import me.sudohippie.throttle.util.Ticker;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Throttling strategy implementing the generic cell rate algorithm (GCRA).
+ *
+ * Instead of counting tokens, the strategy tracks a single theoretical arrival time (TAT):
+ * the time at which the limiter would be idle again if requests kept arriving at the
+ * permitted rate. Each token pushes the TAT forward by one emission interval
+ * ({@code refillInterval / capacity}), and a request is admitted as long as the TAT stays
+ * with in {@code capacity} emission intervals of now. Tokens are thus released one at a time,
+ * evenly spaced, while up to {@code capacity} tokens can be taken in a burst after idling.
+ *
+ * The whole state is one long updated by compare-and-set, so neither throttling nor
+ * {@link #timeToRelease(long, TimeUnit)} ever takes a lock.
+ */
+public class GenericCellRateStrategy extends ThrottleStrategy {
+
+    private final long capacity;
+    // time between two tokens, in nanos
+    private final long emissionInterval;
+    // how far ahead of now the TAT may run, in nanos
+    private final long tolerance;
+    private final Ticker ticker;
+
+    // theoretical arrival time, a ticker reading
+    private final AtomicLong tat = new AtomicLong();
+
+    /**
+     * Constructor to build a GenericCellRateStrategy.
+     *
+     * @param capacity Tokens released per refill interval, also the largest burst.
+     * @param refillInterval The interval over which capacity tokens are released.
+     * @param refillIntervalTimeUnit {@link TimeUnit} class representing unit of time of refill interval
+     */
+    public GenericCellRateStrategy(long capacity, long refillInterval, TimeUnit refillIntervalTimeUnit) {
+        this(capacity, refillInterval, refillIntervalTimeUnit, Ticker.systemTicker());
+    }
+
+    /**
+     * Constructor to build a GenericCellRateStrategy.
+     *
+     * @param capacity Tokens released per refill interval, also the largest burst.
+     * @param refillInterval The interval over which capacity tokens are released.
+     * @param refillIntervalTimeUnit {@link TimeUnit} class representing unit of time of refill interval
+     * @param ticker {@link Ticker} providing the current time
+     */
+    public GenericCellRateStrategy(long capacity, long refillInterval, TimeUnit refillIntervalTimeUnit, Ticker ticker) {
+        // preconditions
+        Assert.isTrue(capacity >= 0, "Capacity can not be negative");
+        Assert.isTrue(refillInterval >= 0, "Refill interval can not be negative");
+        Assert.isTrue(refillIntervalTimeUnit != null, "TimeUnit argument can not be null");
+        Assert.isTrue(ticker != null, "Ticker can not be null");
+
+        this.capacity = capacity;
+        // whole nanos per token, rounding the interval down and so the rate up, at least a nano per token
+        this.emissionInterval = Math.max(1L, refillIntervalTimeUnit.toNanos(refillInterval) / Math.max(1L, capacity));
+        this.tolerance = capacity * emissionInterval;
+        this.ticker = ticker;
+    }
+
+    @Override
+    public boolean isThrottled() {
+        return isThrottled(1);
+    }
+
+    @Override
+    public boolean isThrottled(long n) {
+        // preconditions
+        Assert.isTrue(n >= 0, "Invalid argument less than 0");
+
+        // more than a burst is never admitted
+        if(n > capacity) return true;
+
+        long increment = n * emissionInterval;
+        while(true){
+            long current = tat.get();
+            long currentTime = ticker.read();
+
+            long next = Math.max(current, currentTime) + increment;
+            if(next - currentTime > tolerance) return true;
+
+            if(tat.compareAndSet(current, next)) return false;
+        }
+    }
+
+    /**
+     * Reserves {@code n} tokens by moving the theoretical arrival time past them, the reservation
+     * becomes valid when the tokens would have been released. Never returns null.
+     *
+     * @param n number of tokens, at most the capacity
+     * @return
+     */
+    @Override
+    public Reservation reserve(long n) {
+        // preconditions
+        Assert.isTrue(n >= 0 && n <= capacity, "Tokens must be between 0 and capacity");
+
+        long increment = n * emissionInterval;
+        while(true){
+            long current = tat.get();
+            long currentTime = ticker.read();
+
+            long next = Math.max(current, currentTime) + increment;
+            if(tat.compareAndSet(current, next)) return new Reservation(this, n, Math.max(currentTime, next - tolerance), ticker);
+        }
+    }
+
+    @Override
+    public void refund(long n) {
+        // preconditions
+        Assert.isTrue(n >= 0, "Invalid argument less than 0");
+
+        long decrement = Math.min(n, capacity) * emissionInterval;
+        while(true){
+            long current = tat.get();
+            long currentTime = ticker.read();
+
+            // an idle limiter is already at capacity
+            if(current <= currentTime) return;
+            if(tat.compareAndSet(current, Math.max(current - decrement, currentTime))) return;
+        }
+    }
+
+    @Override
+    public boolean supportsRefund() {
+        return true;
+    }
+
+    @Override
+    public long getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Provides the number of tokens that can be taken right now.
+     *
+     * @return
+     */
+    @Override
+    public long getCurrentTokenCount() {
+        long currentTime = ticker.read();
+        long backlog = Math.max(tat.get(), currentTime) - currentTime;
+
+        // reservations may run the backlog past the tolerance
+        return Math.max(0L, (tolerance - backlog) / emissionInterval);
+    }
+
+    @Override
+    public long timeToRelease(long n, TimeUnit timeUnit) {
+        // preconditions
+        Assert.isTrue(n >= 0, "Invalid argument less than 0");
+        Assert.isTrue(timeUnit != null, "TimeUnit argument can not be null");
+
+        long currentTime = ticker.read();
+        long backlog = Math.max(tat.get(), currentTime) - currentTime;
+
+        // more than a burst is never released, report when a full burst is
+        long wait = backlog + Math.min(n, capacity) * emissionInterval - tolerance;
+        return timeUnit.convert(Math.max(0L, wait), TimeUnit.NANOSECONDS);
+    }
+}
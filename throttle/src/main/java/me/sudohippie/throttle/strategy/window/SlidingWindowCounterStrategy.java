@@ -0,0 +1,184 @@
+package me.sudohippie.throttle.strategy.window;
+
+import me.sudohippie.throttle.strategy.ThrottleStrategy;
+import me.sudohippie.throttle.util.Assert;
+import me.sudohippie.throttle.util.Ticker;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Sliding window counter strategy.
+ *
+ * Requests are counted in fixed windows, but the limit applies to a window sliding with
+ * the current time. The count of the sliding window is estimated from the current fixed
+ * window plus the previous one, weighted by how much of it the sliding window still
+ * overlaps. Unlike {@link me.sudohippie.throttle.strategy.bucket.FixedTokenBucketStrategy},
+ * a burst at the end of one window can not be followed by a full burst at the start of the
+ * next. The estimate assumes requests were spread evenly over the previous window, use
+ * {@link SlidingWindowLogStrategy} when the limit must be exact.
+ */
+public class SlidingWindowCounterStrategy extends ThrottleStrategy {
+
+    private final long capacity;
+    // window length in nanos
+    private final long windowLength;
+    private final Ticker ticker;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    // start of the current fixed window, a ticker reading
+    private long windowStart = 0;
+    private long currentCount = 0;
+    private long previousCount = 0;
+
+    /**
+     * Constructor to build a SlidingWindowCounterStrategy.
+     *
+     * @param capacity Maximum requests with in any window.
+     * @param windowLength Length of the window.
+     * @param windowLengthTimeUnit {@link TimeUnit} class representing unit of time of window length
+     */
+    public SlidingWindowCounterStrategy(long capacity, long windowLength, TimeUnit windowLengthTimeUnit) {
+        this(capacity, windowLength, windowLengthTimeUnit, Ticker.systemTicker());
+    }
+
+    /**
+     * Constructor to build a SlidingWindowCounterStrategy.
+     *
+     * @param capacity Maximum requests with in any window.
+     * @param windowLength Length of the window.
+     * @param windowLengthTimeUnit {@link TimeUnit} class representing unit of time of window length
+     * @param ticker {@link Ticker} providing the current time
+     */
+    public SlidingWindowCounterStrategy(long capacity, long windowLength, TimeUnit windowLengthTimeUnit, Ticker ticker) {
+        // preconditions
+        Assert.isTrue(capacity >= 0, "Capacity can not be negative");
+        Assert.isTrue(windowLength > 0, "Window length must be positive");
+        Assert.isTrue(windowLengthTimeUnit != null, "TimeUnit argument can not be null");
+        Assert.isTrue(ticker != null, "Ticker can not be null");
+
+        this.capacity = capacity;
+        this.windowLength = windowLengthTimeUnit.toNanos(windowLength);
+        this.ticker = ticker;
+    }
+
+    @Override
+    public boolean isThrottled() {
+        return isThrottled(1);
+    }
+
+    @Override
+    public boolean isThrottled(long n) {
+        // preconditions
+        Assert.isTrue(n >= 0, "Invalid argument less than 0");
+
+        lock.lock();
+        try {
+            long currentTime = ticker.read();
+            slide(currentTime);
+
+            if(count(currentTime) + n > capacity) return true;
+
+            currentCount += n;
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gives back requests counted in the current window, those of the previous window are not refunded.
+     *
+     * @param n
+     */
+    @Override
+    public void refund(long n) {
+        // preconditions
+        Assert.isTrue(n >= 0, "Invalid argument less than 0");
+
+        lock.lock();
+        try {
+            slide(ticker.read());
+            currentCount = Math.max(0L, currentCount - n);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean supportsRefund() {
+        return true;
+    }
+
+    @Override
+    public long getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Provides the number of requests that can be made right now.
+     *
+     * @return
+     */
+    @Override
+    public long getCurrentTokenCount() {
+        lock.lock();
+        try {
+            long currentTime = ticker.read();
+            slide(currentTime);
+
+            return Math.max(0L, (long) Math.floor(capacity - count(currentTime)));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long timeToRelease(long n, TimeUnit timeUnit) {
+        // preconditions
+        Assert.isTrue(n >= 0, "Invalid argument less than 0");
+        Assert.isTrue(timeUnit != null, "TimeUnit argument can not be null");
+
+        lock.lock();
+        try {
+            long currentTime = ticker.read();
+            slide(currentTime);
+
+            // check whether the window has room
+            if(count(currentTime) + n <= capacity) return 0L;
+
+            long elapsed = currentTime - windowStart;
+            // room once enough of the previous window has slid out
+            if(n <= capacity - currentCount){
+                long overlapAllowed = (long) Math.floor((double) (capacity - currentCount - n) / previousCount * windowLength);
+                return timeUnit.convert(windowLength - overlapAllowed - elapsed, TimeUnit.NANOSECONDS);
+            }
+
+            // more than capacity is never released, report the start of the next window
+            long timeToNextWindow = windowLength - elapsed;
+            if(n > capacity || currentCount == 0) return timeUnit.convert(timeToNextWindow, TimeUnit.NANOSECONDS);
+
+            // room once enough of the current window has slid out, during the next window
+            long overlapAllowed = (long) Math.floor((double) (capacity - n) / currentCount * windowLength);
+            return timeUnit.convert(timeToNextWindow + windowLength - overlapAllowed, TimeUnit.NANOSECONDS);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // moves the fixed windows up to the current time
+    private void slide(long currentTime) {
+        long windows = (currentTime - windowStart) / windowLength;
+        if(windows == 0) return;
+
+        previousCount = windows == 1 ? currentCount : 0;
+        currentCount = 0;
+        windowStart += windows * windowLength;
+    }
+
+    // estimated requests in the window ending now
+    private double count(long currentTime) {
+        long elapsed = currentTime - windowStart;
+        return previousCount * ((double) (windowLength - elapsed) / windowLength) + currentCount;
+    }
+}
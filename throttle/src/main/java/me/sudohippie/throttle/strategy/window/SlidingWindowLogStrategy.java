@@ -0,0 +1,176 @@
+package me.sudohippie.throttle.strategy.window;
+
+import me.sudohippie.throttle.strategy.ThrottleStrategy;
+import me.sudohippie.throttle.util.Assert;
+import me.sudohippie.throttle.util.Ticker;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Sliding window log strategy.
+ *
+ * The time of every admitted request is logged, a request is admitted only if fewer than
+ * capacity requests were logged with in the window ending now. The limit is exact for any
+ * window, at the cost of one long per request of capacity. The log is a ring buffer of
+ * timestamps allocated up front, so throttling never allocates.
+ */
+public class SlidingWindowLogStrategy extends ThrottleStrategy {
+
+    private final long capacity;
+    // window length in nanos
+    private final long windowLength;
+    private final Ticker ticker;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    // ticker readings of admitted requests, oldest at head
+    private final long[] log;
+    private int head = 0;
+    private int size = 0;
+
+    /**
+     * Constructor to build a SlidingWindowLogStrategy.
+     *
+     * @param capacity Maximum requests with in any window.
+     * @param windowLength Length of the window.
+     * @param windowLengthTimeUnit {@link TimeUnit} class representing unit of time of window length
+     */
+    public SlidingWindowLogStrategy(int capacity, long windowLength, TimeUnit windowLengthTimeUnit) {
+        this(capacity, windowLength, windowLengthTimeUnit, Ticker.systemTicker());
+    }
+
+    /**
+     * Constructor to build a SlidingWindowLogStrategy.
+     *
+     * @param capacity Maximum requests with in any window.
+     * @param windowLength Length of the window.
+     * @param windowLengthTimeUnit {@link TimeUnit} class representing unit of time of window length
+     * @param ticker {@link Ticker} providing the current time
+     */
+    public SlidingWindowLogStrategy(int capacity, long windowLength, TimeUnit windowLengthTimeUnit, Ticker ticker) {
+        // preconditions
+        Assert.isTrue(capacity >= 0, "Capacity can not be negative");
+        Assert.isTrue(windowLength > 0, "Window length must be positive");
+        Assert.isTrue(windowLengthTimeUnit != null, "TimeUnit argument can not be null");
+        Assert.isTrue(ticker != null, "Ticker can not be null");
+
+        this.capacity = capacity;
+        this.windowLength = windowLengthTimeUnit.toNanos(windowLength);
+        this.ticker = ticker;
+        this.log = new long[capacity];
+    }
+
+    @Override
+    public boolean isThrottled() {
+        return isThrottled(1);
+    }
+
+    @Override
+    public boolean isThrottled(long n) {
+        // preconditions
+        Assert.isTrue(n >= 0, "Invalid argument less than 0");
+
+        lock.lock();
+        try {
+            long currentTime = ticker.read();
+            expire(currentTime);
+
+            if(n > capacity - size) return true;
+
+            for(long i = 0; i < n; i++){
+                log[(head + size) % log.length] = currentTime;
+                size++;
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gives back the most recently logged requests.
+     *
+     * @param n
+     */
+    @Override
+    public void refund(long n) {
+        // preconditions
+        Assert.isTrue(n >= 0, "Invalid argument less than 0");
+
+        lock.lock();
+        try {
+            expire(ticker.read());
+            size -= (int) Math.min(n, size);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean supportsRefund() {
+        return true;
+    }
+
+    @Override
+    public long getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Provides the number of requests that can be made right now.
+     *
+     * @return
+     */
+    @Override
+    public long getCurrentTokenCount() {
+        lock.lock();
+        try {
+            expire(ticker.read());
+            return capacity - size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Provides time for n requests to be admitted. More than capacity requests are never admitted,
+     * for those the time until the whole log has expired is reported, or the window length if the
+     * log is empty, so that waiters never spin.
+     *
+     * @param n
+     * @param timeUnit
+     * @return
+     */
+    @Override
+    public long timeToRelease(long n, TimeUnit timeUnit) {
+        // preconditions
+        Assert.isTrue(n >= 0, "Invalid argument less than 0");
+        Assert.isTrue(timeUnit != null, "TimeUnit argument can not be null");
+
+        lock.lock();
+        try {
+            long currentTime = ticker.read();
+            expire(currentTime);
+
+            // check whether the window has room
+            if(n <= capacity - size) return 0L;
+
+            // more than capacity is never released, report when the whole log has expired
+            if(n > capacity && size == 0) return timeUnit.convert(windowLength, TimeUnit.NANOSECONDS);
+
+            long released = n > capacity ? size : size - (capacity - n);
+            long entry = log[(int) ((head + released - 1) % log.length)];
+            return timeUnit.convert(entry + windowLength - currentTime, TimeUnit.NANOSECONDS);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // drops requests that have left the window
+    private void expire(long currentTime) {
+        while(size > 0 && log[head] + windowLength <= currentTime){
+            head = (head + 1) % log.length;
+            size--;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package me.sudohippie.throttle.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded lock-free queue for many producers and a single consumer.
+ *
+ * Elements are kept in a ring buffer, each slot carrying a sequence number telling producers
+ * whether it is free and the consumer whether it has been filled. Producers claim a slot by
+ * advancing the tail with a compare-and-set, so offering never blocks and a full queue is
+ * reported instead of grown. Only one thread at a time may peek or poll.
+ */
+public class BoundedQueue<E> {
+
+    private final Object[] buffer;
+    // slot i is free for the producer of position p when it holds p, filled when it holds p + 1
+    private final AtomicLongArray sequences;
+    private final int mask;
+
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * Constructor to build a BoundedQueue.
+     *
+     * @param capacity Maximum number of elements, rounded up to a power of two.
+     */
+    public BoundedQueue(int capacity) {
+        // preconditions
+        Assert.isTrue(capacity > 0 && capacity <= (1 << 30), "Capacity must be positive");
+
+        int size = Integer.highestOneBit(capacity);
+        if(size < capacity) size <<= 1;
+
+        this.buffer = new Object[size];
+        this.sequences = new AtomicLongArray(size);
+        this.mask = size - 1;
+        for(int i = 0; i < size; i++) sequences.set(i, i);
+    }
+
+    /**
+     * Adds {@code element} at the tail, may be called by any thread.
+     *
+     * @param element
+     * @return <i>false</i> if the queue is full
+     */
+    public boolean offer(E element) {
+        // preconditions
+        Assert.isTrue(element != null, "Element can not be null");
+
+        while(true){
+            long position = tail.get();
+            int slot = (int) position & mask;
+            long difference = sequences.get(slot) - position;
+
+            if(difference == 0){
+                if(tail.compareAndSet(position, position + 1)){
+                    buffer[slot] = element;
+                    sequences.set(slot, position + 1);
+                    return true;
+                }
+            } else if(difference < 0){
+                // slot not consumed yet since the last lap
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Element at the head, null if empty. Consumer only.
+     *
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public E peek() {
+        long position = head.get();
+        int slot = (int) position & mask;
+        if(sequences.get(slot) != position + 1) return null;
+
+        return (E) buffer[slot];
+    }
+
+    /**
+     * Removes the element at the head, null if empty. Consumer only.
+     *
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        long position = head.get();
+        int slot = (int) position & mask;
+        if(sequences.get(slot) != position + 1) return null;
+
+        E element = (E) buffer[slot];
+        buffer[slot] = null;
+        head.lazySet(position + 1);
+        // free the slot for the producer of the next lap
+        sequences.set(slot, position + buffer.length);
+        return element;
+    }
+
+    /**
+     * Number of elements, including those whose producers have not finished adding them.
+     *
+     * @return
+     */
+    public int size() {
+        return (int) Math.max(0L, tail.get() - head.get());
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int getCapacity() {
+        return buffer.length;
+    }
+}
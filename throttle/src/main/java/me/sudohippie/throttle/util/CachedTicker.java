@@ -0,0 +1,79 @@
+package me.sudohippie.throttle.util;
+
+import java.io.Closeable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Ticker whose reading is refreshed by a background thread at a fixed resolution.
+ *
+ * Reading is a single volatile load, cheaper than querying the system timer on every
+ * call, at the cost of lagging behind the source by up to the resolution. The background
+ * thread is a daemon and stops once the ticker is closed.
+ */
+public class CachedTicker extends Ticker implements Closeable {
+
+    private final Ticker source;
+    private final long resolution;
+    private final Thread updater;
+
+    private volatile long nanos;
+    private volatile boolean closed;
+
+    /**
+     * Constructor to build a CachedTicker over the system ticker.
+     *
+     * @param resolution Interval at which the cached reading is refreshed.
+     * @param resolutionTimeUnit {@link TimeUnit} class representing unit of time of resolution
+     */
+    public CachedTicker(long resolution, TimeUnit resolutionTimeUnit) {
+        this(Ticker.systemTicker(), resolution, resolutionTimeUnit);
+    }
+
+    /**
+     * Constructor to build a CachedTicker.
+     *
+     * @param source Ticker whose reading is cached.
+     * @param resolution Interval at which the cached reading is refreshed.
+     * @param resolutionTimeUnit {@link TimeUnit} class representing unit of time of resolution
+     */
+    public CachedTicker(Ticker source, long resolution, TimeUnit resolutionTimeUnit) {
+        // preconditions
+        Assert.isTrue(source != null, "Source ticker can not be null");
+        Assert.isTrue(resolution > 0, "Resolution must be positive");
+
+        this.source = source;
+        this.resolution = resolutionTimeUnit.toNanos(resolution);
+        this.nanos = source.read();
+
+        this.updater = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while(!closed){
+                    nanos = CachedTicker.this.source.read();
+                    LockSupport.parkNanos(CachedTicker.this.resolution);
+                }
+            }
+        }, "throttle-cached-ticker");
+        this.updater.setDaemon(true);
+        this.updater.start();
+    }
+
+    @Override
+    public long read() {
+        return nanos;
+    }
+
+    public long getResolution(TimeUnit timeUnit) {
+        return timeUnit.convert(resolution, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Stops the background thread, the reading stays frozen from then on.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(updater);
+    }
+}
@@ -0,0 +1,33 @@
+package me.sudohippie.throttle.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ticker which only moves when told to, making time based behaviour deterministic in tests.
+ */
+public class ManualTicker extends Ticker {
+
+    private final AtomicLong nanos = new AtomicLong();
+
+    @Override
+    public long read() {
+        return nanos.get();
+    }
+
+    /**
+     * Moves this ticker forward.
+     *
+     * @param duration
+     * @param timeUnit
+     * @return this ticker
+     */
+    public ManualTicker advance(long duration, TimeUnit timeUnit) {
+        // preconditions
+        Assert.isTrue(duration >= 0, "Ticker can not move backwards");
+        Assert.isTrue(timeUnit != null, "TimeUnit argument can not be null");
+
+        nanos.addAndGet(timeUnit.toNanos(duration));
+        return this;
+    }
+}
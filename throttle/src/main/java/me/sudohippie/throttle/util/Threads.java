@@ -0,0 +1,23 @@
+package me.sudohippie.throttle.util;
+
+/**
+ * Thread facts which depend on the Java version running.
+ *
+ * This class is replaced by the copy under {@code META-INF/versions/21} of the multi-release
+ * jar on Java 21 and later.
+ */
+public final class Threads {
+
+    private Threads() {
+    }
+
+    /**
+     * Returns <i>true</i> if {@code thread} is a virtual thread, never before Java 21.
+     *
+     * @param thread
+     * @return
+     */
+    public static boolean isVirtual(Thread thread) {
+        return false;
+    }
+}
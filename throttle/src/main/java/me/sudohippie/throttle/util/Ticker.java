@@ -0,0 +1,71 @@
+package me.sudohippie.throttle.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Source of time for throttling strategies.
+ *
+ * A ticker returns nanoseconds elapsed since an arbitrary, fixed origin. Values are only
+ * meaningful relative to each other and must never decrease, unlike wall clock time which
+ * jumps whenever the system clock is adjusted.
+ */
+public abstract class Ticker {
+
+    private static final Ticker SYSTEM_TICKER = new SystemTicker();
+    private static final Ticker WALL_CLOCK_TICKER = new WallClockTicker();
+
+    /**
+     * Returns the number of nanoseconds elapsed since this ticker's origin.
+     *
+     * @return
+     */
+    public abstract long read();
+
+    /**
+     * Ticker backed by {@link System#nanoTime()}, starting at zero when this class is loaded.
+     *
+     * @return
+     */
+    public static Ticker systemTicker() {
+        return SYSTEM_TICKER;
+    }
+
+    /**
+     * Ticker backed by {@link System#currentTimeMillis()}, counting from the epoch with millisecond
+     * precision. Readings agree across processes and hosts with synchronized clocks, which is what
+     * state shared between them needs. Should the system clock step back, readings stand still
+     * until it catches up.
+     *
+     * @return
+     */
+    public static Ticker wallClockTicker() {
+        return WALL_CLOCK_TICKER;
+    }
+
+    private static final class SystemTicker extends Ticker {
+
+        // keeps readings positive and far from overflow
+        private final long origin = System.nanoTime();
+
+        @Override
+        public long read() {
+            return System.nanoTime() - origin;
+        }
+    }
+
+    private static final class WallClockTicker extends Ticker {
+
+        // latest reading, so readings never decrease
+        private final AtomicLong last = new AtomicLong();
+
+        @Override
+        public long read() {
+            long now = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis());
+            long previous = last.get();
+            if(now <= previous) return previous;
+
+            return last.accumulateAndGet(now, Math::max);
+        }
+    }
+}
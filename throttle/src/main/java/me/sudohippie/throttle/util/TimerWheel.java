@@ -0,0 +1,171 @@
+package me.sudohippie.throttle.util;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hashed wheel timer running tasks on a single daemon thread.
+ *
+ * Time is divided into ticks, each slot of the wheel holding the tasks due in that tick
+ * (plus whole rotations of the wheel). Scheduling is a lock-free enqueue and expiring a
+ * tick only touches its slot, so a large number of pending tasks costs little. Tasks run
+ * at the end of the tick they are due in, i.e. up to one tick late.
+ *
+ * Tasks run on the timer thread and must be short, a slow task delays every other one.
+ */
+public class TimerWheel implements Closeable {
+
+    private static final int DEFAULT_WHEEL_SIZE = 512;
+    private static final long DEFAULT_TICK_DURATION = 1;
+    private static final TimeUnit DEFAULT_TICK_DURATION_TIME_UNIT = TimeUnit.MILLISECONDS;
+
+    private final long tickDuration;
+    private final Slot[] wheel;
+    private final int mask;
+
+    // tasks scheduled since the last tick, moved into the wheel by the timer thread
+    private final Queue<Timeout> pending = new ConcurrentLinkedQueue<>();
+    private final long startTime = System.nanoTime();
+    private final Thread worker;
+
+    private volatile boolean closed;
+
+    /**
+     * Timer with a 1 millisecond tick shared by default, started on first use.
+     *
+     * @return
+     */
+    public static TimerWheel shared() {
+        return SharedHolder.INSTANCE;
+    }
+
+    /**
+     * Constructor to build a TimerWheel.
+     *
+     * @param tickDuration Duration of a tick, the precision of this timer.
+     * @param tickDurationTimeUnit {@link TimeUnit} class representing unit of time of tick duration
+     */
+    public TimerWheel(long tickDuration, TimeUnit tickDurationTimeUnit) {
+        this(tickDuration, tickDurationTimeUnit, DEFAULT_WHEEL_SIZE);
+    }
+
+    /**
+     * Constructor to build a TimerWheel.
+     *
+     * @param tickDuration Duration of a tick, the precision of this timer.
+     * @param tickDurationTimeUnit {@link TimeUnit} class representing unit of time of tick duration
+     * @param wheelSize Number of slots of the wheel, rounded up to a power of two.
+     */
+    public TimerWheel(long tickDuration, TimeUnit tickDurationTimeUnit, int wheelSize) {
+        // preconditions
+        Assert.isTrue(tickDuration > 0, "Tick duration must be positive");
+        Assert.isTrue(tickDurationTimeUnit != null, "TimeUnit argument can not be null");
+        Assert.isTrue(wheelSize > 0 && wheelSize <= (1 << 30), "Wheel size must be positive");
+
+        int size = Integer.highestOneBit(wheelSize);
+        if(size < wheelSize) size <<= 1;
+
+        this.tickDuration = tickDurationTimeUnit.toNanos(tickDuration);
+        this.wheel = new Slot[size];
+        for(int i = 0; i < size; i++) wheel[i] = new Slot();
+        this.mask = size - 1;
+
+        this.worker = new Thread(this::run, "throttle-timer-wheel");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * Runs {@code task} on the timer thread once {@code delay} has elapsed.
+     *
+     * @param task
+     * @param delay
+     * @param delayTimeUnit
+     */
+    public void schedule(Runnable task, long delay, TimeUnit delayTimeUnit) {
+        // preconditions
+        Assert.isTrue(task != null, "Task can not be null");
+        Assert.isTrue(delayTimeUnit != null, "TimeUnit argument can not be null");
+        if(closed) throw new IllegalStateException("Timer has been closed");
+
+        long deadline = System.nanoTime() - startTime + Math.max(0L, delayTimeUnit.toNanos(delay));
+        pending.add(new Timeout(task, deadline));
+    }
+
+    /**
+     * Stops the timer thread, tasks not run yet are dropped.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(worker);
+    }
+
+    private void run() {
+        long tick = 0;
+        while(!closed){
+            // wait for the end of the current tick
+            long tickEnd = (tick + 1) * tickDuration;
+            long sleep;
+            while(!closed && (sleep = tickEnd - (System.nanoTime() - startTime)) > 0) LockSupport.parkNanos(this, sleep);
+
+            transferPending(tick);
+            wheel[(int) (tick & mask)].expire();
+            tick++;
+        }
+    }
+
+    private void transferPending(long tick) {
+        Timeout timeout;
+        while((timeout = pending.poll()) != null){
+            // first tick ending at or after the deadline, never in the past
+            long dueTick = Math.max(tick, (timeout.deadline + tickDuration - 1) / tickDuration - 1);
+
+            timeout.remainingRounds = (dueTick - tick) / wheel.length;
+            wheel[(int) (dueTick & mask)].timeouts.add(timeout);
+        }
+    }
+
+    private static final class Timeout {
+        private final Runnable task;
+        private final long deadline;
+        private long remainingRounds;
+
+        private Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+    }
+
+    // only accessed by the timer thread
+    private static final class Slot {
+        private final ArrayDeque<Timeout> timeouts = new ArrayDeque<>();
+
+        private void expire() {
+            Iterator<Timeout> iterator = timeouts.iterator();
+            while(iterator.hasNext()){
+                Timeout timeout = iterator.next();
+                if(timeout.remainingRounds > 0){
+                    timeout.remainingRounds--;
+                    continue;
+                }
+
+                iterator.remove();
+                try {
+                    timeout.task.run();
+                } catch (RuntimeException e) {
+                    // a failing task must not stop the timer
+                }
+            }
+        }
+    }
+
+    private static final class SharedHolder {
+        private static final TimerWheel INSTANCE = new TimerWheel(DEFAULT_TICK_DURATION, DEFAULT_TICK_DURATION_TIME_UNIT);
+    }
+}
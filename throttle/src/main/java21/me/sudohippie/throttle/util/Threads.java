@@ -0,0 +1,20 @@
+package me.sudohippie.throttle.util;
+
+/**
+ * Thread facts which depend on the Java version running, Java 21 and later.
+ */
+public final class Threads {
+
+    private Threads() {
+    }
+
+    /**
+     * Returns <i>true</i> if {@code thread} is a virtual thread.
+     *
+     * @param thread
+     * @return
+     */
+    public static boolean isVirtual(Thread thread) {
+        return thread.isVirtual();
+    }
+}
@@ -0,0 +1,102 @@
+package me.sudohippie.throttle;
+
+import me.sudohippie.throttle.strategy.bucket.FixedTokenBucketStrategy;
+import me.sudohippie.throttle.util.ManualTicker;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class CostAwareThrottleTest {
+
+    private final long MAX_TOKENS = 100;
+    private final long REFILL_INTERVAL = 200L;
+
+    private enum Operation {
+        READ, WRITE, EXPORT
+    }
+
+    private static final class Upload {
+        private final long bytes;
+
+        private Upload(long bytes) {
+            this.bytes = bytes;
+        }
+    }
+
+    private ManualTicker ticker;
+    private FixedTokenBucketStrategy strategy;
+    private CostAwareThrottle<Operation> throttle;
+
+    @Before
+    public void setUp() throws Exception {
+        ticker = new ManualTicker();
+        strategy = new FixedTokenBucketStrategy(MAX_TOKENS, REFILL_INTERVAL, TimeUnit.MILLISECONDS, ticker);
+        throttle = new CostAwareThrottle<Operation>(strategy, CostModel.perConstant(Operation.class, op -> op == Operation.READ ? 1 : op == Operation.WRITE ? 10 : 60));
+    }
+
+    /* test state */
+    @Test(expected = IllegalArgumentException.class)
+    public void testWhenCostModelIsNull() throws Exception {
+        new CostAwareThrottle<Operation>(strategy, null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWhenConstantCostIsNegative() throws Exception {
+        CostModel.constant(-1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWhenModelPricesNegative() throws Exception {
+        new CostAwareThrottle<Operation>(strategy, op -> -1).canProceed(Operation.READ);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAcquireWhenCostExceedsCapacity() throws Exception {
+        new CostAwareThrottle<Operation>(strategy, CostModel.constant(MAX_TOKENS + 1)).acquire(Operation.READ);
+    }
+
+    /* test behaviour */
+    // each operation takes its cost from the shared bucket
+    @Test
+    public void testOperationsTakeTheirCost() throws Exception {
+        assertEquals(60L, throttle.costOf(Operation.EXPORT));
+
+        assertTrue(throttle.canProceed(Operation.EXPORT));
+        assertTrue(throttle.canProceed(Operation.WRITE));
+        assertEquals(MAX_TOKENS - 70, strategy.getCurrentTokenCount());
+
+        // another export does not fit, reads still do
+        assertFalse(throttle.canProceed(Operation.EXPORT));
+        assertEquals(REFILL_INTERVAL, throttle.waitTime(Operation.EXPORT, TimeUnit.MILLISECONDS));
+        assertEquals(0L, throttle.waitTime(Operation.READ, TimeUnit.MILLISECONDS));
+        assertTrue(throttle.canProceed(Operation.READ));
+        assertEquals(MAX_TOKENS - 71, strategy.getCurrentTokenCount());
+    }
+
+    // costs computed from the operation, e.g. its payload
+    @Test
+    public void testDynamicCost() throws Exception {
+        CostAwareThrottle<Upload> uploads = new CostAwareThrottle<Upload>(strategy, upload -> 1 + upload.bytes / 1024);
+
+        assertTrue(uploads.canProceed(new Upload(50 * 1024)));
+        assertEquals(MAX_TOKENS - 51, strategy.getCurrentTokenCount());
+        assertFalse(uploads.canProceed(new Upload(49 * 1024)));
+        assertTrue(uploads.canProceed(new Upload(48 * 1024)));
+    }
+
+    // blocked operations are served once their cost has been released
+    @Test
+    public void testAcquireAsyncWaitsForCost() throws Exception {
+        assertTrue(throttle.canProceed(Operation.EXPORT));
+        CompletableFuture<Void> export = throttle.acquireAsync(Operation.EXPORT);
+        assertFalse(export.isDone());
+
+        ticker.advance(REFILL_INTERVAL, TimeUnit.MILLISECONDS);
+        export.get(5, TimeUnit.SECONDS);
+        assertEquals(MAX_TOKENS - 60, strategy.getCurrentTokenCount());
+    }
+}
@@ -0,0 +1,238 @@
+package me.sudohippie.throttle;
+
+import me.sudohippie.throttle.strategy.bucket.FixedTokenBucketStrategy;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class FairThrottleTest {
+
+    long MAX_TOKENS = 10;
+    long REFILL_INTERVAL = 50;
+    TimeUnit REFILL_INTERVAL_TIME_UNIT = TimeUnit.MILLISECONDS;
+    int QUEUE_CAPACITY = 64;
+
+    FixedTokenBucketStrategy strategy;
+    FairThrottle<String> throttle;
+
+    @Before
+    public void setUp() throws Exception {
+        strategy = new FixedTokenBucketStrategy(MAX_TOKENS, REFILL_INTERVAL, REFILL_INTERVAL_TIME_UNIT);
+        throttle = new FairThrottle<String>(strategy, 1, QUEUE_CAPACITY, null);
+    }
+
+    /* test state */
+    @Test(expected = IllegalArgumentException.class)
+    public void testWhenWeightIsNotPositive(){
+        throttle.setWeight("a", 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWhenTokensExceedCapacity(){
+        throttle.acquireAsync("a", MAX_TOKENS + 1);
+    }
+
+    /* test logic */
+    // queues tokens requests of a class, recording the order in which they complete
+    private CompletableFuture<Void> queue(final String requestClass, int requests, long tokens, final List<String> completed) {
+        CompletableFuture<Void> last = null;
+        for(int i = 0; i < requests; i++){
+            last = throttle.acquireAsync(requestClass, tokens).thenRun(new Runnable() {
+                @Override
+                public void run() {
+                    completed.add(requestClass);
+                }
+            });
+        }
+        return last;
+    }
+
+    // completions up to and including the last one of a class
+    private List<String> until(String requestClass, List<String> completed) {
+        List<String> copy = new ArrayList<String>(completed);
+        return copy.subList(0, copy.lastIndexOf(requestClass) + 1);
+    }
+
+    // requests are served immediately while tokens are available
+    @Test
+    public void testAcquireWhenTokensAvailable(){
+        assertTrue(throttle.acquireAsync("a", MAX_TOKENS).isDone());
+        assertFalse(throttle.acquireAsync("a", 1).isDone());
+    }
+
+    // a class flooding the throttle does not starve a class queued after it
+    @Test
+    public void testClassesShareTokensEqually(){
+        assertFalse(strategy.isThrottled(MAX_TOKENS));
+        List<String> completed = Collections.synchronizedList(new ArrayList<String>());
+
+        queue("noisy", 20, 1, completed);
+        queue("quiet", 10, 1, completed).join();
+
+        List<String> served = until("quiet", completed);
+        assertEquals(20, served.size());
+        assertEquals(10, Collections.frequency(served, "noisy"));
+    }
+
+    // tokens are shared in proportion to weights
+    @Test
+    public void testClassesShareTokensByWeight(){
+        throttle.setWeight("heavy", 2);
+        assertFalse(strategy.isThrottled(MAX_TOKENS));
+        List<String> completed = Collections.synchronizedList(new ArrayList<String>());
+
+        queue("heavy", 30, 1, completed);
+        queue("light", 5, 1, completed).join();
+
+        List<String> served = until("light", completed);
+        assertEquals(15, served.size());
+        assertEquals(10, Collections.frequency(served, "heavy"));
+    }
+
+    // expensive requests are charged their cost, not served as often as cheap ones
+    @Test
+    public void testClassesShareTokensByCost(){
+        assertFalse(strategy.isThrottled(MAX_TOKENS));
+        List<String> completed = Collections.synchronizedList(new ArrayList<String>());
+
+        queue("expensive", 10, 5, completed);
+        queue("cheap", 10, 1, completed).join();
+
+        assertEquals(2, Collections.frequency(until("cheap", completed), "expensive"));
+    }
+
+    // a full queue rejects further requests of its class only
+    @Test
+    public void testWhenQueueIsFull(){
+        assertFalse(strategy.isThrottled(MAX_TOKENS));
+        FairThrottle<String> small = new FairThrottle<String>(strategy, 1, 2, null);
+
+        assertNotNull(small.acquireAsync("a", 1));
+        assertNotNull(small.acquireAsync("a", 1));
+        assertNull(small.acquireAsync("a", 1));
+        assertEquals(2, small.getQueueLength("a"));
+
+        assertNotNull(small.acquireAsync("b", 1));
+    }
+
+    // cancelled requests are withdrawn without taking tokens
+    @Test
+    public void testCancelledRequestIsSkipped(){
+        assertFalse(strategy.isThrottled(MAX_TOKENS));
+
+        CompletableFuture<Void> cancelled = throttle.acquireAsync("a", MAX_TOKENS);
+        CompletableFuture<Void> next = throttle.acquireAsync("a", MAX_TOKENS);
+        cancelled.cancel(false);
+
+        next.join();
+        assertTrue(cancelled.isCancelled());
+    }
+
+    // blocking acquire waits for the next refill
+    @Test
+    public void testBlockingAcquire() throws InterruptedException {
+        assertFalse(strategy.isThrottled(MAX_TOKENS));
+
+        long start = System.nanoTime();
+        assertTrue(throttle.acquire("a", 1));
+        assertTrue(System.nanoTime() - start > 0);
+        assertEquals(0, throttle.getQueueLength("a"));
+    }
+
+    // requests queued by racing threads are all served, none is left behind by the drain
+    @Test(timeout = 10000)
+    public void testConcurrentRequestsAreServed() throws InterruptedException {
+        assertFalse(strategy.isThrottled(MAX_TOKENS));
+        final List<CompletableFuture<Void>> futures = Collections.synchronizedList(new ArrayList<CompletableFuture<Void>>());
+        final CountDownLatch start = new CountDownLatch(1);
+
+        Thread[] threads = new Thread[4];
+        for(int i = 0; i < threads.length; i++){
+            final String requestClass = "class" + i;
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for(int j = 0; j < 2 * MAX_TOKENS; j++) futures.add(throttle.acquireAsync(requestClass, 1));
+                }
+            });
+            threads[i].start();
+        }
+
+        start.countDown();
+        for(Thread thread : threads) thread.join();
+
+        assertEquals(threads.length * 2 * MAX_TOKENS, futures.size());
+        for(CompletableFuture<Void> future : futures) future.join();
+    }
+
+    // a failing strategy fails the request at the head, later requests are still served
+    @Test
+    public void testWhenStrategyThrows(){
+        final AtomicBoolean failing = new AtomicBoolean();
+        FixedTokenBucketStrategy failingStrategy = new FixedTokenBucketStrategy(MAX_TOKENS, REFILL_INTERVAL, REFILL_INTERVAL_TIME_UNIT) {
+            @Override
+            public boolean isThrottled(long n) {
+                if(failing.get() && n == 2) throw new IllegalStateException("strategy failed");
+                return super.isThrottled(n);
+            }
+        };
+        throttle = new FairThrottle<String>(failingStrategy, 1, QUEUE_CAPACITY, null);
+        assertFalse(failingStrategy.isThrottled(MAX_TOKENS));
+        failing.set(true);
+
+        CompletableFuture<Void> first = throttle.acquireAsync("a", 1);
+        CompletableFuture<Void> failed = throttle.acquireAsync("b", 2);
+        CompletableFuture<Void> last = throttle.acquireAsync("b", 1);
+
+        first.join();
+        last.join();
+        assertTrue(failed.isCompletedExceptionally());
+    }
+
+    // tokens taken for a request cancelled before its completion are given back
+    @Test
+    public void testRefundsWhenCancelledOnCompletion() throws Exception {
+        final AtomicReference<CompletableFuture<Void>> cancelling = new AtomicReference<CompletableFuture<Void>>();
+        final CountDownLatch refunded = new CountDownLatch(1);
+        strategy = new FixedTokenBucketStrategy(MAX_TOKENS, REFILL_INTERVAL, REFILL_INTERVAL_TIME_UNIT) {
+            @Override
+            public boolean isThrottled(long n) {
+                boolean throttled = super.isThrottled(n);
+                // the caller cancels between the drain taking the tokens and completing
+                CompletableFuture<Void> future = cancelling.get();
+                if(!throttled && future != null) future.cancel(false);
+                return throttled;
+            }
+
+            @Override
+            public void refund(long n) {
+                super.refund(n);
+                refunded.countDown();
+            }
+        };
+        throttle = new FairThrottle<String>(strategy, 1, QUEUE_CAPACITY, null);
+        assertFalse(strategy.isThrottled(MAX_TOKENS));
+
+        CompletableFuture<Void> future = throttle.acquireAsync("a", MAX_TOKENS);
+        cancelling.set(future);
+
+        assertTrue(refunded.await(2 * REFILL_INTERVAL, REFILL_INTERVAL_TIME_UNIT));
+        assertTrue(future.isCancelled());
+        assertEquals(MAX_TOKENS, strategy.getCurrentTokenCount());
+    }
+}
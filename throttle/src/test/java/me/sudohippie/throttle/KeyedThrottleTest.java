@@ -0,0 +1,195 @@
+package me.sudohippie.throttle;
+
+import me.sudohippie.throttle.strategy.bucket.RefillPolicy;
+import me.sudohippie.throttle.util.ManualTicker;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.BitSet;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class KeyedThrottleTest {
+
+    private final long MAX_TOKENS = 10;
+    private final long REFILL_INTERVAL = 200L;
+
+    private ManualTicker ticker;
+    private KeyedThrottle<String> throttle;
+
+    @Before
+    public void setUp() throws Exception {
+        ticker = new ManualTicker();
+        throttle = new KeyedThrottle<String>(RefillPolicy.fixed(MAX_TOKENS, REFILL_INTERVAL, TimeUnit.MILLISECONDS), 4, ticker);
+    }
+
+    /* test state */
+    @Test(expected = IllegalArgumentException.class)
+    public void testWhenPolicyIsNull() throws Exception {
+        new KeyedThrottle<String>(null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWhenKeyIsNull() throws Exception {
+        throttle.canProceed(null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWhenNIsNegative() throws Exception {
+        throttle.isThrottled("a", -1);
+    }
+
+    /* test behaviour */
+    // each key owns its own bucket
+    @Test
+    public void testKeysAreThrottledIndependently() throws Exception {
+        assertFalse(throttle.isThrottled("a", MAX_TOKENS));
+        assertTrue(throttle.isThrottled("a", 1));
+
+        assertFalse(throttle.isThrottled("b", MAX_TOKENS - 1));
+        assertEquals(1, throttle.getCurrentTokenCount("b"));
+        assertEquals(0, throttle.getCurrentTokenCount("a"));
+    }
+
+    // read only calls do not track unknown keys
+    @Test
+    public void testUnknownKeyHasFullBucketAndIsNotTracked() throws Exception {
+        assertEquals(MAX_TOKENS, throttle.getCurrentTokenCount("a"));
+        assertEquals(0L, throttle.waitTime("a", TimeUnit.MILLISECONDS));
+        assertEquals(0, throttle.size());
+    }
+
+    @Test
+    public void testTimeToReleaseWhenTokensAreExhausted() throws Exception {
+        throttle.isThrottled("a", MAX_TOKENS);
+
+        assertEquals(REFILL_INTERVAL, throttle.waitTime("a", TimeUnit.MILLISECONDS));
+
+        ticker.advance(REFILL_INTERVAL, TimeUnit.MILLISECONDS);
+
+        assertEquals(0L, throttle.waitTime("a", TimeUnit.MILLISECONDS));
+        assertTrue(throttle.canProceed("a"));
+    }
+
+    // keys sharing a hash code still own separate buckets
+    @Test
+    public void testCollidingKeysAreThrottledIndependently() throws Exception {
+        KeyedThrottle<CollidingKey> colliding = new KeyedThrottle<CollidingKey>(RefillPolicy.fixed(MAX_TOKENS, 1, TimeUnit.HOURS), 1);
+
+        for(int i = 0; i < 100; i++) assertFalse(colliding.isThrottled(new CollidingKey(i), i % MAX_TOKENS));
+        for(int i = 0; i < 100; i++) assertEquals(MAX_TOKENS - (i % MAX_TOKENS), colliding.getCurrentTokenCount(new CollidingKey(i)));
+
+        assertEquals(100, colliding.size());
+    }
+
+    // tables grow to hold many keys
+    @Test
+    public void testManyKeysAreTracked() throws Exception {
+        KeyedThrottle<Integer> keyed = new KeyedThrottle<Integer>(RefillPolicy.fixed(MAX_TOKENS, 1, TimeUnit.HOURS));
+
+        int keys = 100000;
+        for(int i = 0; i < keys; i++) assertFalse(keyed.isThrottled(i, 1));
+        for(int i = 0; i < keys; i++) assertEquals(MAX_TOKENS - 1, keyed.getCurrentTokenCount(i));
+
+        assertEquals(keys, keyed.size());
+    }
+
+    // keys past their refill time are evicted
+    @Test
+    public void testIdleKeysAreEvicted() throws Exception {
+        for(int i = 0; i < 100; i++) throttle.canProceed("key" + i);
+        assertEquals(100, throttle.size());
+        assertEquals(0, throttle.evictIdle());
+
+        ticker.advance(REFILL_INTERVAL, TimeUnit.MILLISECONDS);
+
+        assertEquals(100, throttle.evictIdle());
+        assertEquals(0, throttle.size());
+        assertEquals(MAX_TOKENS, throttle.getCurrentTokenCount("key0"));
+    }
+
+    // a batch behaves like single calls in batch order, keys of a segment sharing its lock
+    @Test
+    public void testTryAcquireAllMatchesSingleCalls() throws Exception {
+        String[] keys = {"a", "b", "a", "c", "b", "a", "d"};
+        long[] costs = {4, MAX_TOKENS, 4, MAX_TOKENS + 1, 1, 4, 0};
+        BitSet granted = new BitSet();
+        granted.set(6, 20);
+
+        assertEquals(4, throttle.tryAcquireAll(keys, costs, granted));
+
+        assertTrue(granted.get(0));
+        assertTrue(granted.get(1));
+        assertTrue(granted.get(2));
+        assertFalse(granted.get(3));
+        assertFalse(granted.get(4));
+        assertFalse(granted.get(5));
+        assertTrue(granted.get(6));
+        // bits beyond the batch are left alone
+        assertTrue(granted.get(7));
+
+        assertEquals(MAX_TOKENS - 8, throttle.getCurrentTokenCount("a"));
+        assertEquals(0, throttle.getCurrentTokenCount("b"));
+        assertEquals(MAX_TOKENS, throttle.getCurrentTokenCount("c"));
+    }
+
+    // only the first length keys are part of the batch, scratch is reused across batches
+    @Test
+    public void testTryAcquireAllWithLength() throws Exception {
+        Integer[] keys = new Integer[256];
+        long[] costs = new long[256];
+        BitSet granted = new BitSet(256);
+        for(int i = 0; i < keys.length; i++){
+            keys[i] = i % 64;
+            costs[i] = 1;
+        }
+
+        KeyedThrottle<Integer> keyed = new KeyedThrottle<Integer>(RefillPolicy.fixed(MAX_TOKENS, REFILL_INTERVAL, TimeUnit.MILLISECONDS), 16, ticker);
+        // 64 keys, 2 tokens each
+        assertEquals(128, keyed.tryAcquireAll(keys, costs, 128, granted));
+        assertEquals(MAX_TOKENS - 2, keyed.getCurrentTokenCount(0));
+
+        // 4 tokens each per full batch
+        assertEquals(keys.length, keyed.tryAcquireAll(keys, costs, granted));
+        assertEquals(keys.length, keyed.tryAcquireAll(keys, costs, granted));
+        assertEquals(0, keyed.tryAcquireAll(keys, costs, granted));
+        assertTrue(granted.isEmpty());
+        assertEquals(0, keyed.getCurrentTokenCount(0));
+    }
+
+    // nothing is taken when any key of the batch is invalid
+    @Test
+    public void testTryAcquireAllValidatesBeforeTaking() throws Exception {
+        String[] keys = {"a", null};
+        long[] costs = {1, 1};
+        try {
+            throttle.tryAcquireAll(keys, costs, new BitSet());
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        assertEquals(0, throttle.size());
+        keys[1] = "b";
+        assertEquals(2, throttle.tryAcquireAll(keys, costs, new BitSet()));
+    }
+
+    private static final class CollidingKey {
+        private final int id;
+
+        private CollidingKey(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof CollidingKey && ((CollidingKey) o).id == id;
+        }
+
+        @Override
+        public int hashCode() {
+            return 42;
+        }
+    }
+}
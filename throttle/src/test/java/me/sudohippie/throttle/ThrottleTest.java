@@ -0,0 +1,262 @@
+package me.sudohippie.throttle;
+
+import me.sudohippie.throttle.strategy.bucket.FixedTokenBucketStrategy;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class ThrottleTest {
+
+    private final long MAX_TOKENS = 2;
+    private final long REFILL_INTERVAL = 200L;
+
+    private FixedTokenBucketStrategy strategy;
+    private Throttle throttle;
+
+    @Before
+    public void setUp() throws Exception {
+        strategy = new FixedTokenBucketStrategy(MAX_TOKENS, REFILL_INTERVAL, TimeUnit.MILLISECONDS);
+        throttle = new Throttle(strategy);
+    }
+
+    /* test state */
+    @Test(expected = IllegalArgumentException.class)
+    public void testAcquireWhenNIsNegative() throws Exception {
+        throttle.acquire(-1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAcquireWhenNExceedsCapacity() throws Exception {
+        throttle.acquire(MAX_TOKENS + 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTryAcquireWhenTimeUnitIsNull() throws Exception {
+        throttle.tryAcquire(1, 1, null);
+    }
+
+    /* test behaviour */
+    // requests costing several tokens take them all
+    @Test
+    public void testCanProceedTakesNTokens() throws Exception {
+        assertFalse(throttle.canProceed(MAX_TOKENS + 1));
+        assertEquals(0L, throttle.waitTime(MAX_TOKENS, TimeUnit.MILLISECONDS));
+        assertTrue(throttle.canProceed(MAX_TOKENS));
+        assertFalse(throttle.canProceed(1));
+        assertTrue(throttle.waitTime(1, TimeUnit.MILLISECONDS) > 0);
+    }
+
+    // tokens available, acquire does not block
+    @Test
+    public void testAcquireWhenTokensExist() throws Exception {
+        long start = System.nanoTime();
+        throttle.acquire(MAX_TOKENS);
+
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(REFILL_INTERVAL));
+        assertFalse(throttle.canProceed());
+    }
+
+    // tokens exhausted, acquire blocks until the next refill
+    @Test
+    public void testAcquireBlocksUntilRefill() throws Exception {
+        throttle.acquire(MAX_TOKENS);
+
+        long start = System.nanoTime();
+        throttle.acquire(1);
+        long waited = System.nanoTime() - start;
+
+        assertTrue(waited > 0);
+        assertTrue(waited <= TimeUnit.MILLISECONDS.toNanos(2 * REFILL_INTERVAL));
+        assertEquals(MAX_TOKENS - 1, strategy.getCurrentTokenCount());
+    }
+
+    // tokens are not released with in the timeout, fail without waiting for it
+    @Test
+    public void testTryAcquireFailsFastWhenTimeoutIsShorterThanRelease() throws Exception {
+        throttle.acquire(MAX_TOKENS);
+
+        long start = System.nanoTime();
+        assertFalse(throttle.tryAcquire(1, REFILL_INTERVAL / 4, TimeUnit.MILLISECONDS));
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(REFILL_INTERVAL / 4));
+    }
+
+    @Test
+    public void testTryAcquireSucceedsWhenTimeoutIsLongerThanRelease() throws Exception {
+        throttle.acquire(MAX_TOKENS);
+
+        assertTrue(throttle.tryAcquire(1, 2 * REFILL_INTERVAL, TimeUnit.MILLISECONDS));
+    }
+
+    // interrupted waiter gives up
+    @Test
+    public void testAcquireInterruptiblyThrowsWhenInterrupted() throws Exception {
+        throttle = new Throttle(new FixedTokenBucketStrategy(MAX_TOKENS, 1, TimeUnit.HOURS));
+        throttle.acquire(MAX_TOKENS);
+
+        final CountDownLatch started = new CountDownLatch(1);
+        final AtomicReference<Throwable> thrown = new AtomicReference<Throwable>();
+        Thread waiter = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    throttle.acquireInterruptibly(1);
+                } catch (Throwable t) {
+                    thrown.set(t);
+                }
+            }
+        });
+
+        waiter.start();
+        started.await();
+        waiter.interrupt();
+        waiter.join(TimeUnit.SECONDS.toMillis(5));
+
+        assertFalse(waiter.isAlive());
+        assertTrue(thrown.get() instanceof InterruptedException);
+    }
+
+    // waiters are served in arrival order
+    @Test
+    public void testWaitersAreServedInArrivalOrder() throws Exception {
+        throttle = new Throttle(new FixedTokenBucketStrategy(1, 50, TimeUnit.MILLISECONDS));
+        throttle.acquire(1);
+
+        final StringBuffer order = new StringBuffer();
+        Thread[] waiters = new Thread[3];
+        for(int i = 0; i < waiters.length; i++){
+            final int id = i;
+            waiters[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    throttle.acquire(1);
+                    order.append(id);
+                }
+            });
+            waiters[i].start();
+            // let the waiter queue up before starting the next one
+            Thread.sleep(10);
+        }
+
+        for(Thread waiter : waiters) waiter.join();
+
+        assertEquals("012", order.toString());
+    }
+
+    // tokens available, future is already complete
+    @Test
+    public void testAcquireAsyncWhenTokensExist() throws Exception {
+        assertTrue(throttle.acquireAsync(MAX_TOKENS).isDone());
+        assertFalse(throttle.canProceed());
+    }
+
+    // tokens exhausted, future completes after the next refill
+    @Test
+    public void testAcquireAsyncCompletesAfterRefill() throws Exception {
+        throttle.acquire(MAX_TOKENS);
+
+        CompletableFuture<Void> future = throttle.acquireAsync(1);
+        assertFalse(future.isDone());
+
+        future.get(2 * REFILL_INTERVAL, TimeUnit.MILLISECONDS);
+        assertEquals(MAX_TOKENS - 1, strategy.getCurrentTokenCount());
+    }
+
+    // many pending acquisitions complete in arrival order, cancelled ones consume nothing
+    @Test
+    public void testAcquireAsyncCompletesInArrivalOrder() throws Exception {
+        final long capacity = 100;
+        throttle = new Throttle(new FixedTokenBucketStrategy(capacity, 20, TimeUnit.MILLISECONDS));
+        throttle.acquire(capacity);
+
+        final StringBuffer order = new StringBuffer();
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[1000];
+        for(int i = 0; i < futures.length; i++){
+            final int id = i;
+            futures[i] = throttle.acquireAsync(1).thenRun(new Runnable() {
+                @Override
+                public void run() {
+                    order.append(id).append(',');
+                }
+            });
+        }
+        CompletableFuture<Void> cancelled = throttle.acquireAsync(capacity);
+        cancelled.cancel(false);
+        CompletableFuture<Void> last = throttle.acquireAsync(1);
+
+        CompletableFuture.allOf(futures).get(5, TimeUnit.SECONDS);
+        last.get(5, TimeUnit.SECONDS);
+
+        StringBuilder expected = new StringBuilder();
+        for(int i = 0; i < futures.length; i++) expected.append(i).append(',');
+        assertEquals(expected.toString(), order.toString());
+    }
+
+    // a failing strategy fails the waiter at the head, later waiters are still served
+    @Test
+    public void testAcquireAsyncFailsHeadWhenStrategyThrows() throws Exception {
+        final AtomicBoolean failing = new AtomicBoolean();
+        throttle = new Throttle(new FixedTokenBucketStrategy(MAX_TOKENS, REFILL_INTERVAL, TimeUnit.MILLISECONDS) {
+            @Override
+            public boolean isThrottled(long n) {
+                if(failing.get() && n == MAX_TOKENS) throw new IllegalStateException("strategy failed");
+                return super.isThrottled(n);
+            }
+        });
+        throttle.acquire(MAX_TOKENS);
+        failing.set(true);
+
+        CompletableFuture<Void> first = throttle.acquireAsync(1);
+        CompletableFuture<Void> failed = throttle.acquireAsync(MAX_TOKENS);
+        CompletableFuture<Void> last = throttle.acquireAsync(1);
+
+        first.get(2 * REFILL_INTERVAL, TimeUnit.MILLISECONDS);
+        last.get(2 * REFILL_INTERVAL, TimeUnit.MILLISECONDS);
+        try {
+            failed.get();
+            fail("Expected the strategy failure");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    // tokens taken for a waiter cancelled before its completion are given back
+    @Test
+    public void testAcquireAsyncRefundsWhenCancelledOnCompletion() throws Exception {
+        final AtomicReference<CompletableFuture<Void>> cancelling = new AtomicReference<CompletableFuture<Void>>();
+        final CountDownLatch refunded = new CountDownLatch(1);
+        strategy = new FixedTokenBucketStrategy(MAX_TOKENS, REFILL_INTERVAL, TimeUnit.MILLISECONDS) {
+            @Override
+            public boolean isThrottled(long n) {
+                boolean throttled = super.isThrottled(n);
+                // the caller cancels between the drain taking the tokens and completing
+                CompletableFuture<Void> future = cancelling.get();
+                if(!throttled && future != null) future.cancel(false);
+                return throttled;
+            }
+
+            @Override
+            public void refund(long n) {
+                super.refund(n);
+                refunded.countDown();
+            }
+        };
+        throttle = new Throttle(strategy);
+        throttle.acquire(MAX_TOKENS);
+
+        CompletableFuture<Void> future = throttle.acquireAsync(MAX_TOKENS);
+        cancelling.set(future);
+
+        assertTrue(refunded.await(2 * REFILL_INTERVAL, TimeUnit.MILLISECONDS));
+        assertTrue(future.isCancelled());
+        assertEquals(MAX_TOKENS, strategy.getCurrentTokenCount());
+    }
+}
@@ -0,0 +1,186 @@
+package me.sudohippie.throttle.executor;
+
+import me.sudohippie.throttle.strategy.bucket.FixedTokenBucketStrategy;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class ThrottledExecutorServiceTest {
+
+    long MAX_TOKENS = 5;
+    long REFILL_INTERVAL = 100;
+    TimeUnit REFILL_INTERVAL_TIME_UNIT = TimeUnit.MILLISECONDS;
+    int QUEUE_CAPACITY = 2;
+
+    ExecutorService delegate;
+    FixedTokenBucketStrategy strategy;
+    ThrottledExecutorService executor;
+
+    @Before
+    public void setUp() throws Exception {
+        delegate = Executors.newFixedThreadPool(2);
+        strategy = new FixedTokenBucketStrategy(MAX_TOKENS, REFILL_INTERVAL, REFILL_INTERVAL_TIME_UNIT);
+        executor = new ThrottledExecutorService(delegate, strategy);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        executor.shutdownNow();
+    }
+
+    /* test state */
+    @Test(expected = IllegalArgumentException.class)
+    public void testWhenCostExceedsCapacity(){
+        executor.execute(new Counter(new AtomicInteger()), MAX_TOKENS + 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWhenRejectionPolicyIsNull(){
+        new ThrottledExecutorService(delegate, strategy, 1, QUEUE_CAPACITY, null);
+    }
+
+    /* test logic */
+    private static final class Counter implements Runnable {
+        private final AtomicInteger count;
+
+        private Counter(AtomicInteger count) {
+            this.count = count;
+        }
+
+        @Override
+        public void run() {
+            count.incrementAndGet();
+        }
+    }
+
+    // tasks are admitted no faster than the strategy allows
+    @Test
+    public void testTasksAreAdmittedAtStrategyRate() throws Exception {
+        AtomicInteger count = new AtomicInteger();
+        long start = System.nanoTime();
+
+        Future<?>[] futures = new Future<?>[(int) (3 * MAX_TOKENS)];
+        for(int i = 0; i < futures.length; i++) futures[i] = executor.submit(new Counter(count));
+        // tasks run on several threads, the last one admitted may finish first
+        for(Future<?> future : futures) future.get(5, TimeUnit.SECONDS);
+
+        assertTrue(System.nanoTime() - start >= REFILL_INTERVAL_TIME_UNIT.toNanos(2 * REFILL_INTERVAL) * 9 / 10);
+        assertEquals(3 * MAX_TOKENS, count.get());
+    }
+
+    // expensive tasks take more of the strategy's tokens
+    @Test
+    public void testTasksAreChargedTheirCost() throws Exception {
+        AtomicInteger count = new AtomicInteger();
+        executor.submit(new Counter(count), MAX_TOKENS).get(5, TimeUnit.SECONDS);
+
+        Future<?> next = executor.submit(new Counter(count), 1);
+        Thread.sleep(REFILL_INTERVAL_TIME_UNIT.toMillis(REFILL_INTERVAL) / 2);
+        assertFalse(next.isDone());
+
+        next.get(5, TimeUnit.SECONDS);
+        assertEquals(2, count.get());
+    }
+
+    // a full queue rejects tasks according to the rejection policy
+    @Test
+    public void testAbortWhenQueueIsFull() throws Exception {
+        ThrottledExecutorService small = new ThrottledExecutorService(delegate, strategy, 1, QUEUE_CAPACITY, RejectionPolicy.ABORT);
+        assertFalse(strategy.isThrottled(MAX_TOKENS));
+        AtomicInteger count = new AtomicInteger();
+
+        small.execute(new Counter(count));
+        small.execute(new Counter(count));
+        try {
+            small.execute(new Counter(count));
+            fail();
+        } catch (RejectedExecutionException e) {
+            assertEquals(QUEUE_CAPACITY, small.getQueueSize());
+        } finally {
+            small.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testDiscardWhenQueueIsFull() throws Exception {
+        ThrottledExecutorService small = new ThrottledExecutorService(delegate, strategy, 1, QUEUE_CAPACITY, RejectionPolicy.DISCARD);
+        assertFalse(strategy.isThrottled(MAX_TOKENS));
+        AtomicInteger count = new AtomicInteger();
+
+        for(int i = 0; i < QUEUE_CAPACITY + 1; i++) small.execute(new Counter(count));
+        assertEquals(QUEUE_CAPACITY, small.getQueueSize());
+
+        List<Runnable> pending = small.shutdownNow();
+        assertEquals(QUEUE_CAPACITY, pending.size());
+        assertEquals(0, count.get());
+    }
+
+    // caller runs the task once tokens are granted
+    @Test
+    public void testCallerRunsWhenQueueIsFull() throws Exception {
+        ThrottledExecutorService small = new ThrottledExecutorService(delegate, strategy, 1, QUEUE_CAPACITY, RejectionPolicy.CALLER_RUNS);
+        assertFalse(strategy.isThrottled(MAX_TOKENS));
+        final AtomicReference<Thread> runner = new AtomicReference<Thread>();
+
+        try {
+            for(int i = 0; i < QUEUE_CAPACITY; i++) small.execute(new Counter(new AtomicInteger()));
+            small.execute(new Runnable() {
+                @Override
+                public void run() {
+                    runner.set(Thread.currentThread());
+                }
+            });
+            assertSame(Thread.currentThread(), runner.get());
+        } finally {
+            small.shutdownNow();
+        }
+    }
+
+    // queued tasks still run after shut down, new ones are rejected
+    @Test
+    public void testShutdownDrainsQueue() throws Exception {
+        assertFalse(strategy.isThrottled(MAX_TOKENS));
+        AtomicInteger count = new AtomicInteger();
+        for(int i = 0; i < 3; i++) executor.execute(new Counter(count));
+
+        executor.shutdown();
+        assertTrue(executor.isShutdown());
+        try {
+            executor.execute(new Counter(count));
+            fail();
+        } catch (RejectedExecutionException e) {
+            // expected
+        }
+
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        assertTrue(executor.isTerminated());
+        assertTrue(delegate.isShutdown());
+        assertEquals(3, count.get());
+    }
+
+    // an idle dispatcher wakes up for new tasks
+    @Test
+    public void testIdleDispatcherWakesUp() throws Exception {
+        Thread.sleep(20);
+        final CountDownLatch ran = new CountDownLatch(1);
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                ran.countDown();
+            }
+        });
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+    }
+}
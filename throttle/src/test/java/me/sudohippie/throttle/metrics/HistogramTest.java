@@ -0,0 +1,69 @@
+package me.sudohippie.throttle.metrics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class HistogramTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPercentileWhenOutOfRange(){
+        new Histogram().getValueAtPercentile(101);
+    }
+
+    @Test
+    public void testWhenEmpty(){
+        Histogram histogram = new Histogram();
+
+        assertEquals(0L, histogram.getCount());
+        assertEquals(0L, histogram.getMax());
+        assertEquals(0L, histogram.getValueAtPercentile(99));
+        assertEquals(0.0, histogram.getMean(), 0.0);
+    }
+
+    // small values are exact
+    @Test
+    public void testSmallValuesAreExact(){
+        Histogram histogram = new Histogram();
+        for(long i = 1; i <= 10; i++) histogram.record(i);
+
+        assertEquals(10L, histogram.getCount());
+        assertEquals(10L, histogram.getMax());
+        assertEquals(5.5, histogram.getMean(), 0.0);
+        assertEquals(5L, histogram.getValueAtPercentile(50));
+        assertEquals(10L, histogram.getValueAtPercentile(100));
+    }
+
+    // large values are reported with in the bucket precision
+    @Test
+    public void testLargeValuesWithInPrecision(){
+        Histogram histogram = new Histogram();
+        for(long i = 1; i <= 1000; i++) histogram.record(i * 1000000L);
+
+        long median = histogram.getValueAtPercentile(50);
+        assertTrue(median >= 500000000L);
+        assertTrue(median <= 500000000L * 1.04);
+        assertEquals(1000000000L, histogram.getValueAtPercentile(100));
+    }
+
+    // every value maps to a bucket whose range contains it
+    @Test
+    public void testBucketsCoverWholeRange(){
+        long[] values = {0, 1, 31, 32, 33, 63, 64, 1000, 123456789L, Long.MAX_VALUE / 3, Long.MAX_VALUE};
+        for(long value : values){
+            int index = Histogram.indexOf(value);
+
+            assertTrue(Histogram.highestValueOf(index) >= value);
+            if(index > 0) assertTrue(Histogram.highestValueOf(index - 1) < value);
+        }
+    }
+
+    @Test
+    public void testNegativeValuesRecordedAsZero(){
+        Histogram histogram = new Histogram();
+        histogram.record(-5);
+
+        assertEquals(1L, histogram.getCount());
+        assertEquals(0L, histogram.getValueAtPercentile(100));
+    }
+}
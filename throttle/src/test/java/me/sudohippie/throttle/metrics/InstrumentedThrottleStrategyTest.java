@@ -0,0 +1,138 @@
+package me.sudohippie.throttle.metrics;
+
+import me.sudohippie.throttle.Throttle;
+import me.sudohippie.throttle.strategy.ThrottleStrategy;
+import me.sudohippie.throttle.strategy.bucket.FixedTokenBucketStrategy;
+import me.sudohippie.throttle.util.ManualTicker;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class InstrumentedThrottleStrategyTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWhenStrategyIsNull(){
+        new InstrumentedThrottleStrategy(null);
+    }
+
+    long MAX_TOKENS = 10;
+    long REFILL_INTERVAL = 500;
+    TimeUnit REFILL_INTERVAL_TIME_UNIT = TimeUnit.MILLISECONDS;
+
+    ManualTicker ticker;
+    InstrumentedThrottleStrategy strategy;
+    ThrottleMetrics metrics;
+
+    @Before
+    public void setUp() throws Exception {
+        ticker = new ManualTicker();
+        strategy = new InstrumentedThrottleStrategy(new FixedTokenBucketStrategy(MAX_TOKENS, REFILL_INTERVAL, REFILL_INTERVAL_TIME_UNIT, ticker));
+        metrics = strategy.getMetrics();
+    }
+
+    @Test
+    public void testGrantedAndDeniedAreCounted(){
+        assertFalse(strategy.isThrottled(4));
+        assertFalse(strategy.isThrottled());
+        assertTrue(strategy.isThrottled(MAX_TOKENS));
+
+        assertEquals(2L, metrics.getGrantedCount());
+        assertEquals(5L, metrics.getGrantedTokens());
+        assertEquals(1L, metrics.getDeniedCount());
+        assertEquals(MAX_TOKENS - 5, metrics.getCurrentTokenCount());
+    }
+
+    // reservations made ahead of the refill wait for it, those beyond the next refill are denied
+    @Test
+    public void testReservationsAreCounted(){
+        assertNotNull(strategy.reserve(MAX_TOKENS));
+        assertNotNull(strategy.reserve(MAX_TOKENS));
+        assertNull(strategy.reserve(1));
+
+        assertEquals(2L, metrics.getGrantedCount());
+        assertEquals(2 * MAX_TOKENS, metrics.getGrantedTokens());
+        assertEquals(1L, metrics.getDeniedCount());
+        assertEquals(2L, metrics.getAcquireLatency().getCount());
+        assertEquals(REFILL_INTERVAL_TIME_UNIT.toNanos(REFILL_INTERVAL), metrics.getAcquireLatencyMax());
+    }
+
+    @Test
+    public void testReleaseWaitIsRecorded(){
+        assertFalse(strategy.isThrottled(MAX_TOKENS));
+
+        assertEquals(REFILL_INTERVAL, strategy.timeToRelease(1, REFILL_INTERVAL_TIME_UNIT));
+        assertEquals(1L, metrics.getReleaseWait().getCount());
+        assertEquals(REFILL_INTERVAL_TIME_UNIT.toNanos(REFILL_INTERVAL), metrics.getReleaseWaitMax());
+    }
+
+    // strategies not tracking tokens report -1
+    @Test
+    public void testCurrentTokensWhenNotSupported(){
+        ThrottleMetrics metrics = new InstrumentedThrottleStrategy(new ThrottleStrategy() {
+            @Override
+            public boolean isThrottled() {
+                return false;
+            }
+
+            @Override
+            public boolean isThrottled(long n) {
+                return false;
+            }
+
+            @Override
+            public long timeToRelease(long n, TimeUnit timeUnit) {
+                return 0;
+            }
+
+            @Override
+            public long getCapacity() {
+                return 0;
+            }
+        }).getMetrics();
+
+        assertEquals(-1L, metrics.getCurrentTokenCount());
+    }
+
+    @Test
+    public void testThrottleRecordsAcquireLatency() throws InterruptedException {
+        Throttle throttle = new Throttle(strategy);
+
+        throttle.acquire(1);
+        assertTrue(throttle.tryAcquire(1, 0, TimeUnit.MILLISECONDS));
+        throttle.acquireAsync(1).join();
+
+        assertEquals(3L, metrics.getAcquireLatency().getCount());
+        assertEquals(3L, metrics.getGrantedCount());
+    }
+
+    @Test
+    public void testRegisterWithJmx() throws Exception {
+        metrics.register("test");
+        try {
+            ObjectName name = metrics.getObjectName();
+            assertTrue(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+
+            strategy.isThrottled();
+            assertEquals(1L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "GrantedCount"));
+        } finally {
+            metrics.unregister();
+        }
+        assertNull(metrics.getObjectName());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testRegisterTwiceWithSameName() {
+        ThrottleMetrics other = new InstrumentedThrottleStrategy(new FixedTokenBucketStrategy(1, 1, TimeUnit.SECONDS)).getMetrics();
+        metrics.register("duplicate");
+        try {
+            other.register("duplicate");
+        } finally {
+            metrics.unregister();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package me.sudohippie.throttle.simulation;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ArrivalTraceTest {
+
+    long SEED = 42;
+    long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    /* test state */
+    @Test(expected = IllegalArgumentException.class)
+    public void testWhenRecordedArrivalsDecrease(){
+        ArrivalTrace.recorded(new long[]{2, 1});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWhenPoissonRateIsZero(){
+        ArrivalTrace.poisson(0, SEED);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWhenAmplitudeAboveOne(){
+        ArrivalTrace.diurnal(1, 1.5, 1, TimeUnit.DAYS, SEED);
+    }
+
+    /* test logic */
+    @Test
+    public void testRecordedReplaysArrivals(){
+        ArrivalTrace trace = ArrivalTrace.recorded(new long[]{1, 1, 5});
+
+        assertEquals(1L, trace.next());
+        assertEquals(1L, trace.next());
+        assertEquals(5L, trace.next());
+        assertEquals(Long.MAX_VALUE, trace.next());
+    }
+
+    // same seed, same arrivals
+    @Test
+    public void testSyntheticTracesAreDeterministic(){
+        ArrivalTrace first = ArrivalTrace.bursty(10, 1000, 1, 100, TimeUnit.MILLISECONDS, SEED);
+        ArrivalTrace second = ArrivalTrace.bursty(10, 1000, 1, 100, TimeUnit.MILLISECONDS, SEED);
+
+        long previous = 0;
+        for(int i = 0; i < 10000; i++){
+            long arrival = first.next();
+            assertEquals(arrival, second.next());
+            assertTrue(arrival >= previous);
+            previous = arrival;
+        }
+    }
+
+    @Test
+    public void testPoissonMeanRate(){
+        assertEquals(100000, countUntil(ArrivalTrace.poisson(1000, SEED), 100 * SECOND), 1500);
+    }
+
+    // half the time at each rate
+    @Test
+    public void testBurstyMeanRate(){
+        ArrivalTrace trace = ArrivalTrace.bursty(100, 1900, 50, 50, TimeUnit.MILLISECONDS, SEED);
+        assertEquals(100000, countUntil(trace, 100 * SECOND), 5000);
+    }
+
+    // rate above the mean in the first half of the period, below in the second
+    @Test
+    public void testDiurnalFollowsPeriod(){
+        ArrivalTrace trace = ArrivalTrace.diurnal(1000, 1, 10, TimeUnit.SECONDS, SEED);
+
+        long firstHalf = countUntil(trace, 5 * SECOND);
+        long secondHalf = countUntil(trace, 10 * SECOND);
+        assertEquals(10000, firstHalf + secondHalf, 400);
+        assertTrue(firstHalf > 4 * secondHalf);
+    }
+
+    // arrivals before time, the first arrival after it is dropped
+    private static long countUntil(ArrivalTrace trace, long time) {
+        long count = 0;
+        while(trace.next() < time) count++;
+        return count;
+    }
+}
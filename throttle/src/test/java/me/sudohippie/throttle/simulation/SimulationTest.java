@@ -0,0 +1,95 @@
+package me.sudohippie.throttle.simulation;
+
+import me.sudohippie.throttle.strategy.bucket.FixedTokenBucketStrategy;
+import me.sudohippie.throttle.strategy.bucket.StepUpLeakyTokenBucketStrategy;
+import me.sudohippie.throttle.strategy.gcra.GenericCellRateStrategy;
+import me.sudohippie.throttle.util.ManualTicker;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class SimulationTest {
+
+    long MAX_TOKENS = 100;
+    long REFILL_INTERVAL = 1;
+    TimeUnit REFILL_INTERVAL_TIME_UNIT = TimeUnit.SECONDS;
+    long SEED = 7;
+
+    ManualTicker ticker;
+    Simulation simulation;
+
+    @Before
+    public void setUp() throws Exception {
+        ticker = new ManualTicker();
+        simulation = new Simulation(ticker, REFILL_INTERVAL, REFILL_INTERVAL_TIME_UNIT);
+    }
+
+    /* test state */
+    @Test(expected = IllegalArgumentException.class)
+    public void testWhenTickerIsNull(){
+        new Simulation(null, 1, TimeUnit.SECONDS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWhenDurationIsZero(){
+        simulation.run(new FixedTokenBucketStrategy(MAX_TOKENS, REFILL_INTERVAL, REFILL_INTERVAL_TIME_UNIT, ticker), ArrivalTrace.poisson(1, SEED), 0, TimeUnit.SECONDS);
+    }
+
+    /* test logic */
+    // overloaded fixed bucket admits capacity per interval, all of it in the first instants of a window
+    @Test
+    public void testOverloadedFixedBucket(){
+        FixedTokenBucketStrategy bucket = new FixedTokenBucketStrategy(MAX_TOKENS, REFILL_INTERVAL, REFILL_INTERVAL_TIME_UNIT, ticker);
+        SimulationResult result = simulation.run(bucket, ArrivalTrace.poisson(10000, SEED), 10, TimeUnit.MINUTES);
+
+        assertEquals(600 * MAX_TOKENS, result.getAdmitted());
+        assertEquals(MAX_TOKENS, result.getAdmittedRate(TimeUnit.SECONDS), 0.001);
+        assertEquals(0.99, result.getRejectionRate(), 0.001);
+        assertEquals(600L, result.getBursts().getCount());
+        assertEquals(MAX_TOKENS, result.getBursts().getMax());
+        assertEquals(TimeUnit.MINUTES.toNanos(10), ticker.read());
+    }
+
+    // under its limit nothing is rejected
+    @Test
+    public void testUnderloadedBucketAdmitsAll(){
+        GenericCellRateStrategy gcra = new GenericCellRateStrategy(MAX_TOKENS, REFILL_INTERVAL, REFILL_INTERVAL_TIME_UNIT, ticker);
+        SimulationResult result = simulation.run(gcra, ArrivalTrace.recorded(new long[]{0, 1, 2, TimeUnit.SECONDS.toNanos(3)}), 10, TimeUnit.SECONDS);
+
+        assertEquals(4L, result.getArrivals());
+        assertEquals(0L, result.getRejected());
+        assertEquals(0.0, result.getRejectionRate(), 0.0);
+        // quiet windows count too
+        assertEquals(10L, result.getBursts().getCount());
+        assertEquals(3L, result.getBursts().getMax());
+    }
+
+    // bursts above the step rate are smoothed by a step up bucket
+    @Test
+    public void testStepUpBucketCapsBursts(){
+        StepUpLeakyTokenBucketStrategy bucket = new StepUpLeakyTokenBucketStrategy(MAX_TOKENS, 1, TimeUnit.MINUTES, 10, 100, TimeUnit.MILLISECONDS, ticker);
+        ArrivalTrace trace = ArrivalTrace.bursty(10, 10000, 5, 1, TimeUnit.SECONDS, SEED);
+        SimulationResult result = simulation.run(bucket, trace, 10, TimeUnit.MINUTES);
+
+        assertTrue(result.getRejected() > 0);
+        // tokens saved up while quiet, plus 10 tokens per step for 10 steps a window
+        assertTrue(result.getBursts().getMax() <= MAX_TOKENS + 10 * 10);
+    }
+
+    // same trace and strategy, same outcome
+    @Test
+    public void testRunsAreDeterministic(){
+        long[] admitted = new long[2];
+        for(int i = 0; i < admitted.length; i++){
+            ManualTicker manual = new ManualTicker();
+            FixedTokenBucketStrategy bucket = new FixedTokenBucketStrategy(MAX_TOKENS, REFILL_INTERVAL, REFILL_INTERVAL_TIME_UNIT, manual);
+            ArrivalTrace trace = ArrivalTrace.diurnal(80, 0.5, 1, TimeUnit.MINUTES, SEED);
+            admitted[i] = new Simulation(manual, 1, TimeUnit.SECONDS).run(bucket, trace, 10, TimeUnit.MINUTES).getAdmitted();
+        }
+
+        assertEquals(admitted[0], admitted[1]);
+    }
+}
@@ -0,0 +1,146 @@
+package me.sudohippie.throttle.snapshot;
+
+import me.sudohippie.throttle.KeyedThrottle;
+import me.sudohippie.throttle.strategy.bucket.AtomicFixedTokenBucketStrategy;
+import me.sudohippie.throttle.strategy.bucket.FixedTokenBucketStrategy;
+import me.sudohippie.throttle.strategy.bucket.RefillPolicy;
+import me.sudohippie.throttle.strategy.bucket.StepUpLeakyTokenBucketStrategy;
+import me.sudohippie.throttle.util.ManualTicker;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class SnapshotFileTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    long MAX_TOKENS = 10;
+    long REFILL_INTERVAL = 1000;
+    TimeUnit REFILL_INTERVAL_TIME_UNIT = TimeUnit.MILLISECONDS;
+    long TAKEN = 7;
+    long DOWNTIME = 100;
+
+    // tickers of the process saving and of the process restoring, with unrelated origins
+    ManualTicker before;
+    ManualTicker after;
+    ManualTicker wallClock;
+    SnapshotFile file;
+
+    @Before
+    public void setUp() throws Exception {
+        before = new ManualTicker();
+        after = new ManualTicker();
+        after.advance(1, TimeUnit.HOURS);
+        wallClock = new ManualTicker();
+        file = new SnapshotFile(folder.getRoot().toPath().resolve("throttle.snapshot"), wallClock);
+    }
+
+    // a restored bucket keeps its tokens and refill time, less the time it was down
+    @Test
+    public void testStrategyRoundTrip() throws IOException {
+        FixedTokenBucketStrategy saved = new FixedTokenBucketStrategy(MAX_TOKENS, REFILL_INTERVAL, REFILL_INTERVAL_TIME_UNIT, before);
+        assertFalse(saved.isThrottled(TAKEN));
+        file.save(saved);
+
+        wallClock.advance(DOWNTIME, TimeUnit.MILLISECONDS);
+        FixedTokenBucketStrategy restored = new FixedTokenBucketStrategy(MAX_TOKENS, REFILL_INTERVAL, REFILL_INTERVAL_TIME_UNIT, after);
+        assertTrue(file.restore(restored));
+
+        assertEquals(MAX_TOKENS - TAKEN, restored.getCurrentTokenCount());
+        assertEquals(REFILL_INTERVAL - DOWNTIME, restored.timeToRelease(MAX_TOKENS, TimeUnit.MILLISECONDS));
+    }
+
+    // a bucket down past its refill time is refilled on restore
+    @Test
+    public void testStrategyRestoredAfterRefillTime() throws IOException {
+        FixedTokenBucketStrategy saved = new FixedTokenBucketStrategy(MAX_TOKENS, REFILL_INTERVAL, REFILL_INTERVAL_TIME_UNIT, before);
+        assertFalse(saved.isThrottled(MAX_TOKENS));
+        file.save(saved);
+
+        wallClock.advance(REFILL_INTERVAL, REFILL_INTERVAL_TIME_UNIT);
+        FixedTokenBucketStrategy restored = new FixedTokenBucketStrategy(MAX_TOKENS, REFILL_INTERVAL, REFILL_INTERVAL_TIME_UNIT, after);
+        assertTrue(file.restore(restored));
+
+        assertEquals(MAX_TOKENS, restored.getCurrentTokenCount());
+    }
+
+    // step up buckets keep accumulating tokens while down
+    @Test
+    public void testStepUpRoundTrip() throws IOException {
+        StepUpLeakyTokenBucketStrategy saved = new StepUpLeakyTokenBucketStrategy(MAX_TOKENS, REFILL_INTERVAL, REFILL_INTERVAL_TIME_UNIT, 1, DOWNTIME, TimeUnit.MILLISECONDS, before);
+        assertFalse(saved.isThrottled());
+        assertEquals(0L, saved.getCurrentTokenCount());
+        file.save(saved);
+
+        wallClock.advance(2 * DOWNTIME, TimeUnit.MILLISECONDS);
+        StepUpLeakyTokenBucketStrategy restored = new StepUpLeakyTokenBucketStrategy(MAX_TOKENS, REFILL_INTERVAL, REFILL_INTERVAL_TIME_UNIT, 1, DOWNTIME, TimeUnit.MILLISECONDS, after);
+        assertTrue(file.restore(restored));
+
+        assertEquals(2L, restored.getCurrentTokenCount());
+    }
+
+    @Test
+    public void testAtomicStrategyRoundTrip() throws IOException {
+        AtomicFixedTokenBucketStrategy saved = new AtomicFixedTokenBucketStrategy(MAX_TOKENS, REFILL_INTERVAL, REFILL_INTERVAL_TIME_UNIT, before);
+        assertFalse(saved.isThrottled(TAKEN));
+        file.save(saved);
+
+        wallClock.advance(DOWNTIME, TimeUnit.MILLISECONDS);
+        AtomicFixedTokenBucketStrategy restored = new AtomicFixedTokenBucketStrategy(MAX_TOKENS, REFILL_INTERVAL, REFILL_INTERVAL_TIME_UNIT, after);
+        assertTrue(file.restore(restored));
+
+        assertEquals(MAX_TOKENS - TAKEN, restored.getCurrentTokenCount());
+        assertEquals(REFILL_INTERVAL - DOWNTIME, restored.timeToRelease(MAX_TOKENS, TimeUnit.MILLISECONDS));
+    }
+
+    // nothing to restore without a snapshot, or from one of another configuration
+    @Test
+    public void testRestoreRefused() throws IOException {
+        FixedTokenBucketStrategy strategy = new FixedTokenBucketStrategy(MAX_TOKENS, REFILL_INTERVAL, REFILL_INTERVAL_TIME_UNIT, before);
+        assertFalse(file.restore(strategy));
+
+        file.save(strategy);
+        assertFalse(file.restore(new FixedTokenBucketStrategy(MAX_TOKENS + 1, REFILL_INTERVAL, REFILL_INTERVAL_TIME_UNIT, after)));
+        assertFalse(file.restore(new FixedTokenBucketStrategy(MAX_TOKENS, REFILL_INTERVAL + 1, REFILL_INTERVAL_TIME_UNIT, after)));
+    }
+
+    @Test(expected = IOException.class)
+    public void testRestoreWhenFileIsCorrupt() throws IOException {
+        Files.write(file.getPath(), new byte[]{1, 2, 3});
+        file.restore(new FixedTokenBucketStrategy(MAX_TOKENS, REFILL_INTERVAL, REFILL_INTERVAL_TIME_UNIT, after));
+    }
+
+    @Test(expected = IOException.class)
+    public void testRestoreWhenSnapshotIsOfAnotherKind() throws IOException {
+        file.save(new FixedTokenBucketStrategy(MAX_TOKENS, REFILL_INTERVAL, REFILL_INTERVAL_TIME_UNIT, before));
+        file.restore(new KeyedThrottle<String>(RefillPolicy.fixed(MAX_TOKENS, REFILL_INTERVAL, REFILL_INTERVAL_TIME_UNIT)), KeyCodec.STRING);
+    }
+
+    // keyed buckets are restored, those reaching their refill time while down are not
+    @Test
+    public void testKeyedRoundTrip() throws IOException {
+        RefillPolicy policy = RefillPolicy.fixed(MAX_TOKENS, REFILL_INTERVAL, REFILL_INTERVAL_TIME_UNIT);
+        KeyedThrottle<String> saved = new KeyedThrottle<String>(policy, 4, before);
+        assertFalse(saved.isThrottled("early", MAX_TOKENS));
+        before.advance(REFILL_INTERVAL / 2, REFILL_INTERVAL_TIME_UNIT);
+        assertFalse(saved.isThrottled("late", TAKEN));
+        assertEquals(2, file.save(saved, KeyCodec.STRING));
+
+        wallClock.advance(REFILL_INTERVAL / 2 + DOWNTIME, REFILL_INTERVAL_TIME_UNIT);
+        KeyedThrottle<String> restored = new KeyedThrottle<String>(policy, 4, after);
+        assertEquals(1, file.restore(restored, KeyCodec.STRING));
+
+        assertEquals(1L, restored.size());
+        assertEquals(MAX_TOKENS - TAKEN, restored.getCurrentTokenCount("late"));
+        assertEquals(REFILL_INTERVAL / 2 - DOWNTIME, restored.timeToRelease("late", MAX_TOKENS, REFILL_INTERVAL_TIME_UNIT));
+        assertEquals(MAX_TOKENS, restored.getCurrentTokenCount("early"));
+    }
+}
@@ -0,0 +1,206 @@
+package me.sudohippie.throttle.strategy;
+
+import me.sudohippie.throttle.strategy.bucket.AtomicFixedTokenBucketStrategy;
+import me.sudohippie.throttle.strategy.bucket.FixedTokenBucketStrategy;
+import me.sudohippie.throttle.strategy.window.SlidingWindowCounterStrategy;
+import me.sudohippie.throttle.strategy.window.SlidingWindowLogStrategy;
+import me.sudohippie.throttle.util.ManualTicker;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class CompositeThrottleStrategyTest {
+
+    /* test state */
+    @Test(expected = IllegalArgumentException.class)
+    public void testWhenNoChildren(){
+        new CompositeThrottleStrategy();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWhenChildIsNull(){
+        new CompositeThrottleStrategy(new FixedTokenBucketStrategy(1, 1, TimeUnit.SECONDS), null);
+    }
+
+    // tokens taken from a child without refunds could not be given back
+    @Test(expected = IllegalArgumentException.class)
+    public void testWhenChildDoesNotSupportRefunds(){
+        new CompositeThrottleStrategy(withoutRefunds(), new FixedTokenBucketStrategy(1, 1, TimeUnit.SECONDS));
+    }
+
+    // the last child is never refunded by a throttled request
+    @Test
+    public void testWhenLastChildDoesNotSupportRefunds(){
+        CompositeThrottleStrategy composite = new CompositeThrottleStrategy(new FixedTokenBucketStrategy(1, 1, TimeUnit.SECONDS), withoutRefunds());
+
+        assertFalse(composite.supportsRefund());
+        assertTrue(new CompositeThrottleStrategy(new FixedTokenBucketStrategy(1, 1, TimeUnit.SECONDS)).supportsRefund());
+    }
+
+    /* test logic */
+    long USER_TOKENS = 5;
+    long TENANT_TOKENS = 8;
+    long GLOBAL_TOKENS = 10;
+    long REFILL_INTERVAL = 500;
+    TimeUnit REFILL_INTERVAL_TIME_UNIT = TimeUnit.MILLISECONDS;
+
+    ManualTicker ticker;
+    FixedTokenBucketStrategy user;
+    FixedTokenBucketStrategy otherUser;
+    FixedTokenBucketStrategy tenant;
+    FixedTokenBucketStrategy global;
+
+    @Before
+    public void setUp() throws Exception {
+        ticker = new ManualTicker();
+        user = new FixedTokenBucketStrategy(USER_TOKENS, REFILL_INTERVAL, REFILL_INTERVAL_TIME_UNIT, ticker);
+        otherUser = new FixedTokenBucketStrategy(USER_TOKENS, REFILL_INTERVAL, REFILL_INTERVAL_TIME_UNIT, ticker);
+        tenant = new FixedTokenBucketStrategy(TENANT_TOKENS, REFILL_INTERVAL, REFILL_INTERVAL_TIME_UNIT, ticker);
+        global = new FixedTokenBucketStrategy(GLOBAL_TOKENS, REFILL_INTERVAL, REFILL_INTERVAL_TIME_UNIT, ticker);
+    }
+
+    @Test
+    public void testTokensTakenFromEveryChild(){
+        CompositeThrottleStrategy composite = new CompositeThrottleStrategy(user, tenant, global);
+
+        assertFalse(composite.isThrottled(2));
+        assertEquals(USER_TOKENS - 2, user.getCurrentTokenCount());
+        assertEquals(TENANT_TOKENS - 2, tenant.getCurrentTokenCount());
+        assertEquals(GLOBAL_TOKENS - 2, global.getCurrentTokenCount());
+        assertEquals(USER_TOKENS - 2, composite.getCurrentTokenCount());
+        assertEquals(USER_TOKENS, composite.getCapacity());
+    }
+
+    // a later child throttling leaves the earlier children untouched
+    @Test
+    public void testWhenLaterChildThrottlesEarlierAreRefunded(){
+        CompositeThrottleStrategy composite = new CompositeThrottleStrategy(user, tenant, global);
+        assertFalse(global.isThrottled(GLOBAL_TOKENS - 1));
+
+        assertTrue(composite.isThrottled(2));
+        assertEquals(USER_TOKENS, user.getCurrentTokenCount());
+        assertEquals(TENANT_TOKENS, tenant.getCurrentTokenCount());
+        assertEquals(1L, global.getCurrentTokenCount());
+
+        assertFalse(composite.isThrottled(1));
+    }
+
+    // composites nest, users of a tenant share the tenant and global limits
+    @Test
+    public void testNestedComposites(){
+        CompositeThrottleStrategy shared = new CompositeThrottleStrategy(tenant, global);
+        CompositeThrottleStrategy first = new CompositeThrottleStrategy(user, shared);
+        CompositeThrottleStrategy second = new CompositeThrottleStrategy(otherUser, shared);
+
+        assertFalse(first.isThrottled(USER_TOKENS));
+        assertTrue(first.isThrottled());
+        assertFalse(second.isThrottled(TENANT_TOKENS - USER_TOKENS));
+        assertTrue(second.isThrottled());
+
+        assertEquals(USER_TOKENS - (TENANT_TOKENS - USER_TOKENS), otherUser.getCurrentTokenCount());
+        assertEquals(0L, tenant.getCurrentTokenCount());
+    }
+
+    @Test
+    public void testNextReleaseIsLatestOfChildren(){
+        CompositeThrottleStrategy composite = new CompositeThrottleStrategy(user, global);
+        assertFalse(user.isThrottled(USER_TOKENS));
+        ticker.advance(100, REFILL_INTERVAL_TIME_UNIT);
+        assertFalse(global.isThrottled(GLOBAL_TOKENS));
+
+        assertEquals(REFILL_INTERVAL, composite.timeToRelease(1, REFILL_INTERVAL_TIME_UNIT));
+    }
+
+    @Test
+    public void testRefundGivesBackToEveryChild(){
+        CompositeThrottleStrategy composite = new CompositeThrottleStrategy(user, global);
+        assertFalse(composite.isThrottled(3));
+
+        composite.refund(2);
+        assertEquals(USER_TOKENS - 1, user.getCurrentTokenCount());
+        assertEquals(GLOBAL_TOKENS - 1, global.getCurrentTokenCount());
+    }
+
+    // window strategies are refunded like buckets when a later child throttles
+    @Test
+    public void testWindowChildrenAreRefunded(){
+        SlidingWindowCounterStrategy counter = new SlidingWindowCounterStrategy(USER_TOKENS, REFILL_INTERVAL, REFILL_INTERVAL_TIME_UNIT, ticker);
+        SlidingWindowLogStrategy log = new SlidingWindowLogStrategy((int) TENANT_TOKENS, REFILL_INTERVAL, REFILL_INTERVAL_TIME_UNIT, ticker);
+        CompositeThrottleStrategy composite = new CompositeThrottleStrategy(counter, log, global);
+        assertFalse(global.isThrottled(GLOBAL_TOKENS - 1));
+
+        assertTrue(composite.isThrottled(2));
+        assertEquals(USER_TOKENS, counter.getCurrentTokenCount());
+        assertEquals(TENANT_TOKENS, log.getCurrentTokenCount());
+
+        assertFalse(composite.isThrottled(1));
+        assertEquals(USER_TOKENS - 1, counter.getCurrentTokenCount());
+        assertEquals(TENANT_TOKENS - 1, log.getCurrentTokenCount());
+    }
+
+    // composites sharing children in opposite orders neither deadlock nor exceed the shared limit
+    @Test(timeout = 10000)
+    public void testOppositeOrdersDoNotDeadlock() throws InterruptedException {
+        final long capacity = 100000;
+        final ThrottleStrategy a = new AtomicFixedTokenBucketStrategy(capacity, 1, TimeUnit.HOURS);
+        final ThrottleStrategy b = new FixedTokenBucketStrategy(capacity, 1, TimeUnit.HOURS);
+        final CompositeThrottleStrategy[] composites = {new CompositeThrottleStrategy(a, b), new CompositeThrottleStrategy(b, a)};
+        final AtomicLong granted = new AtomicLong();
+        final CountDownLatch start = new CountDownLatch(1);
+
+        Thread[] threads = new Thread[8];
+        for(int i = 0; i < threads.length; i++){
+            final CompositeThrottleStrategy composite = composites[i % 2];
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for(int j = 0; j < capacity / 4; j++){
+                        if(!composite.isThrottled()) granted.incrementAndGet();
+                    }
+                }
+            });
+            threads[i].start();
+        }
+
+        start.countDown();
+        for(Thread thread : threads) thread.join();
+
+        assertEquals(capacity, granted.get());
+        assertEquals(0L, composites[0].getCurrentTokenCount());
+    }
+
+    // strategy relying on the default, unsupported refund
+    private static ThrottleStrategy withoutRefunds() {
+        return new ThrottleStrategy() {
+            @Override
+            public boolean isThrottled() {
+                return false;
+            }
+
+            @Override
+            public boolean isThrottled(long n) {
+                return false;
+            }
+
+            @Override
+            public long timeToRelease(long n, TimeUnit timeUnit) {
+                return 0;
+            }
+
+            @Override
+            public long getCapacity() {
+                return 1;
+            }
+        };
+    }
+}
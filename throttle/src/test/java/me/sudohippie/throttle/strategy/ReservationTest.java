@@ -0,0 +1,112 @@
+package me.sudohippie.throttle.strategy;
+
+import me.sudohippie.throttle.strategy.bucket.FixedTokenBucketStrategy;
+import me.sudohippie.throttle.util.ManualTicker;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ReservationTest {
+
+    long MAX_TOKENS = 10;
+    long REFILL_INTERVAL = 500;
+    TimeUnit REFILL_INTERVAL_TIME_UNIT = TimeUnit.MILLISECONDS;
+
+    ManualTicker ticker;
+    FixedTokenBucketStrategy bucket;
+
+    @Before
+    public void setUp() throws Exception {
+        ticker = new ManualTicker();
+        bucket = new FixedTokenBucketStrategy(MAX_TOKENS, REFILL_INTERVAL, REFILL_INTERVAL_TIME_UNIT, ticker);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testReserveMoreThanCapacity(){
+        bucket.reserve(MAX_TOKENS + 1);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testReserveWhenNotSupported(){
+        new CompositeThrottleStrategy(bucket).reserve(1);
+    }
+
+    // available tokens are reserved right away
+    @Test
+    public void testReservationOfAvailableTokensIsValid(){
+        Reservation reservation = bucket.reserve(4);
+
+        assertTrue(reservation.isValid());
+        assertEquals(0L, reservation.getDelay(TimeUnit.MILLISECONDS));
+        assertEquals(MAX_TOKENS - 4, bucket.getCurrentTokenCount());
+    }
+
+    // missing tokens are reserved ahead, paid at the next refill
+    @Test
+    public void testReservationAheadIsValidAtRefill(){
+        assertFalse(bucket.isThrottled(MAX_TOKENS - 2));
+
+        Reservation reservation = bucket.reserve(5);
+        assertFalse(reservation.isValid());
+        assertEquals(REFILL_INTERVAL, reservation.getDelay(TimeUnit.MILLISECONDS));
+        assertEquals(REFILL_INTERVAL, bucket.timeToRelease(1, TimeUnit.MILLISECONDS));
+        assertTrue(bucket.isThrottled());
+
+        ticker.advance(REFILL_INTERVAL, REFILL_INTERVAL_TIME_UNIT);
+        assertTrue(reservation.isValid());
+        assertEquals(MAX_TOKENS - 3, bucket.getCurrentTokenCount());
+    }
+
+    // reservations run at most one interval ahead
+    @Test
+    public void testReservationBeyondNextIntervalIsRefused(){
+        assertNotNull(bucket.reserve(MAX_TOKENS));
+        assertNotNull(bucket.reserve(MAX_TOKENS));
+        assertNull(bucket.reserve(1));
+    }
+
+    @Test
+    public void testPartialRefundGivesBackTokens(){
+        Reservation reservation = bucket.reserve(6);
+
+        reservation.refund(4);
+        assertEquals(2L, reservation.getTokens());
+        assertEquals(MAX_TOKENS - 2, bucket.getCurrentTokenCount());
+
+        reservation.commit();
+        assertEquals(MAX_TOKENS - 2, bucket.getCurrentTokenCount());
+    }
+
+    // cancelling a reservation ahead frees the next refill
+    @Test
+    public void testCancelReservationAhead(){
+        assertFalse(bucket.isThrottled(MAX_TOKENS));
+        Reservation reservation = bucket.reserve(MAX_TOKENS);
+
+        reservation.cancel();
+        ticker.advance(REFILL_INTERVAL, REFILL_INTERVAL_TIME_UNIT);
+        assertEquals(MAX_TOKENS, bucket.getCurrentTokenCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRefundMoreThanReserved(){
+        bucket.reserve(2).refund(3);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testRefundAfterCommit(){
+        Reservation reservation = bucket.reserve(2);
+        reservation.commit();
+        reservation.refund(1);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testCancelTwice(){
+        Reservation reservation = bucket.reserve(2);
+        reservation.cancel();
+        reservation.cancel();
+    }
+}
@@ -0,0 +1,115 @@
+package me.sudohippie.throttle.strategy.adaptive;
+
+import me.sudohippie.throttle.Throttle;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class AdaptiveConcurrencyStrategyTest {
+
+    /* test state */
+    // test limit when null
+    @Test(expected = IllegalArgumentException.class)
+    public void testWhenLimitIsNull(){
+        new AdaptiveConcurrencyStrategy(null);
+    }
+
+    // test limit when min is greater than max
+    @Test(expected = IllegalArgumentException.class)
+    public void testWhenMinLimitIsGreaterThanMax(){
+        new AimdLimit(5, 10, 5);
+    }
+
+    /* test logic */
+    int INITIAL_LIMIT = 4;
+    int MIN_LIMIT = 1;
+    int MAX_LIMIT = 8;
+    long LATENCY = 10;
+    TimeUnit LATENCY_TIME_UNIT = TimeUnit.MILLISECONDS;
+
+    AdaptiveConcurrencyStrategy strategy;
+
+    @Before
+    public void setUp() throws Exception {
+        strategy = new AdaptiveConcurrencyStrategy(new AimdLimit(INITIAL_LIMIT, MIN_LIMIT, MAX_LIMIT));
+    }
+
+    // requests are admitted up to the limit, completions make room again
+    @Test
+    public void testThrottledAtLimitUntilCompletion(){
+        assertFalse(strategy.isThrottled(INITIAL_LIMIT));
+        assertTrue(strategy.isThrottled());
+        assertEquals(0L, strategy.getCurrentTokenCount());
+
+        strategy.onSuccess(1, LATENCY, LATENCY_TIME_UNIT);
+        assertFalse(strategy.isThrottled());
+    }
+
+    // successes with the limit in use raise it, drops lower it
+    @Test
+    public void testLimitFollowsSamples(){
+        assertFalse(strategy.isThrottled(INITIAL_LIMIT));
+        strategy.onSuccess(1, LATENCY, LATENCY_TIME_UNIT);
+        assertEquals(INITIAL_LIMIT + 1, strategy.getLimit());
+
+        strategy.onDropped(1, LATENCY, LATENCY_TIME_UNIT);
+        assertEquals((int) Math.floor((INITIAL_LIMIT + 1) * 0.9), strategy.getLimit());
+        assertEquals(INITIAL_LIMIT - 2, strategy.getInFlight());
+    }
+
+    // refunds release tokens without moving the limit
+    @Test
+    public void testRefundDoesNotSample(){
+        assertFalse(strategy.isThrottled(INITIAL_LIMIT));
+        strategy.refund(INITIAL_LIMIT);
+
+        assertEquals(INITIAL_LIMIT, strategy.getLimit());
+        assertEquals(0L, strategy.getInFlight());
+    }
+
+    // a request above the limit is admitted alone, never above the max limit
+    @Test
+    public void testRequestAboveLimit(){
+        assertTrue(strategy.isThrottled(MAX_LIMIT + 1));
+        assertEquals(0L, strategy.timeToRelease(MAX_LIMIT, TimeUnit.NANOSECONDS));
+        assertFalse(strategy.isThrottled(MAX_LIMIT));
+        assertTrue(strategy.isThrottled());
+    }
+
+    // time to release is estimated from the latency of requests in flight
+    @Test
+    public void testTimeToReleaseWhenAtLimit(){
+        assertEquals(0L, strategy.timeToRelease(INITIAL_LIMIT, TimeUnit.MILLISECONDS));
+
+        assertFalse(strategy.isThrottled(INITIAL_LIMIT));
+        long timeToRelease = strategy.timeToRelease(1, TimeUnit.NANOSECONDS);
+        assertTrue(timeToRelease > 0);
+    }
+
+    // the throttle facade waits for a completion
+    @Test
+    public void testThrottleAcquireWaitsForCompletion() throws InterruptedException {
+        final Throttle throttle = new Throttle(strategy);
+        throttle.acquire(INITIAL_LIMIT);
+        assertFalse(throttle.tryAcquire(1, 0, TimeUnit.MILLISECONDS));
+
+        Thread completion = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                strategy.onSuccess(1, LATENCY, LATENCY_TIME_UNIT);
+            }
+        });
+        completion.start();
+
+        assertTrue(throttle.tryAcquire(1, 5, TimeUnit.SECONDS));
+        completion.join();
+    }
+}
@@ -0,0 +1,96 @@
+package me.sudohippie.throttle.strategy.adaptive;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class AdaptiveLimitTest {
+
+    int INITIAL_LIMIT = 20;
+    int MIN_LIMIT = 1;
+    int MAX_LIMIT = 200;
+    long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+    long SLOW = TimeUnit.MILLISECONDS.toNanos(100);
+    int SAMPLES = 100;
+
+    // feeds samples with the limit fully in use
+    private void sample(AdaptiveLimit limit, long rtt, boolean dropped, int samples) {
+        for(int i = 0; i < samples; i++) limit.onSample(rtt, limit.getLimit(), dropped);
+    }
+
+    // test initial limit outside the bounds
+    @Test(expected = IllegalArgumentException.class)
+    public void testWhenInitialLimitIsAboveMax(){
+        new VegasLimit(MAX_LIMIT + 1, MIN_LIMIT, MAX_LIMIT);
+    }
+
+    // aimd grows by one per success, backs off on drops and timeouts, never below min
+    @Test
+    public void testAimd(){
+        AimdLimit limit = new AimdLimit(INITIAL_LIMIT, MIN_LIMIT, MAX_LIMIT, 0.5, 50, TimeUnit.MILLISECONDS);
+
+        sample(limit, FAST, false, 5);
+        assertEquals(INITIAL_LIMIT + 5, limit.getLimit());
+
+        sample(limit, FAST, true, 1);
+        assertEquals((INITIAL_LIMIT + 5) / 2, limit.getLimit());
+
+        sample(limit, SLOW, false, SAMPLES);
+        assertEquals(MIN_LIMIT, limit.getLimit());
+    }
+
+    // a limit mostly unused is not raised
+    @Test
+    public void testAimdWhenApplicationLimited(){
+        AimdLimit limit = new AimdLimit(INITIAL_LIMIT, MIN_LIMIT, MAX_LIMIT);
+        for(int i = 0; i < SAMPLES; i++) limit.onSample(FAST, 1, false);
+
+        assertEquals(INITIAL_LIMIT, limit.getLimit());
+    }
+
+    // vegas grows while latency stays at no load latency and shrinks once requests queue
+    @Test
+    public void testVegas(){
+        VegasLimit limit = new VegasLimit(INITIAL_LIMIT, MIN_LIMIT, MAX_LIMIT);
+
+        sample(limit, FAST, false, SAMPLES);
+        int grown = limit.getLimit();
+        assertTrue(grown > INITIAL_LIMIT);
+
+        sample(limit, SLOW, false, SAMPLES);
+        assertTrue(limit.getLimit() < grown);
+    }
+
+    // vegas shrinks on drops
+    @Test
+    public void testVegasWhenDropped(){
+        VegasLimit limit = new VegasLimit(INITIAL_LIMIT, MIN_LIMIT, MAX_LIMIT);
+
+        sample(limit, FAST, true, 1);
+        assertTrue(limit.getLimit() < INITIAL_LIMIT);
+    }
+
+    // gradient grows while latency is steady and shrinks when it rises
+    @Test
+    public void testGradient(){
+        GradientLimit limit = new GradientLimit(INITIAL_LIMIT, MIN_LIMIT, MAX_LIMIT);
+
+        sample(limit, FAST, false, SAMPLES);
+        int grown = limit.getLimit();
+        assertTrue(grown > INITIAL_LIMIT);
+
+        sample(limit, SLOW, false, 20);
+        assertTrue(limit.getLimit() < grown);
+    }
+
+    // gradient halves its target on drops
+    @Test
+    public void testGradientWhenDropped(){
+        GradientLimit limit = new GradientLimit(INITIAL_LIMIT, MIN_LIMIT, MAX_LIMIT);
+
+        sample(limit, FAST, true, SAMPLES);
+        assertTrue(limit.getLimit() < INITIAL_LIMIT);
+    }
+}
@@ -0,0 +1,171 @@
+package me.sudohippie.throttle.strategy.bucket;
+
+import me.sudohippie.throttle.metrics.RefillListener;
+import me.sudohippie.throttle.strategy.ThrottleStrategy;
+import me.sudohippie.throttle.util.ManualTicker;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class AtomicFixedTokenBucketTest {
+
+    /* test state */
+    // test max token when negative
+    @Test(expected = IllegalArgumentException.class)
+    public void testWhenMaxTokenIsNegative(){
+        new AtomicFixedTokenBucketStrategy(-1, 0, TimeUnit.MILLISECONDS);
+    }
+
+    // test refill interval when negative
+    @Test(expected = IllegalArgumentException.class)
+    public void testWhenRefillIntervalIsNegative(){
+        new AtomicFixedTokenBucketStrategy(0, -1, TimeUnit.MILLISECONDS);
+    }
+
+    /* test logic */
+    long MAX_TOKENS = 10;
+    long REFILL_INTERVAL = 500;
+    TimeUnit REFILL_INTERVAL_TIME_UNIT = TimeUnit.MILLISECONDS;
+
+    long N_LESS_THAN_MAX = 2;
+    long N_GREATER_THAN_MAX = 12;
+    int CUMULATIVE = 3;
+
+    ManualTicker ticker;
+    AtomicFixedTokenBucketStrategy bucket;
+
+    @Before
+    public void setUp() throws Exception {
+        ticker = new ManualTicker();
+        bucket = new AtomicFixedTokenBucketStrategy(MAX_TOKENS, REFILL_INTERVAL, REFILL_INTERVAL_TIME_UNIT, ticker);
+    }
+
+    @Test
+    public void testWhenNIsLessThanMaxTokens(){
+        assertFalse(bucket.isThrottled(N_LESS_THAN_MAX));
+        assertEquals(MAX_TOKENS - N_LESS_THAN_MAX, bucket.getCurrentTokenCount());
+    }
+
+    @Test
+    public void testWhenNIsGreaterThanMaxTokens() {
+        assertTrue(bucket.isThrottled(N_GREATER_THAN_MAX));
+        assertEquals(MAX_TOKENS, bucket.getCurrentTokenCount());
+    }
+
+    @Test
+    public void testWhenCumulativeNIsLessThanMaxTokens() {
+        for(int i = 0; i < CUMULATIVE; i++) assertFalse(bucket.isThrottled(N_LESS_THAN_MAX));
+
+        assertEquals(MAX_TOKENS - (CUMULATIVE * N_LESS_THAN_MAX), bucket.getCurrentTokenCount());
+    }
+
+    // exhaust tokens, advance by the refill interval, bucket is full again
+    @Test
+    public void testWhenTokensExhaustedSleepRefilled() {
+        assertFalse(bucket.isThrottled(MAX_TOKENS));
+        assertTrue(bucket.isThrottled());
+
+        ticker.advance(REFILL_INTERVAL, REFILL_INTERVAL_TIME_UNIT);
+
+        assertFalse(bucket.isThrottled(N_LESS_THAN_MAX));
+        assertEquals(MAX_TOKENS - N_LESS_THAN_MAX, bucket.getCurrentTokenCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNextReleaseWhenInputParamIsNegative(){
+        bucket.timeToRelease(-1L, TimeUnit.MILLISECONDS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNextReleaseWhenInputParamIsNull(){
+        bucket.timeToRelease(1L, null);
+    }
+
+    @Test
+    public void testNextReleaseWhenTokensExistInInterval(){
+        assertEquals(0L, bucket.timeToRelease(1, TimeUnit.MILLISECONDS));
+        assertEquals(0L, bucket.timeToRelease(MAX_TOKENS, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testNextReleaseWhenTokensAreExhaustedWithInInterval() {
+        bucket.isThrottled(MAX_TOKENS);
+        long nextRelease = bucket.timeToRelease(1L, TimeUnit.MILLISECONDS);
+
+        assertEquals(REFILL_INTERVAL_TIME_UNIT.toMillis(REFILL_INTERVAL), nextRelease);
+
+        ticker.advance(nextRelease, TimeUnit.MILLISECONDS);
+
+        assertEquals(0L, bucket.timeToRelease(1L, TimeUnit.MILLISECONDS));
+    }
+
+    // many threads racing for tokens, exactly capacity tokens are granted with in an interval
+    @Test
+    public void testConcurrentThrottleGrantsExactlyCapacity() throws InterruptedException {
+        final long capacity = 100000;
+        final AtomicFixedTokenBucketStrategy shared = new AtomicFixedTokenBucketStrategy(capacity, 1, TimeUnit.HOURS);
+        final AtomicLong granted = new AtomicLong();
+        final CountDownLatch start = new CountDownLatch(1);
+
+        Thread[] threads = new Thread[8];
+        for(int i = 0; i < threads.length; i++){
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for(int j = 0; j < capacity / 4; j++){
+                        if(!shared.isThrottled()) granted.incrementAndGet();
+                    }
+                }
+            });
+            threads[i].start();
+        }
+
+        start.countDown();
+        for(Thread thread : threads) thread.join();
+
+        assertEquals(capacity, granted.get());
+        assertEquals(0L, shared.getCurrentTokenCount());
+    }
+
+    // refill listener is notified once per refill interval
+    @Test
+    public void testRefillListenerNotifiedOnRefill(){
+        final AtomicLong refills = new AtomicLong();
+        bucket.setRefillListener(new RefillListener() {
+            @Override
+            public void onRefill(ThrottleStrategy strategy, long tokens) {
+                refills.incrementAndGet();
+                assertEquals(MAX_TOKENS, tokens);
+            }
+        });
+
+        assertFalse(bucket.isThrottled(MAX_TOKENS));
+        assertTrue(bucket.isThrottled());
+        assertEquals(1L, refills.get());
+
+        ticker.advance(REFILL_INTERVAL, REFILL_INTERVAL_TIME_UNIT);
+        assertFalse(bucket.isThrottled());
+        assertEquals(2L, refills.get());
+    }
+
+    // refunded tokens are available again, never beyond capacity
+    @Test
+    public void testRefundGivesBackTokens(){
+        assertFalse(bucket.isThrottled(MAX_TOKENS));
+        bucket.refund(N_LESS_THAN_MAX);
+        assertEquals(N_LESS_THAN_MAX, bucket.getCurrentTokenCount());
+
+        bucket.refund(N_GREATER_THAN_MAX);
+        assertEquals(MAX_TOKENS, bucket.getCurrentTokenCount());
+    }
+}
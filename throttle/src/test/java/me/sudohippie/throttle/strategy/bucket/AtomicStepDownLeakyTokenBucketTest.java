@@ -0,0 +1,65 @@
+package me.sudohippie.throttle.strategy.bucket;
+
+import me.sudohippie.throttle.util.ManualTicker;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class AtomicStepDownLeakyTokenBucketTest {
+    /* test state */
+    @Test(expected = IllegalArgumentException.class)
+    public void testWhenMaxTokensIsNegative() throws Exception {
+        new AtomicStepDownLeakyTokenBucketStrategy(-1, REFILL_INTERVAL, TimeUnit.MILLISECONDS, STEP_TOKENS, STEP_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWhenRefillIntervalIsNegative() throws Exception {
+        new AtomicStepDownLeakyTokenBucketStrategy(MAX_TOKENS, -1, TimeUnit.MILLISECONDS, STEP_TOKENS, STEP_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    /* test behaviour for given state */
+    private final long MAX_TOKENS = 10;
+    private final long REFILL_INTERVAL = 1000L;
+    private final long STEP_TOKENS = 2;
+    private final long STEP_INTERVAL = 200L;
+
+    private ManualTicker ticker;
+    private AtomicStepDownLeakyTokenBucketStrategy bucket;
+
+    @Before
+    public void setUp() throws Exception {
+        ticker = new ManualTicker();
+        bucket = new AtomicStepDownLeakyTokenBucketStrategy(MAX_TOKENS, REFILL_INTERVAL, TimeUnit.MILLISECONDS, STEP_TOKENS, STEP_INTERVAL, TimeUnit.MILLISECONDS, ticker);
+    }
+
+    @Test
+    public void testTokensEqualsMaxAtFirstStep() throws Exception {
+        assertEquals(MAX_TOKENS, bucket.getCurrentTokenCount());
+    }
+
+    // advance by every step interval, tokens must be equal to max - (i*stepTokens) at each interval
+    @Test
+    public void testTokensAtEachStepIntervalIsCorrect() throws Exception {
+        for(int i = 0; i < (REFILL_INTERVAL / STEP_INTERVAL); i ++){
+            assertEquals(MAX_TOKENS - (i * STEP_TOKENS), bucket.getCurrentTokenCount());
+            ticker.advance(STEP_INTERVAL, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // throttle max, throttled till end of interval, full bucket at beginning of next interval
+    @Test
+    public void testThrottledTillEndOfIntervalAfterThrottleMaxOnce() throws Exception {
+        assertFalse(bucket.isThrottled(MAX_TOKENS));
+
+        for(int i = 1; i < (REFILL_INTERVAL / STEP_INTERVAL); i ++){
+            ticker.advance(STEP_INTERVAL, TimeUnit.MILLISECONDS);
+            assertTrue(bucket.isThrottled());
+        }
+
+        ticker.advance(STEP_INTERVAL, TimeUnit.MILLISECONDS);
+        assertEquals(MAX_TOKENS, bucket.getCurrentTokenCount());
+    }
+}
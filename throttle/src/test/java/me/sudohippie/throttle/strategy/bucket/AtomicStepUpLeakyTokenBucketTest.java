@@ -0,0 +1,84 @@
+package me.sudohippie.throttle.strategy.bucket;
+
+import me.sudohippie.throttle.util.ManualTicker;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class AtomicStepUpLeakyTokenBucketTest {
+    /* test state */
+    @Test(expected = IllegalArgumentException.class)
+    public void testMaxTokensCanNotBeNegative() throws Exception {
+        new AtomicStepUpLeakyTokenBucketStrategy(-1, REFILL_INTERVAL, TimeUnit.MILLISECONDS, STEP_TOKENS, STEP_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testStepTokensCanNotBeNegative() throws Exception {
+        new AtomicStepUpLeakyTokenBucketStrategy(MAX_TOKENS, REFILL_INTERVAL, TimeUnit.MILLISECONDS, -1, STEP_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testStepIntervalCanNotBeNegative() throws Exception {
+        new AtomicStepUpLeakyTokenBucketStrategy(MAX_TOKENS, REFILL_INTERVAL, TimeUnit.MILLISECONDS, STEP_TOKENS, -1, TimeUnit.MILLISECONDS);
+    }
+
+    /* test behaviour for given state */
+    private final long MAX_TOKENS = 10;
+    private final long REFILL_INTERVAL = 1000L;
+    private final long STEP_TOKENS = 2;
+    private final long STEP_INTERVAL = 200L;
+
+    private ManualTicker ticker;
+    private AtomicStepUpLeakyTokenBucketStrategy bucket;
+
+    @Before
+    public void setUp() throws Exception {
+        ticker = new ManualTicker();
+        bucket = new AtomicStepUpLeakyTokenBucketStrategy(MAX_TOKENS, REFILL_INTERVAL, TimeUnit.MILLISECONDS, STEP_TOKENS, STEP_INTERVAL, TimeUnit.MILLISECONDS, ticker);
+    }
+
+    // for each step, token count must increase as (i*stepTokens) where i=1 <= n
+    @Test
+    public void testTokenCountIsCorrectAtEachStepWithInInterval() throws Exception {
+        for (int i = 1; i <= (REFILL_INTERVAL/STEP_INTERVAL); i ++){
+            assertEquals(STEP_TOKENS * i, bucket.getCurrentTokenCount());
+
+            ticker.advance(STEP_INTERVAL, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // for each step, throttle should be false when n <= stepTokens
+    @Test
+    public void testThrottleIsFalseAtEachStepWithInInterval() throws Exception {
+        for (int i = 1; i <= (REFILL_INTERVAL/STEP_INTERVAL); i ++){
+            assertFalse(bucket.isThrottled(STEP_TOKENS));
+
+            ticker.advance(STEP_INTERVAL, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // At the start of next interval, tokens should equal stepTokens
+    @Test
+    public void testTokensEqualsStepTokensAtStartOfNextInterval() throws Exception {
+        bucket.isThrottled();
+
+        ticker.advance(REFILL_INTERVAL, TimeUnit.MILLISECONDS);
+
+        assertEquals(STEP_TOKENS, bucket.getCurrentTokenCount());
+    }
+
+    // polled every half step, partial steps still add up to a token per step
+    @Test
+    public void testPartialStepsAccumulate() throws Exception {
+        assertFalse(bucket.isThrottled(STEP_TOKENS));
+
+        for(int i = 1; i <= 8; i++){
+            ticker.advance(STEP_INTERVAL / 2, TimeUnit.MILLISECONDS);
+            assertEquals((i / 2) * STEP_TOKENS, bucket.getCurrentTokenCount());
+        }
+    }
+}
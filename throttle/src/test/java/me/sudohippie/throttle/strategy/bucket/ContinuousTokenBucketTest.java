@@ -0,0 +1,131 @@
+package me.sudohippie.throttle.strategy.bucket;
+
+import me.sudohippie.throttle.util.ManualTicker;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ContinuousTokenBucketTest {
+
+    /* test state */
+    @Test(expected = IllegalArgumentException.class)
+    public void testWhenMaxTokenIsNegative(){
+        new ContinuousTokenBucketStrategy(-1, 1, TimeUnit.SECONDS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWhenMaxTokenIsZero(){
+        new ContinuousTokenBucketStrategy(0, 1, TimeUnit.SECONDS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWhenRefillIntervalIsNotPositive(){
+        new ContinuousTokenBucketStrategy(1, 0, TimeUnit.SECONDS);
+    }
+
+    // capacity in fixed point units overflows
+    @Test(expected = IllegalArgumentException.class)
+    public void testWhenCapacityTooLargeForInterval(){
+        new ContinuousTokenBucketStrategy(Long.MAX_VALUE / 2, 7, TimeUnit.NANOSECONDS);
+    }
+
+    /* test logic */
+    long MAX_TOKENS = 10;
+    long REFILL_INTERVAL = 1000;
+    TimeUnit REFILL_INTERVAL_TIME_UNIT = TimeUnit.MILLISECONDS;
+
+    ManualTicker ticker;
+    ContinuousTokenBucketStrategy bucket;
+
+    @Before
+    public void setUp() throws Exception {
+        ticker = new ManualTicker();
+        bucket = new ContinuousTokenBucketStrategy(MAX_TOKENS, REFILL_INTERVAL, REFILL_INTERVAL_TIME_UNIT, ticker);
+    }
+
+    @Test
+    public void testBucketStartsFull(){
+        assertEquals(MAX_TOKENS, bucket.getCurrentTokenCount());
+        assertFalse(bucket.isThrottled(MAX_TOKENS));
+        assertTrue(bucket.isThrottled());
+    }
+
+    @Test
+    public void testWhenNIsGreaterThanMaxTokens(){
+        assertTrue(bucket.isThrottled(MAX_TOKENS + 1));
+        assertEquals(MAX_TOKENS, bucket.getCurrentTokenCount());
+    }
+
+    // polled every half token, exactly a token per tenth of the interval is granted
+    @Test
+    public void testRefillsAtRateWhenPolledOften(){
+        assertFalse(bucket.isThrottled(MAX_TOKENS));
+
+        long granted = 0;
+        for(int i = 0; i < 200; i++){
+            ticker.advance(REFILL_INTERVAL / MAX_TOKENS / 2, REFILL_INTERVAL_TIME_UNIT);
+            if(!bucket.isThrottled()) granted++;
+        }
+        assertEquals(100L, granted);
+    }
+
+    // 3 tokens every 10 nanos, one token every 3.33 nanos
+    @Test
+    public void testFractionalRate(){
+        ContinuousTokenBucketStrategy fractional = new ContinuousTokenBucketStrategy(3, 10, TimeUnit.NANOSECONDS, ticker);
+        assertFalse(fractional.isThrottled(3));
+
+        long granted = 0;
+        for(int i = 0; i < 1000; i++){
+            ticker.advance(1, TimeUnit.NANOSECONDS);
+            if(!fractional.isThrottled()) granted++;
+        }
+        assertEquals(300L, granted);
+    }
+
+    @Test
+    public void testTimeToReleaseIsExact(){
+        ContinuousTokenBucketStrategy fractional = new ContinuousTokenBucketStrategy(3, 10, TimeUnit.NANOSECONDS, ticker);
+        assertFalse(fractional.isThrottled(3));
+
+        // 3.33 nanos a token, rounded up
+        assertEquals(4L, fractional.timeToRelease(1, TimeUnit.NANOSECONDS));
+        assertEquals(7L, fractional.timeToRelease(2, TimeUnit.NANOSECONDS));
+        assertEquals(10L, fractional.timeToRelease(3, TimeUnit.NANOSECONDS));
+        // more than capacity, time until full
+        assertEquals(10L, fractional.timeToRelease(4, TimeUnit.NANOSECONDS));
+
+        ticker.advance(4, TimeUnit.NANOSECONDS);
+        assertEquals(0L, fractional.timeToRelease(1, TimeUnit.NANOSECONDS));
+        assertFalse(fractional.isThrottled());
+        assertEquals(3L, fractional.timeToRelease(1, TimeUnit.NANOSECONDS));
+    }
+
+    // an idle bucket fills up to capacity, never beyond
+    @Test
+    public void testIdleBucketCappedAtCapacity(){
+        assertFalse(bucket.isThrottled(MAX_TOKENS));
+        ticker.advance(5 * REFILL_INTERVAL, REFILL_INTERVAL_TIME_UNIT);
+
+        assertEquals(MAX_TOKENS, bucket.getCurrentTokenCount());
+        assertEquals(0L, bucket.timeToRelease(MAX_TOKENS, REFILL_INTERVAL_TIME_UNIT));
+    }
+
+    @Test
+    public void testRefundGivesBackTokens(){
+        assertFalse(bucket.isThrottled(MAX_TOKENS));
+        bucket.refund(2);
+        assertEquals(2L, bucket.getCurrentTokenCount());
+
+        bucket.refund(MAX_TOKENS + 2);
+        assertEquals(MAX_TOKENS, bucket.getCurrentTokenCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNextReleaseWhenInputParamIsNull(){
+        bucket.timeToRelease(1L, null);
+    }
+}
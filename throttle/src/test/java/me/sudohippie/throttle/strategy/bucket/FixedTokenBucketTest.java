@@ -1,10 +1,16 @@
 package me.sudohippie.throttle.strategy.bucket;
 
+import me.sudohippie.throttle.metrics.RefillListener;
+import me.sudohippie.throttle.strategy.ThrottleStrategy;
+import me.sudohippie.throttle.util.ManualTicker;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.Assert.*;
 
@@ -37,11 +43,37 @@ public class FixedTokenBucketTest {
     long N_GREATER_THAN_MAX = 12;
     int CUMULATIVE = 3;
 
+    ManualTicker ticker;
     FixedTokenBucketStrategy bucket;
+    // first failure of a thread started with thread(Runnable)
+    AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
 
     @Before
     public void setUp() throws Exception {
-        bucket = new FixedTokenBucketStrategy(MAX_TOKENS, REFILL_INTERVAL, REFILL_INTERVAL_TIME_UNIT);
+        ticker = new ManualTicker();
+        bucket = new FixedTokenBucketStrategy(MAX_TOKENS, REFILL_INTERVAL, REFILL_INTERVAL_TIME_UNIT, ticker);
+    }
+
+    // assertions failing on other threads fail the test
+    @After
+    public void tearDown() {
+        Throwable thrown = failure.get();
+        if(thrown instanceof Error) throw (Error) thrown;
+        if(thrown != null) throw (RuntimeException) thrown;
+    }
+
+    // thread running body, recording its failure
+    private Thread thread(final Runnable body) {
+        return new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    body.run();
+                } catch (Throwable thrown) {
+                    failure.compareAndSet(null, thrown);
+                }
+            }
+        });
     }
 
     // single threaded
@@ -94,19 +126,19 @@ public class FixedTokenBucketTest {
         assertEquals(MAX_TOKENS, tokens);
     }
 
-    // when n is less than max token, sleep for refill interval, n is less than max token
+    // when n is less than max token, advance by refill interval, n is less than max token
                 // tokens=max-n&&tokens=max-n
                 // isThrottle=false && isThrottle=false
 
     @Test
-    public void testWhenNLessThanMaxSleepNLessThanMax() throws InterruptedException {
+    public void testWhenNLessThanMaxSleepNLessThanMax() {
         boolean before = bucket.isThrottled(N_LESS_THAN_MAX);
         long tokensBefore = bucket.getCurrentTokenCount();
 
         assertFalse(before);
         assertEquals(MAX_TOKENS - N_LESS_THAN_MAX, tokensBefore);
 
-        Thread.sleep(REFILL_INTERVAL_TIME_UNIT.toMillis(REFILL_INTERVAL));
+        ticker.advance(REFILL_INTERVAL, REFILL_INTERVAL_TIME_UNIT);
 
         boolean after = bucket.isThrottled(N_LESS_THAN_MAX);
         long afterTokens = bucket.getCurrentTokenCount();
@@ -115,17 +147,17 @@ public class FixedTokenBucketTest {
         assertEquals(MAX_TOKENS - N_LESS_THAN_MAX, afterTokens);
     }
 
-    // when n is greater than max token, sleep for refill interval, n is greater than max token
+    // when n is greater than max token, advance by refill interval, n is greater than max token
                 //tokens=max&&tokens=max
                 // isThrottle=true && isThrottle=true
-    public void testWhenNGreaterThanMaxSleepNGreaterThanMax() throws InterruptedException {
+    public void testWhenNGreaterThanMaxSleepNGreaterThanMax() {
         boolean before = bucket.isThrottled(N_GREATER_THAN_MAX);
         long tokensBefore = bucket.getCurrentTokenCount();
 
         assertTrue(before);
         assertEquals(MAX_TOKENS, tokensBefore);
 
-        Thread.sleep(REFILL_INTERVAL_TIME_UNIT.toMillis(REFILL_INTERVAL));
+        ticker.advance(REFILL_INTERVAL, REFILL_INTERVAL_TIME_UNIT);
 
         boolean after = bucket.isThrottled(N_GREATER_THAN_MAX);
         long afterTokens = bucket.getCurrentTokenCount();
@@ -134,12 +166,12 @@ public class FixedTokenBucketTest {
         assertEquals(MAX_TOKENS, afterTokens);
     }
 
-            // when cumulative n is less than max token, sleep for refill interval, cumulative n is less than max total
+            // when cumulative n is less than max token, advance by refill interval, cumulative n is less than max total
                 // tokens=max-(n1+...)&&tokens=max-(n1+...)
                 // isThrottle=false && isThrottle=false
 
     @Test
-    public void testWhenCumulativeNLessThanMaxSleepCumulativeNLessThanMax() throws InterruptedException {
+    public void testWhenCumulativeNLessThanMaxSleepCumulativeNLessThanMax() {
         // throttle 3 times
         int sum = 0;
 
@@ -150,7 +182,7 @@ public class FixedTokenBucketTest {
         long beforeTokens = bucket.getCurrentTokenCount();
         assertEquals(MAX_TOKENS - sum, beforeTokens);
 
-        Thread.sleep(REFILL_INTERVAL_TIME_UNIT.toMillis(REFILL_INTERVAL));
+        ticker.advance(REFILL_INTERVAL, REFILL_INTERVAL_TIME_UNIT);
 
         // throttle 3 times
         for(int i = 0; i < CUMULATIVE; i++) assertFalse(bucket.isThrottled(N_LESS_THAN_MAX));
@@ -158,11 +190,11 @@ public class FixedTokenBucketTest {
         assertEquals(MAX_TOKENS - sum, afterTokens);
     }
 
-    // when cumulative n is less than max token, sleep for refill interval, cumulative n is greater than max token
+    // when cumulative n is less than max token, advance by refill interval, cumulative n is greater than max token
                 // tokens=max-(n1+...)&&tokens<n
                 // isThrottle=false && isThrottle=true
     @Test
-    public void testWhenCumulativeNLessThanMaxSleepCumulativeNGreaterThanMax() throws InterruptedException {
+    public void testWhenCumulativeNLessThanMaxSleepCumulativeNGreaterThanMax() {
         int sum = 0;
 
         for(int i = 0; i < CUMULATIVE; i++){
@@ -172,7 +204,7 @@ public class FixedTokenBucketTest {
         long beforeTokens = bucket.getCurrentTokenCount();
         assertEquals(MAX_TOKENS - sum, beforeTokens);
 
-        Thread.sleep(REFILL_INTERVAL_TIME_UNIT.toMillis(REFILL_INTERVAL));
+        ticker.advance(REFILL_INTERVAL, REFILL_INTERVAL_TIME_UNIT);
 
         for(int i = 0; i < 3* CUMULATIVE; i++) bucket.isThrottled(N_LESS_THAN_MAX);
         boolean after = bucket.isThrottled(N_LESS_THAN_MAX);
@@ -182,11 +214,11 @@ public class FixedTokenBucketTest {
         assertTrue(afterTokens < N_LESS_THAN_MAX);
     }
 
-            // when cumulative n is greater than max token, sleep for refill interval, cumulative n is less than max token
+            // when cumulative n is greater than max token, advance by refill interval, cumulative n is less than max token
                 //tokens<n&&tokens=max-(n1+..)
                 // isThrottle=true&&isThrottle=max-(n1+...)
     @Test
-    public void testWhenCumulativeNGreaterThanMaxSleepCumulativeNLessThanMax() throws InterruptedException {
+    public void testWhenCumulativeNGreaterThanMaxSleepCumulativeNLessThanMax() {
 
         for(int i = 0; i < 3* CUMULATIVE; i++) bucket.isThrottled(N_LESS_THAN_MAX);
         boolean before = bucket.isThrottled(N_LESS_THAN_MAX);
@@ -195,7 +227,7 @@ public class FixedTokenBucketTest {
         assertTrue(before);
         assertTrue(beforeTokens < N_LESS_THAN_MAX);
 
-        Thread.sleep(REFILL_INTERVAL_TIME_UNIT.toMillis(REFILL_INTERVAL));
+        ticker.advance(REFILL_INTERVAL, REFILL_INTERVAL_TIME_UNIT);
 
         int sum = 0;
         for(int i = 0; i < CUMULATIVE; i++){
@@ -206,11 +238,11 @@ public class FixedTokenBucketTest {
         assertEquals(MAX_TOKENS - sum, afterTokens);
     }
 
-            // when cumulative n is greater than max token, sleep for refill interval, cumulative n is greater than max total
+            // when cumulative n is greater than max token, advance by refill interval, cumulative n is greater than max total
                 //tokens<n&&tokens<n
                 // isThrottle=true&&isThrottle=true
     @Test
-    public void testWhenCumulativeNGreaterThanMaxSleepCumulativeNGreaterThanMax() throws InterruptedException {
+    public void testWhenCumulativeNGreaterThanMaxSleepCumulativeNGreaterThanMax() {
 
         for(int i = 0; i < 3* CUMULATIVE; i++) bucket.isThrottled(N_LESS_THAN_MAX);
         boolean before = bucket.isThrottled(N_LESS_THAN_MAX);
@@ -219,7 +251,7 @@ public class FixedTokenBucketTest {
         assertTrue(before);
         assertTrue(beforeTokens < N_LESS_THAN_MAX);
 
-        Thread.sleep(REFILL_INTERVAL_TIME_UNIT.toMillis(REFILL_INTERVAL));
+        ticker.advance(REFILL_INTERVAL, REFILL_INTERVAL_TIME_UNIT);
 
         for(int i = 0; i < 3* CUMULATIVE; i++) bucket.isThrottled(N_LESS_THAN_MAX);
         boolean after = bucket.isThrottled(N_LESS_THAN_MAX);
@@ -236,7 +268,7 @@ public class FixedTokenBucketTest {
                 // isThrottled=false
 
     public void testWhenThread1NLessThanMaxAndThread2NLessThanMax() throws InterruptedException {
-        Thread t1 = new Thread(new Runnable() {
+        Thread t1 = thread(new Runnable() {
             @Override
             public void run() {
                 boolean throttle = bucket.isThrottled(N_LESS_THAN_MAX);
@@ -244,7 +276,7 @@ public class FixedTokenBucketTest {
             }
         });
 
-        Thread t2 = new Thread(new Runnable() {
+        Thread t2 = thread(new Runnable() {
             @Override
             public void run() {
                 boolean throttle = bucket.isThrottled(N_LESS_THAN_MAX);
@@ -268,7 +300,7 @@ public class FixedTokenBucketTest {
         boolean throttle = bucket.isThrottled(N_GREATER_THAN_MAX);
         assertTrue(throttle);
 
-        Thread t1 = new Thread(new Runnable() {
+        Thread t1 = thread(new Runnable() {
             @Override
             public void run() {
                 boolean throttle = bucket.isThrottled(N_GREATER_THAN_MAX);
@@ -276,7 +308,7 @@ public class FixedTokenBucketTest {
             }
         });
 
-        Thread t2 = new Thread(new Runnable() {
+        Thread t2 = thread(new Runnable() {
             @Override
             public void run() {
                 boolean throttle = bucket.isThrottled(N_GREATER_THAN_MAX);
@@ -334,57 +366,29 @@ public class FixedTokenBucketTest {
 		assertTrue(bucket.timeToRelease(limit + 1, TimeUnit.MILLISECONDS) > 0);
 	}
 
-	// test next release, when tokens don't exit in interval, sleep and check before start of next interval
+	// test next release, when tokens don't exit in interval, advance and check before start of next interval
 	@Test
-	public void testNextReleaseMultipleTimesAfterTokensAreExhaustedWithInInterval() throws InterruptedException {
-
-		// overly glorified test. Realized all the tests are based on timing and system slowness can cause any of the
-		// tests to fail.
-
-		boolean hasExeededInterval = false;
-		int repeats = 3;
-		long releaseTime = 0L;
-
-		do{
-			// max out tokens
-			bucket.isThrottled(MAX_TOKENS);
-			releaseTime = bucket.timeToRelease(1, TimeUnit.MILLISECONDS);
-
-			assertTrue(releaseTime > 0);
-
-			// sleep for a fraction
-			long sleepInt = REFILL_INTERVAL_TIME_UNIT.toMillis(REFILL_INTERVAL) / 2;
-			long start = System.currentTimeMillis();
-			Thread.sleep(sleepInt);
-			long end = System.currentTimeMillis();
-
-			// check whether sleep time exceeded next release due to system slowness
-			if(end - start >= releaseTime){
-				// if so, sleep until next release
-				Thread.sleep(releaseTime);
-				// repeat
-				repeats --;
-				hasExeededInterval = true;
-			}else {
-				hasExeededInterval = false;
-				releaseTime = bucket.timeToRelease(1L, TimeUnit.MILLISECONDS);
-			}
-		}while(hasExeededInterval && repeats > 0);
+	public void testNextReleaseMultipleTimesAfterTokensAreExhaustedWithInInterval() {
+		long interval = REFILL_INTERVAL_TIME_UNIT.toMillis(REFILL_INTERVAL);
+
+		// max out tokens
+		bucket.isThrottled(MAX_TOKENS);
+		assertEquals(interval, bucket.timeToRelease(1, TimeUnit.MILLISECONDS));
 
-		// test condition
-		assertFalse(hasExeededInterval);
-		assertTrue(releaseTime > 0);
+		// advance for a fraction
+		ticker.advance(interval / 2, TimeUnit.MILLISECONDS);
+		assertEquals(interval - interval / 2, bucket.timeToRelease(1L, TimeUnit.MILLISECONDS));
 	}
 
-	// test next release, when tokens don't exit in interval, sleep for next release time and check after start of next interval
+	// test next release, when tokens don't exit in interval, advance by next release time and check after start of next interval
 	@Test
-	public void testNextReleaseWhenTokensHaveExhaustedButInNextInterval() throws InterruptedException {
+	public void testNextReleaseWhenTokensHaveExhaustedButInNextInterval() {
 		bucket.isThrottled(MAX_TOKENS);
 		long nextRelease = bucket.timeToRelease(1L, TimeUnit.MILLISECONDS);
 
 		assertTrue(nextRelease > 0L);
 
-		Thread.sleep(nextRelease);
+		ticker.advance(nextRelease, TimeUnit.MILLISECONDS);
 
 		assertEquals(0L, bucket.timeToRelease(1L, TimeUnit.MILLISECONDS));
 	}
@@ -449,7 +453,7 @@ public class FixedTokenBucketTest {
 	public void testNextReleaseThreadedWhenTokensExist() throws InterruptedException {
 		final long lessThanHalfTokens = MAX_TOKENS / 2 - 1;
 
-		Thread t1 = new Thread(new Runnable() {
+		Thread t1 = thread(new Runnable() {
 			@Override
 			public void run() {
 				bucket.isThrottled(lessThanHalfTokens);
@@ -458,7 +462,7 @@ public class FixedTokenBucketTest {
 			}
 		});
 
-		Thread t2 = new Thread(new Runnable() {
+		Thread t2 = thread(new Runnable() {
 			@Override
 			public void run() {
 				bucket.isThrottled(lessThanHalfTokens);
@@ -477,7 +481,7 @@ public class FixedTokenBucketTest {
 	// test in multi threaded scenario, when one thread gobbles all tokens and exits
 	@Test
 	public void testNextReleaseInAnIntervalWhenThread1GobblesAllTokens() throws InterruptedException {
-		Thread t1 = new Thread(new Runnable() {
+		Thread t1 = thread(new Runnable() {
 			@Override
 			public void run() {
 				bucket.isThrottled(MAX_TOKENS);
@@ -486,26 +490,22 @@ public class FixedTokenBucketTest {
 			}
 		});
 
-		Thread t2 = new Thread(new Runnable() {
+		Thread t2 = thread(new Runnable() {
 			@Override
 			public void run() {
-				try {
-					assertTrue(bucket.timeToRelease(1L, TimeUnit.MILLISECONDS) > 0);
-
-					Thread.sleep(REFILL_INTERVAL_TIME_UNIT.toMillis(REFILL_INTERVAL/2));
+				assertTrue(bucket.timeToRelease(1L, TimeUnit.MILLISECONDS) > 0);
 
-					assertTrue(bucket.timeToRelease(1L, TimeUnit.MILLISECONDS) > 0);
-				} catch (InterruptedException e) {
-					e.printStackTrace();
-				}
+				ticker.advance(REFILL_INTERVAL / 2, REFILL_INTERVAL_TIME_UNIT);
 
+				assertTrue(bucket.timeToRelease(1L, TimeUnit.MILLISECONDS) > 0);
 			}
 		});
 
+		// t2 only looks once t1 took every token
 		t1.start();
-		t2.start();
-
 		t1.join();
+
+		t2.start();
 		t2.join();
 	}
 
@@ -515,7 +515,7 @@ public class FixedTokenBucketTest {
 
 		final CountDownLatch latch = new CountDownLatch(1);
 
-		Thread t1 = new Thread(new Runnable() {
+		Thread t1 = thread(new Runnable() {
 			@Override
 			public void run() {
 				bucket.isThrottled(MAX_TOKENS);
@@ -526,7 +526,7 @@ public class FixedTokenBucketTest {
 			}
 		});
 
-		Thread t2 = new Thread(new Runnable() {
+		Thread t2 = thread(new Runnable() {
 			@Override
 			public void run() {
 				try {
@@ -534,11 +534,11 @@ public class FixedTokenBucketTest {
 
 					assertTrue(bucket.timeToRelease(1L, TimeUnit.MILLISECONDS) > 0);
 
-					Thread.sleep(REFILL_INTERVAL_TIME_UNIT.toMillis(REFILL_INTERVAL));
+					ticker.advance(REFILL_INTERVAL, REFILL_INTERVAL_TIME_UNIT);
 
 					assertEquals(0L, bucket.timeToRelease(1L, TimeUnit.MILLISECONDS));
 				} catch (InterruptedException e) {
-					e.printStackTrace();
+					throw new AssertionError(e);
 				}
 
 			}
@@ -550,4 +550,86 @@ public class FixedTokenBucketTest {
 		t1.join();
 		t2.join();
 	}
+
+	// test refill with a manual ticker, bucket refills exactly at the end of the interval
+	@Test
+	public void testRefillAtIntervalEndWithManualTicker(){
+
+		assertFalse(bucket.isThrottled(MAX_TOKENS));
+		assertEquals(REFILL_INTERVAL_TIME_UNIT.toNanos(REFILL_INTERVAL), bucket.timeToRelease(1L, TimeUnit.NANOSECONDS));
+
+		ticker.advance(REFILL_INTERVAL_TIME_UNIT.toNanos(REFILL_INTERVAL) - 1, TimeUnit.NANOSECONDS);
+		assertTrue(bucket.isThrottled());
+		assertEquals(1L, bucket.timeToRelease(1L, TimeUnit.NANOSECONDS));
+
+		ticker.advance(1, TimeUnit.NANOSECONDS);
+		assertEquals(MAX_TOKENS, bucket.getCurrentTokenCount());
+		assertEquals(0L, bucket.timeToRelease(1L, TimeUnit.NANOSECONDS));
+	}
+
+	// refill listener is notified once per refill interval
+	@Test
+	public void testRefillListenerNotifiedOnRefill(){
+		final AtomicLong refills = new AtomicLong();
+		bucket.setRefillListener(new RefillListener() {
+			@Override
+			public void onRefill(ThrottleStrategy strategy, long tokens) {
+				refills.incrementAndGet();
+				assertEquals(MAX_TOKENS, tokens);
+			}
+		});
+
+		assertFalse(bucket.isThrottled(MAX_TOKENS));
+		assertTrue(bucket.isThrottled());
+		assertEquals(1L, refills.get());
+
+		ticker.advance(REFILL_INTERVAL, REFILL_INTERVAL_TIME_UNIT);
+		assertFalse(bucket.isThrottled());
+		assertEquals(2L, refills.get());
+	}
+
+	// refunded tokens are available again, never beyond capacity
+	@Test
+	public void testRefundGivesBackTokens(){
+
+		assertFalse(bucket.isThrottled(MAX_TOKENS));
+		bucket.refund(N_LESS_THAN_MAX);
+		assertEquals(N_LESS_THAN_MAX, bucket.getCurrentTokenCount());
+
+		bucket.refund(N_GREATER_THAN_MAX);
+		assertEquals(MAX_TOKENS, bucket.getCurrentTokenCount());
+	}
+
+	// many threads racing for tokens, exactly capacity tokens are granted with in an interval
+	@Test
+	public void testConcurrentThrottleGrantsExactlyCapacity() throws InterruptedException {
+		final long capacity = 100000;
+		final FixedTokenBucketStrategy shared = new FixedTokenBucketStrategy(capacity, 1, TimeUnit.HOURS);
+		final AtomicLong granted = new AtomicLong();
+		final CountDownLatch start = new CountDownLatch(1);
+
+		Thread[] threads = new Thread[8];
+		for(int i = 0; i < threads.length; i++){
+			threads[i] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						start.await();
+					} catch (InterruptedException e) {
+						return;
+					}
+					for(int j = 0; j < capacity / 4; j++){
+						if(!shared.isThrottled()) granted.incrementAndGet();
+					}
+				}
+			});
+			threads[i].start();
+		}
+
+		start.countDown();
+		for(Thread thread : threads) thread.join();
+
+		assertEquals(capacity, granted.get());
+		assertEquals(0L, shared.getCurrentTokenCount());
+	}
 }
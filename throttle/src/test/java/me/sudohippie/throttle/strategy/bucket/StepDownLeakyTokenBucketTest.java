@@ -1,5 +1,6 @@
 package me.sudohippie.throttle.strategy.bucket;
 
+import me.sudohippie.throttle.util.ManualTicker;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -39,7 +40,8 @@ public class StepDownLeakyTokenBucketTest {
 
     @Before
     public void setUp() throws Exception {
-        bucket = new StepDownLeakyTokenBucketStrategy(MAX_TOKENS, REFILL_INTERVAL, TimeUnit.MILLISECONDS, STEP_TOKENS, STEP_INTERVAL, TimeUnit.MILLISECONDS);
+        ticker = new ManualTicker();
+        bucket = new StepDownLeakyTokenBucketStrategy(MAX_TOKENS, REFILL_INTERVAL, TimeUnit.MILLISECONDS, STEP_TOKENS, STEP_INTERVAL, TimeUnit.MILLISECONDS, ticker);
     }
 
     // setup state
@@ -48,6 +50,7 @@ public class StepDownLeakyTokenBucketTest {
     private final long STEP_TOKENS = 2;
     private final long STEP_INTERVAL = 1000L;
 
+    private ManualTicker ticker;
     private StepDownLeakyTokenBucketStrategy bucket;
 
     // test behaviour, single threaded
@@ -61,7 +64,7 @@ public class StepDownLeakyTokenBucketTest {
     // after one whole interval, at the beginning number of tokens should be equal to max
     @Test
     public void testTokensEqualsMaxAtTheStartOfNextInterval() throws Exception {
-        Thread.sleep(REFILL_INTERVAL);
+        ticker.advance(REFILL_INTERVAL, TimeUnit.MILLISECONDS);
         assertEquals(MAX_TOKENS, bucket.getCurrentTokenCount());
     }
 
@@ -70,7 +73,7 @@ public class StepDownLeakyTokenBucketTest {
     public void testTokensEqualsMaxAtTheStartOfNextIntervalAfterMaxThrottle() throws Exception {
         bucket.isThrottled(MAX_TOKENS);
 
-        Thread.sleep(REFILL_INTERVAL);
+        ticker.advance(REFILL_INTERVAL, TimeUnit.MILLISECONDS);
 
         assertEquals(MAX_TOKENS, bucket.getCurrentTokenCount());
     }
@@ -91,7 +94,7 @@ public class StepDownLeakyTokenBucketTest {
 
         final long SLEEP_TIME = 1000L;
         for(int i = 1; i < (REFILL_INTERVAL / STEP_INTERVAL); i ++){
-            Thread.sleep(SLEEP_TIME);
+            ticker.advance(SLEEP_TIME, TimeUnit.MILLISECONDS);
             assertEquals(0, bucket.getCurrentTokenCount());
         }
     }
@@ -103,7 +106,7 @@ public class StepDownLeakyTokenBucketTest {
         assertFalse(throttled);
 
         for(int i = 1; i < (REFILL_INTERVAL / STEP_INTERVAL); i ++){
-            Thread.sleep(STEP_INTERVAL);
+            ticker.advance(STEP_INTERVAL, TimeUnit.MILLISECONDS);
             assertTrue(bucket.isThrottled());
         }
     }
@@ -115,7 +118,7 @@ public class StepDownLeakyTokenBucketTest {
             long expectedTokens = MAX_TOKENS - (i * STEP_TOKENS);
 
             assertEquals(expectedTokens, bucket.getCurrentTokenCount());
-            Thread.sleep(STEP_INTERVAL);
+            ticker.advance(STEP_INTERVAL, TimeUnit.MILLISECONDS);
         }
     }
 
@@ -126,7 +129,7 @@ public class StepDownLeakyTokenBucketTest {
             long excessTokensForStep = MAX_TOKENS - (i * STEP_TOKENS) + 1;
 
             assertTrue(bucket.isThrottled(excessTokensForStep));
-            Thread.sleep(STEP_INTERVAL);
+            ticker.advance(STEP_INTERVAL, TimeUnit.MILLISECONDS);
         }
     }
 
@@ -1,5 +1,6 @@
 package me.sudohippie.throttle.strategy.bucket;
 
+import me.sudohippie.throttle.util.ManualTicker;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -45,10 +46,12 @@ public class StepUpLeakyTokenBucketTest {
     private final long STEP_TOKENS = 2;
     private final long STEP_INTERVAL = 1000L;
 
+    private ManualTicker ticker;
     private StepUpLeakyTokenBucketStrategy bucket;
     @Before
     public void setUp() throws Exception {
-        bucket = new StepUpLeakyTokenBucketStrategy(MAX_TOKENS, REFILL_INTERVAL, TimeUnit.MILLISECONDS, STEP_TOKENS, STEP_INTERVAL, TimeUnit.MILLISECONDS);
+        ticker = new ManualTicker();
+        bucket = new StepUpLeakyTokenBucketStrategy(MAX_TOKENS, REFILL_INTERVAL, TimeUnit.MILLISECONDS, STEP_TOKENS, STEP_INTERVAL, TimeUnit.MILLISECONDS, ticker);
     }
 
     // single threaded
@@ -61,7 +64,7 @@ public class StepUpLeakyTokenBucketTest {
 
             assertEquals(expectedTokensAtStep, tokenCount);
 
-            Thread.sleep(STEP_INTERVAL);
+            ticker.advance(STEP_INTERVAL, TimeUnit.MILLISECONDS);
         }
     }
 
@@ -73,7 +76,7 @@ public class StepUpLeakyTokenBucketTest {
 
             assertFalse(throttled);
 
-            Thread.sleep(STEP_INTERVAL);
+            ticker.advance(STEP_INTERVAL, TimeUnit.MILLISECONDS);
         }
     }
 
@@ -92,7 +95,7 @@ public class StepUpLeakyTokenBucketTest {
     public void testTokensEqualsMaxAtStartOfNextInterval() throws Exception {
         bucket.isThrottled();
 
-        Thread.sleep(REFILL_INTERVAL);
+        ticker.advance(REFILL_INTERVAL, TimeUnit.MILLISECONDS);
 
         assertEquals(STEP_TOKENS, bucket.getCurrentTokenCount());
     }
@@ -101,6 +104,8 @@ public class StepUpLeakyTokenBucketTest {
     // thread1 throttle n= steptoken, thread2 sleep for stepInterval. token must be 0
     @Test
     public void testMultiThreadedWhenThread1NEqualsToStepTokenAndThread2SleepForStepIntervalFollowedByNStepTokenThrottle() throws Exception {
+        // thread2 sleeps, so the bucket reads the system clock
+        final StepUpLeakyTokenBucketStrategy bucket = new StepUpLeakyTokenBucketStrategy(MAX_TOKENS, REFILL_INTERVAL, TimeUnit.MILLISECONDS, STEP_TOKENS, STEP_INTERVAL, TimeUnit.MILLISECONDS);
         Thread t1 = new Thread(new Runnable() {
             @Override
             public void run() {
@@ -132,4 +137,67 @@ public class StepUpLeakyTokenBucketTest {
         t1.join();
         t2.join();
     }
+
+    // sub millisecond steps, driven by a manual ticker
+    @Test
+    public void testTokenCountIsCorrectAtEachMicrosecondStep() throws Exception {
+        ManualTicker ticker = new ManualTicker();
+        StepUpLeakyTokenBucketStrategy manual = new StepUpLeakyTokenBucketStrategy(MAX_TOKENS, 5, TimeUnit.MICROSECONDS, STEP_TOKENS, 1, TimeUnit.MICROSECONDS, ticker);
+
+        for (int i = 1; i <= 5; i ++){
+            assertEquals(STEP_TOKENS * i, manual.getCurrentTokenCount());
+
+            ticker.advance(1, TimeUnit.MICROSECONDS);
+        }
+
+        // start of next interval
+        assertEquals(STEP_TOKENS, manual.getCurrentTokenCount());
+    }
+
+    // tokens are released at the next step rather than at the end of the interval
+    @Test
+    public void testTimeToReleaseIsNextStep() throws Exception {
+        ManualTicker ticker = new ManualTicker();
+        StepUpLeakyTokenBucketStrategy manual = new StepUpLeakyTokenBucketStrategy(MAX_TOKENS, REFILL_INTERVAL, TimeUnit.MILLISECONDS, STEP_TOKENS, STEP_INTERVAL, TimeUnit.MILLISECONDS, ticker);
+
+        assertFalse(manual.isThrottled(STEP_TOKENS));
+        assertEquals(STEP_INTERVAL, manual.timeToRelease(1, TimeUnit.MILLISECONDS));
+        assertEquals(2 * STEP_INTERVAL, manual.timeToRelease(STEP_TOKENS + 1, TimeUnit.MILLISECONDS));
+
+        // more tokens than an interval can accumulate before it empties, wait for the next interval
+        ticker.advance(3 * STEP_INTERVAL, TimeUnit.MILLISECONDS);
+        assertEquals(3 * STEP_TOKENS, manual.getCurrentTokenCount());
+        assertEquals(STEP_INTERVAL, manual.timeToRelease(4 * STEP_TOKENS, TimeUnit.MILLISECONDS));
+        long stepsAfterRefill = (MAX_TOKENS - STEP_TOKENS) / STEP_TOKENS;
+        assertEquals(REFILL_INTERVAL - 3 * STEP_INTERVAL + stepsAfterRefill * STEP_INTERVAL, manual.timeToRelease(MAX_TOKENS, TimeUnit.MILLISECONDS));
+    }
+
+    // reserved tokens are paid from the next steps, the reservation is valid once they are
+    @Test
+    public void testReservationValidAtStepReleasingIt() throws Exception {
+        ManualTicker ticker = new ManualTicker();
+        StepUpLeakyTokenBucketStrategy manual = new StepUpLeakyTokenBucketStrategy(MAX_TOKENS, REFILL_INTERVAL, TimeUnit.MILLISECONDS, STEP_TOKENS, STEP_INTERVAL, TimeUnit.MILLISECONDS, ticker);
+
+        assertEquals(0L, manual.reserve(1).getDelay(TimeUnit.MILLISECONDS));
+        assertEquals(2 * STEP_INTERVAL, manual.reserve(STEP_TOKENS + 2).getDelay(TimeUnit.MILLISECONDS));
+
+        // the steps are taken by the reservation
+        ticker.advance(STEP_INTERVAL, TimeUnit.MILLISECONDS);
+        assertEquals(0L, manual.getCurrentTokenCount());
+        ticker.advance(STEP_INTERVAL, TimeUnit.MILLISECONDS);
+        assertEquals(1L, manual.getCurrentTokenCount());
+    }
+
+    // polled every half step, partial steps still add up to a token per step
+    @Test
+    public void testPartialStepsAccumulate() throws Exception {
+        ManualTicker ticker = new ManualTicker();
+        StepUpLeakyTokenBucketStrategy manual = new StepUpLeakyTokenBucketStrategy(MAX_TOKENS, REFILL_INTERVAL, TimeUnit.MILLISECONDS, STEP_TOKENS, STEP_INTERVAL, TimeUnit.MILLISECONDS, ticker);
+        assertFalse(manual.isThrottled(STEP_TOKENS));
+
+        for(int i = 1; i <= 8; i++){
+            ticker.advance(STEP_INTERVAL / 2, TimeUnit.MILLISECONDS);
+            assertEquals((i / 2) * STEP_TOKENS, manual.getCurrentTokenCount());
+        }
+    }
 }
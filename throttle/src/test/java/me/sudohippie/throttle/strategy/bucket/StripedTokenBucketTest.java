@@ -0,0 +1,211 @@
+package me.sudohippie.throttle.strategy.bucket;
+
+import me.sudohippie.throttle.util.ManualTicker;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class StripedTokenBucketTest {
+
+    /* test state */
+    // test max token when negative
+    @Test(expected = IllegalArgumentException.class)
+    public void testWhenMaxTokenIsNegative(){
+        new StripedTokenBucketStrategy(-1, 0, TimeUnit.MILLISECONDS);
+    }
+
+    // test refill interval when negative
+    @Test(expected = IllegalArgumentException.class)
+    public void testWhenRefillIntervalIsNegative(){
+        new StripedTokenBucketStrategy(0, -1, TimeUnit.MILLISECONDS);
+    }
+
+    // test stripe count when not positive
+    @Test(expected = IllegalArgumentException.class)
+    public void testWhenStripeCountIsZero(){
+        new StripedTokenBucketStrategy(10, 1, TimeUnit.SECONDS, 0, new ManualTicker());
+    }
+
+    @Test
+    public void testStripeCountRoundedToPowerOfTwo(){
+        assertEquals(8, new StripedTokenBucketStrategy(10, 1, TimeUnit.SECONDS, 5, new ManualTicker()).getStripeCount());
+    }
+
+    /* test logic */
+    long MAX_TOKENS = 10;
+    long REFILL_INTERVAL = 500;
+    TimeUnit REFILL_INTERVAL_TIME_UNIT = TimeUnit.MILLISECONDS;
+    int STRIPES = 4;
+
+    long N_LESS_THAN_MAX = 2;
+    long N_GREATER_THAN_MAX = 12;
+    int CUMULATIVE = 3;
+
+    ManualTicker ticker;
+    StripedTokenBucketStrategy bucket;
+
+    @Before
+    public void setUp() throws Exception {
+        ticker = new ManualTicker();
+        bucket = new StripedTokenBucketStrategy(MAX_TOKENS, REFILL_INTERVAL, REFILL_INTERVAL_TIME_UNIT, STRIPES, ticker);
+    }
+
+    @Test
+    public void testWhenNIsLessThanMaxTokens(){
+        assertFalse(bucket.isThrottled(N_LESS_THAN_MAX));
+        assertEquals(MAX_TOKENS - N_LESS_THAN_MAX, bucket.getCurrentTokenCount());
+    }
+
+    @Test
+    public void testWhenNIsGreaterThanMaxTokens() {
+        assertTrue(bucket.isThrottled(N_GREATER_THAN_MAX));
+        assertEquals(MAX_TOKENS, bucket.getCurrentTokenCount());
+    }
+
+    @Test
+    public void testWhenCumulativeNIsLessThanMaxTokens() {
+        for(int i = 0; i < CUMULATIVE; i++) assertFalse(bucket.isThrottled(N_LESS_THAN_MAX));
+
+        assertEquals(MAX_TOKENS - (CUMULATIVE * N_LESS_THAN_MAX), bucket.getCurrentTokenCount());
+    }
+
+    // a single thread can spend the whole capacity, borrowing from other stripes
+    @Test
+    public void testSingleThreadBorrowsFromOtherStripes() {
+        for(int i = 0; i < MAX_TOKENS; i++) assertFalse(bucket.isThrottled());
+
+        assertTrue(bucket.isThrottled());
+        assertEquals(0L, bucket.getCurrentTokenCount());
+    }
+
+    // a request spanning stripes is either served in full or leaves every stripe untouched
+    @Test
+    public void testWhenBorrowFallsShortTokensAreGivenBack() {
+        assertFalse(bucket.isThrottled(MAX_TOKENS - 1));
+        assertTrue(bucket.isThrottled(2));
+        assertEquals(1L, bucket.getCurrentTokenCount());
+
+        assertFalse(bucket.isThrottled(1));
+        assertEquals(0L, bucket.getCurrentTokenCount());
+    }
+
+    @Test
+    public void testWhenTokensExhaustedRefilled() {
+        assertFalse(bucket.isThrottled(MAX_TOKENS));
+        assertTrue(bucket.isThrottled());
+
+        ticker.advance(REFILL_INTERVAL, REFILL_INTERVAL_TIME_UNIT);
+
+        assertFalse(bucket.isThrottled(N_LESS_THAN_MAX));
+        assertEquals(MAX_TOKENS - N_LESS_THAN_MAX, bucket.getCurrentTokenCount());
+    }
+
+    // stripes due for a refill count as full before borrowing, although nobody refilled them yet
+    @Test
+    public void testBorrowCountsStripesDueForRefill() {
+        assertFalse(bucket.isThrottled(MAX_TOKENS));
+
+        ticker.advance(REFILL_INTERVAL, REFILL_INTERVAL_TIME_UNIT);
+
+        assertFalse(bucket.isThrottled(MAX_TOKENS));
+        assertTrue(bucket.isThrottled());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNextReleaseWhenInputParamIsNegative(){
+        bucket.timeToRelease(-1L, TimeUnit.MILLISECONDS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNextReleaseWhenInputParamIsNull(){
+        bucket.timeToRelease(1L, null);
+    }
+
+    @Test
+    public void testNextReleaseWhenTokensExistInInterval(){
+        assertEquals(0L, bucket.timeToRelease(1, TimeUnit.MILLISECONDS));
+        assertEquals(0L, bucket.timeToRelease(MAX_TOKENS, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testNextReleaseWhenTokensAreExhaustedWithInInterval() {
+        bucket.isThrottled(MAX_TOKENS);
+        assertEquals(REFILL_INTERVAL, bucket.timeToRelease(1L, TimeUnit.MILLISECONDS));
+
+        ticker.advance(REFILL_INTERVAL, REFILL_INTERVAL_TIME_UNIT);
+
+        assertEquals(0L, bucket.timeToRelease(1L, TimeUnit.MILLISECONDS));
+    }
+
+    // stripes refilling at different times, release is when enough of them have refilled
+    @Test
+    public void testNextReleaseAggregatesStripeRefills() {
+        StripedTokenBucketStrategy striped = new StripedTokenBucketStrategy(MAX_TOKENS, REFILL_INTERVAL, REFILL_INTERVAL_TIME_UNIT, 2, ticker);
+
+        // empty the home stripe, its refill schedule starts now
+        assertFalse(striped.isThrottled(MAX_TOKENS / 2));
+
+        // later, borrow the other stripe empty, its refill schedule starts later
+        ticker.advance(200, TimeUnit.MILLISECONDS);
+        assertFalse(striped.isThrottled(MAX_TOKENS / 2));
+        assertTrue(striped.isThrottled());
+
+        // home stripe refills first, both are needed for more than half the capacity
+        assertEquals(REFILL_INTERVAL - 200, striped.timeToRelease(1L, TimeUnit.MILLISECONDS));
+        assertEquals(REFILL_INTERVAL - 200, striped.timeToRelease(MAX_TOKENS / 2, TimeUnit.MILLISECONDS));
+        assertEquals(REFILL_INTERVAL, striped.timeToRelease(MAX_TOKENS, TimeUnit.MILLISECONDS));
+
+        ticker.advance(REFILL_INTERVAL - 200, TimeUnit.MILLISECONDS);
+        assertEquals(MAX_TOKENS / 2, striped.getCurrentTokenCount());
+        assertEquals(200L, striped.timeToRelease(MAX_TOKENS, TimeUnit.MILLISECONDS));
+    }
+
+    // many threads racing for tokens, exactly capacity tokens are granted with in an interval
+    @Test
+    public void testConcurrentThrottleGrantsExactlyCapacity() throws InterruptedException {
+        final long capacity = 100000;
+        final StripedTokenBucketStrategy shared = new StripedTokenBucketStrategy(capacity, 1, TimeUnit.HOURS, 8, new ManualTicker());
+        final AtomicLong granted = new AtomicLong();
+        final CountDownLatch start = new CountDownLatch(1);
+
+        Thread[] threads = new Thread[8];
+        for(int i = 0; i < threads.length; i++){
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for(int j = 0; j < capacity / 4; j++){
+                        if(!shared.isThrottled()) granted.incrementAndGet();
+                    }
+                }
+            });
+            threads[i].start();
+        }
+
+        start.countDown();
+        for(Thread thread : threads) thread.join();
+
+        assertEquals(capacity, granted.get());
+        assertEquals(0L, shared.getCurrentTokenCount());
+    }
+
+    // refunds spill over to other stripes, never beyond capacity
+    @Test
+    public void testRefundGivesBackTokens(){
+        assertFalse(bucket.isThrottled(MAX_TOKENS));
+        bucket.refund(MAX_TOKENS - 1);
+        assertEquals(MAX_TOKENS - 1, bucket.getCurrentTokenCount());
+
+        bucket.refund(N_GREATER_THAN_MAX);
+        assertEquals(MAX_TOKENS, bucket.getCurrentTokenCount());
+    }
+}
@@ -0,0 +1,118 @@
+package me.sudohippie.throttle.strategy.bucket;
+
+import me.sudohippie.throttle.util.ManualTicker;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class TokenBucketLeasingTest {
+
+    private final long MAX_TOKENS = 100;
+    private final long REFILL_INTERVAL = 10;
+    private final long LEASE_TOKENS = 10;
+    private final long LEASE_DURATION = 1;
+
+    private ManualTicker ticker;
+    private FixedTokenBucketStrategy bucket;
+
+    @Before
+    public void setUp() throws Exception {
+        ticker = new ManualTicker();
+        bucket = new FixedTokenBucketStrategy(MAX_TOKENS, REFILL_INTERVAL, TimeUnit.SECONDS, ticker);
+        bucket.enableLeasing(LEASE_TOKENS, LEASE_DURATION, TimeUnit.SECONDS);
+    }
+
+    /* test state */
+    @Test(expected = IllegalArgumentException.class)
+    public void testWhenLeaseTokensIsNotPositive() throws Exception {
+        bucket.enableLeasing(0, LEASE_DURATION, TimeUnit.SECONDS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWhenLeaseDurationIsNegative() throws Exception {
+        bucket.enableLeasing(LEASE_TOKENS, -1, TimeUnit.SECONDS);
+    }
+
+    /* test behaviour */
+    // a whole lease is taken from the bucket and spent locally
+    @Test
+    public void testLeaseIsTakenFromBucket() throws Exception {
+        assertFalse(bucket.isThrottled());
+        assertEquals(MAX_TOKENS - LEASE_TOKENS, bucket.getCurrentTokenCount());
+
+        for(int i = 1; i < LEASE_TOKENS; i++) assertFalse(bucket.isThrottled());
+        assertEquals(MAX_TOKENS - LEASE_TOKENS, bucket.getCurrentTokenCount());
+
+        // lease has run dry, renew
+        assertFalse(bucket.isThrottled());
+        assertEquals(MAX_TOKENS - 2 * LEASE_TOKENS, bucket.getCurrentTokenCount());
+    }
+
+    // requests larger than a lease are taken from the bucket directly
+    @Test
+    public void testRequestLargerThanLease() throws Exception {
+        assertFalse(bucket.isThrottled(LEASE_TOKENS + 1));
+        assertEquals(MAX_TOKENS - LEASE_TOKENS - 1, bucket.getCurrentTokenCount());
+
+        assertTrue(bucket.isThrottled(MAX_TOKENS));
+    }
+
+    // unspent tokens go back to the bucket once the lease expires
+    @Test
+    public void testExpiredLeaseIsGivenBack() throws Exception {
+        bucket.isThrottled();
+        ticker.advance(LEASE_DURATION, TimeUnit.SECONDS);
+
+        bucket.isThrottled(2);
+        // 9 given back, a new lease of 10 taken
+        assertEquals(MAX_TOKENS - 1 - LEASE_TOKENS, bucket.getCurrentTokenCount());
+    }
+
+    // leases do not outlive the refill interval they were taken in
+    @Test
+    public void testLeaseIsDiscardedAtRefill() throws Exception {
+        assertFalse(bucket.isThrottled(MAX_TOKENS));
+        ticker.advance(REFILL_INTERVAL, TimeUnit.SECONDS);
+
+        assertFalse(bucket.isThrottled());
+        assertEquals(MAX_TOKENS - LEASE_TOKENS, bucket.getCurrentTokenCount());
+    }
+
+    // leasing never admits more than capacity, and strands at most a lease per thread
+    @Test
+    public void testConcurrentLeasingIsBounded() throws Exception {
+        final FixedTokenBucketStrategy shared = new FixedTokenBucketStrategy(100000, 1, TimeUnit.HOURS);
+        shared.enableLeasing(LEASE_TOKENS, 1, TimeUnit.HOURS);
+
+        final AtomicLong granted = new AtomicLong();
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[4];
+        for(int i = 0; i < threads.length; i++){
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for(int j = 0; j < 50000; j++){
+                        if(!shared.isThrottled()) granted.incrementAndGet();
+                    }
+                }
+            });
+            threads[i].start();
+        }
+
+        start.countDown();
+        for(Thread thread : threads) thread.join();
+
+        assertTrue(granted.get() <= 100000);
+        assertTrue(granted.get() >= 100000 - threads.length * LEASE_TOKENS);
+    }
+}
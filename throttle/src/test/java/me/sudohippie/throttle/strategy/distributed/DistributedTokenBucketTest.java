@@ -0,0 +1,242 @@
+package me.sudohippie.throttle.strategy.distributed;
+
+import me.sudohippie.throttle.strategy.bucket.RefillPolicy;
+import me.sudohippie.throttle.util.ManualTicker;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class DistributedTokenBucketTest {
+
+    long MAX_TOKENS = 10;
+    long REFILL_INTERVAL = 500;
+    TimeUnit REFILL_INTERVAL_TIME_UNIT = TimeUnit.MILLISECONDS;
+    String KEY = "bucket";
+
+    ManualTicker ticker;
+    CountingStore store;
+    RefillPolicy policy;
+
+    @Before
+    public void setUp() throws Exception {
+        ticker = new ManualTicker();
+        store = new CountingStore(new InMemoryBucketStore());
+        policy = RefillPolicy.fixed(MAX_TOKENS, REFILL_INTERVAL, REFILL_INTERVAL_TIME_UNIT);
+    }
+
+    /* test state */
+    @Test(expected = IllegalArgumentException.class)
+    public void testWhenStoreIsNull(){
+        new DistributedTokenBucketStrategy(null, KEY, policy, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWhenPrefetchTokensIsZero(){
+        new DistributedTokenBucketStrategy(store, KEY, policy, 0);
+    }
+
+    /* test logic */
+    // replicas sharing a store share the limit
+    @Test
+    public void testReplicasShareCapacity(){
+        DistributedTokenBucketStrategy first = new DistributedTokenBucketStrategy(store, KEY, policy, 1, ticker);
+        DistributedTokenBucketStrategy second = new DistributedTokenBucketStrategy(store, KEY, policy, 1, ticker);
+
+        assertFalse(first.isThrottled(6));
+        assertFalse(second.isThrottled(4));
+        assertTrue(first.isThrottled());
+        assertTrue(second.isThrottled());
+        assertEquals(0L, first.getCurrentTokenCount());
+
+        ticker.advance(REFILL_INTERVAL, REFILL_INTERVAL_TIME_UNIT);
+        assertFalse(second.isThrottled(MAX_TOKENS));
+    }
+
+    // prefetched tokens are handed out without going to the store
+    @Test
+    public void testPrefetchAvoidsRoundTrips(){
+        DistributedTokenBucketStrategy strategy = new DistributedTokenBucketStrategy(store, KEY, policy, 5, ticker);
+
+        for(int i = 0; i < 5; i++) assertFalse(strategy.isThrottled());
+        assertEquals(1L, store.compareAndSets.get());
+
+        for(int i = 0; i < 5; i++) assertFalse(strategy.isThrottled());
+        assertEquals(2L, store.compareAndSets.get());
+        assertTrue(strategy.isThrottled());
+    }
+
+    // prefetched tokens are not available to other replicas, but the limit holds
+    @Test
+    public void testPrefetchNeverExceedsCapacity(){
+        DistributedTokenBucketStrategy first = new DistributedTokenBucketStrategy(store, KEY, policy, 4, ticker);
+        DistributedTokenBucketStrategy second = new DistributedTokenBucketStrategy(store, KEY, policy, 4, ticker);
+
+        long granted = 0;
+        for(int i = 0; i < 20; i++){
+            if(!first.isThrottled()) granted++;
+            if(!second.isThrottled()) granted++;
+        }
+        assertEquals(MAX_TOKENS, granted);
+    }
+
+    // prefetched tokens are dropped at the next refill
+    @Test
+    public void testPrefetchedTokensExpireAtRefill(){
+        DistributedTokenBucketStrategy first = new DistributedTokenBucketStrategy(store, KEY, policy, MAX_TOKENS, ticker);
+        DistributedTokenBucketStrategy second = new DistributedTokenBucketStrategy(store, KEY, policy, 1, ticker);
+
+        assertFalse(first.isThrottled());
+        assertTrue(second.isThrottled());
+        assertEquals(MAX_TOKENS - 1, first.getCurrentTokenCount());
+
+        ticker.advance(REFILL_INTERVAL, REFILL_INTERVAL_TIME_UNIT);
+        assertEquals(MAX_TOKENS, first.getCurrentTokenCount());
+        assertFalse(second.isThrottled(MAX_TOKENS));
+    }
+
+    @Test
+    public void testNextReleaseWhenTokensAreExhausted(){
+        DistributedTokenBucketStrategy strategy = new DistributedTokenBucketStrategy(store, KEY, policy, 3, ticker);
+
+        assertEquals(0L, strategy.timeToRelease(MAX_TOKENS, TimeUnit.MILLISECONDS));
+        assertFalse(strategy.isThrottled(MAX_TOKENS));
+        assertEquals(REFILL_INTERVAL, strategy.timeToRelease(1L, TimeUnit.MILLISECONDS));
+
+        ticker.advance(REFILL_INTERVAL, REFILL_INTERVAL_TIME_UNIT);
+        assertEquals(0L, strategy.timeToRelease(1L, TimeUnit.MILLISECONDS));
+    }
+
+    // lost compare-and-set races are retried
+    @Test
+    public void testRetriesWhenCompareAndSetFails(){
+        store.failNextCompareAndSets = 2;
+        DistributedTokenBucketStrategy strategy = new DistributedTokenBucketStrategy(store, KEY, policy, 1, ticker);
+
+        assertFalse(strategy.isThrottled());
+        assertEquals(3L, store.compareAndSets.get());
+        assertEquals(MAX_TOKENS - 1, strategy.getCurrentTokenCount());
+    }
+
+    // replicas talking to a bucket store server over TCP
+    @Test
+    public void testOverBucketStoreServer() throws IOException {
+        try (BucketStoreServer server = new BucketStoreServer();
+             RemoteBucketStore firstStore = new RemoteBucketStore("localhost", server.getPort());
+             RemoteBucketStore secondStore = new RemoteBucketStore("localhost", server.getPort())) {
+            DistributedTokenBucketStrategy first = new DistributedTokenBucketStrategy(firstStore, KEY, policy, 2, ticker);
+            DistributedTokenBucketStrategy second = new DistributedTokenBucketStrategy(secondStore, KEY, policy, 2, ticker);
+
+            assertFalse(first.isThrottled(6));
+            assertFalse(second.isThrottled(4));
+            assertTrue(first.isThrottled());
+            assertEquals(0L, second.getCurrentTokenCount());
+        }
+    }
+
+    // a server which never responds fails the request once the read timeout elapses
+    @Test(expected = SocketTimeoutException.class)
+    public void testWhenServerDoesNotRespond() throws IOException {
+        // connections are queued by the backlog but never served
+        try (ServerSocket silent = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+             RemoteBucketStore remote = new RemoteBucketStore("localhost", silent.getLocalPort(), 1, 100, TimeUnit.MILLISECONDS)) {
+            remote.get(KEY);
+        }
+    }
+
+    // prefetched tokens are handed out while another caller waits on the store
+    @Test
+    public void testPrefetchedTokensWhileStoreIsSlow() throws Exception {
+        final CountDownLatch reading = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicBoolean slow = new AtomicBoolean();
+        BucketStore slowStore = new BucketStore() {
+            @Override
+            public long[] get(String key) throws IOException {
+                if(slow.get()){
+                    reading.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        throw new IOException(e);
+                    }
+                }
+                return store.get(key);
+            }
+
+            @Override
+            public boolean compareAndSet(String key, long[] expected, long[] update) throws IOException {
+                return store.compareAndSet(key, expected, update);
+            }
+        };
+        final DistributedTokenBucketStrategy strategy = new DistributedTokenBucketStrategy(slowStore, KEY, policy, 5, ticker);
+        assertFalse(strategy.isThrottled());
+
+        slow.set(true);
+        Thread waiting = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                strategy.timeToRelease(MAX_TOKENS, TimeUnit.NANOSECONDS);
+            }
+        });
+        waiting.start();
+        assertTrue(reading.await(5, TimeUnit.SECONDS));
+
+        for(int i = 0; i < 4; i++) assertFalse(strategy.isThrottled());
+        release.countDown();
+        waiting.join();
+    }
+
+    // store failures surface as unchecked exceptions
+    @Test(expected = UncheckedIOException.class)
+    public void testWhenStoreFails() {
+        BucketStore failing = new BucketStore() {
+            @Override
+            public long[] get(String key) throws IOException {
+                throw new IOException("Connection refused");
+            }
+
+            @Override
+            public boolean compareAndSet(String key, long[] expected, long[] update) throws IOException {
+                throw new IOException("Connection refused");
+            }
+        };
+
+        new DistributedTokenBucketStrategy(failing, KEY, policy, 1, ticker).isThrottled();
+    }
+
+    private static final class CountingStore implements BucketStore {
+        private final BucketStore store;
+        private final AtomicLong compareAndSets = new AtomicLong();
+        private int failNextCompareAndSets;
+
+        private CountingStore(BucketStore store) {
+            this.store = store;
+        }
+
+        @Override
+        public long[] get(String key) throws IOException {
+            return store.get(key);
+        }
+
+        @Override
+        public boolean compareAndSet(String key, long[] expected, long[] update) throws IOException {
+            compareAndSets.incrementAndGet();
+            if(failNextCompareAndSets > 0){
+                failNextCompareAndSets--;
+                return false;
+            }
+            return store.compareAndSet(key, expected, update);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package me.sudohippie.throttle.strategy.gcra;
+
+import me.sudohippie.throttle.util.ManualTicker;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class GenericCellRateTest {
+
+    /* test state */
+    // test capacity when negative
+    @Test(expected = IllegalArgumentException.class)
+    public void testWhenCapacityIsNegative(){
+        new GenericCellRateStrategy(-1, 0, TimeUnit.MILLISECONDS);
+    }
+
+    // test refill interval when negative
+    @Test(expected = IllegalArgumentException.class)
+    public void testWhenRefillIntervalIsNegative(){
+        new GenericCellRateStrategy(0, -1, TimeUnit.MILLISECONDS);
+    }
+
+    /* test logic */
+    long MAX_TOKENS = 10;
+    long REFILL_INTERVAL = 1000;
+    TimeUnit REFILL_INTERVAL_TIME_UNIT = TimeUnit.MILLISECONDS;
+    // time between two tokens
+    long EMISSION_INTERVAL = 100;
+
+    long N_LESS_THAN_MAX = 2;
+    long N_GREATER_THAN_MAX = 12;
+    int CUMULATIVE = 3;
+
+    ManualTicker ticker;
+    GenericCellRateStrategy strategy;
+
+    @Before
+    public void setUp() throws Exception {
+        ticker = new ManualTicker();
+        strategy = new GenericCellRateStrategy(MAX_TOKENS, REFILL_INTERVAL, REFILL_INTERVAL_TIME_UNIT, ticker);
+    }
+
+    @Test
+    public void testWhenNIsLessThanMaxTokens(){
+        assertFalse(strategy.isThrottled(N_LESS_THAN_MAX));
+        assertEquals(MAX_TOKENS - N_LESS_THAN_MAX, strategy.getCurrentTokenCount());
+    }
+
+    @Test
+    public void testWhenNIsGreaterThanMaxTokens() {
+        assertTrue(strategy.isThrottled(N_GREATER_THAN_MAX));
+        assertEquals(MAX_TOKENS, strategy.getCurrentTokenCount());
+    }
+
+    @Test
+    public void testWhenCumulativeNIsLessThanMaxTokens() {
+        for(int i = 0; i < CUMULATIVE; i++) assertFalse(strategy.isThrottled(N_LESS_THAN_MAX));
+
+        assertEquals(MAX_TOKENS - (CUMULATIVE * N_LESS_THAN_MAX), strategy.getCurrentTokenCount());
+    }
+
+    // after a full burst, tokens are released one emission interval apart
+    @Test
+    public void testWhenBurstExhaustedTokensAreSpacedEvenly() {
+        assertFalse(strategy.isThrottled(MAX_TOKENS));
+        assertTrue(strategy.isThrottled());
+
+        ticker.advance(EMISSION_INTERVAL - 1, REFILL_INTERVAL_TIME_UNIT);
+        assertTrue(strategy.isThrottled());
+
+        ticker.advance(1, REFILL_INTERVAL_TIME_UNIT);
+        assertFalse(strategy.isThrottled());
+        assertTrue(strategy.isThrottled());
+
+        // a whole interval of idling restores the full burst, and no more
+        ticker.advance(2 * REFILL_INTERVAL, REFILL_INTERVAL_TIME_UNIT);
+        assertEquals(MAX_TOKENS, strategy.getCurrentTokenCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNextReleaseWhenInputParamIsNegative(){
+        strategy.timeToRelease(-1L, TimeUnit.MILLISECONDS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNextReleaseWhenInputParamIsNull(){
+        strategy.timeToRelease(1L, null);
+    }
+
+    @Test
+    public void testNextReleaseWhenTokensExist(){
+        assertEquals(0L, strategy.timeToRelease(1, TimeUnit.MILLISECONDS));
+        assertEquals(0L, strategy.timeToRelease(MAX_TOKENS, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testNextReleaseWhenTokensAreExhausted() {
+        assertFalse(strategy.isThrottled(MAX_TOKENS));
+
+        assertEquals(EMISSION_INTERVAL, strategy.timeToRelease(1L, TimeUnit.MILLISECONDS));
+        assertEquals(3 * EMISSION_INTERVAL, strategy.timeToRelease(3L, TimeUnit.MILLISECONDS));
+        assertEquals(REFILL_INTERVAL, strategy.timeToRelease(N_GREATER_THAN_MAX, TimeUnit.MILLISECONDS));
+
+        ticker.advance(EMISSION_INTERVAL, REFILL_INTERVAL_TIME_UNIT);
+
+        assertEquals(0L, strategy.timeToRelease(1L, TimeUnit.MILLISECONDS));
+        assertFalse(strategy.isThrottled());
+    }
+
+    // many threads racing for tokens, exactly capacity tokens are granted while time stands still
+    @Test
+    public void testConcurrentThrottleGrantsExactlyCapacity() throws InterruptedException {
+        final long capacity = 100000;
+        final GenericCellRateStrategy shared = new GenericCellRateStrategy(capacity, 1, TimeUnit.HOURS, new ManualTicker());
+        final AtomicLong granted = new AtomicLong();
+        final CountDownLatch start = new CountDownLatch(1);
+
+        Thread[] threads = new Thread[8];
+        for(int i = 0; i < threads.length; i++){
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for(int j = 0; j < capacity / 4; j++){
+                        if(!shared.isThrottled()) granted.incrementAndGet();
+                    }
+                }
+            });
+            threads[i].start();
+        }
+
+        start.countDown();
+        for(Thread thread : threads) thread.join();
+
+        assertEquals(capacity, granted.get());
+        assertEquals(0L, shared.getCurrentTokenCount());
+    }
+
+    // refunded tokens are available again, never beyond capacity
+    @Test
+    public void testRefundGivesBackTokens(){
+        assertFalse(strategy.isThrottled(MAX_TOKENS));
+        strategy.refund(N_LESS_THAN_MAX);
+        assertEquals(N_LESS_THAN_MAX, strategy.getCurrentTokenCount());
+
+        strategy.refund(N_GREATER_THAN_MAX);
+        assertEquals(MAX_TOKENS, strategy.getCurrentTokenCount());
+    }
+
+    // reservations move the arrival time ahead, each valid when its tokens would be released
+    @Test
+    public void testReservationsAreSpacedEvenly(){
+        assertEquals(0L, strategy.reserve(MAX_TOKENS).getDelay(TimeUnit.MILLISECONDS));
+        assertEquals(EMISSION_INTERVAL, strategy.reserve(1).getDelay(TimeUnit.MILLISECONDS));
+        assertEquals(3 * EMISSION_INTERVAL, strategy.reserve(2).getDelay(TimeUnit.MILLISECONDS));
+        assertEquals(0L, strategy.getCurrentTokenCount());
+
+        // cancelling the last reservation releases its token, due after the others, to others
+        strategy.reserve(1).cancel();
+        ticker.advance(3 * EMISSION_INTERVAL, REFILL_INTERVAL_TIME_UNIT);
+        assertTrue(strategy.isThrottled());
+        ticker.advance(EMISSION_INTERVAL, REFILL_INTERVAL_TIME_UNIT);
+        assertFalse(strategy.isThrottled());
+        assertTrue(strategy.isThrottled());
+    }
+}
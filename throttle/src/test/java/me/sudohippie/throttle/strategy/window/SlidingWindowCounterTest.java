@@ -0,0 +1,131 @@
+package me.sudohippie.throttle.strategy.window;
+
+import me.sudohippie.throttle.util.ManualTicker;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class SlidingWindowCounterTest {
+
+    /* test state */
+    // test capacity when negative
+    @Test(expected = IllegalArgumentException.class)
+    public void testWhenCapacityIsNegative(){
+        new SlidingWindowCounterStrategy(-1, 1, TimeUnit.MILLISECONDS);
+    }
+
+    // test window length when not positive
+    @Test(expected = IllegalArgumentException.class)
+    public void testWhenWindowLengthIsZero(){
+        new SlidingWindowCounterStrategy(1, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /* test logic */
+    long MAX_TOKENS = 10;
+    long WINDOW_LENGTH = 1000;
+    TimeUnit WINDOW_LENGTH_TIME_UNIT = TimeUnit.MILLISECONDS;
+
+    long N_LESS_THAN_MAX = 2;
+    long N_GREATER_THAN_MAX = 12;
+    int CUMULATIVE = 3;
+
+    ManualTicker ticker;
+    SlidingWindowCounterStrategy strategy;
+
+    @Before
+    public void setUp() throws Exception {
+        ticker = new ManualTicker();
+        strategy = new SlidingWindowCounterStrategy(MAX_TOKENS, WINDOW_LENGTH, WINDOW_LENGTH_TIME_UNIT, ticker);
+    }
+
+    @Test
+    public void testWhenNIsLessThanMaxTokens(){
+        assertFalse(strategy.isThrottled(N_LESS_THAN_MAX));
+        assertEquals(MAX_TOKENS - N_LESS_THAN_MAX, strategy.getCurrentTokenCount());
+    }
+
+    @Test
+    public void testWhenNIsGreaterThanMaxTokens() {
+        assertTrue(strategy.isThrottled(N_GREATER_THAN_MAX));
+        assertEquals(MAX_TOKENS, strategy.getCurrentTokenCount());
+    }
+
+    @Test
+    public void testWhenCumulativeNIsLessThanMaxTokens() {
+        for(int i = 0; i < CUMULATIVE; i++) assertFalse(strategy.isThrottled(N_LESS_THAN_MAX));
+
+        assertEquals(MAX_TOKENS - (CUMULATIVE * N_LESS_THAN_MAX), strategy.getCurrentTokenCount());
+    }
+
+    // a burst late in one window weighs on the start of the next
+    @Test
+    public void testNoDoubleBurstAcrossBoundary() {
+        ticker.advance(WINDOW_LENGTH - 1, WINDOW_LENGTH_TIME_UNIT);
+        assertFalse(strategy.isThrottled(MAX_TOKENS));
+
+        ticker.advance(1, WINDOW_LENGTH_TIME_UNIT);
+        assertTrue(strategy.isThrottled());
+
+        // a fifth into the next window, a fifth of the previous window has slid out
+        ticker.advance(WINDOW_LENGTH / 5, WINDOW_LENGTH_TIME_UNIT);
+        assertEquals(MAX_TOKENS / 5, strategy.getCurrentTokenCount());
+        assertFalse(strategy.isThrottled(MAX_TOKENS / 5));
+        assertTrue(strategy.isThrottled());
+    }
+
+    // windows without requests are forgotten
+    @Test
+    public void testWhenIdleForWindowsBucketIsEmpty() {
+        assertFalse(strategy.isThrottled(MAX_TOKENS));
+
+        ticker.advance(2 * WINDOW_LENGTH, WINDOW_LENGTH_TIME_UNIT);
+        assertEquals(MAX_TOKENS, strategy.getCurrentTokenCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNextReleaseWhenInputParamIsNegative(){
+        strategy.timeToRelease(-1L, TimeUnit.MILLISECONDS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNextReleaseWhenInputParamIsNull(){
+        strategy.timeToRelease(1L, null);
+    }
+
+    @Test
+    public void testNextReleaseWhenTokensExist(){
+        assertEquals(0L, strategy.timeToRelease(1, TimeUnit.MILLISECONDS));
+        assertEquals(0L, strategy.timeToRelease(MAX_TOKENS, TimeUnit.MILLISECONDS));
+    }
+
+    // released once enough of the previous window has slid out
+    @Test
+    public void testNextReleaseWhenPreviousWindowIsFull() {
+        assertFalse(strategy.isThrottled(MAX_TOKENS));
+        ticker.advance(WINDOW_LENGTH, WINDOW_LENGTH_TIME_UNIT);
+        assertTrue(strategy.isThrottled());
+
+        assertEquals(WINDOW_LENGTH / 10, strategy.timeToRelease(1L, TimeUnit.MILLISECONDS));
+        assertEquals(WINDOW_LENGTH / 2, strategy.timeToRelease(MAX_TOKENS / 2, TimeUnit.MILLISECONDS));
+
+        ticker.advance(WINDOW_LENGTH / 2, WINDOW_LENGTH_TIME_UNIT);
+        assertEquals(0L, strategy.timeToRelease(MAX_TOKENS / 2, TimeUnit.MILLISECONDS));
+        assertFalse(strategy.isThrottled(MAX_TOKENS / 2));
+    }
+
+    // released during the next window, once enough of the current one has slid out
+    @Test
+    public void testNextReleaseWhenCurrentWindowIsFull() {
+        ticker.advance(WINDOW_LENGTH / 2, WINDOW_LENGTH_TIME_UNIT);
+        assertFalse(strategy.isThrottled(MAX_TOKENS));
+
+        assertEquals(WINDOW_LENGTH / 2 + WINDOW_LENGTH / 10, strategy.timeToRelease(1L, TimeUnit.MILLISECONDS));
+        assertEquals(WINDOW_LENGTH / 2, strategy.timeToRelease(N_GREATER_THAN_MAX, TimeUnit.MILLISECONDS));
+
+        ticker.advance(WINDOW_LENGTH / 2 + WINDOW_LENGTH / 10, WINDOW_LENGTH_TIME_UNIT);
+        assertFalse(strategy.isThrottled());
+    }
+}
@@ -0,0 +1,154 @@
+package me.sudohippie.throttle.strategy.window;
+
+import me.sudohippie.throttle.util.ManualTicker;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class SlidingWindowLogTest {
+
+    /* test state */
+    // test capacity when negative
+    @Test(expected = IllegalArgumentException.class)
+    public void testWhenCapacityIsNegative(){
+        new SlidingWindowLogStrategy(-1, 1, TimeUnit.MILLISECONDS);
+    }
+
+    // test window length when not positive
+    @Test(expected = IllegalArgumentException.class)
+    public void testWhenWindowLengthIsZero(){
+        new SlidingWindowLogStrategy(1, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /* test logic */
+    int MAX_TOKENS = 10;
+    long WINDOW_LENGTH = 1000;
+    TimeUnit WINDOW_LENGTH_TIME_UNIT = TimeUnit.MILLISECONDS;
+
+    long N_LESS_THAN_MAX = 2;
+    long N_GREATER_THAN_MAX = 12;
+    int CUMULATIVE = 3;
+
+    ManualTicker ticker;
+    SlidingWindowLogStrategy strategy;
+
+    @Before
+    public void setUp() throws Exception {
+        ticker = new ManualTicker();
+        strategy = new SlidingWindowLogStrategy(MAX_TOKENS, WINDOW_LENGTH, WINDOW_LENGTH_TIME_UNIT, ticker);
+    }
+
+    @Test
+    public void testWhenNIsLessThanMaxTokens(){
+        assertFalse(strategy.isThrottled(N_LESS_THAN_MAX));
+        assertEquals(MAX_TOKENS - N_LESS_THAN_MAX, strategy.getCurrentTokenCount());
+    }
+
+    @Test
+    public void testWhenNIsGreaterThanMaxTokens() {
+        assertTrue(strategy.isThrottled(N_GREATER_THAN_MAX));
+        assertEquals(MAX_TOKENS, strategy.getCurrentTokenCount());
+    }
+
+    @Test
+    public void testWhenCumulativeNIsLessThanMaxTokens() {
+        for(int i = 0; i < CUMULATIVE; i++) assertFalse(strategy.isThrottled(N_LESS_THAN_MAX));
+
+        assertEquals(MAX_TOKENS - (CUMULATIVE * N_LESS_THAN_MAX), strategy.getCurrentTokenCount());
+    }
+
+    // a burst late in one window can not be followed by another just after the boundary
+    @Test
+    public void testNoDoubleBurstAcrossBoundary() {
+        ticker.advance(WINDOW_LENGTH - 1, WINDOW_LENGTH_TIME_UNIT);
+        assertFalse(strategy.isThrottled(MAX_TOKENS));
+
+        ticker.advance(2, WINDOW_LENGTH_TIME_UNIT);
+        assertTrue(strategy.isThrottled());
+
+        ticker.advance(WINDOW_LENGTH - 2, WINDOW_LENGTH_TIME_UNIT);
+        assertFalse(strategy.isThrottled(MAX_TOKENS));
+    }
+
+    // requests leave the window one by one, in the order they were admitted
+    @Test
+    public void testWhenRequestsExpireOneByOne() {
+        for(int i = 0; i < MAX_TOKENS; i++){
+            assertFalse(strategy.isThrottled());
+            ticker.advance(10, WINDOW_LENGTH_TIME_UNIT);
+        }
+        assertTrue(strategy.isThrottled());
+
+        // first request leaves the window
+        ticker.advance(WINDOW_LENGTH - 10 * MAX_TOKENS, WINDOW_LENGTH_TIME_UNIT);
+        assertEquals(1L, strategy.getCurrentTokenCount());
+        assertFalse(strategy.isThrottled());
+        assertTrue(strategy.isThrottled());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNextReleaseWhenInputParamIsNegative(){
+        strategy.timeToRelease(-1L, TimeUnit.MILLISECONDS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNextReleaseWhenInputParamIsNull(){
+        strategy.timeToRelease(1L, null);
+    }
+
+    @Test
+    public void testNextReleaseWhenTokensExist(){
+        assertEquals(0L, strategy.timeToRelease(1, TimeUnit.MILLISECONDS));
+        assertEquals(0L, strategy.timeToRelease(MAX_TOKENS, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testNextReleaseWhenTokensAreExhausted() {
+        for(int i = 0; i < MAX_TOKENS; i++){
+            assertFalse(strategy.isThrottled());
+            ticker.advance(10, WINDOW_LENGTH_TIME_UNIT);
+        }
+
+        long elapsed = 10 * MAX_TOKENS;
+        assertEquals(WINDOW_LENGTH - elapsed, strategy.timeToRelease(1L, TimeUnit.MILLISECONDS));
+        assertEquals(WINDOW_LENGTH - elapsed + 20, strategy.timeToRelease(3L, TimeUnit.MILLISECONDS));
+        assertEquals(WINDOW_LENGTH - 10, strategy.timeToRelease(N_GREATER_THAN_MAX, TimeUnit.MILLISECONDS));
+
+        ticker.advance(WINDOW_LENGTH - elapsed, WINDOW_LENGTH_TIME_UNIT);
+
+        assertEquals(0L, strategy.timeToRelease(1L, TimeUnit.MILLISECONDS));
+    }
+
+    // more than capacity on an empty log, never released, waiters get a whole window
+    @Test
+    public void testNextReleaseWhenNGreaterThanMaxOnEmptyLog(){
+        assertEquals(WINDOW_LENGTH, strategy.timeToRelease(N_GREATER_THAN_MAX, WINDOW_LENGTH_TIME_UNIT));
+    }
+
+    // a log of capacity 0 throttles everything and never reports a release of 0
+    @Test
+    public void testWhenCapacityIsZero(){
+        SlidingWindowLogStrategy empty = new SlidingWindowLogStrategy(0, WINDOW_LENGTH, WINDOW_LENGTH_TIME_UNIT, ticker);
+
+        assertTrue(empty.isThrottled());
+        assertFalse(empty.isThrottled(0));
+        assertEquals(0L, empty.getCurrentTokenCount());
+        assertEquals(0L, empty.timeToRelease(0, WINDOW_LENGTH_TIME_UNIT));
+        assertEquals(WINDOW_LENGTH, empty.timeToRelease(1, WINDOW_LENGTH_TIME_UNIT));
+        empty.refund(1);
+    }
+
+    // refunds drop the most recent requests from the log
+    @Test
+    public void testRefundGivesBackTokens(){
+        assertFalse(strategy.isThrottled(MAX_TOKENS));
+        strategy.refund(N_LESS_THAN_MAX);
+        assertEquals(N_LESS_THAN_MAX, strategy.getCurrentTokenCount());
+
+        strategy.refund(N_GREATER_THAN_MAX);
+        assertEquals(MAX_TOKENS, strategy.getCurrentTokenCount());
+    }
+}
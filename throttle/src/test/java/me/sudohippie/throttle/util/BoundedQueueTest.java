@@ -0,0 +1,86 @@
+package me.sudohippie.throttle.util;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.*;
+
+public class BoundedQueueTest {
+
+    /* test state */
+    @Test(expected = IllegalArgumentException.class)
+    public void testWhenCapacityIsNotPositive(){
+        new BoundedQueue<Object>(0);
+    }
+
+    // capacity is rounded up to a power of two
+    @Test
+    public void testCapacityIsRoundedUp(){
+        assertEquals(8, new BoundedQueue<Object>(5).getCapacity());
+    }
+
+    /* test logic */
+    // elements come out in order, a full queue rejects offers, slots are reused after a lap
+    @Test
+    public void testOfferAndPoll(){
+        BoundedQueue<Integer> queue = new BoundedQueue<Integer>(4);
+        assertNull(queue.peek());
+        assertNull(queue.poll());
+
+        for(int lap = 0; lap < 3; lap++){
+            for(int i = 0; i < 4; i++) assertTrue(queue.offer(i));
+            assertFalse(queue.offer(4));
+            assertEquals(4, queue.size());
+
+            for(int i = 0; i < 4; i++){
+                assertEquals(Integer.valueOf(i), queue.peek());
+                assertEquals(Integer.valueOf(i), queue.poll());
+            }
+            assertTrue(queue.isEmpty());
+        }
+    }
+
+    // elements offered by many threads are all polled exactly once
+    @Test
+    public void testConcurrentProducers() throws InterruptedException {
+        final BoundedQueue<Long> queue = new BoundedQueue<Long>(64);
+        final int producers = 4;
+        final int perProducer = 20000;
+        final CountDownLatch start = new CountDownLatch(1);
+
+        Thread[] threads = new Thread[producers];
+        for(int i = 0; i < producers; i++){
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for(long j = 1; j <= perProducer; j++){
+                        while(!queue.offer(j)) Thread.yield();
+                    }
+                }
+            });
+            threads[i].start();
+        }
+
+        start.countDown();
+        long sum = 0;
+        for(int polled = 0; polled < producers * perProducer;){
+            Long element = queue.poll();
+            if(element == null){
+                Thread.yield();
+                continue;
+            }
+            sum += element;
+            polled++;
+        }
+        for(Thread thread : threads) thread.join();
+
+        assertEquals(producers * ((long) perProducer * (perProducer + 1) / 2), sum);
+        assertTrue(queue.isEmpty());
+    }
+}
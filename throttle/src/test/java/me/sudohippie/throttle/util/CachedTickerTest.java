@@ -0,0 +1,57 @@
+package me.sudohippie.throttle.util;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class CachedTickerTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWhenResolutionIsNotPositive() throws Exception {
+        new CachedTicker(0, TimeUnit.MILLISECONDS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWhenSourceIsNull() throws Exception {
+        new CachedTicker(null, 1, TimeUnit.MILLISECONDS);
+    }
+
+    // reading follows the source, refreshed by the background thread
+    @Test
+    public void testReadingFollowsSource() throws Exception {
+        ManualTicker source = new ManualTicker();
+        CachedTicker ticker = new CachedTicker(source, 1, TimeUnit.MILLISECONDS);
+        try {
+            assertEquals(0L, ticker.read());
+
+            source.advance(5, TimeUnit.SECONDS);
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while(ticker.read() != TimeUnit.SECONDS.toNanos(5) && System.nanoTime() < deadline) Thread.sleep(1);
+
+            assertEquals(TimeUnit.SECONDS.toNanos(5), ticker.read());
+        } finally {
+            ticker.close();
+        }
+    }
+
+    // reading is frozen once closed
+    @Test
+    public void testReadingIsFrozenWhenClosed() throws Exception {
+        ManualTicker source = new ManualTicker();
+        CachedTicker ticker = new CachedTicker(source, 1, TimeUnit.MILLISECONDS);
+        ticker.close();
+        Thread.sleep(10);
+
+        source.advance(1, TimeUnit.SECONDS);
+        Thread.sleep(10);
+
+        assertEquals(0L, ticker.read());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testManualTickerCanNotMoveBackwards() throws Exception {
+        new ManualTicker().advance(-1, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,80 @@
+package me.sudohippie.throttle.util;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class TimerWheelTest {
+
+    private TimerWheel timer;
+
+    @Before
+    public void setUp() throws Exception {
+        // small wheel, so that delays span several rotations
+        timer = new TimerWheel(1, TimeUnit.MILLISECONDS, 8);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        timer.close();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWhenTickDurationIsNotPositive() throws Exception {
+        new TimerWheel(0, TimeUnit.MILLISECONDS);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testScheduleWhenClosed() throws Exception {
+        timer.close();
+        timer.schedule(new Runnable() {
+            @Override
+            public void run() {
+            }
+        }, 0, TimeUnit.MILLISECONDS);
+    }
+
+    // task runs, but not before its delay
+    @Test
+    public void testTaskRunsAfterDelay() throws Exception {
+        final long delay = 50;
+        final CountDownLatch ran = new CountDownLatch(1);
+        final AtomicLong ranAt = new AtomicLong();
+
+        long start = System.nanoTime();
+        timer.schedule(new Runnable() {
+            @Override
+            public void run() {
+                ranAt.set(System.nanoTime());
+                ran.countDown();
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        assertTrue(ranAt.get() - start >= TimeUnit.MILLISECONDS.toNanos(delay));
+    }
+
+    // many tasks each run exactly once
+    @Test
+    public void testManyTasksRun() throws Exception {
+        int tasks = 10000;
+        final CountDownLatch ran = new CountDownLatch(tasks);
+
+        for(int i = 0; i < tasks; i++){
+            timer.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    ran.countDown();
+                }
+            }, i % 20, TimeUnit.MILLISECONDS);
+        }
+
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+    }
+}